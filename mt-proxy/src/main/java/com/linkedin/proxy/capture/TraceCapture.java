@@ -0,0 +1,374 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.trace.TraceFormat;
+import com.linkedin.proxy.common.Constants;
+import com.linkedin.proxy.query.Query;
+import com.linkedin.proxy.query.Query.QueryType;
+
+/**
+ * Records every received query to local trace files that the perf tool can replay with its TraceWorkload.<br>
+ * Event loop threads copy each query into a slot of a bounded ring buffer and return immediately. If the ring is
+ * full, the query is dropped from the trace instead of blocking. A single writer thread drains the ring into
+ * buffered files, which are rotated by size. Only the oldest files beyond the limit are deleted.<br>
+ * The file layout is described in TraceFormat of the perf tool. Queries whose database name or key is longer than
+ * TraceFormat.MAX_FIELD_LENGTH bytes do not fit into it and are skipped.
+ */
+public class TraceCapture extends Thread
+{
+  public static final String FLAG_CAPTURE_DIR       = "capture.dir";
+  public static final String FLAG_CAPTURE_RING_SIZE = "capture.ringSize";
+  public static final String FLAG_CAPTURE_FILE_SIZE = "capture.fileSize";
+  public static final String FLAG_CAPTURE_MAX_FILES = "capture.maxFiles";
+
+  private static final Logger _LOG = Logger.getLogger(TraceCapture.class);
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  //reused byte buffer of a string field
+  private static class Field
+  {
+    private byte _bytes[];
+    private int _length;
+
+    private Field(int capacity)
+    {
+      _bytes = new byte[capacity];
+    }
+
+    private void set(String str)
+    {
+      int len = str.length();
+      for(int a = 0; a<len; a++)
+      {
+        if(str.charAt(a) >= 0x80)
+        {
+          //not ascii, encode the slow way
+          _bytes = str.getBytes(UTF8);
+          _length = _bytes.length;
+          return;
+        }
+      }
+
+      if(_bytes.length < len)
+        _bytes = new byte[Math.max(len, _bytes.length * 2)];
+      for(int a = 0; a<len; a++)
+        _bytes[a] = (byte) str.charAt(a);
+      _length = len;
+    }
+
+    /**
+     * Join the keys with KEY_SEPARATOR. Keys that do not fit into the unsigned short length are left out.
+     * @return Number of joined keys
+     */
+    private int set(List<byte[]> keys)
+    {
+      int len = 0;
+      int count = 0;
+      while(count < keys.size() && len + keys.get(count).length + (count > 0 ? 1 : 0) <= TraceFormat.MAX_FIELD_LENGTH)
+      {
+        len += keys.get(count).length + (count > 0 ? 1 : 0);
+        count++;
+      }
+
+      if(_bytes.length < len)
+        _bytes = new byte[Math.max(len, _bytes.length * 2)];
+      int pos = 0;
+      for(int a = 0; a<count; a++)
+      {
+        if(a > 0)
+          _bytes[pos++] = TraceFormat.KEY_SEPARATOR;
+        byte key[] = keys.get(a);
+        System.arraycopy(key, 0, _bytes, pos, key.length);
+        pos += key.length;
+      }
+      _length = len;
+
+      return count;
+    }
+  }
+
+  private static class Slot
+  {
+    //sequence of the record in this slot. Written last by the producer to publish it
+    private volatile long _sequence = -1;
+    private long _timestamp;
+    private byte _op;
+    private Field _db = new Field(32);
+    private Field _key = new Field(64);
+    private int _valueLength;
+    //db or key is too long for the file format
+    private boolean _oversized;
+  }
+
+  private final Slot _slots[];
+  private final int _mask;
+  //next sequence to claim by producers
+  private final AtomicLong _tail;
+  //next sequence to write by the writer thread
+  private volatile long _head;
+  private final AtomicLong _dropped;
+  private volatile long _skipped;
+
+  private final File _dir;
+  private final long _fileSize;
+  private final int _maxFiles;
+  private final LinkedList<File> _files;
+  private int _fileIndex;
+  private DataOutputStream _out;
+  private long _written;
+
+  private final long _baseMicros;
+  private final long _baseNanos;
+  private volatile boolean _closed;
+
+  /**
+   * @param prop Properties of the proxy
+   * @return Started capture thread, or null if capture is not enabled
+   */
+  public static TraceCapture create(Properties prop) throws IOException
+  {
+    String temp = prop.getProperty(FLAG_CAPTURE_DIR);
+    if(temp == null)
+      return null;
+    File dir = new File(temp);
+
+    int ringSize = 65536;
+    temp = prop.getProperty(FLAG_CAPTURE_RING_SIZE);
+    if(temp != null)
+      ringSize = Integer.parseInt(temp);
+
+    long fileSize = 256L * 1024 * 1024;
+    temp = prop.getProperty(FLAG_CAPTURE_FILE_SIZE);
+    if(temp != null)
+      fileSize = Long.parseLong(temp);
+
+    int maxFiles = 10;
+    temp = prop.getProperty(FLAG_CAPTURE_MAX_FILES);
+    if(temp != null)
+      maxFiles = Integer.parseInt(temp);
+
+    TraceCapture result = new TraceCapture(dir, ringSize, fileSize, maxFiles);
+    result.start();
+    _LOG.info("Capturing queries to " + dir + " ringSize=" + ringSize + " fileSize=" + fileSize + " maxFiles=" + maxFiles);
+    return result;
+  }
+
+  /**
+   * @param dir Folder of the trace files
+   * @param ringSize Number of slots in the ring. Rounded up to a power of 2.
+   * @param fileSize A new file is started once the current one reaches this size in bytes
+   * @param maxFiles Number of files to keep. 0 or less keeps all.
+   */
+  public TraceCapture(File dir, int ringSize, long fileSize, int maxFiles) throws IOException
+  {
+    super("TraceCapture");
+    setDaemon(true);
+
+    int size = Integer.highestOneBit(Math.max(ringSize - 1, 1)) << 1;
+    _slots = new Slot[size];
+    for(int a = 0; a<size; a++)
+      _slots[a] = new Slot();
+    _mask = size - 1;
+    _tail = new AtomicLong(0);
+    _head = 0;
+    _dropped = new AtomicLong(0);
+    _skipped = 0;
+
+    if(!dir.isDirectory() && !dir.mkdirs())
+      throw new IOException("Cannot create capture folder " + dir);
+    _dir = dir;
+    _fileSize = fileSize;
+    _maxFiles = maxFiles;
+    _files = new LinkedList<File>();
+    _fileIndex = 0;
+
+    _baseMicros = System.currentTimeMillis() * Constants.THOUSAND;
+    _baseNanos = System.nanoTime();
+    _closed = false;
+  }
+
+  public long getDropped()
+  {
+    return _dropped.get();
+  }
+
+  /**
+   * @return Number of queries left out of the trace because their database name or key is too long
+   */
+  public long getSkipped()
+  {
+    return _skipped;
+  }
+
+  /**
+   * Add the query to the ring. Never blocks. Called by event loop threads.
+   * @param q Decoded query
+   */
+  public void record(Query q)
+  {
+    byte op;
+    if(q.getType() == QueryType.WRITE)
+      op = TraceFormat.OP_WRITE;
+    else if(q.getType() == QueryType.READ)
+      op = TraceFormat.OP_READ;
+    else if(q.getType() == QueryType.DELETE)
+      op = TraceFormat.OP_DELETE;
+    else if(q.getType() == QueryType.SCAN)
+      op = TraceFormat.OP_SCAN;
+    else if(q.getType() == QueryType.MULTI_GET)
+      op = TraceFormat.OP_MULTI_GET;
+    else if(q.getType() == QueryType.MERGE)
+      op = TraceFormat.OP_MERGE;
+    else
+      return;
+
+    if(_closed)
+      return;
+
+    long seq;
+    do
+    {
+      seq = _tail.get();
+      if(seq - _head >= _slots.length)
+      {
+        _dropped.incrementAndGet();
+        return;
+      }
+    }
+    while(!_tail.compareAndSet(seq, seq + 1));
+
+    Slot s = _slots[(int) (seq & _mask)];
+    s._timestamp = _baseMicros + (System.nanoTime() - _baseNanos) / Constants.THOUSAND;
+    s._op = op;
+    s._db.set(q.getDbName());
+    if(op == TraceFormat.OP_MULTI_GET)
+    {
+      s._valueLength = s._key.set(q.getKeys());
+    }
+    else
+    {
+      s._key.set(q.getKey());
+      if(op == TraceFormat.OP_SCAN)
+        s._valueLength = q.getLimit();
+      else
+        s._valueLength = q.getValue() == null ? 0 : q.getValue().length;
+    }
+    s._oversized = s._db._length > TraceFormat.MAX_FIELD_LENGTH || s._key._length > TraceFormat.MAX_FIELD_LENGTH;
+    s._sequence = seq;
+  }
+
+  @Override
+  public void run()
+  {
+    try
+    {
+      openFile();
+
+      while(true)
+      {
+        long head = _head;
+        Slot s = _slots[(int) (head & _mask)];
+        if(s._sequence != head)
+        {
+          //ring is empty. Flush what is written so far and wait for new records
+          _out.flush();
+          if(_closed && _tail.get() == head)
+            break;
+          LockSupport.parkNanos(Constants.MILLION);
+          continue;
+        }
+
+        if(s._oversized)
+        {
+          //the length would be truncated to a short and corrupt the rest of the file
+          _skipped++;
+          _head = head + 1;
+          continue;
+        }
+
+        _out.writeLong(s._timestamp);
+        _out.writeByte(s._op);
+        _out.writeShort(s._db._length);
+        _out.write(s._db._bytes, 0, s._db._length);
+        _out.writeShort(s._key._length);
+        _out.write(s._key._bytes, 0, s._key._length);
+        _out.writeInt(s._valueLength);
+        _written += TraceFormat.RECORD_OVERHEAD + s._db._length + s._key._length;
+
+        //free the slot
+        _head = head + 1;
+
+        if(_written >= _fileSize)
+          openFile();
+      }
+
+      _out.close();
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query capture failed. Stopped capturing", e);
+      _closed = true;
+    }
+
+    _LOG.info("Query capture finished. Dropped " + _dropped.get() + " queries because the ring was full and skipped " + _skipped
+        + " queries with a too long database name or key");
+  }
+
+  private void openFile() throws IOException
+  {
+    if(_out != null)
+      _out.close();
+
+    //names sort in capture order
+    File f = new File(_dir, String.format("trace-%d-%06d.bin", _baseMicros / Constants.THOUSAND, _fileIndex++));
+    _out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 64 * 1024));
+    _out.writeInt(TraceFormat.MAGIC);
+    _out.writeShort(TraceFormat.VERSION);
+    _written = TraceFormat.HEADER_SIZE;
+
+    _files.add(f);
+    while(_maxFiles > 0 && _files.size() > _maxFiles)
+    {
+      File old = _files.removeFirst();
+      if(!old.delete())
+        _LOG.warn("Cannot delete old trace file " + old);
+    }
+    _LOG.debug("Capturing to " + f);
+  }
+
+  /**
+   * Stop capturing, write the remaining records and close the file.
+   */
+  public void close()
+  {
+    _closed = true;
+    try
+    {
+      join();
+    }
+    catch(InterruptedException e)
+    {
+      _LOG.warn("Interrupted while closing query capture");
+    }
+  }
+}
@@ -29,8 +29,11 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 import org.rocksdb.RocksDB;
 
+import com.linkedin.proxy.capture.TraceCapture;
 import com.linkedin.proxy.netty.MysqlInitializer;
+import com.linkedin.proxy.netty.QueryDispatcher;
 import com.linkedin.proxy.netty.RocksdbInitializer;
+import com.linkedin.proxy.netty.TenantQuotas;
 import com.linkedin.proxy.pool.BlockingMysqlConnectionPool;
 import com.linkedin.proxy.pool.BlockingRocksdbConnectionPool;
 import com.linkedin.proxy.pool.ConnectionPool;
@@ -56,6 +59,9 @@ public class ProxyServer
   private static EventLoopGroup bossGroup;
   private static EventLoopGroup workerGroup;
   private static ConnectionPool connPool;
+  private static TraceCapture capture;
+  private static QueryDispatcher dispatcher;
+  private static TenantQuotas quotas;
   private static Channel ch;
   private static boolean isClosed = false;
 
@@ -195,6 +201,24 @@ public class ProxyServer
       return;
     }
 
+    //start query capture if enabled
+    try
+    {
+      capture = TraceCapture.create(prop);
+    }
+    catch(Exception e)
+    {
+      m_log.fatal("Cannot start query capture. Closing...", e);
+      connPool.closeAll();
+      return;
+    }
+
+    //storage calls run on dispatcher threads, not on the event loop
+    dispatcher = new QueryDispatcher(prop, connPool.getDatabases());
+
+    //per database admission control, enabled by quota.* properties
+    quotas = new TenantQuotas(prop, connPool.getDatabases());
+
     //if run time is specified, then start closing thread
     Thread closingThread = null;
     if(runTime > 0)
@@ -218,14 +242,14 @@ public class ProxyServer
         b.group(bossGroup, workerGroup)
           .channel(NioServerSocketChannel.class)
           .handler(new LoggingHandler(LogLevel.INFO))
-          .childHandler(new MysqlInitializer(prop, connPool));
+          .childHandler(new MysqlInitializer(prop, connPool, capture, dispatcher, quotas));
       }
       else if(runMode == ProxyMode.ROCKSDB)
       {
         b.group(bossGroup, workerGroup)
         .channel(NioServerSocketChannel.class)
         .handler(new LoggingHandler(LogLevel.INFO))
-        .childHandler(new RocksdbInitializer(prop, connPool));
+        .childHandler(new RocksdbInitializer(prop, connPool, capture, dispatcher, quotas));
       }
 
       ch = b.bind(port).sync().channel();
@@ -266,8 +290,15 @@ public class ProxyServer
       if(ch != null)
         ch.close();
       bossGroup.shutdownGracefully();
+      //queued queries still write their responses on the event loops
+      if(dispatcher != null)
+        dispatcher.close();
       workerGroup.shutdownGracefully();
       connPool.closeAll();
+      if(capture != null)
+        capture.close();
+      if(quotas != null)
+        quotas.close();
 
       isClosed = true;
     }
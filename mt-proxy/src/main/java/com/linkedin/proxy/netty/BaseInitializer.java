@@ -12,17 +12,57 @@ import java.util.Properties;
 import org.apache.log4j.Logger;
 
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 
+import com.linkedin.proxy.capture.TraceCapture;
+
 public abstract class BaseInitializer extends ChannelInitializer<SocketChannel>
 {
   public static final String FLAG_INIT_HTTP_BUFFER = "httpBuffer";
 
   protected static final Logger _LOG = Logger.getLogger(BaseInitializer.class);
   protected int _httpBufferSize;
+  protected TraceCapture _capture;
+  protected QueryDispatcher _dispatcher;
+  protected TenantQuotas _quotas;
 
   public BaseInitializer(Properties prop)
   {
+    this(prop, null);
+  }
+
+  /**
+   * @param prop Properties of the proxy
+   * @param capture Trace capture shared by all channels. Null if queries are not captured.
+   */
+  public BaseInitializer(Properties prop, TraceCapture capture)
+  {
+    this(prop, capture, new QueryDispatcher(prop));
+  }
+
+  /**
+   * @param prop Properties of the proxy
+   * @param capture Trace capture shared by all channels. Null if queries are not captured.
+   * @param dispatcher Dispatcher of storage calls shared by all channels
+   */
+  public BaseInitializer(Properties prop, TraceCapture capture, QueryDispatcher dispatcher)
+  {
+    this(prop, capture, dispatcher, null);
+  }
+
+  /**
+   * @param prop Properties of the proxy
+   * @param capture Trace capture shared by all channels. Null if queries are not captured.
+   * @param dispatcher Dispatcher of storage calls shared by all channels
+   * @param quotas Quotas of the tenants shared by all channels. Null if there are no quotas.
+   */
+  public BaseInitializer(Properties prop, TraceCapture capture, QueryDispatcher dispatcher, TenantQuotas quotas)
+  {
+    _capture = capture;
+    _dispatcher = dispatcher;
+    _quotas = quotas;
+
     String temp = prop.getProperty(FLAG_INIT_HTTP_BUFFER);
     if(temp == null)
     {
@@ -34,4 +74,14 @@ public abstract class BaseInitializer extends ChannelInitializer<SocketChannel>
       _httpBufferSize = Integer.parseInt(temp);
     }
   }
+
+  /**
+   * Add the capture stage between the query decoder and the query handler if capture is enabled.
+   * @param p Pipeline of the channel
+   */
+  protected void addCapture(ChannelPipeline p)
+  {
+    if(_capture != null)
+      p.addLast("capture", new CaptureHandler(_capture));
+  }
 }
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.proxy.query.Query;
+import com.linkedin.proxy.query.Query.QueryResult;
+import com.linkedin.proxy.query.Query.QueryType;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * Query handler that hands queries to a QueryDispatcher and writes the responses in the order of the requests.<br>
+ * A channel has one query at a time on the dispatcher. The next query of the channel is dispatched from the event loop
+ * after the response of the previous one is written, so http responses keep the order of pipelined requests, while
+ * queries of different channels run in parallel. The queue of waiting queries is only touched on the event loop.<br>
+ * If tenant quotas are enabled, the query at the head of the queue is admitted by the quota of its database before it
+ * is dispatched. A query that has to wait for its quota is held on the channel and retried from the event loop, so no
+ * storage thread waits for a quota. A query that is over its quota is answered with a failure at once.
+ */
+public abstract class BaseQueryHandler<T extends Query> extends SimpleChannelInboundHandler<T>
+{
+  private static final Logger _LOG = Logger.getLogger(BaseQueryHandler.class);
+  //period of checking a concurrency slot for a held query
+  private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  protected QueryDispatcher _dispatcher;
+  protected TenantQuotas _quotas;
+  private Queue<T> _waiting;
+  private boolean _busy;
+  //query waiting for its quota, whether its tokens are reserved, and when they were reserved
+  private T _held;
+  private boolean _reserved;
+  private long _reservedAt;
+
+  public BaseQueryHandler(QueryDispatcher dispatcher)
+  {
+    this(dispatcher, null);
+  }
+
+  /**
+   * @param dispatcher Dispatcher of storage calls shared by all channels
+   * @param quotas Quotas of the tenants shared by all channels. Null if there are no quotas.
+   */
+  public BaseQueryHandler(QueryDispatcher dispatcher, TenantQuotas quotas)
+  {
+    _dispatcher = dispatcher;
+    _quotas = (quotas != null && quotas.isEnabled()) ? quotas : null;
+    _waiting = new ArrayDeque<T>();
+    _busy = false;
+    _held = null;
+    _reserved = false;
+  }
+
+  /**
+   * Run the query and write its response. Runs on a dispatcher thread, or on the event loop in inline mode.
+   */
+  protected abstract void execute(ChannelHandlerContext ctx, T msg);
+
+  @Override
+  protected void messageReceived(ChannelHandlerContext ctx, T msg) throws Exception
+  {
+    if(_dispatcher.getMode() == QueryDispatcher.DispatchMode.INLINE && _quotas == null)
+    {
+      execute(ctx, msg);
+      return;
+    }
+
+    _waiting.add(msg);
+    if(!_busy)
+      dispatchNext(ctx);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception
+  {
+    //the tokens of a held query are taken, but it never runs
+    if(_held != null && _reserved)
+      getQuota(_held).refund(requestBytes(_held));
+
+    _waiting.clear();
+    _held = null;
+    _reserved = false;
+    super.channelInactive(ctx);
+  }
+
+  /**
+   * Dispatch the next waiting query of the channel, if any. Must run on the event loop.
+   */
+  private void dispatchNext(final ChannelHandlerContext ctx)
+  {
+    while(true)
+    {
+      T next = _held;
+      _held = null;
+      if(next == null)
+        next = _waiting.poll();
+
+      final T msg = next;
+      if(msg == null)
+      {
+        _busy = false;
+        return;
+      }
+
+      _busy = true;
+      final TenantQuota quota = getQuota(msg);
+      if(quota != null)
+      {
+        long wait = admit(quota, msg);
+        if(wait < 0)
+        {
+          _LOG.debug(Thread.currentThread().getName() + ": Query of " + msg.getDbName() + " is over its quota");
+          reject(ctx, msg);
+          continue;
+        }
+        else if(wait > 0)
+        {
+          hold(ctx, msg, wait);
+          return;
+        }
+      }
+
+      try
+      {
+        _dispatcher.execute(msg.getDbName(), new Runnable()
+        {
+          public void run()
+          {
+            try
+            {
+              execute(ctx, msg);
+              if(msg.getType() == QueryType.READ && msg.isSuccessfull())
+                chargeResponse(msg, msg.getValue().length);
+            }
+            catch(Exception e)
+            {
+              _LOG.error(Thread.currentThread().getName() + ": Query failed", e);
+            }
+            finally
+            {
+              if(quota != null)
+                quota.exit();
+
+              //queued on the event loop after the writes of the response
+              try
+              {
+                ctx.executor().execute(new Runnable()
+                {
+                  public void run()
+                  {
+                    dispatchNext(ctx);
+                  }
+                });
+              }
+              catch(RejectedExecutionException e)
+              {
+                _LOG.debug(Thread.currentThread().getName() + ": Event loop is shut down");
+              }
+            }
+          }
+        });
+        return;
+      }
+      catch(RejectedExecutionException e)
+      {
+        if(quota != null)
+        {
+          quota.exit();
+          quota.refund(requestBytes(msg));
+        }
+        _LOG.warn(Thread.currentThread().getName() + ": Storage pool of " + msg.getDbName() + " is full, query is rejected");
+        reject(ctx, msg);
+      }
+    }
+  }
+
+  /**
+   * @return Quota of the database of the query. Null if quotas are disabled or the query has no database.
+   */
+  private TenantQuota getQuota(T msg)
+  {
+    if(_quotas == null || msg.getType() == QueryType.INVALID || msg.getDbName() == null)
+      return null;
+    return _quotas.get(msg.getDbName());
+  }
+
+  /**
+   * Admit the query at the head of the channel. Must run on the event loop.
+   * @return 0 if the query can be dispatched, nanoseconds to hold it for, or -1 if it is rejected
+   */
+  private long admit(TenantQuota quota, T msg)
+  {
+    long now = System.nanoTime();
+    if(!_reserved)
+    {
+      long wait = quota.reserve(requestBytes(msg), now);
+      if(wait < 0)
+        return -1;
+
+      _reserved = true;
+      _reservedAt = now;
+      if(wait > 0)
+        return wait;
+    }
+
+    if(quota.enter())
+    {
+      _reserved = false;
+      return 0;
+    }
+    else if(now - _reservedAt < quota.getMaxWaitNanos())
+    {
+      return RETRY_NANOS;
+    }
+
+    _reserved = false;
+    quota.refund(requestBytes(msg));
+    quota.rejectByConcurrency();
+    return -1;
+  }
+
+  /**
+   * Keep the query at the head of the channel and try to dispatch it again later.
+   */
+  private void hold(final ChannelHandlerContext ctx, T msg, long nanos)
+  {
+    _held = msg;
+    try
+    {
+      ctx.executor().schedule(new Runnable()
+      {
+        public void run()
+        {
+          dispatchNext(ctx);
+        }
+      }, nanos, TimeUnit.NANOSECONDS);
+    }
+    catch(RejectedExecutionException e)
+    {
+      _LOG.debug(Thread.currentThread().getName() + ": Event loop is shut down");
+    }
+  }
+
+  /**
+   * Take the bytes of a response from the quota of its database. Called after the response is written.
+   * @param msg Query
+   * @param bytes Bytes of the response
+   */
+  protected void chargeResponse(Query msg, long bytes)
+  {
+    if(_quotas != null && msg.getDbName() != null)
+      _quotas.get(msg.getDbName()).charge(bytes, System.nanoTime());
+  }
+
+  /**
+   * @return Bytes of the keys and the value of a query
+   */
+  private static long requestBytes(Query msg)
+  {
+    long bytes = 0;
+    if(msg.getKey() != null)
+      bytes += msg.getKey().length();
+    if(msg.getValue() != null)
+      bytes += msg.getValue().length;
+
+    List<byte[]> keys = msg.getKeys();
+    if(keys != null)
+    {
+      for(int a = 0; a<keys.size(); a++)
+        bytes += keys.get(a).length;
+    }
+    return bytes;
+  }
+
+  /**
+   * Answer a query that could not be dispatched with a failure.
+   */
+  protected void reject(ChannelHandlerContext ctx, T msg)
+  {
+    if(msg.getType() == QueryType.SCAN || msg.getType() == QueryType.MULTI_GET)
+    {
+      new ScanResponseWriter(ctx).fail();
+    }
+    else
+    {
+      msg.setResult(QueryResult.FAIL);
+      ctx.writeAndFlush(msg);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+
+import com.linkedin.proxy.capture.TraceCapture;
+import com.linkedin.proxy.query.Query;
+
+/**
+ * Passes every decoded query to the trace capture before handing it to the query handler.
+ * It only copies the query into the capture ring, so it never blocks the event loop.
+ */
+public class CaptureHandler extends ChannelHandlerAdapter
+{
+  private TraceCapture _capture;
+
+  public CaptureHandler(TraceCapture capture)
+  {
+    _capture = capture;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+  {
+    if(msg instanceof Query)
+      _capture.record((Query) msg);
+
+    ctx.fireChannelRead(msg);
+  }
+}
@@ -11,6 +11,7 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.proxy.capture.TraceCapture;
 import com.linkedin.proxy.pool.ConnectionPool;
 
 import io.netty.channel.ChannelPipeline;
@@ -30,6 +31,25 @@ public class MysqlInitializer extends BaseInitializer
     _connPool = pool;
   }
 
+  public MysqlInitializer(Properties prop, ConnectionPool pool, TraceCapture capture)
+  {
+    super(prop, capture);
+    _connPool = pool;
+  }
+
+  public MysqlInitializer(Properties prop, ConnectionPool pool, TraceCapture capture, QueryDispatcher dispatcher)
+  {
+    super(prop, capture, dispatcher);
+    _connPool = pool;
+  }
+
+  public MysqlInitializer(Properties prop, ConnectionPool pool, TraceCapture capture, QueryDispatcher dispatcher,
+      TenantQuotas quotas)
+  {
+    super(prop, capture, dispatcher, quotas);
+    _connPool = pool;
+  }
+
   public void initChannel(SocketChannel ch)
   {
     String thrName = Thread.currentThread().getName() + ": ";
@@ -46,7 +66,10 @@ public class MysqlInitializer extends BaseInitializer
     p.addLast("mysqlDecoder", new MysqlQueryDecoder());
     p.addLast("mysqlEncoder", new MysqlQueryEncoder());
 
+    //optional query capture
+    addCapture(p);
+
     //MysqlQuery handler
-    p.addLast("mysqlHandler", new MysqlQueryHandler(_connPool));
+    p.addLast("mysqlHandler", new MysqlQueryHandler(_connPool, _dispatcher, _quotas));
   }
 }
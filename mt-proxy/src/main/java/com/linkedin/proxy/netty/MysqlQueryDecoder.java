@@ -18,6 +18,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
 
 public class MysqlQueryDecoder extends MessageToMessageDecoder<FullHttpRequest>
 {
@@ -31,7 +32,8 @@ public class MysqlQueryDecoder extends MessageToMessageDecoder<FullHttpRequest>
     try
     {
       HttpMethod met = msg.getMethod();
-      String uri = msg.getUri();
+      QueryStringDecoder uriDecoder = new QueryStringDecoder(msg.getUri());
+      String uri = uriDecoder.path();
       int s = 0;
       int e = uri.length();
       if(uri.charAt(0) == '/')
@@ -46,7 +48,15 @@ public class MysqlQueryDecoder extends MessageToMessageDecoder<FullHttpRequest>
       result.setKeyColName(parts[2]);
       result.setValueColName(parts[3]);
 
-      if(met.equals(HttpMethod.PUT))
+      if(met.equals(HttpMethod.PUT) && UriParameters.OP_MERGE.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * Merges are only supported by RocksDB.
+         */
+        result.setType(QueryType.INVALID);
+        _LOG.error("Merge is not supported for MySQL");
+      }
+      else if(met.equals(HttpMethod.PUT))
       {
         /*
          * If HttpRequest method is PUT, I interpret it as a WRITE query.
@@ -60,6 +70,29 @@ public class MysqlQueryDecoder extends MessageToMessageDecoder<FullHttpRequest>
 
         result.setType(QueryType.WRITE);
       }
+      else if(met.equals(HttpMethod.GET) && UriParameters.OP_SCAN.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * If HttpRequest method is GET with op=scan, I interpret it as a SCAN query starting from the key.
+         * Results are streamed back by the handler.
+         */
+        result.setKey(parts[4]);
+        result.setLimit(UriParameters.getInt(uriDecoder, UriParameters.PARAM_LIMIT, 100));
+        result.setType(QueryType.SCAN);
+      }
+      else if(met.equals(HttpMethod.POST) && UriParameters.OP_MGET.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * If HttpRequest method is POST with op=mget, I interpret it as a MULTI_GET query.
+         * All keys, including the one in the uri, are in the content. Found rows are sent back like a scan.
+         */
+        result.setKey(parts[4]);
+        result.setKeys(UriParameters.readKeys(msg.content()));
+        if(result.getKeys().isEmpty())
+          result.setType(QueryType.INVALID);
+        else
+          result.setType(QueryType.MULTI_GET);
+      }
       else if(met.equals(HttpMethod.GET))
       {
         /*
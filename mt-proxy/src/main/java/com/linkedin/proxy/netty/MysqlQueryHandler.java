@@ -7,10 +7,12 @@
  */
 package com.linkedin.proxy.netty;
 
+import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
@@ -18,23 +20,37 @@ import com.linkedin.proxy.conn.MyConnection;
 import com.linkedin.proxy.pool.ConnectionPool;
 import com.linkedin.proxy.query.MysqlQuery;
 import com.linkedin.proxy.query.Query.QueryResult;
+import com.linkedin.proxy.query.Query.QueryType;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
 
-public class MysqlQueryHandler extends SimpleChannelInboundHandler<MysqlQuery>
+public class MysqlQueryHandler extends BaseQueryHandler<MysqlQuery>
 {
   private static final Logger _LOG = Logger.getLogger(MysqlQueryHandler.class);
+  private static final Charset UTF8 = Charset.forName("UTF-8");
   private ConnectionPool _connPool;
 
-  public MysqlQueryHandler(ConnectionPool connPool)
+  public MysqlQueryHandler(ConnectionPool connPool, QueryDispatcher dispatcher, TenantQuotas quotas)
   {
+    super(dispatcher, quotas);
     _connPool = connPool;
   }
 
   @Override
-  protected void messageReceived(ChannelHandlerContext ctx, MysqlQuery msg) throws Exception
+  protected void execute(ChannelHandlerContext ctx, MysqlQuery msg)
   {
+    //scans and multi-gets stream their own response
+    if(msg.getType() == QueryType.SCAN)
+    {
+      executeScan(ctx, msg);
+      return;
+    }
+    else if(msg.getType() == QueryType.MULTI_GET)
+    {
+      executeMultiGet(ctx, msg);
+      return;
+    }
+
     switch (msg.getType())
     {
       case WRITE:
@@ -198,6 +214,123 @@ public class MysqlQueryHandler extends SimpleChannelInboundHandler<MysqlQuery>
     }
   }
 
+  private void executeScan(ChannelHandlerContext ctx, MysqlQuery q)
+  {
+    MyConnection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    ScanResponseWriter out = new ScanResponseWriter(ctx);
+    try
+    {
+      StringBuilder sb = new StringBuilder();
+      sb.append("select ");
+      sb.append(q.getKeyColName());
+      sb.append(", ");
+      sb.append(q.getValueColName());
+      sb.append(" from ");
+      sb.append(q.getDbName());
+      sb.append(".");
+      sb.append(q.getTableName());
+      sb.append(" where ");
+      sb.append(q.getKeyColName());
+      sb.append(">=? order by ");
+      sb.append(q.getKeyColName());
+      sb.append(" limit ?");
+      String scanStr = sb.toString();
+
+      conn = _connPool.getConnection(q.getDbName());
+      stmt = ((Connection) conn.getConn()).prepareStatement(scanStr);
+      stmt.setString(1, q.getKey());
+      stmt.setInt(2, q.getLimit());
+      rs = stmt.executeQuery();
+
+      while(rs.next())
+      {
+        byte value[] = rs.getBytes(2);
+        out.add(rs.getBytes(1), value == null ? new byte[0] : value);
+      }
+
+      out.finish();
+      chargeResponse(q, out.getBytes());
+    }
+    catch(Exception e)
+    {
+      _LOG.error(Thread.currentThread().getName() + ": Scan query failed", e);
+      out.fail();
+    }
+    finally
+    {
+      if(rs != null)
+        tryClose(rs);
+      if(stmt != null)
+        tryClose(stmt);
+      if(conn != null)
+        tryRelease(conn);
+    }
+  }
+
+  private void executeMultiGet(ChannelHandlerContext ctx, MysqlQuery q)
+  {
+    MyConnection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    ScanResponseWriter out = new ScanResponseWriter(ctx);
+    try
+    {
+      List<byte[]> keys = q.getKeys();
+
+      StringBuilder sb = new StringBuilder();
+      sb.append("select ");
+      sb.append(q.getKeyColName());
+      sb.append(", ");
+      sb.append(q.getValueColName());
+      sb.append(" from ");
+      sb.append(q.getDbName());
+      sb.append(".");
+      sb.append(q.getTableName());
+      sb.append(" where ");
+      sb.append(q.getKeyColName());
+      sb.append(" in (");
+      for(int a = 0; a<keys.size(); a++)
+      {
+        if(a > 0)
+          sb.append(",");
+        sb.append("?");
+      }
+      sb.append(")");
+      String multiGetStr = sb.toString();
+
+      conn = _connPool.getConnection(q.getDbName());
+      stmt = ((Connection) conn.getConn()).prepareStatement(multiGetStr);
+      for(int a = 0; a<keys.size(); a++)
+        stmt.setString(a + 1, new String(keys.get(a), UTF8));
+      rs = stmt.executeQuery();
+
+      while(rs.next())
+      {
+        byte value[] = rs.getBytes(2);
+        out.add(rs.getBytes(1), value == null ? new byte[0] : value);
+      }
+
+      out.finish();
+      chargeResponse(q, out.getBytes());
+    }
+    catch(Exception e)
+    {
+      _LOG.error(Thread.currentThread().getName() + ": MultiGet query failed", e);
+      out.fail();
+    }
+    finally
+    {
+      if(rs != null)
+        tryClose(rs);
+      if(stmt != null)
+        tryClose(stmt);
+      if(conn != null)
+        tryRelease(conn);
+    }
+  }
+
   private void executeCreate(MysqlQuery q)
   {
     MyConnection conn = null;
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs storage calls of the query handlers on executor threads instead of the netty event loop, so that a slow query
+ * or a wait for a pooled connection does not stall the other channels of the event loop.<br>
+ * In shared mode all databases use one pool. In perDb mode each database the connection pool serves gets its own pool,
+ * a bulkhead, so that a slow tenant can only use up its own threads. Other database names, e.g. typos, share one pool
+ * so that clients cannot add threads without bound. In inline mode queries run on the event loop as before.
+ */
+public class QueryDispatcher
+{
+  public static final String FLAG_DISPATCH_MODE     = "dispatch.mode";
+  public static final String FLAG_DISPATCH_THREADS  = "dispatch.threads";
+  public static final String FLAG_DISPATCH_QUEUE    = "dispatch.queueSize";
+
+  public enum DispatchMode
+  {
+    INLINE, SHARED, PERDB
+  }
+
+  private static final Logger _LOG = Logger.getLogger(QueryDispatcher.class);
+  private static final String SHARED_POOL = "";
+
+  private DispatchMode _mode;
+  private int _threads;
+  private int _queueSize;
+  private Set<String> _databases;
+  private Map<String, ExecutorService> _pools;
+  private volatile boolean _closed;
+
+  /**
+   * Dispatcher without known databases, perDb mode runs all queries on the shared pool.
+   */
+  public QueryDispatcher(Properties prop)
+  {
+    this(prop, Collections.<String>emptySet());
+  }
+
+  /**
+   * @param prop Properties of the proxy
+   * @param databases Databases that get their own pool in perDb mode, e.g. ConnectionPool.getDatabases
+   */
+  public QueryDispatcher(Properties prop, Set<String> databases)
+  {
+    _databases = databases;
+
+    String temp = prop.getProperty(FLAG_DISPATCH_MODE);
+    if(temp == null)
+    {
+      _LOG.warn("Dispatch mode is set to shared by default");
+      _mode = DispatchMode.SHARED;
+    }
+    else
+    {
+      _mode = DispatchMode.valueOf(temp.toUpperCase());
+    }
+
+    temp = prop.getProperty(FLAG_DISPATCH_THREADS);
+    _threads = temp == null ? 32 : Integer.parseInt(temp);
+
+    temp = prop.getProperty(FLAG_DISPATCH_QUEUE);
+    _queueSize = temp == null ? 10000 : Integer.parseInt(temp);
+
+    _pools = new ConcurrentHashMap<String, ExecutorService>();
+    _closed = false;
+    _LOG.info("Dispatch mode=" + _mode + " threads=" + _threads + " queueSize=" + _queueSize);
+  }
+
+  public DispatchMode getMode()
+  {
+    return _mode;
+  }
+
+  /**
+   * Run a task on the pool of the database.
+   * @param dbName Database of the query
+   * @param task Storage call and its response
+   * @throws RejectedExecutionException if the queue of the pool is full or the dispatcher is closed
+   */
+  public void execute(String dbName, Runnable task)
+  {
+    if(_mode == DispatchMode.INLINE)
+    {
+      task.run();
+      return;
+    }
+
+    String poolName = (_mode == DispatchMode.PERDB && dbName != null && _databases.contains(dbName)) ? dbName : SHARED_POOL;
+    ExecutorService pool = _pools.get(poolName);
+    if(pool == null)
+      pool = createPool(poolName);
+
+    pool.execute(task);
+  }
+
+  private synchronized ExecutorService createPool(String poolName)
+  {
+    if(_closed)
+      throw new RejectedExecutionException("Dispatcher is closed");
+
+    ExecutorService pool = _pools.get(poolName);
+    if(pool == null)
+    {
+      final String prefix = poolName.equals(SHARED_POOL) ? "storage-" : "storage-" + poolName + "-";
+      ThreadFactory factory = new ThreadFactory()
+      {
+        private AtomicInteger _count = new AtomicInteger();
+
+        public Thread newThread(Runnable r)
+        {
+          Thread thr = new Thread(r, prefix + _count.incrementAndGet());
+          thr.setDaemon(true);
+          return thr;
+        }
+      };
+
+      pool = new ThreadPoolExecutor(_threads, _threads, 0, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>(_queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+      _pools.put(poolName, pool);
+      _LOG.info("Created storage pool " + prefix + "* with " + _threads + " threads");
+    }
+
+    return pool;
+  }
+
+  /**
+   * Stop all pools after the queued queries finish.
+   */
+  public synchronized void close() throws InterruptedException
+  {
+    _closed = true;
+
+    Iterator<ExecutorService> itr = _pools.values().iterator();
+    while(itr.hasNext())
+      itr.next().shutdown();
+
+    itr = _pools.values().iterator();
+    while(itr.hasNext())
+    {
+      if(!itr.next().awaitTermination(10, TimeUnit.SECONDS))
+        _LOG.warn("Storage pool did not finish in 10 seconds");
+    }
+  }
+}
@@ -17,6 +17,7 @@ import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.proxy.capture.TraceCapture;
 import com.linkedin.proxy.pool.ConnectionPool;
 
 public class RocksdbInitializer extends BaseInitializer
@@ -31,6 +32,25 @@ public class RocksdbInitializer extends BaseInitializer
     m_connPool = connPool;
   }
 
+  public RocksdbInitializer(Properties prop, ConnectionPool connPool, TraceCapture capture)
+  {
+    super(prop, capture);
+    m_connPool = connPool;
+  }
+
+  public RocksdbInitializer(Properties prop, ConnectionPool connPool, TraceCapture capture, QueryDispatcher dispatcher)
+  {
+    super(prop, capture, dispatcher);
+    m_connPool = connPool;
+  }
+
+  public RocksdbInitializer(Properties prop, ConnectionPool connPool, TraceCapture capture, QueryDispatcher dispatcher,
+      TenantQuotas quotas)
+  {
+    super(prop, capture, dispatcher, quotas);
+    m_connPool = connPool;
+  }
+
   public void initChannel(SocketChannel ch)
   {
     String thrName = Thread.currentThread().getName() + ": ";
@@ -47,7 +67,10 @@ public class RocksdbInitializer extends BaseInitializer
     p.addLast("rocksdbDecoder", new RocksdbQueryDecoder());
     p.addLast("rocksdbEncoder", new RocksdbQueryEncoder());
 
+    //optional query capture
+    addCapture(p);
+
     //Rocksdb query handler
-    p.addLast("rocksdbHandler", new RocksdbQueryHandler(m_connPool));
+    p.addLast("rocksdbHandler", new RocksdbQueryHandler(m_connPool, _dispatcher, _quotas));
   }
 }
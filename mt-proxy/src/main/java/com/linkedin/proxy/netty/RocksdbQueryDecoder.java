@@ -13,9 +13,11 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.multitenant.common.MergeOperator;
 import com.linkedin.proxy.query.Query;
 import com.linkedin.proxy.query.Query.QueryType;
 
@@ -31,6 +33,9 @@ public class RocksdbQueryDecoder extends MessageToMessageDecoder<FullHttpRequest
      * PUT /dbName/key <value in content>
      * GET /dbName/key
      * DELETE /dbName/key
+     * GET /dbName/startKey?op=scan&limit=N
+     * POST /dbName/firstKey?op=mget <keys in content>
+     * PUT /dbName/key?op=merge&operator=append|counter <operand in content>
      */
 
     Query result = new Query();
@@ -38,7 +43,8 @@ public class RocksdbQueryDecoder extends MessageToMessageDecoder<FullHttpRequest
     try
     {
       HttpMethod met = msg.getMethod();
-      String uri = msg.getUri();
+      QueryStringDecoder uriDecoder = new QueryStringDecoder(msg.getUri());
+      String uri = uriDecoder.path();
       int s = 0;
       int e = uri.length();
       if(uri.charAt(0) == '/')
@@ -53,7 +59,21 @@ public class RocksdbQueryDecoder extends MessageToMessageDecoder<FullHttpRequest
       result.setKey(parts[1]);
       _LOG.debug("Key: " + parts[1]);
 
-      if(met.equals(HttpMethod.PUT))
+      if(met.equals(HttpMethod.PUT) && UriParameters.OP_MERGE.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * If HttpRequest method is PUT with op=merge, I interpret it as a MERGE query.
+         * The operand is the value in the HttpRequest. Default operator is counter.
+         */
+        byte[] tempData = new byte[msg.content().readableBytes()];
+        msg.content().readBytes(tempData);
+        result.setValue(tempData);
+
+        String operator = UriParameters.get(uriDecoder, UriParameters.PARAM_OPERATOR);
+        result.setOperator(operator == null ? MergeOperator.COUNTER : MergeOperator.parse(operator));
+        result.setType(QueryType.MERGE);
+      }
+      else if(met.equals(HttpMethod.PUT))
       {
         /*
          * If HttpRequest method is PUT, I interpret it as a WRITE query.
@@ -66,6 +86,27 @@ public class RocksdbQueryDecoder extends MessageToMessageDecoder<FullHttpRequest
 
         result.setType(QueryType.WRITE);
       }
+      else if(met.equals(HttpMethod.GET) && UriParameters.OP_SCAN.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * If HttpRequest method is GET with op=scan, I interpret it as a SCAN query starting from the key.
+         * Results are streamed back by the handler.
+         */
+        result.setLimit(UriParameters.getInt(uriDecoder, UriParameters.PARAM_LIMIT, 100));
+        result.setType(QueryType.SCAN);
+      }
+      else if(met.equals(HttpMethod.POST) && UriParameters.OP_MGET.equals(UriParameters.get(uriDecoder, UriParameters.PARAM_OP)))
+      {
+        /*
+         * If HttpRequest method is POST with op=mget, I interpret it as a MULTI_GET query.
+         * All keys, including the one in the uri, are in the content. Found rows are sent back like a scan.
+         */
+        result.setKeys(UriParameters.readKeys(msg.content()));
+        if(result.getKeys().isEmpty())
+          result.setType(QueryType.INVALID);
+        else
+          result.setType(QueryType.MULTI_GET);
+      }
       else if(met.equals(HttpMethod.GET))
       {
         /*
@@ -38,6 +38,7 @@ public class RocksdbQueryEncoder extends MessageToMessageEncoder<Query>
       {
         case WRITE:
         case DELETE:
+        case MERGE:
           response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(CONTENT));
           response.headers().set(HttpHeaders.Names.CONTENT_TYPE, "octet-stream");
           response.headers().set(HttpHeaders.Names.CONTENT_LENGTH, response.content().readableBytes());
@@ -7,30 +7,47 @@
  */
 package com.linkedin.proxy.netty;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
 
 import com.linkedin.proxy.conn.MyConnection;
 import com.linkedin.proxy.pool.ConnectionPool;
 import com.linkedin.proxy.query.Query;
 import com.linkedin.proxy.query.Query.QueryResult;
+import com.linkedin.proxy.query.Query.QueryType;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
 
-public class RocksdbQueryHandler extends SimpleChannelInboundHandler<Query>
+public class RocksdbQueryHandler extends BaseQueryHandler<Query>
 {
   private static final Logger _log = Logger.getLogger(RocksdbQueryHandler.class);
   private ConnectionPool _connPool;
 
-  public RocksdbQueryHandler(ConnectionPool connPool)
+  public RocksdbQueryHandler(ConnectionPool connPool, QueryDispatcher dispatcher, TenantQuotas quotas)
   {
+    super(dispatcher, quotas);
     _connPool = connPool;
   }
 
   @Override
-  protected void messageReceived(ChannelHandlerContext ctx, Query msg) throws Exception
+  protected void execute(ChannelHandlerContext ctx, Query msg)
   {
+    //scans and multi-gets stream their own response
+    if(msg.getType() == QueryType.SCAN)
+    {
+      executeScan(ctx, msg);
+      return;
+    }
+    else if(msg.getType() == QueryType.MULTI_GET)
+    {
+      executeMultiGet(ctx, msg);
+      return;
+    }
+
     switch (msg.getType())
     {
       case WRITE:
@@ -42,6 +59,9 @@ public class RocksdbQueryHandler extends SimpleChannelInboundHandler<Query>
       case DELETE:
         executeDelete(msg);
         break;
+      case MERGE:
+        executeMerge(msg);
+        break;
       case INVALID:
         msg.setResult(QueryResult.FAIL);
         break;
@@ -142,6 +162,112 @@ public class RocksdbQueryHandler extends SimpleChannelInboundHandler<Query>
     }
   }
 
+  /**
+   * The java binding does not expose merge operators, so the operator is applied here. There is a single
+   * connection per database and it is held from the get to the put, so concurrent merges of a key are not lost.
+   */
+  private void executeMerge(Query q)
+  {
+    MyConnection conn = null;
+    try
+    {
+      byte[] key = q.getKey().getBytes();
+      conn = _connPool.getConnection(q.getDbName());
+      _log.debug(Thread.currentThread().getName() + ": Got conn");
+      RocksDB db = (RocksDB) conn.getConn();
+      db.put(key, q.getOperator().apply(db.get(key), q.getValue(), 0, q.getValue().length));
+      _log.debug(Thread.currentThread().getName() + ": Performed merge");
+
+      q.setResult(QueryResult.OK);
+    }
+    catch(Exception e)
+    {
+      _log.error(Thread.currentThread().getName() + ": Merge query failed", e);
+      q.setResult(QueryResult.FAIL);
+    }
+    finally
+    {
+      if(conn != null)
+        tryRelease(conn);
+      _log.debug(Thread.currentThread().getName() + ": Released conn");
+    }
+  }
+
+  private void executeScan(ChannelHandlerContext ctx, Query q)
+  {
+    MyConnection conn = null;
+    RocksIterator itr = null;
+    ScanResponseWriter out = new ScanResponseWriter(ctx);
+    try
+    {
+      byte[] key = q.getKey().getBytes();
+      conn = _connPool.getConnection(q.getDbName());
+      _log.debug(Thread.currentThread().getName() + ": Got conn");
+
+      itr = ((RocksDB) conn.getConn()).newIterator();
+      itr.seek(key);
+      for(int a = 0; a<q.getLimit() && itr.isValid(); a++)
+      {
+        out.add(itr.key(), itr.value());
+        itr.next();
+      }
+      itr.status();
+
+      out.finish();
+      chargeResponse(q, out.getBytes());
+      _log.debug(Thread.currentThread().getName() + ": Performed scan of " + out.getRows() + " rows");
+    }
+    catch(Exception e)
+    {
+      _log.error(Thread.currentThread().getName() + ": Scan query failed", e);
+      out.fail();
+    }
+    finally
+    {
+      if(itr != null)
+        itr.dispose();
+      if(conn != null)
+        tryRelease(conn);
+      _log.debug(Thread.currentThread().getName() + ": Released conn");
+    }
+  }
+
+  private void executeMultiGet(ChannelHandlerContext ctx, Query q)
+  {
+    MyConnection conn = null;
+    ScanResponseWriter out = new ScanResponseWriter(ctx);
+    try
+    {
+      List<byte[]> keys = q.getKeys();
+      conn = _connPool.getConnection(q.getDbName());
+      _log.debug(Thread.currentThread().getName() + ": Got conn");
+
+      //result is keyed by the given key arrays, missing keys are not in it
+      Map<byte[], byte[]> values = ((RocksDB) conn.getConn()).multiGet(keys);
+      for(int a = 0; a<keys.size(); a++)
+      {
+        byte val[] = values.get(keys.get(a));
+        if(val != null)
+          out.add(keys.get(a), val);
+      }
+
+      out.finish();
+      chargeResponse(q, out.getBytes());
+      _log.debug(Thread.currentThread().getName() + ": Performed multiGet of " + keys.size() + " keys, found " + out.getRows());
+    }
+    catch(Exception e)
+    {
+      _log.error(Thread.currentThread().getName() + ": MultiGet query failed", e);
+      out.fail();
+    }
+    finally
+    {
+      if(conn != null)
+        tryRelease(conn);
+      _log.debug(Thread.currentThread().getName() + ": Released conn");
+    }
+  }
+
   private void tryRelease(MyConnection conn)
   {
     try
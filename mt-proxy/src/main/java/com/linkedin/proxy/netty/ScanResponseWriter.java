@@ -0,0 +1,123 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * Streams the rows of a scan or a multi-get as a chunked http response, so that large scans are not buffered in memory.<br>
+ * Each row is key length int, key bytes, value length int, value bytes. A chunk is sent whenever
+ * CHUNK_SIZE bytes are buffered.
+ */
+public class ScanResponseWriter
+{
+  public static final int CHUNK_SIZE = 64 * 1024;
+
+  private ChannelHandlerContext _ctx;
+  private ByteBuf _buf;
+  private boolean _started;
+  private int _rows;
+  private long _bytes;
+
+  public ScanResponseWriter(ChannelHandlerContext ctx)
+  {
+    _ctx = ctx;
+    _buf = null;
+    _started = false;
+    _rows = 0;
+    _bytes = 0;
+  }
+
+  public int getRows()
+  {
+    return _rows;
+  }
+
+  /**
+   * @return Bytes of the rows added so far
+   */
+  public long getBytes()
+  {
+    return _bytes;
+  }
+
+  /**
+   * Add a row to the response. Sends a chunk if enough bytes are buffered.
+   */
+  public void add(byte key[], byte value[])
+  {
+    if(_buf == null)
+      _buf = _ctx.alloc().buffer(CHUNK_SIZE);
+
+    _buf.writeInt(key.length);
+    _buf.writeBytes(key);
+    _buf.writeInt(value.length);
+    _buf.writeBytes(value);
+    _rows++;
+    _bytes += 8 + key.length + value.length;
+
+    if(_buf.readableBytes() >= CHUNK_SIZE)
+    {
+      start();
+      _ctx.writeAndFlush(new DefaultHttpContent(_buf));
+      _buf = null;
+    }
+  }
+
+  private void start()
+  {
+    if(!_started)
+    {
+      HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+      response.headers().set(HttpHeaders.Names.CONTENT_TYPE, "octet-stream");
+      HttpHeaders.setTransferEncodingChunked(response);
+      _ctx.write(response);
+      _started = true;
+    }
+  }
+
+  /**
+   * Send the remaining rows and end the response.
+   */
+  public void finish()
+  {
+    start();
+    if(_buf == null)
+      _ctx.writeAndFlush(new DefaultLastHttpContent());
+    else
+      _ctx.writeAndFlush(new DefaultLastHttpContent(_buf));
+    _buf = null;
+  }
+
+  /**
+   * End the response after a failure. If no chunk is sent yet, the client gets the same response as a failed query.
+   * Otherwise the connection is closed, since a chunked response cannot be turned into an error.
+   */
+  public void fail()
+  {
+    if(_buf != null)
+    {
+      _buf.release();
+      _buf = null;
+    }
+
+    if(_started)
+      _ctx.close();
+    else
+      _ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT));
+  }
+}
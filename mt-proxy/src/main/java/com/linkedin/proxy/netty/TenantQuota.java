@@ -0,0 +1,275 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quota of a single database. Ops and bytes are limited by token buckets that hold burstMs worth of tokens, the
+ * number of queries on the storage threads is limited by a counter.<br>
+ * A query reserves its tokens when it is admitted, so a query that has to wait puts the bucket in debt and the queries
+ * after it wait longer. A query whose wait would be longer than maxWaitMs is rejected instead, which bounds the queue
+ * of a tenant. A query larger than the bucket is admitted when the bucket is full.
+ */
+public class TenantQuota implements TenantQuotaMXBean
+{
+  private static class Bucket
+  {
+    private double _rate;
+    private double _capacity;
+    private double _tokens;
+    private long _last;
+
+    public Bucket(long ratePerSec, long burstMs, long now)
+    {
+      _rate = ratePerSec;
+      _capacity = Math.max(1, ratePerSec * burstMs / 1000.0);
+      _tokens = _capacity;
+      _last = now;
+    }
+
+    public void refill(long now)
+    {
+      if(now > _last)
+      {
+        _tokens = Math.min(_capacity, _tokens + (now - _last) * _rate / TimeUnit.SECONDS.toNanos(1));
+        _last = now;
+      }
+    }
+
+    /**
+     * @return Nanoseconds until the bucket can admit the given cost
+     */
+    public long waitNanos(double cost)
+    {
+      double need = Math.min(cost, _capacity);
+      if(need <= _tokens)
+        return 0;
+      return (long) Math.ceil((need - _tokens) * TimeUnit.SECONDS.toNanos(1) / _rate);
+    }
+
+    public void take(double cost)
+    {
+      _tokens -= cost;
+    }
+
+    public void give(double cost)
+    {
+      _tokens = Math.min(_capacity, _tokens + cost);
+    }
+  }
+
+  private String _dbName;
+  private long _opsPerSec;
+  private long _bytesPerSec;
+  private int _maxConcurrency;
+  private long _maxWaitNanos;
+
+  //null if not limited
+  private Bucket _ops;
+  private Bucket _bytes;
+  private AtomicInteger _inFlight;
+
+  private AtomicLong _admitted;
+  private AtomicLong _delayed;
+  private AtomicLong _delayNanos;
+  private AtomicLong _rejectedOps;
+  private AtomicLong _rejectedBytes;
+  private AtomicLong _rejectedConcurrency;
+
+  /**
+   * @param dbName Name of the database
+   * @param opsPerSec Queries per second. 0 for no limit.
+   * @param bytesPerSec Bytes of requests and responses per second. 0 for no limit.
+   * @param maxConcurrency Queries on the storage threads at a time. 0 for no limit.
+   * @param burstMs Milliseconds of tokens that a bucket can hold
+   * @param maxWaitMs Longest time a query waits for its quota before it is rejected. 0 to reject at once.
+   */
+  public TenantQuota(String dbName, long opsPerSec, long bytesPerSec, int maxConcurrency, long burstMs, long maxWaitMs)
+  {
+    long now = System.nanoTime();
+
+    _dbName = dbName;
+    _opsPerSec = opsPerSec;
+    _bytesPerSec = bytesPerSec;
+    _maxConcurrency = maxConcurrency;
+    _maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+
+    _ops = opsPerSec > 0 ? new Bucket(opsPerSec, burstMs, now) : null;
+    _bytes = bytesPerSec > 0 ? new Bucket(bytesPerSec, burstMs, now) : null;
+    _inFlight = new AtomicInteger(0);
+
+    _admitted = new AtomicLong(0);
+    _delayed = new AtomicLong(0);
+    _delayNanos = new AtomicLong(0);
+    _rejectedOps = new AtomicLong(0);
+    _rejectedBytes = new AtomicLong(0);
+    _rejectedConcurrency = new AtomicLong(0);
+  }
+
+  public long getMaxWaitNanos()
+  {
+    return _maxWaitNanos;
+  }
+
+  /**
+   * Reserve the ops and bytes tokens of a query.
+   * @param bytes Bytes of the request
+   * @param now Current System.nanoTime()
+   * @return Nanoseconds the query has to wait before it runs, or -1 if it is rejected and nothing is reserved
+   */
+  public synchronized long reserve(long bytes, long now)
+  {
+    long opsWait = 0;
+    long bytesWait = 0;
+    if(_ops != null)
+    {
+      _ops.refill(now);
+      opsWait = _ops.waitNanos(1);
+    }
+    if(_bytes != null)
+    {
+      _bytes.refill(now);
+      bytesWait = _bytes.waitNanos(bytes);
+    }
+
+    long wait = Math.max(opsWait, bytesWait);
+    if(wait > _maxWaitNanos)
+    {
+      if(opsWait >= bytesWait)
+        _rejectedOps.incrementAndGet();
+      else
+        _rejectedBytes.incrementAndGet();
+      return -1;
+    }
+
+    if(_ops != null)
+      _ops.take(1);
+    if(_bytes != null)
+      _bytes.take(bytes);
+
+    if(wait > 0)
+    {
+      _delayed.incrementAndGet();
+      _delayNanos.addAndGet(wait);
+    }
+    return wait;
+  }
+
+  /**
+   * Give back the tokens of a query that was reserved but did not run.
+   */
+  public synchronized void refund(long bytes)
+  {
+    if(_ops != null)
+      _ops.give(1);
+    if(_bytes != null)
+      _bytes.give(bytes);
+  }
+
+  /**
+   * Take the bytes of a response. The bucket may go into debt, which delays the next queries.
+   */
+  public synchronized void charge(long bytes, long now)
+  {
+    if(_bytes != null)
+    {
+      _bytes.refill(now);
+      _bytes.take(bytes);
+    }
+  }
+
+  /**
+   * Take a concurrency slot. Must be followed by exit() if it succeeds.
+   * @return true if the query is admitted, false if the tenant has maxConcurrency queries running
+   */
+  public boolean enter()
+  {
+    while(true)
+    {
+      int cur = _inFlight.get();
+      if(_maxConcurrency > 0 && cur >= _maxConcurrency)
+        return false;
+      if(_inFlight.compareAndSet(cur, cur + 1))
+      {
+        _admitted.incrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  public void exit()
+  {
+    _inFlight.decrementAndGet();
+  }
+
+  /**
+   * Count a query that did not get a concurrency slot within maxWaitMs.
+   */
+  public void rejectByConcurrency()
+  {
+    _rejectedConcurrency.incrementAndGet();
+  }
+
+  public String getDbName()
+  {
+    return _dbName;
+  }
+
+  public long getOpsPerSec()
+  {
+    return _opsPerSec;
+  }
+
+  public long getBytesPerSec()
+  {
+    return _bytesPerSec;
+  }
+
+  public int getMaxConcurrency()
+  {
+    return _maxConcurrency;
+  }
+
+  public int getInFlight()
+  {
+    return _inFlight.get();
+  }
+
+  public long getAdmitted()
+  {
+    return _admitted.get();
+  }
+
+  public long getDelayed()
+  {
+    return _delayed.get();
+  }
+
+  public long getTotalDelayMs()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(_delayNanos.get());
+  }
+
+  public long getRejectedByOps()
+  {
+    return _rejectedOps.get();
+  }
+
+  public long getRejectedByBytes()
+  {
+    return _rejectedBytes.get();
+  }
+
+  public long getRejectedByConcurrency()
+  {
+    return _rejectedConcurrency.get();
+  }
+}
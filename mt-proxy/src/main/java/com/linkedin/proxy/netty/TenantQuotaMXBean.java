@@ -0,0 +1,37 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+/**
+ * JMX view of the quota of a database. Limits are 0 if they are not set, counters are cumulative since the database
+ * got its first query.
+ */
+public interface TenantQuotaMXBean
+{
+  public String getDbName();
+
+  public long getOpsPerSec();
+
+  public long getBytesPerSec();
+
+  public int getMaxConcurrency();
+
+  public int getInFlight();
+
+  public long getAdmitted();
+
+  public long getDelayed();
+
+  public long getTotalDelayMs();
+
+  public long getRejectedByOps();
+
+  public long getRejectedByBytes();
+
+  public long getRejectedByConcurrency();
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Admission control of the tenants of the proxy. Each database the connection pool serves gets a TenantQuota on its
+ * first query, and the quota is published to JMX as com.linkedin.proxy:type=TenantQuota,db=NAME. Queries of other
+ * database names share the quota named *, so that clients cannot add quotas without bound.<br>
+ * Limits are read from quota.NAME properties, e.g. quota.opsPerSec, and can be overridden for a database with
+ * quota.DBNAME.NAME properties, e.g. quota.db1.opsPerSec. Quotas are disabled if there is no quota property.
+ */
+public class TenantQuotas
+{
+  public static final String FLAG_QUOTA_PREFIX        = "quota.";
+  public static final String FLAG_QUOTA_OPS           = "opsPerSec";
+  public static final String FLAG_QUOTA_BYTES         = "bytesPerSec";
+  public static final String FLAG_QUOTA_CONCURRENCY   = "maxConcurrency";
+  public static final String FLAG_QUOTA_BURST         = "burstMs";
+  public static final String FLAG_QUOTA_MAX_WAIT      = "maxWaitMs";
+
+  public static final String OTHER_DATABASES = "*";
+
+  private static final Logger _LOG = Logger.getLogger(TenantQuotas.class);
+
+  private Properties _prop;
+  private Set<String> _databases;
+  private boolean _enabled;
+  private Map<String, TenantQuota> _quotas;
+  private Map<String, ObjectName> _mbeans;
+  private volatile boolean _closed;
+
+  /**
+   * Quotas without known databases, all queries share one quota.
+   */
+  public TenantQuotas(Properties prop)
+  {
+    this(prop, Collections.<String>emptySet());
+  }
+
+  /**
+   * @param prop Properties of the proxy
+   * @param databases Databases that get their own quota, e.g. ConnectionPool.getDatabases
+   */
+  public TenantQuotas(Properties prop, Set<String> databases)
+  {
+    _prop = prop;
+    _databases = databases;
+    _enabled = false;
+    for(String name : prop.stringPropertyNames())
+    {
+      if(name.startsWith(FLAG_QUOTA_PREFIX))
+        _enabled = true;
+    }
+
+    _quotas = new ConcurrentHashMap<String, TenantQuota>();
+    _mbeans = new ConcurrentHashMap<String, ObjectName>();
+    _closed = false;
+
+    if(_enabled)
+      _LOG.info("Tenant quotas are enabled");
+  }
+
+  public boolean isEnabled()
+  {
+    return _enabled;
+  }
+
+  /**
+   * @param dbName Database of a query
+   * @return Quota of the database, or the shared quota if the database is unknown
+   */
+  public TenantQuota get(String dbName)
+  {
+    if(!_databases.contains(dbName))
+      dbName = OTHER_DATABASES;
+
+    TenantQuota quota = _quotas.get(dbName);
+    if(quota == null)
+      quota = create(dbName);
+    return quota;
+  }
+
+  private synchronized TenantQuota create(String dbName)
+  {
+    TenantQuota quota = _quotas.get(dbName);
+    if(quota != null)
+      return quota;
+
+    quota = new TenantQuota(dbName,
+        getLong(dbName, FLAG_QUOTA_OPS, 0),
+        getLong(dbName, FLAG_QUOTA_BYTES, 0),
+        (int) getLong(dbName, FLAG_QUOTA_CONCURRENCY, 0),
+        getLong(dbName, FLAG_QUOTA_BURST, 1000),
+        getLong(dbName, FLAG_QUOTA_MAX_WAIT, 0));
+    _quotas.put(dbName, quota);
+    _LOG.info("Quota of " + dbName + ": opsPerSec=" + quota.getOpsPerSec() + " bytesPerSec=" + quota.getBytesPerSec()
+        + " maxConcurrency=" + quota.getMaxConcurrency());
+
+    if(!_closed)
+      register(quota);
+
+    return quota;
+  }
+
+  private long getLong(String dbName, String name, long defVal)
+  {
+    String temp = _prop.getProperty(FLAG_QUOTA_PREFIX + dbName + "." + name);
+    if(temp == null)
+      temp = _prop.getProperty(FLAG_QUOTA_PREFIX + name);
+    return temp == null ? defVal : Long.parseLong(temp.trim());
+  }
+
+  private void register(TenantQuota quota)
+  {
+    try
+    {
+      MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("com.linkedin.proxy:type=TenantQuota,db=" + ObjectName.quote(quota.getDbName()));
+      if(mbs.isRegistered(name))
+        mbs.unregisterMBean(name);
+      mbs.registerMBean(quota, name);
+      _mbeans.put(quota.getDbName(), name);
+    }
+    catch(Exception e)
+    {
+      _LOG.warn("Could not register quota of " + quota.getDbName() + " to JMX", e);
+    }
+  }
+
+  /**
+   * Log the counters of each tenant and remove the quotas from JMX.
+   */
+  public synchronized void close()
+  {
+    _closed = true;
+
+    Iterator<TenantQuota> itr = _quotas.values().iterator();
+    while(itr.hasNext())
+    {
+      TenantQuota quota = itr.next();
+      _LOG.info("Quota of " + quota.getDbName() + ": admitted=" + quota.getAdmitted() + " delayed=" + quota.getDelayed()
+          + " rejectedByOps=" + quota.getRejectedByOps() + " rejectedByBytes=" + quota.getRejectedByBytes()
+          + " rejectedByConcurrency=" + quota.getRejectedByConcurrency());
+    }
+
+    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+    Iterator<ObjectName> nameItr = _mbeans.values().iterator();
+    while(nameItr.hasNext())
+    {
+      ObjectName name = nameItr.next();
+      try
+      {
+        mbs.unregisterMBean(name);
+      }
+      catch(Exception e)
+      {
+        _LOG.debug("Could not unregister " + name, e);
+      }
+    }
+    _mbeans.clear();
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+/**
+ * Helpers to read the optional parameters of a request uri, e.g. /dbName/key?op=scan&limit=10<br>
+ * Also reads the key list in the content of multi-get requests.
+ */
+public class UriParameters
+{
+  public static final String PARAM_OP = "op";
+  public static final String PARAM_LIMIT = "limit";
+  public static final String PARAM_OPERATOR = "operator";
+
+  public static final String OP_SCAN = "scan";
+  public static final String OP_MGET = "mget";
+  public static final String OP_MERGE = "merge";
+
+  /**
+   * @param uri Decoded uri
+   * @param name Parameter name
+   * @return First value of the parameter. Null if it is missing.
+   */
+  public static String get(QueryStringDecoder uri, String name)
+  {
+    List<String> values = uri.parameters().get(name);
+    if(values == null || values.isEmpty())
+      return null;
+    else
+      return values.get(0);
+  }
+
+  /**
+   * @param uri Decoded uri
+   * @param name Parameter name
+   * @param defaultValue Value to return if the parameter is missing
+   * @return Integer value of the parameter
+   */
+  public static int getInt(QueryStringDecoder uri, String name, int defaultValue)
+  {
+    String value = get(uri, name);
+    if(value == null)
+      return defaultValue;
+    else
+      return Integer.parseInt(value);
+  }
+
+  /**
+   * Read the keys of a multi-get request. Each key is key length int followed by key bytes,
+   * the same framing as the rows of a ScanResponseWriter.
+   * @param content Request content
+   * @return Keys in request order
+   */
+  public static List<byte[]> readKeys(ByteBuf content)
+  {
+    List<byte[]> keys = new ArrayList<byte[]>();
+    while(content.readableBytes() >= 4)
+    {
+      byte key[] = new byte[content.readInt()];
+      content.readBytes(key);
+      keys.add(key);
+    }
+    return keys;
+  }
+}
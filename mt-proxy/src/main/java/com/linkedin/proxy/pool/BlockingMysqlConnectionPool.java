@@ -8,7 +8,9 @@
 package com.linkedin.proxy.pool;
 
 import java.sql.DriverManager;
+import java.util.Collections;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -136,6 +138,14 @@ public class BlockingMysqlConnectionPool implements ConnectionPool
     return conn;
   }
 
+  /**
+   * Connections are to the server, not to a database, so the pool doesn't know the databases.
+   */
+  public Set<String> getDatabases()
+  {
+    return Collections.<String>emptySet();
+  }
+
   public void releaseConnection(MyConnection conn) throws Exception
   {
     m_que.put(conn);
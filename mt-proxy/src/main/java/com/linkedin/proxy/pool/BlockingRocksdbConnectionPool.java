@@ -8,6 +8,7 @@
 package com.linkedin.proxy.pool;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -233,10 +234,20 @@ public class BlockingRocksdbConnectionPool implements ConnectionPool
   @Override
   public MyConnection getConnection(String dbName) throws Exception
   {
-    MyConnection conn = m_map.get(dbName).take();
+    BlockingQueue<MyConnection> que = m_map.get(dbName);
+    if(que == null)
+      throw new IllegalArgumentException("Unknown database " + dbName);
+
+    MyConnection conn = que.take();
     return conn;
   }
 
+  @Override
+  public Set<String> getDatabases()
+  {
+    return Collections.unmodifiableSet(m_map.keySet());
+  }
+
   @Override
   public void releaseConnection(MyConnection conn) throws Exception
   {
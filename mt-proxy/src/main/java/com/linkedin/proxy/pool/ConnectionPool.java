@@ -8,6 +8,7 @@
 package com.linkedin.proxy.pool;
 
 import java.util.Properties;
+import java.util.Set;
 
 import com.linkedin.proxy.conn.MyConnection;
 
@@ -21,6 +22,12 @@ public interface ConnectionPool
    */
   public MyConnection getConnection(String dbName) throws Exception;
 
+  /**
+   * @return Names of the databases the pool serves, so that only they get their own storage threads and quota.
+   * Empty if the pool cannot tell them.
+   */
+  public Set<String> getDatabases();
+
   /**
    * Release a previously acquired connection to the pool.
    * @param conn Previously acquired connection.
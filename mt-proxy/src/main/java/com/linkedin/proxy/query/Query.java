@@ -7,11 +7,15 @@
  */
 package com.linkedin.proxy.query;
 
+import java.util.List;
+
+import com.linkedin.multitenant.common.MergeOperator;
+
 public class Query
 {
   public enum QueryType
   {
-    WRITE, READ, DELETE, CREATE, INVALID
+    WRITE, READ, DELETE, SCAN, MULTI_GET, MERGE, CREATE, INVALID
   }
 
   public enum QueryResult
@@ -24,6 +28,12 @@ public class Query
   protected byte[] m_val;
   protected QueryType m_type;
   protected QueryResult m_result;
+  //maximum number of keys to return for SCAN queries
+  protected int m_limit;
+  //keys to read for MULTI_GET queries
+  protected List<byte[]> m_keys;
+  //operator of MERGE queries
+  protected MergeOperator m_operator;
 
   public Query()
   {
@@ -32,6 +42,9 @@ public class Query
     m_val = null;
     m_type = QueryType.INVALID;
     m_result = QueryResult.NA;
+    m_limit = 0;
+    m_keys = null;
+    m_operator = null;
   }
 
   public String getDbName()
@@ -64,6 +77,36 @@ public class Query
     m_val = val;
   }
 
+  public int getLimit()
+  {
+    return m_limit;
+  }
+
+  public void setLimit(int limit)
+  {
+    m_limit = limit;
+  }
+
+  public List<byte[]> getKeys()
+  {
+    return m_keys;
+  }
+
+  public void setKeys(List<byte[]> keys)
+  {
+    m_keys = keys;
+  }
+
+  public MergeOperator getOperator()
+  {
+    return m_operator;
+  }
+
+  public void setOperator(MergeOperator operator)
+  {
+    m_operator = operator;
+  }
+
   public QueryType getType()
   {
     return m_type;
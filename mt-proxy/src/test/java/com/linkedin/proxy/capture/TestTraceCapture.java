@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.trace.BinaryTraceReader;
+import com.linkedin.multitenant.trace.TraceRecord;
+import com.linkedin.proxy.query.Query;
+
+public class TestTraceCapture
+{
+  private File _dir;
+
+  @Before
+  public void prepare() throws Exception
+  {
+    _dir = File.createTempFile("capture", "");
+    _dir.delete();
+  }
+
+  @After
+  public void closeDown()
+  {
+    File files[] = _dir.listFiles();
+    if(files != null)
+    {
+      for(File f : files)
+        f.delete();
+    }
+    _dir.delete();
+  }
+
+  private static Query createQuery(Query.QueryType type, String db, String key)
+  {
+    Query q = new Query();
+    q.setType(type);
+    q.setDbName(db);
+    q.setKey(key);
+    return q;
+  }
+
+  private static String repeat(char c, int count)
+  {
+    char arr[] = new char[count];
+    Arrays.fill(arr, c);
+    return new String(arr);
+  }
+
+  private File capture() throws Exception
+  {
+    TraceCapture capture = new TraceCapture(_dir, 1024, 1024L * 1024 * 1024, 0);
+    capture.start();
+
+    Query q = createQuery(Query.QueryType.WRITE, "db1", "key\u00e9");
+    q.setValue(new byte[100]);
+    capture.record(q);
+    capture.record(createQuery(Query.QueryType.READ, "db2", "key2"));
+    capture.record(createQuery(Query.QueryType.DELETE, "db1", "key3"));
+    q = createQuery(Query.QueryType.SCAN, "db1", "key4");
+    q.setLimit(20);
+    capture.record(q);
+    q = createQuery(Query.QueryType.MULTI_GET, "db1", null);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    keys.add("a".getBytes("UTF-8"));
+    keys.add("bc".getBytes("UTF-8"));
+    q.setKeys(keys);
+    capture.record(q);
+    capture.record(createQuery(Query.QueryType.MERGE, "db2", "key6"));
+
+    //longest key that fits, then a key, a multi-byte key and a db name that do not fit into the length short
+    capture.record(createQuery(Query.QueryType.READ, "db1", repeat('k', 0xffff)));
+    capture.record(createQuery(Query.QueryType.READ, "db1", repeat('k', 0x10000)));
+    capture.record(createQuery(Query.QueryType.READ, "db1", repeat('\u00e9', 0x8000)));
+    capture.record(createQuery(Query.QueryType.READ, repeat('d', 0x10000), "key"));
+    capture.record(createQuery(Query.QueryType.READ, "db1", "last"));
+    capture.close();
+
+    assertEquals(0, capture.getDropped());
+    assertEquals(3, capture.getSkipped());
+
+    File files[] = _dir.listFiles();
+    assertEquals(1, files.length);
+    return files[0];
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception
+  {
+    File trace = capture();
+    assertTrue(BinaryTraceReader.isBinaryTrace(trace));
+
+    QueryType types[] = {QueryType.UPDATE, QueryType.READ, QueryType.DELETE, QueryType.SCAN, QueryType.MULTI_GET,
+        QueryType.READ_MODIFY_WRITE, QueryType.READ, QueryType.READ};
+    String keys[] = {"key\u00e9", "key2", "key3", "key4", "a\nbc", "key6", repeat('k', 0xffff), "last"};
+    int valueSizes[] = {100, 0, 0, 20, 2, 0, 0, 0};
+
+    BinaryTraceReader reader = new BinaryTraceReader(trace, null);
+    TraceRecord rec = new TraceRecord();
+    long prevTimestamp = 0;
+    for(int a = 0; a<types.length; a++)
+    {
+      assertTrue(reader.next(rec));
+      assertEquals(types[a], rec.getType());
+      assertEquals(keys[a], new String(rec.getKeyBuffer(), 0, rec.getKeyLength(), "UTF-8"));
+      assertEquals(valueSizes[a], rec.getValueSize());
+      assertTrue(rec.getTimestamp() >= prevTimestamp);
+      prevTimestamp = rec.getTimestamp();
+    }
+    assertFalse(reader.next(rec));
+    reader.close();
+  }
+
+  @Test
+  public void testDbFilter() throws Exception
+  {
+    File trace = capture();
+
+    BinaryTraceReader reader = new BinaryTraceReader(trace, "db2");
+    TraceRecord rec = new TraceRecord();
+    assertTrue(reader.next(rec));
+    assertEquals(QueryType.READ, rec.getType());
+    assertTrue(reader.next(rec));
+    assertEquals(QueryType.READ_MODIFY_WRITE, rec.getType());
+    assertFalse(reader.next(rec));
+    reader.close();
+  }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.linkedin.proxy.query.Query;
+import com.linkedin.proxy.query.Query.QueryResult;
+import com.linkedin.proxy.query.Query.QueryType;
+
+public class TestBaseQueryHandler
+{
+  private static final long SEC = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Dispatcher whose tasks are run by the test, on the test thread. Tasks beyond the capacity are rejected like by a
+   * full storage pool.
+   */
+  private static class ManualDispatcher extends QueryDispatcher
+  {
+    private BlockingQueue<Runnable> _tasks = new LinkedBlockingQueue<Runnable>();
+    private int _capacity;
+
+    private ManualDispatcher(int capacity)
+    {
+      super(createProperties());
+      _capacity = capacity;
+    }
+
+    private static Properties createProperties()
+    {
+      Properties prop = new Properties();
+      prop.put(QueryDispatcher.FLAG_DISPATCH_MODE, "shared");
+      return prop;
+    }
+
+    @Override
+    public void execute(String dbName, Runnable task)
+    {
+      if(_tasks.size() >= _capacity)
+        throw new RejectedExecutionException("Pool is full");
+      _tasks.add(task);
+    }
+
+    private int getPending()
+    {
+      return _tasks.size();
+    }
+
+    /**
+     * Run the next task, waiting for it to be dispatched.
+     */
+    private void runNext() throws InterruptedException
+    {
+      Runnable task = _tasks.poll(5, TimeUnit.SECONDS);
+      assertNotNull(task);
+      task.run();
+    }
+  }
+
+  private EventLoopGroup _group;
+  private Channel _server;
+  private TenantQuotas _quotas;
+
+  /**
+   * Answers each query with itself.
+   */
+  private static class EchoHandler extends BaseQueryHandler<Query>
+  {
+    private EchoHandler(QueryDispatcher dispatcher, TenantQuotas quotas)
+    {
+      super(dispatcher, quotas);
+    }
+
+    @Override
+    protected void execute(ChannelHandlerContext ctx, Query msg)
+    {
+      msg.setResult(QueryResult.OK);
+      ctx.writeAndFlush(msg);
+    }
+  }
+
+  private static Properties createInlineProperties()
+  {
+    Properties prop = new Properties();
+    prop.put(QueryDispatcher.FLAG_DISPATCH_MODE, "inline");
+    return prop;
+  }
+
+  private static Query createQuery(String db, String key)
+  {
+    Query q = new Query();
+    q.setType(QueryType.WRITE);
+    q.setDbName(db);
+    q.setKey(key);
+    q.setValue(new byte[10]);
+    return q;
+  }
+
+  @After
+  public void closeDown() throws Exception
+  {
+    if(_server != null)
+      _server.close().sync();
+    if(_group != null)
+      _group.shutdownGracefully(0, 5, TimeUnit.SECONDS).sync();
+    if(_quotas != null)
+      _quotas.close();
+  }
+
+  /**
+   * Start a local server whose channels run EchoHandler with the given dispatcher and quotas.
+   * Unlike EmbeddedChannel, its event loop runs the scheduled retries of held queries.
+   */
+  private void startServer(final QueryDispatcher dispatcher, Properties quotaProp) throws Exception
+  {
+    _quotas = new TenantQuotas(quotaProp, new HashSet<String>(Arrays.asList("db1", "db2")));
+    _group = new DefaultEventLoopGroup(1);
+    _server = new ServerBootstrap()
+        .group(_group)
+        .channel(LocalServerChannel.class)
+        .childHandler(new ChannelInitializer<LocalChannel>()
+        {
+          @Override
+          protected void initChannel(LocalChannel ch)
+          {
+            ch.pipeline().addLast(new EchoHandler(dispatcher, _quotas));
+          }
+        })
+        .bind(new LocalAddress("TestBaseQueryHandler"))
+        .sync().channel();
+  }
+
+  /**
+   * @return Client channel that adds the responses it receives to the queue
+   */
+  private Channel connect(final BlockingQueue<Query> responses) throws Exception
+  {
+    return new Bootstrap()
+        .group(_group)
+        .channel(LocalChannel.class)
+        .handler(new SimpleChannelInboundHandler<Query>()
+        {
+          @Override
+          protected void messageReceived(ChannelHandlerContext ctx, Query msg)
+          {
+            responses.add(msg);
+          }
+        })
+        .connect(_server.localAddress())
+        .sync().channel();
+  }
+
+  private static Query nextResponse(BlockingQueue<Query> responses) throws InterruptedException
+  {
+    Query q = responses.poll(5, TimeUnit.SECONDS);
+    assertNotNull(q);
+    return q;
+  }
+
+  private static void waitFor(TenantQuota quota, long delayed) throws InterruptedException
+  {
+    long end = System.currentTimeMillis() + 5000;
+    while(quota.getDelayed() < delayed && System.currentTimeMillis() < end)
+      Thread.sleep(1);
+    assertEquals(delayed, quota.getDelayed());
+  }
+
+  @Test
+  public void testPipelinedOrder() throws Exception
+  {
+    ManualDispatcher dispatcher = new ManualDispatcher(10);
+    EmbeddedChannel ch1 = new EmbeddedChannel(new EchoHandler(dispatcher, null));
+    EmbeddedChannel ch2 = new EmbeddedChannel(new EchoHandler(dispatcher, null));
+
+    Query q1[] = {createQuery("db1", "a"), createQuery("db1", "b"), createQuery("db1", "c")};
+    ch1.writeInbound((Object[]) q1);
+    Query q2 = createQuery("db1", "d");
+    ch2.writeInbound(q2);
+
+    //one query per channel is on the dispatcher, so the other channel is not held back
+    assertEquals(2, dispatcher.getPending());
+
+    for(int a = 0; a<q1.length; a++)
+    {
+      dispatcher.runNext();
+      assertSame(q1[a], ch1.readOutbound());
+      assertTrue(q1[a].isSuccessfull());
+
+      //the next query is dispatched by the event loop of the channel, after the response is written
+      assertEquals(a == 0 ? 1 : 0, dispatcher.getPending());
+      ch1.runPendingTasks();
+      assertEquals(a == 0 ? 2 : (a == 1 ? 1 : 0), dispatcher.getPending());
+
+      if(a == 0)
+      {
+        dispatcher.runNext();
+        assertSame(q2, ch2.readOutbound());
+        ch2.runPendingTasks();
+      }
+    }
+
+    assertNull(ch1.readOutbound());
+    assertNull(ch2.readOutbound());
+    assertFalse(ch1.finish());
+    assertFalse(ch2.finish());
+  }
+
+  @Test
+  public void testPoolFull() throws Exception
+  {
+    ManualDispatcher dispatcher = new ManualDispatcher(1);
+    EmbeddedChannel ch1 = new EmbeddedChannel(new EchoHandler(dispatcher, null));
+    EmbeddedChannel ch2 = new EmbeddedChannel(new EchoHandler(dispatcher, null));
+
+    Query q1 = createQuery("db1", "a");
+    ch1.writeInbound(q1);
+    assertEquals(1, dispatcher.getPending());
+
+    //queries of the other channel are answered with a failure in their order, without waiting
+    Query q2[] = {createQuery("db1", "b"), createQuery("db1", "c")};
+    ch2.writeInbound((Object[]) q2);
+    for(int a = 0; a<q2.length; a++)
+    {
+      assertSame(q2[a], ch2.readOutbound());
+      assertFalse(q2[a].isSuccessfull());
+    }
+    assertNull(ch2.readOutbound());
+
+    //the channel is dispatched again once the pool has room
+    dispatcher.runNext();
+    assertSame(q1, ch1.readOutbound());
+    ch1.runPendingTasks();
+    Query q3 = createQuery("db1", "d");
+    ch2.writeInbound(q3);
+    dispatcher.runNext();
+    assertSame(q3, ch2.readOutbound());
+    assertTrue(q3.isSuccessfull());
+  }
+
+  @Test
+  public void testAdmitHoldReject() throws Exception
+  {
+    //one token at a time, refilled every 100ms. db1 waits for it, db2 does not.
+    Properties prop = new Properties();
+    prop.put("quota.opsPerSec", "10");
+    prop.put("quota.burstMs", "100");
+    prop.put("quota.db1.maxWaitMs", "150");
+    prop.put("quota.db2.maxWaitMs", "0");
+    startServer(new QueryDispatcher(createInlineProperties()), prop);
+
+    BlockingQueue<Query> responses1 = new LinkedBlockingQueue<Query>();
+    BlockingQueue<Query> responses2 = new LinkedBlockingQueue<Query>();
+    Channel ch1 = connect(responses1);
+    Channel ch2 = connect(responses2);
+
+    long start = System.nanoTime();
+    for(int a = 0; a<3; a++)
+      ch1.writeAndFlush(createQuery("db1", "key" + a));
+    for(int a = 0; a<3; a++)
+      ch2.writeAndFlush(createQuery("db2", "key" + a));
+
+    //queries over the quota are held until their tokens are refilled, and answered in order
+    for(int a = 0; a<3; a++)
+    {
+      Query q = nextResponse(responses1);
+      assertEquals("key" + a, q.getKey());
+      assertTrue(q.isSuccessfull());
+    }
+    assertTrue(System.nanoTime() - start >= SEC / 10 * 2 * 9 / 10);
+    assertEquals(2, _quotas.get("db1").getDelayed());
+    assertEquals(3, _quotas.get("db1").getAdmitted());
+
+    //without a wait, they fail at once
+    for(int a = 0; a<3; a++)
+    {
+      Query q = nextResponse(responses2);
+      assertEquals("key" + a, q.getKey());
+      assertEquals(a == 0, q.isSuccessfull());
+    }
+    assertEquals(2, _quotas.get("db2").getRejectedByOps());
+    assertEquals(1, _quotas.get("db2").getAdmitted());
+  }
+
+  @Test
+  public void testConcurrencyHold() throws Exception
+  {
+    Properties prop = new Properties();
+    prop.put("quota.maxConcurrency", "1");
+    prop.put("quota.db1.maxWaitMs", "100");
+    prop.put("quota.db2.maxWaitMs", "10000");
+    ManualDispatcher dispatcher = new ManualDispatcher(10);
+    startServer(dispatcher, prop);
+
+    //first queries take the only slot of each database
+    BlockingQueue<Query> responses = new LinkedBlockingQueue<Query>();
+    connect(responses).writeAndFlush(createQuery("db1", "a"));
+    while(dispatcher.getPending() < 1)
+      Thread.sleep(1);
+    connect(responses).writeAndFlush(createQuery("db2", "b"));
+    while(dispatcher.getPending() < 2)
+      Thread.sleep(1);
+
+    //queries of other channels wait for a slot, up to maxWaitMs
+    BlockingQueue<Query> responses1 = new LinkedBlockingQueue<Query>();
+    long start = System.nanoTime();
+    connect(responses1).writeAndFlush(createQuery("db1", "c"));
+    Query q = nextResponse(responses1);
+    assertFalse(q.isSuccessfull());
+    assertTrue(System.nanoTime() - start >= SEC / 10 * 9 / 10);
+    assertEquals(1, _quotas.get("db1").getRejectedByConcurrency());
+
+    BlockingQueue<Query> responses2 = new LinkedBlockingQueue<Query>();
+    connect(responses2).writeAndFlush(createQuery("db2", "d"));
+    Thread.sleep(50);
+    assertEquals(2, dispatcher.getPending());
+    assertNull(responses2.poll());
+
+    dispatcher.runNext();
+    assertEquals("a", nextResponse(responses).getKey());
+
+    //the held query runs once the slot of db2 is free
+    dispatcher.runNext();
+    assertEquals("b", nextResponse(responses).getKey());
+    dispatcher.runNext();
+    q = nextResponse(responses2);
+    assertEquals("d", q.getKey());
+    assertTrue(q.isSuccessfull());
+    assertEquals(0, _quotas.get("db2").getInFlight());
+  }
+
+  @Test
+  public void testRefundOnClose() throws Exception
+  {
+    //one token per second
+    Properties prop = new Properties();
+    prop.put("quota.opsPerSec", "1");
+    prop.put("quota.maxWaitMs", "10000");
+    startServer(new QueryDispatcher(createInlineProperties()), prop);
+
+    BlockingQueue<Query> responses = new LinkedBlockingQueue<Query>();
+    Channel ch = connect(responses);
+    ch.writeAndFlush(createQuery("db1", "a"));
+    assertTrue(nextResponse(responses).isSuccessfull());
+
+    //the next query takes the token of the next second in advance and is held for it
+    ch.writeAndFlush(createQuery("db1", "b"));
+    TenantQuota quota = _quotas.get("db1");
+    waitFor(quota, 1);
+
+    //closing the channel gives the token back, so a new query waits one second instead of two
+    ch.close().sync();
+    _group.submit(new Runnable()
+    {
+      public void run()
+      {
+      }
+    }).sync();
+    long wait = quota.reserve(0, System.nanoTime());
+    assertTrue(wait > 0);
+    assertTrue("Waits " + wait + "ns", wait < SEC * 3 / 2);
+    assertNull(responses.poll());
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestQueryDispatcher
+{
+  private static QueryDispatcher create(String mode, int threads, int queueSize)
+  {
+    Properties prop = new Properties();
+    prop.put(QueryDispatcher.FLAG_DISPATCH_MODE, mode);
+    prop.put(QueryDispatcher.FLAG_DISPATCH_THREADS, String.valueOf(threads));
+    prop.put(QueryDispatcher.FLAG_DISPATCH_QUEUE, String.valueOf(queueSize));
+    return new QueryDispatcher(prop, new HashSet<String>(Arrays.asList("db1", "db2")));
+  }
+
+  private static Runnable blocker(final CountDownLatch started, final CountDownLatch release)
+  {
+    return new Runnable()
+    {
+      public void run()
+      {
+        started.countDown();
+        try
+        {
+          release.await();
+        }
+        catch(InterruptedException e)
+        {
+        }
+      }
+    };
+  }
+
+  private static Runnable counter(final CountDownLatch done)
+  {
+    return new Runnable()
+    {
+      public void run()
+      {
+        done.countDown();
+      }
+    };
+  }
+
+  @Test
+  public void testBulkhead() throws Exception
+  {
+    QueryDispatcher dispatcher = create("perDb", 1, 10);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    //a stuck query of db1 does not hold back db2
+    dispatcher.execute("db1", blocker(started, release));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CountDownLatch done = new CountDownLatch(1);
+    dispatcher.execute("db2", counter(done));
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+
+    //queries of db1 wait for it
+    CountDownLatch done1 = new CountDownLatch(1);
+    dispatcher.execute("db1", counter(done1));
+    assertTrue(!done1.await(200, TimeUnit.MILLISECONDS));
+    release.countDown();
+    assertTrue(done1.await(5, TimeUnit.SECONDS));
+
+    dispatcher.close();
+  }
+
+  @Test
+  public void testUnknownDatabase() throws Exception
+  {
+    QueryDispatcher dispatcher = create("perDb", 1, 10);
+    final BlockingQueue<String> threads = new LinkedBlockingQueue<String>();
+    Runnable task = new Runnable()
+    {
+      public void run()
+      {
+        threads.add(Thread.currentThread().getName());
+      }
+    };
+
+    //names the proxy doesn't serve run on the shared pool instead of getting their own
+    dispatcher.execute("db1", task);
+    dispatcher.execute("typo1", task);
+    dispatcher.execute("typo2", task);
+    assertEquals("storage-db1-1", threads.poll(5, TimeUnit.SECONDS));
+    assertEquals("storage-1", threads.poll(5, TimeUnit.SECONDS));
+    assertEquals("storage-1", threads.poll(5, TimeUnit.SECONDS));
+
+    dispatcher.close();
+  }
+
+  @Test
+  public void testShared() throws Exception
+  {
+    QueryDispatcher dispatcher = create("shared", 2, 10);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    //the other thread of the pool serves every database
+    dispatcher.execute("db1", blocker(started, release));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CountDownLatch done = new CountDownLatch(2);
+    dispatcher.execute("db1", counter(done));
+    dispatcher.execute("db2", counter(done));
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+
+    release.countDown();
+    dispatcher.close();
+  }
+
+  @Test
+  public void testRejection() throws Exception
+  {
+    QueryDispatcher dispatcher = create("perDb", 1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    dispatcher.execute("db1", blocker(started, release));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CountDownLatch done = new CountDownLatch(1);
+    dispatcher.execute("db1", counter(done));
+    try
+    {
+      dispatcher.execute("db1", counter(done));
+      fail("Queue of db1 is full");
+    }
+    catch(RejectedExecutionException e)
+    {
+    }
+
+    release.countDown();
+    dispatcher.close();
+    assertEquals(0, done.getCount());
+
+    try
+    {
+      dispatcher.execute("db3", counter(done));
+      fail("Dispatcher is closed");
+    }
+    catch(RejectedExecutionException e)
+    {
+    }
+  }
+
+  @Test
+  public void testInline() throws Exception
+  {
+    QueryDispatcher dispatcher = create("inline", 1, 1);
+    final Thread caller = Thread.currentThread();
+    final boolean ranOnCaller[] = new boolean[1];
+    dispatcher.execute("db1", new Runnable()
+    {
+      public void run()
+      {
+        ranOnCaller[0] = Thread.currentThread() == caller;
+      }
+    });
+    assertTrue(ranOnCaller[0]);
+    dispatcher.close();
+  }
+}
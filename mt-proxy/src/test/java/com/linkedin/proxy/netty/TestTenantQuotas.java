@@ -0,0 +1,140 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.proxy.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestTenantQuotas
+{
+  private static final long SEC = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testOpsLimit()
+  {
+    TenantQuota quota = new TenantQuota("db", 10, 0, 0, 1000, 0);
+    long now = System.nanoTime();
+
+    //bucket starts full with one second of tokens
+    for(int a = 0; a<10; a++)
+      assertEquals(0, quota.reserve(100, now));
+    assertEquals(-1, quota.reserve(100, now));
+    assertEquals(1, quota.getRejectedByOps());
+
+    //one token comes back every 100ms
+    assertEquals(0, quota.reserve(100, now + SEC / 10));
+    assertEquals(-1, quota.reserve(100, now + SEC / 10));
+    assertEquals(2, quota.getRejectedByOps());
+    assertEquals(0, quota.getRejectedByBytes());
+  }
+
+  @Test
+  public void testBoundedWait()
+  {
+    TenantQuota quota = new TenantQuota("db", 10, 0, 0, 1000, 250);
+    long now = System.nanoTime();
+
+    for(int a = 0; a<10; a++)
+      assertEquals(0, quota.reserve(0, now));
+
+    //queries after an empty bucket wait 100ms each until the wait passes 250ms
+    assertEquals(SEC / 10, quota.reserve(0, now));
+    assertEquals(2 * SEC / 10, quota.reserve(0, now));
+    assertEquals(-1, quota.reserve(0, now));
+    assertEquals(2, quota.getDelayed());
+    assertEquals(300, quota.getTotalDelayMs());
+    assertEquals(1, quota.getRejectedByOps());
+
+    //refund gives back the token of a query that did not run
+    quota.refund(0);
+    assertEquals(2 * SEC / 10, quota.reserve(0, now));
+  }
+
+  @Test
+  public void testBytesLimit()
+  {
+    TenantQuota quota = new TenantQuota("db", 0, 1000, 0, 1000, 0);
+    long now = System.nanoTime();
+
+    assertEquals(0, quota.reserve(600, now));
+    assertEquals(-1, quota.reserve(600, now));
+    assertEquals(1, quota.getRejectedByBytes());
+    assertEquals(0, quota.getRejectedByOps());
+
+    //a query larger than the bucket runs when the bucket is full
+    assertEquals(0, quota.reserve(5000, now + SEC));
+
+    //responses put the bucket in debt
+    quota.charge(2000, now + 2 * SEC);
+    assertEquals(-1, quota.reserve(1, now + 2 * SEC));
+    assertEquals(-1, quota.reserve(1, now + 5 * SEC));
+    assertEquals(0, quota.reserve(1, now + 8 * SEC));
+  }
+
+  @Test
+  public void testConcurrency()
+  {
+    TenantQuota quota = new TenantQuota("db", 0, 0, 2, 1000, 0);
+
+    assertTrue(quota.enter());
+    assertTrue(quota.enter());
+    assertFalse(quota.enter());
+    assertEquals(2, quota.getInFlight());
+
+    quota.exit();
+    assertTrue(quota.enter());
+    assertEquals(3, quota.getAdmitted());
+  }
+
+  @Test
+  public void testProperties()
+  {
+    Properties prop = new Properties();
+    assertFalse(new TenantQuotas(prop).isEnabled());
+
+    prop.put("quota.opsPerSec", "100");
+    prop.put("quota.maxConcurrency", "4");
+    prop.put("quota.db1.opsPerSec", "5");
+    prop.put("quota.db1.bytesPerSec", "1000");
+
+    TenantQuotas quotas = new TenantQuotas(prop, new HashSet<String>(Arrays.asList("db1", "db2")));
+    try
+    {
+      assertTrue(quotas.isEnabled());
+
+      TenantQuota quota = quotas.get("db1");
+      assertEquals(5, quota.getOpsPerSec());
+      assertEquals(1000, quota.getBytesPerSec());
+      assertEquals(4, quota.getMaxConcurrency());
+      assertTrue(quota == quotas.get("db1"));
+
+      quota = quotas.get("db2");
+      assertEquals(100, quota.getOpsPerSec());
+      assertEquals(0, quota.getBytesPerSec());
+      assertEquals(4, quota.getMaxConcurrency());
+
+      //names the proxy doesn't serve share one quota
+      quota = quotas.get("typo1");
+      assertEquals(TenantQuotas.OTHER_DATABASES, quota.getDbName());
+      assertEquals(100, quota.getOpsPerSec());
+      assertTrue(quota == quotas.get("typo2"));
+    }
+    finally
+    {
+      quotas.close();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Builds ASCII keys of the form hash(keyNum)-workerId directly into reusable byte buffers.<br>
+ * There is one exact size buffer per key length, so the returned array can be passed to the database clients as it is.
+ * A returned array is only valid until the next call. Instances are not thread safe; each worker owns one.<br>
+ * In decimal format the keys are identical to the Strings generated by the earlier versions.
+ * In fixed format the hash is left padded with zeros to 19 digits so that all keys of a worker have the same length.
+ */
+public class KeyBuilder
+{
+  //number of decimal digits of Long.MAX_VALUE
+  public static final int HASH_WIDTH = 19;
+
+  private boolean _fixedWidth;
+  private byte _suffix[];
+  private byte _digits[];
+  private byte _bufByLen[][];
+
+  public KeyBuilder(int workerId, boolean fixedWidth)
+  {
+    _fixedWidth = fixedWidth;
+
+    String suffix = "-" + workerId;
+    _suffix = new byte[suffix.length()];
+    for(int a = 0; a<_suffix.length; a++)
+      _suffix[a] = (byte) suffix.charAt(a);
+
+    _digits = new byte[HASH_WIDTH];
+    _bufByLen = new byte[HASH_WIDTH + _suffix.length + 1][];
+  }
+
+  /**
+   * Build the key of the given key number.
+   * @param keyNum Key number generated by the key generators
+   * @return Key in a reused buffer
+   */
+  public byte[] build(long keyNum)
+  {
+    return encode(Utils.hash(keyNum));
+  }
+
+  /**
+   * Encode an already hashed key number.
+   * @param hash Non-negative hash
+   * @return Key in a reused buffer
+   */
+  public byte[] encode(long hash)
+  {
+    if(hash < 0)
+    {
+      //only possible for Math.abs(Long.MIN_VALUE). Keep the old textual form
+      String str = hash + new String(toChars(_suffix));
+      byte result[] = new byte[str.length()];
+      for(int a = 0; a<result.length; a++)
+        result[a] = (byte) str.charAt(a);
+      return result;
+    }
+
+    //write digits from the end
+    int pos = HASH_WIDTH;
+    do
+    {
+      _digits[--pos] = (byte) ('0' + (hash % 10));
+      hash /= 10;
+    } while(hash != 0);
+
+    if(_fixedWidth)
+    {
+      while(pos > 0)
+        _digits[--pos] = '0';
+    }
+
+    int digitCount = HASH_WIDTH - pos;
+    int len = digitCount + _suffix.length;
+    byte result[] = _bufByLen[len];
+    if(result == null)
+    {
+      result = new byte[len];
+      _bufByLen[len] = result;
+    }
+
+    System.arraycopy(_digits, pos, result, 0, digitCount);
+    System.arraycopy(_suffix, 0, result, digitCount, _suffix.length);
+
+    return result;
+  }
+
+  private static char[] toChars(byte arr[])
+  {
+    char result[] = new char[arr.length];
+    for(int a = 0; a<arr.length; a++)
+      result[a] = (char) arr[a];
+    return result;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+/**
+ * Mutation applied by READ_MODIFY_WRITE queries to the current value of a key.<br>
+ * The operand is the value of the query. mt-proxy applies the same operators to its merge queries,
+ * so that a read-modify-write and a merge of the same query produce the same value.
+ */
+public enum MergeOperator
+{
+  /**
+   * New value is the current value followed by the operand.
+   */
+  APPEND,
+
+  /**
+   * Value and operand are 8 byte big endian longs. New value is their sum.
+   * A missing current value, or one of another length, counts as 0.
+   */
+  COUNTER;
+
+  public static final int COUNTER_SIZE = 8;
+
+  /**
+   * @param name Name of the operator, case insensitive
+   * @return Operator with the given name
+   * @throws IllegalArgumentException if there is no such operator
+   */
+  public static MergeOperator parse(String name)
+  {
+    return valueOf(name.toUpperCase());
+  }
+
+  /**
+   * Apply the operator.
+   * @param current Current value. Null if the key does not exist.
+   * @param operand Array holding the operand
+   * @param offset Offset of the operand in the array
+   * @param length Length of the operand
+   * @return New value
+   */
+  public byte[] apply(byte current[], byte operand[], int offset, int length)
+  {
+    if(this == APPEND)
+    {
+      int currentLength = current == null ? 0 : current.length;
+      byte result[] = new byte[currentLength + length];
+      if(current != null)
+        System.arraycopy(current, 0, result, 0, currentLength);
+      System.arraycopy(operand, offset, result, currentLength, length);
+      return result;
+    }
+    else
+    {
+      long sum = readLong(operand, offset, length);
+      if(current != null)
+        sum += readLong(current, 0, current.length);
+
+      byte result[] = new byte[COUNTER_SIZE];
+      writeLong(sum, result, 0);
+      return result;
+    }
+  }
+
+  /**
+   * @return Long in the first 8 bytes. 0 if the length is not 8.
+   */
+  public static long readLong(byte arr[], int offset, int length)
+  {
+    if(length != COUNTER_SIZE)
+      return 0;
+
+    long result = 0;
+    for(int a = 0; a<COUNTER_SIZE; a++)
+      result = (result << 8) | (arr[offset + a] & 0xff);
+    return result;
+  }
+
+  public static void writeLong(long val, byte arr[], int offset)
+  {
+    for(int a = 0; a<COUNTER_SIZE; a++)
+      arr[offset + a] = (byte) (val >>> (8 * (COUNTER_SIZE - 1 - a)));
+  }
+}
@@ -7,16 +7,40 @@
  */
 package com.linkedin.multitenant.common;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
 public class Query
 {
+  private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+
   public enum QueryType
   {
-    INSERT, READ, DELETE, UPDATE, NA
+    INSERT, READ, DELETE, UPDATE, SCAN, MULTI_GET, READ_MODIFY_WRITE, NA
   }
 
   protected String _key;
+  protected byte[] _keyBytes;
   protected byte[] _value;
+  protected int _valueOffset;
+  protected int _valueLength;
   protected QueryType _type;
+  //number of keys to read starting from the key for SCAN queries
+  protected int _scanLength;
+  //number of rows a SCAN query read, set by the databases. -1 if the database doesn't report it
+  protected int _scanCount;
+  //keys to read for MULTI_GET queries, only the first _multiKeyCount entries are used
+  protected byte[][] _multiKeys;
+  protected int _multiKeyCount;
+  //number the workload generated the key from, -1 if the key has no number
+  protected long _keyNum;
+  //value read by READ queries, set by the databases when verification is enabled
+  protected byte[] _resultArray;
+  protected int _resultOffset;
+  protected int _resultLength;
+  protected boolean _hasResult;
+  //number of requests sent to the database for the query, set by databases that retry or hedge
+  protected int _attempts;
 
   public Query()
   {
@@ -26,28 +50,239 @@ public class Query
   public Query(String key, byte[] value, QueryType type)
   {
     _key = key;
-    _value = value;
+    _keyNum = -1;
+    _attempts = 1;
+    _scanCount = -1;
     _type = type;
+    setValue(value);
   }
 
+  /**
+   * @return Key as String. If the key was given as bytes, the String is created on the first call.
+   */
   public String getKey()
   {
+    if(_key == null && _keyBytes != null)
+      _key = new String(_keyBytes, KEY_CHARSET);
+
     return _key;
   }
 
   public void setKey(String key)
   {
     _key = key;
+    _keyBytes = null;
+    _keyNum = -1;
+  }
+
+  /**
+   * @return Key as bytes. If the key was given as String, it is encoded in UTF-8 on the first call.<br>
+   * The returned array may be a buffer reused by the workload, it should not be kept after the query is executed.
+   */
+  public byte[] getKeyBytes()
+  {
+    if(_keyBytes == null && _key != null)
+      _keyBytes = _key.getBytes(KEY_CHARSET);
+
+    return _keyBytes;
+  }
+
+  /**
+   * Set the key as bytes without creating a String.
+   * @param key Exact size key. It is not copied.
+   */
+  public void setKey(byte[] key)
+  {
+    _keyBytes = key;
+    _key = null;
+    _keyNum = -1;
   }
 
+  /**
+   * @return Number the key is generated from, or -1 if the key has no number
+   */
+  public long getKeyNum()
+  {
+    return _keyNum;
+  }
+
+  /**
+   * Set the number the key is generated from. Must be called after setKey, which resets it.
+   */
+  public void setKeyNum(long keyNum)
+  {
+    _keyNum = keyNum;
+  }
+
+  /**
+   * @return Value as an exact size array. If the value is a slice of a larger array, it is copied.
+   * Use getValueArray, getValueOffset and getValueLength to avoid the copy.
+   */
   public byte[] getValue()
   {
-    return _value;
+    if(_value == null || (_valueOffset == 0 && _valueLength == _value.length))
+      return _value;
+    else
+      return Arrays.copyOfRange(_value, _valueOffset, _valueOffset + _valueLength);
   }
 
   public void setValue(byte[] value)
   {
     _value = value;
+    _valueOffset = 0;
+    _valueLength = (value == null) ? 0 : value.length;
+  }
+
+  /**
+   * Set the value as a slice of an array without copying it.
+   * @param value Array holding the value. It may be shared, so it must not be modified by the databases.
+   * @param offset Offset of the value in the array
+   * @param length Length of the value
+   */
+  public void setValue(byte[] value, int offset, int length)
+  {
+    _value = value;
+    _valueOffset = offset;
+    _valueLength = length;
+  }
+
+  /**
+   * @return Array that holds the value starting at getValueOffset
+   */
+  public byte[] getValueArray()
+  {
+    return _value;
+  }
+
+  public int getValueOffset()
+  {
+    return _valueOffset;
+  }
+
+  public int getValueLength()
+  {
+    return _valueLength;
+  }
+
+  public int getScanLength()
+  {
+    return _scanLength;
+  }
+
+  public void setScanLength(int scanLength)
+  {
+    _scanLength = scanLength;
+  }
+
+  /**
+   * @return Number of rows the SCAN query read, or -1 if the database did not report it with setScanCount
+   */
+  public int getScanCount()
+  {
+    return _scanCount;
+  }
+
+  /**
+   * Record the number of rows a SCAN query read. It is at most getScanLength, and less at the end of the table.
+   */
+  public void setScanCount(int scanCount)
+  {
+    _scanCount = scanCount;
+  }
+
+  /**
+   * @return Keys of a MULTI_GET query. Only the first getMultiKeyCount entries are valid.<br>
+   * The array and the keys may be buffers reused by the workload, they should not be kept after the query is executed.
+   */
+  public byte[][] getMultiKeys()
+  {
+    return _multiKeys;
+  }
+
+  public int getMultiKeyCount()
+  {
+    return _multiKeyCount;
+  }
+
+  /**
+   * Set the keys of a MULTI_GET query without copying them.
+   * @param keys Array of exact size keys
+   * @param count Number of keys used from the beginning of the array
+   */
+  public void setMultiKeys(byte[][] keys, int count)
+  {
+    _multiKeys = keys;
+    _multiKeyCount = count;
+  }
+
+  /**
+   * Set the value read by a READ query without copying it. Databases only need to call it when hasResult
+   * would otherwise be false after the read, i.e. the workers clear the result before each read.
+   * @param value Array holding the value. It is only valid until the next query of the database.
+   * @param offset Offset of the value in the array
+   * @param length Length of the value
+   */
+  public void setResult(byte[] value, int offset, int length)
+  {
+    _resultArray = value;
+    _resultOffset = offset;
+    _resultLength = length;
+    _hasResult = true;
+  }
+
+  /**
+   * Record that a READ query did not find the key.
+   */
+  public void setResultMissing()
+  {
+    setResult(null, 0, 0);
+  }
+
+  public void clearResult()
+  {
+    _resultArray = null;
+    _resultOffset = 0;
+    _resultLength = 0;
+    _hasResult = false;
+  }
+
+  /**
+   * @return True if the database reported the outcome of the read with setResult or setResultMissing
+   */
+  public boolean hasResult()
+  {
+    return _hasResult;
+  }
+
+  /**
+   * @return Array holding the read value, or null if the key is not found
+   */
+  public byte[] getResultArray()
+  {
+    return _resultArray;
+  }
+
+  public int getResultOffset()
+  {
+    return _resultOffset;
+  }
+
+  public int getResultLength()
+  {
+    return _resultLength;
+  }
+
+  /**
+   * @return Number of requests sent to the database for the query
+   */
+  public int getAttempts()
+  {
+    return _attempts;
+  }
+
+  public void setAttempts(int attempts)
+  {
+    _attempts = attempts;
   }
 
   public QueryType getType()
@@ -67,16 +302,28 @@ public class Query
     sb.append("type=");
     sb.append(_type);
 
-    if(_key != null)
+    if(_key != null || _keyBytes != null)
     {
       sb.append(" key=");
-      sb.append(_key);
+      sb.append(getKey());
+    }
+
+    if(_type == QueryType.SCAN)
+    {
+      sb.append(" scanLen=");
+      sb.append(_scanLength);
+    }
+
+    if(_type == QueryType.MULTI_GET)
+    {
+      sb.append(" keyCnt=");
+      sb.append(_multiKeyCount);
     }
 
     if(_value != null)
     {
       sb.append(" valLen=");
-      sb.append(_value.length);
+      sb.append(_valueLength);
     }
 
     return sb.toString();
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Large block of bytes that is filled once and shared by all workers of the process.<br>
+ * Values are served as slices of the slab instead of allocating and filling a new array for each write.
+ * The slab is either a heap array, which can be handed to the database clients without copying,
+ * or a direct buffer that is copied into the worker's own buffer for each value.<br>
+ * The content decides how compressible the values are:<br>
+ * random: incompressible random bytes.<br>
+ * repeat: every REPEAT_UNIT bytes start with REPEAT_UNIT/ratio random bytes, which are copied over the rest of
+ * the unit. Compressors find the copies, so values longer than a few units compress by about the given ratio.<br>
+ * text: words of a small dictionary with a skewed choice, separated by spaces and punctuation, like natural text.
+ */
+public class ValueSlab
+{
+  private static final Logger _LOG = Logger.getLogger(ValueSlab.class);
+
+  private static final long SEED = 0x5eedL;
+
+  public static final String CONTENT_RANDOM = "random";
+  public static final String CONTENT_REPEAT = "repeat";
+  public static final String CONTENT_TEXT = "text";
+
+  public static final int REPEAT_UNIT = 128;
+
+  //generated in chunks, so that off heap slabs don't need a heap copy. Multiple of REPEAT_UNIT
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final String WORDS[] = {
+    "the", "of", "and", "to", "a", "in", "is", "that", "for", "it", "as", "was", "with", "be", "by", "on", "not",
+    "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an", "had", "they", "you", "were",
+    "their", "one", "all", "we", "can", "her", "has", "there", "been", "if", "more", "when", "will", "would", "who",
+    "so", "no", "time", "people", "year", "way", "day", "thing", "world", "life", "hand", "part", "child", "place",
+    "work", "week", "case", "point", "number", "group", "problem", "fact", "member", "tenant", "database", "request",
+    "latency", "through", "between", "another", "because", "without", "against", "different", "important", "system",
+    "government", "company", "question", "service", "information", "development", "experience", "understand"
+  };
+
+  //shared instances by size and location
+  private static final Map<String, ValueSlab> _instances = new HashMap<String, ValueSlab>();
+
+  private int _size;
+  private byte _heap[];
+  private ByteBuffer _direct;
+
+  /**
+   * Get the slab of the given size with random content, creating and filling it on the first call.
+   * @param size Slab size in bytes
+   * @param offHeap True to keep the slab in a direct buffer
+   * @return Shared slab instance
+   */
+  public static ValueSlab getInstance(int size, boolean offHeap)
+  {
+    return getInstance(size, offHeap, CONTENT_RANDOM, 1);
+  }
+
+  /**
+   * Get the slab of the given size and content, creating and filling it on the first call.
+   * @param size Slab size in bytes
+   * @param offHeap True to keep the slab in a direct buffer
+   * @param content One of CONTENT_RANDOM, CONTENT_REPEAT and CONTENT_TEXT
+   * @param ratio Target compression ratio of repeat content. At least 1. Ignored for other contents.
+   * @return Shared slab instance
+   * @throws IllegalArgumentException if the content is unknown or the ratio is less than 1
+   */
+  public static synchronized ValueSlab getInstance(int size, boolean offHeap, String content, double ratio)
+  {
+    if(!content.equals(CONTENT_RANDOM) && !content.equals(CONTENT_REPEAT) && !content.equals(CONTENT_TEXT))
+      throw new IllegalArgumentException("Unknown value content: " + content);
+    if(content.equals(CONTENT_REPEAT) && ratio < 1)
+      throw new IllegalArgumentException("Compression ratio must be at least 1: " + ratio);
+    if(!content.equals(CONTENT_REPEAT))
+      ratio = 1;
+
+    String id = size + "-" + offHeap + "-" + content + "-" + ratio;
+    ValueSlab result = _instances.get(id);
+    if(result == null)
+    {
+      result = new ValueSlab(size, offHeap, content, ratio);
+      _instances.put(id, result);
+      _LOG.debug("Created value slab of " + size + " bytes. offHeap=" + offHeap + " content=" + content + " ratio=" + ratio);
+    }
+    return result;
+  }
+
+  private ValueSlab(int size, boolean offHeap, String content, double ratio)
+  {
+    _size = size;
+
+    Random ranGen = new Random(SEED);
+    int randomPerUnit = Math.max(1, (int) Math.round(REPEAT_UNIT / ratio));
+    if(offHeap)
+    {
+      _direct = ByteBuffer.allocateDirect(size);
+      byte chunk[] = new byte[CHUNK_SIZE];
+      while(_direct.hasRemaining())
+      {
+        fill(ranGen, content, randomPerUnit, chunk);
+        _direct.put(chunk, 0, Math.min(chunk.length, _direct.remaining()));
+      }
+      _direct.clear();
+    }
+    else
+    {
+      _heap = new byte[size];
+      if(content.equals(CONTENT_RANDOM))
+      {
+        ranGen.nextBytes(_heap);
+      }
+      else
+      {
+        byte chunk[] = new byte[CHUNK_SIZE];
+        for(int pos = 0; pos<size; pos += chunk.length)
+        {
+          fill(ranGen, content, randomPerUnit, chunk);
+          System.arraycopy(chunk, 0, _heap, pos, Math.min(chunk.length, size - pos));
+        }
+      }
+    }
+  }
+
+  private static void fill(Random ranGen, String content, int randomPerUnit, byte chunk[])
+  {
+    if(content.equals(CONTENT_REPEAT))
+      fillRepeat(ranGen, randomPerUnit, chunk);
+    else if(content.equals(CONTENT_TEXT))
+      fillText(ranGen, chunk);
+    else
+      ranGen.nextBytes(chunk);
+  }
+
+  private static void fillRepeat(Random ranGen, int randomPerUnit, byte chunk[])
+  {
+    byte unique[] = new byte[randomPerUnit];
+    for(int unit = 0; unit<chunk.length; unit += REPEAT_UNIT)
+    {
+      ranGen.nextBytes(unique);
+      for(int a = 0; a<REPEAT_UNIT; a += randomPerUnit)
+        System.arraycopy(unique, 0, chunk, unit + a, Math.min(randomPerUnit, REPEAT_UNIT - a));
+    }
+  }
+
+  private static void fillText(Random ranGen, byte chunk[])
+  {
+    int pos = 0;
+    while(pos < chunk.length)
+    {
+      //cube of a uniform number prefers the frequent words at the beginning of the dictionary
+      double u = ranGen.nextDouble();
+      String word = WORDS[(int) (u * u * u * WORDS.length)];
+      for(int a = 0; a<word.length() && pos<chunk.length; a++)
+        chunk[pos++] = (byte) word.charAt(a);
+
+      if(pos < chunk.length)
+      {
+        int sep = ranGen.nextInt(20);
+        if(sep == 0)
+          chunk[pos++] = '.';
+        else if(sep == 1)
+          chunk[pos++] = ',';
+      }
+      if(pos < chunk.length)
+        chunk[pos++] = ' ';
+    }
+  }
+
+  public int getSize()
+  {
+    return _size;
+  }
+
+  public boolean isOffHeap()
+  {
+    return _direct != null;
+  }
+
+  /**
+   * @return Backing array of a heap slab. Null if the slab is off heap. Must not be modified.
+   */
+  public byte[] getArray()
+  {
+    return _heap;
+  }
+
+  /**
+   * @return New read only view of an off heap slab for a single worker. Null if the slab is on heap.
+   */
+  public ByteBuffer createView()
+  {
+    if(_direct == null)
+      return null;
+    else
+      return _direct.asReadOnlyBuffer();
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Per worker view of a ValueSlab. Fills the value of a query with a random slice of the slab.<br>
+ * If the slab is on heap and no header is requested, the query points directly into the slab.
+ * Otherwise the slice is copied into a buffer owned by this worker, which is reused for every value.<br>
+ * The optional header makes every written value unique. It is the worker id (4 bytes) followed by a
+ * per worker sequence number (8 bytes), both big endian. Values shorter than the header get its prefix.<br>
+ * A writable source always copies into the worker's buffer, so the caller may modify the value, e.g. to stamp it.
+ */
+public class ValueSource
+{
+  private static final Logger _LOG = Logger.getLogger(ValueSource.class);
+
+  public static final String FLAG_JOB_VALUE_HEADER        = "job.valueHeader";
+  public static final String FLAG_JOB_VALUE_CONTENT       = "job.valueContent";
+  public static final String FLAG_JOB_VALUE_CONTENT_RATIO = "job.valueContent.ratio";
+  public static final String FLAG_JOB_VERIFY              = "job.verify";
+  public static final String FLAG_WORK_VALUE_SLAB_SIZE    = "work.valueSlab.size";
+  public static final String FLAG_WORK_VALUE_SLAB_OFFHEAP = "work.valueSlab.offHeap";
+
+  public static final int HEADER_SIZE = 12;
+
+  private ValueSlab _slab;
+  private ByteBuffer _view;
+  private Random _ranGen;
+  private boolean _header;
+  private int _workerId;
+  private long _sequence;
+  private byte _buffer[];
+
+  /**
+   * Create the value source of a worker from the value flags of the work plan and its job. The slab is shared with
+   * the other workers of the process. Values are writable if the job verifies them, because the worker stamps them.
+   * @param workPlanProperties Properties of the work plan. May be null.
+   * @param jobProperties Properties of the job
+   * @param ranGen Random generator of the worker to choose offsets
+   * @param workerId Id of the worker
+   * @param maxValueSize Largest value size that will be requested
+   * @throws IllegalArgumentException if the value content of the job is invalid
+   */
+  public static ValueSource fromProperties(Map<String, String> workPlanProperties, Map<String, String> jobProperties,
+      Random ranGen, int workerId, int maxValueSize)
+  {
+    String temp;
+    int slabSize = 16 * 1024 * 1024;
+    boolean offHeap = false;
+    if(workPlanProperties != null)
+    {
+      temp = workPlanProperties.get(FLAG_WORK_VALUE_SLAB_SIZE);
+      if(temp != null)
+        slabSize = Integer.parseInt(temp);
+
+      temp = workPlanProperties.get(FLAG_WORK_VALUE_SLAB_OFFHEAP);
+      if(temp != null)
+        offHeap = Boolean.parseBoolean(temp);
+    }
+    if(slabSize < maxValueSize)
+    {
+      _LOG.warn("Value slab size " + slabSize + " is smaller than value size " + maxValueSize + ". It is set to the value size");
+      slabSize = maxValueSize;
+    }
+
+    boolean header = false;
+    temp = jobProperties.get(FLAG_JOB_VALUE_HEADER);
+    if(temp != null)
+      header = Boolean.parseBoolean(temp);
+
+    String content = ValueSlab.CONTENT_RANDOM;
+    temp = jobProperties.get(FLAG_JOB_VALUE_CONTENT);
+    if(temp != null)
+      content = temp;
+
+    double ratio = 2;
+    temp = jobProperties.get(FLAG_JOB_VALUE_CONTENT_RATIO);
+    if(temp != null)
+      ratio = Double.parseDouble(temp);
+
+    ValueSlab slab = ValueSlab.getInstance(slabSize, offHeap, content, ratio);
+    _LOG.debug("Value slab is " + slabSize + " bytes. offHeap=" + offHeap + " header=" + header + " content=" + content);
+    return new ValueSource(slab, ranGen, workerId, header, isVerified(jobProperties), maxValueSize);
+  }
+
+  /**
+   * @param jobProperties Properties of the job
+   * @return True if the job verifies the values it reads
+   */
+  public static boolean isVerified(Map<String, String> jobProperties)
+  {
+    String temp = jobProperties.get(FLAG_JOB_VERIFY);
+    return temp != null && Boolean.parseBoolean(temp);
+  }
+
+  /**
+   * @param slab Shared slab
+   * @param ranGen Random generator of the worker to choose offsets
+   * @param workerId Id of the worker
+   * @param header True to write a unique header into each value
+   * @param maxValueSize Largest value size that will be requested
+   */
+  public ValueSource(ValueSlab slab, Random ranGen, int workerId, boolean header, int maxValueSize)
+  {
+    this(slab, ranGen, workerId, header, false, maxValueSize);
+  }
+
+  /**
+   * @param slab Shared slab
+   * @param ranGen Random generator of the worker to choose offsets
+   * @param workerId Id of the worker
+   * @param header True to write a unique header into each value
+   * @param writable True if the values given to the queries may be modified by the caller
+   * @param maxValueSize Largest value size that will be requested
+   */
+  public ValueSource(ValueSlab slab, Random ranGen, int workerId, boolean header, boolean writable, int maxValueSize)
+  {
+    _slab = slab;
+    _view = slab.createView();
+    _ranGen = ranGen;
+    _header = header;
+    _workerId = workerId;
+    _sequence = 0;
+
+    if(_header || writable || _view != null)
+      _buffer = new byte[maxValueSize];
+  }
+
+  /**
+   * Set the value of the query to a new slice.
+   * @param q Query to fill
+   * @param valueSize Size of the value. Must not be larger than the slab or the maxValueSize.
+   */
+  public void fill(Query q, int valueSize)
+  {
+    int offset = _ranGen.nextInt(_slab.getSize() - valueSize + 1);
+
+    if(_buffer == null)
+    {
+      q.setValue(_slab.getArray(), offset, valueSize);
+      return;
+    }
+
+    if(_view != null)
+    {
+      _view.position(offset);
+      _view.get(_buffer, 0, valueSize);
+    }
+    else
+    {
+      System.arraycopy(_slab.getArray(), offset, _buffer, 0, valueSize);
+    }
+
+    if(_header)
+      writeHeader(valueSize);
+
+    q.setValue(_buffer, 0, valueSize);
+  }
+
+  private void writeHeader(int valueSize)
+  {
+    long seq = _sequence++;
+    int len = Math.min(valueSize, HEADER_SIZE);
+    for(int a = 0; a<len; a++)
+    {
+      if(a < 4)
+        _buffer[a] = (byte) (_workerId >>> (8 * (3 - a)));
+      else
+        _buffer[a] = (byte) (seq >>> (8 * (11 - a)));
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Stamps written values with a header and checks the header of read values, without keeping the expected values.<br>
+ * The header is the FNV hash of the key (8 bytes), the id of the writer (4 bytes), the version (4 bytes) and the
+ * CRC32 of the rest of the value (4 bytes), all big endian. Versions are a per writer sequence.<br>
+ * A read value is corrupt if it is shorter than the header, belongs to another key or fails the checksum.
+ * It is stale if this writer deleted the key, or if this writer wrote it and its version is older than the last
+ * acknowledged write of the key by this writer. Values of other writers are never stale, since their writes are not
+ * ordered with ours. Last versions are kept per key number in an int array, so stale and missing values are only
+ * detected for queries with a key number.<br>
+ * An instance must only be used by a single thread.
+ */
+public class ValueVerifier
+{
+  public enum Result
+  {
+    OK, STALE, CORRUPT, MISSING
+  }
+
+  public static final int HEADER_SIZE = 20;
+
+  //version table entries. Positive entries are the last acknowledged version
+  private static final int UNKNOWN = 0;
+  private static final int DELETED = -1;
+  private static final int UNVERIFIABLE = -2;
+
+  private CRC32 _crc;
+  private int _writerId;
+  private int _sequence;
+  private int _versions[];
+
+  /**
+   * @param writerId Id written into the values. It should be unique among the workers writing the same keys.
+   */
+  public ValueVerifier(int writerId)
+  {
+    _crc = new CRC32();
+    _writerId = writerId;
+    _sequence = 0;
+    _versions = new int[1024];
+  }
+
+  /**
+   * Write the header into the beginning of the value.
+   * @param key Key of the value
+   * @param value Writable array holding the value
+   * @param offset Offset of the value in the array
+   * @param length Length of the value. At least HEADER_SIZE.
+   * @return Version written into the header
+   */
+  public int stamp(byte key[], byte value[], int offset, int length)
+  {
+    int version = ++_sequence;
+    writeLong(hash(key), value, offset);
+    writeInt(_writerId, value, offset + 8);
+    writeInt(version, value, offset + 12);
+    writeInt(checksum(value, offset, length), value, offset + 16);
+    return version;
+  }
+
+  /**
+   * Record the outcome of a successful query on a key.
+   * @param keyNum Key number, or negative if the key has no number
+   * @param type Type of the query
+   * @param version Version stamped into the value of a write. Non-positive if the value is not stamped.
+   */
+  public void acknowledge(long keyNum, Query.QueryType type, int version)
+  {
+    if(keyNum < 0)
+      return;
+
+    switch(type)
+    {
+      case INSERT:
+      case UPDATE:
+        set((int) keyNum, version > 0 ? version : UNVERIFIABLE);
+        break;
+      case DELETE:
+        set((int) keyNum, DELETED);
+        break;
+      case READ_MODIFY_WRITE:
+        //the operator writes values without a header
+        set((int) keyNum, UNVERIFIABLE);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Check a value read for a key.
+   * @param keyNum Key number, or negative if the key has no number
+   * @param key Key that is read
+   * @param value Array holding the value, or null if the key is not found
+   * @param offset Offset of the value in the array
+   * @param length Length of the value
+   * @return Result of the check
+   */
+  public Result verify(long keyNum, byte key[], byte value[], int offset, int length)
+  {
+    int expected = UNKNOWN;
+    if(keyNum >= 0 && keyNum < _versions.length)
+      expected = _versions[(int) keyNum];
+
+    if(expected == UNVERIFIABLE)
+      return Result.OK;
+
+    if(value == null)
+    {
+      //keys without a number may never have been written. Keys deleted by other workers are reported as missing
+      if(expected == DELETED || keyNum < 0)
+        return Result.OK;
+      else
+        return Result.MISSING;
+    }
+
+    if(length < HEADER_SIZE)
+      return Result.CORRUPT;
+    if(readLong(value, offset) != hash(key))
+      return Result.CORRUPT;
+    if(readInt(value, offset + 16) != checksum(value, offset, length))
+      return Result.CORRUPT;
+
+    //a value of another writer may have been written after our last write or delete
+    if(readInt(value, offset + 8) != _writerId)
+      return Result.OK;
+    if(expected == DELETED)
+      return Result.STALE;
+    if(expected != UNKNOWN && readInt(value, offset + 12) < expected)
+      return Result.STALE;
+
+    return Result.OK;
+  }
+
+  private void set(int keyNum, int entry)
+  {
+    if(keyNum >= _versions.length)
+      _versions = Arrays.copyOf(_versions, Math.max(keyNum + 1, _versions.length * 2));
+    _versions[keyNum] = entry;
+  }
+
+  private int checksum(byte value[], int offset, int length)
+  {
+    _crc.reset();
+    _crc.update(value, offset, 16);
+    _crc.update(value, offset + HEADER_SIZE, length - HEADER_SIZE);
+    return (int) _crc.getValue();
+  }
+
+  private static long hash(byte key[])
+  {
+    long h = Utils.FNV_offset_basis_64;
+    for(int a = 0; a<key.length; a++)
+    {
+      h ^= key[a] & 0xff;
+      h *= Utils.FNV_prime_64;
+    }
+    return h;
+  }
+
+  private static void writeLong(long val, byte arr[], int offset)
+  {
+    for(int a = 0; a<8; a++)
+      arr[offset + a] = (byte) (val >>> (8 * (7 - a)));
+  }
+
+  private static void writeInt(int val, byte arr[], int offset)
+  {
+    for(int a = 0; a<4; a++)
+      arr[offset + a] = (byte) (val >>> (8 * (3 - a)));
+  }
+
+  private static long readLong(byte arr[], int offset)
+  {
+    long result = 0;
+    for(int a = 0; a<8; a++)
+      result = (result << 8) | (arr[offset + a] & 0xff);
+    return result;
+  }
+
+  private static int readInt(byte arr[], int offset)
+  {
+    int result = 0;
+    for(int a = 0; a<4; a++)
+      result = (result << 8) | (arr[offset + a] & 0xff);
+    return result;
+  }
+}
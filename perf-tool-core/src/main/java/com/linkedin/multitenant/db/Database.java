@@ -59,6 +59,31 @@ public interface Database
    */
   public DatabaseResult doUpdate(Query q);
 
+  /**
+   * Perform a range scan on the database.
+   * @param q Query instance holding the start key and the number of keys to read in getScanLength.
+   * The number of rows read should be given back with setScanCount, it is used for the keys/s of the job.
+   * @return success:DatabaseResult.OK<br>
+   * fail:DatabaseResult.FAIL
+   */
+  public DatabaseResult doScan(Query q);
+
+  /**
+   * Read several keys with a single request.
+   * @param q Query instance holding the keys in getMultiKeys and getMultiKeyCount.
+   * @return success:DatabaseResult.OK<br>
+   * fail:DatabaseResult.FAIL
+   */
+  public DatabaseResult doMultiGet(Query q);
+
+  /**
+   * Read a key, apply the job's MergeOperator with the value of the query as the operand, and write the result back.
+   * @param q Query instance holding the key and the operand.
+   * @return success:DatabaseResult.OK<br>
+   * fail:DatabaseResult.FAIL
+   */
+  public DatabaseResult doReadModifyWrite(Query q);
+
   /**
    * Close any open connection/file before quitting.
    * @return success:DatabaseResult.OK<br>
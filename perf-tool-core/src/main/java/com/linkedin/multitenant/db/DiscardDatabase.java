@@ -49,6 +49,24 @@ public class DiscardDatabase implements Database
     return DatabaseResult.OK;
   }
 
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    return DatabaseResult.OK;
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    return DatabaseResult.OK;
+  }
+
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    return DatabaseResult.OK;
+  }
+
   @Override
   public DatabaseResult close()
   {
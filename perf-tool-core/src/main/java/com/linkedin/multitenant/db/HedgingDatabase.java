@@ -0,0 +1,636 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.yahoo.ycsb.FastRandom;
+
+/**
+ * Decorator that sends the queries of a worker to another Database class with client side tail latency strategies:
+ * <ul>
+ * <li>Hedging: if a read, scan or multi-get has no response after a delay, the same query is sent again on another
+ * instance of the inner database and the first response wins. The delay is fixed, or a percentile of the recent
+ * latencies of the worker.</li>
+ * <li>Retries: a failed query is sent again up to a number of times, with exponential backoff and full jitter.
+ * Read-modify-writes are never retried since they are not idempotent.</li>
+ * <li>Concurrency limit: the workers of a job on a machine share a limit on the requests in flight, including hedges
+ * that lost but haven't completed yet. Queries wait for a slot, hedges are skipped if there is none.</li>
+ * </ul>
+ * Every request of a query is counted with Query.setAttempts, and the latency measured by the worker is the latency
+ * seen by the user. Each request runs on its own instance of the inner database with its own copy of the query,
+ * so the inner class needs no thread safety. Without hedging, queries run on the calling thread.
+ */
+public class HedgingDatabase implements Database
+{
+  public static final String FLAG_HEDGE_DATABASE_CLASS   = "job.hedge.databaseClass";
+  public static final String FLAG_HEDGE_DELAY             = "job.hedge.delay";
+  public static final String FLAG_HEDGE_PERCENTILE        = "job.hedge.percentile";
+  public static final String FLAG_HEDGE_RETRIES           = "job.hedge.retries";
+  public static final String FLAG_HEDGE_BACKOFF           = "job.hedge.backoff";
+  public static final String FLAG_HEDGE_BACKOFF_MAX       = "job.hedge.backoff.max";
+  public static final String FLAG_HEDGE_MAX_CONCURRENCY   = "job.hedge.maxConcurrency";
+
+  private static final Logger _LOG = Logger.getLogger(HedgingDatabase.class);
+
+  //most inner instances of a worker, so that requests stuck on a slow server don't open connections without bound
+  private static final int MAX_SLOTS = 4;
+  //number of recent latencies the percentile delay is computed from
+  private static final int LATENCY_WINDOW = 1024;
+  //the percentile delay is recomputed after this many latencies
+  private static final int LATENCY_REFRESH = 128;
+
+  //shared concurrency limits of the jobs on this machine
+  private static final Map<String, Semaphore> _LIMITS = new HashMap<String, Semaphore>();
+  private static final Map<String, Integer> _LIMIT_REFS = new HashMap<String, Integer>();
+
+  /**
+   * An instance of the inner database with its own copy of the query.
+   */
+  private class Slot
+  {
+    private Database _db;
+    private Query _query;
+    private byte _valueBuffer[];
+    private byte _multiKeys[][];
+    private volatile boolean _busy;
+
+    public Slot(Database db)
+    {
+      _db = db;
+      _query = new Query();
+      _valueBuffer = new byte[0];
+      _multiKeys = new byte[0][];
+      _busy = false;
+    }
+
+    /**
+     * Copy the query, since the workload reuses its buffers while a lost hedge may still be running.
+     */
+    public void load(Query q)
+    {
+      _query.setType(q.getType());
+      _query.setKey(q.getKeyBytes() == null ? null : Arrays.copyOf(q.getKeyBytes(), q.getKeyBytes().length));
+      _query.setKeyNum(q.getKeyNum());
+      _query.setScanLength(q.getScanLength());
+      _query.setScanCount(-1);
+      _query.clearResult();
+      _query.setAttempts(1);
+
+      if(q.getValueArray() == null)
+      {
+        _query.setValue(null);
+      }
+      else
+      {
+        if(_valueBuffer.length < q.getValueLength())
+          _valueBuffer = new byte[q.getValueLength()];
+        System.arraycopy(q.getValueArray(), q.getValueOffset(), _valueBuffer, 0, q.getValueLength());
+        _query.setValue(_valueBuffer, 0, q.getValueLength());
+      }
+
+      int keyCount = q.getMultiKeyCount();
+      if(_multiKeys.length < keyCount)
+        _multiKeys = new byte[keyCount][];
+      for(int a = 0; a<keyCount; a++)
+        _multiKeys[a] = Arrays.copyOf(q.getMultiKeys()[a], q.getMultiKeys()[a].length);
+      _query.setMultiKeys(_multiKeys, keyCount);
+    }
+
+    public DatabaseResult execute()
+    {
+      return HedgingDatabase.execute(_db, _query);
+    }
+  }
+
+  /**
+   * Completion of a request. The sequence tells which query it belongs to, old ones are from lost hedges.
+   */
+  private static class Outcome
+  {
+    private Slot _slot;
+    private long _sequence;
+    private DatabaseResult _result;
+    private long _latency;
+
+    public Outcome(Slot slot, long sequence, DatabaseResult result, long latency)
+    {
+      _slot = slot;
+      _sequence = sequence;
+      _result = result;
+      _latency = latency;
+    }
+  }
+
+  private String _jobName;
+  private Class<?> _innerClass;
+  private Map<String, String> _workPlanProperties;
+  private Map<String, String> _jobProperties;
+
+  private long _hedgeDelayNs;
+  private double _hedgePercentile;
+  private int _retries;
+  private long _backoffMs;
+  private long _backoffMaxMs;
+  private Semaphore _limit;
+
+  private List<Slot> _slots;
+  private ExecutorService _executor;
+  private LinkedBlockingQueue<Outcome> _outcomes;
+  private long _sequence;
+  private int _attempts;
+  private FastRandom _ranGen;
+
+  private long _latencies[];
+  private int _latencyCount;
+
+  @Override
+  public DatabaseResult init(Map<String, String> workPlanProperties, Map<String, String> jobProperties) throws Exception
+  {
+    _workPlanProperties = workPlanProperties;
+    _jobProperties = jobProperties;
+    _jobName = jobProperties.get(RunExperiment.FLAG_JOB_NAME);
+
+    String temp = jobProperties.get(FLAG_HEDGE_DATABASE_CLASS);
+    if(temp == null)
+    {
+      //no default, a job measured against a no-op backend would look fast instead of failing
+      _LOG.error("Inner database class is missing for job " + _jobName + ". Set " + FLAG_HEDGE_DATABASE_CLASS);
+      return DatabaseResult.FAIL;
+    }
+    _innerClass = HedgingDatabase.class.getClassLoader().loadClass(temp);
+
+    //hedging is disabled unless a delay or a percentile is given
+    _hedgeDelayNs = -1;
+    temp = jobProperties.get(FLAG_HEDGE_DELAY);
+    if(temp != null)
+      _hedgeDelayNs = (long) (Double.parseDouble(temp) * 1000000);
+    _hedgePercentile = -1;
+    temp = jobProperties.get(FLAG_HEDGE_PERCENTILE);
+    if(temp != null)
+    {
+      _hedgePercentile = Double.parseDouble(temp);
+      if(_hedgePercentile <= 0 || _hedgePercentile >= 100)
+      {
+        _LOG.error("Hedge percentile must be in (0, 100) for job " + _jobName);
+        return DatabaseResult.FAIL;
+      }
+      //until enough latencies are seen
+      if(_hedgeDelayNs < 0)
+        _hedgeDelayNs = 10000000;
+    }
+
+    _retries = 0;
+    temp = jobProperties.get(FLAG_HEDGE_RETRIES);
+    if(temp != null)
+      _retries = Integer.parseInt(temp);
+    _backoffMs = 10;
+    temp = jobProperties.get(FLAG_HEDGE_BACKOFF);
+    if(temp != null)
+      _backoffMs = Long.parseLong(temp);
+    _backoffMaxMs = 1000;
+    temp = jobProperties.get(FLAG_HEDGE_BACKOFF_MAX);
+    if(temp != null)
+      _backoffMaxMs = Long.parseLong(temp);
+
+    int maxConcurrency = 0;
+    temp = jobProperties.get(FLAG_HEDGE_MAX_CONCURRENCY);
+    if(temp != null)
+      maxConcurrency = Integer.parseInt(temp);
+    if(maxConcurrency > 0)
+      _limit = acquireLimit(_jobName, maxConcurrency);
+
+    _slots = new ArrayList<Slot>();
+    _outcomes = new LinkedBlockingQueue<Outcome>();
+    _sequence = 0;
+    //backoff jitter is reproducible from the run seed
+    _ranGen = new FastRandom(InstanceSeeds.seed(workPlanProperties, HedgingDatabase.class, _jobName,
+        InstanceSeeds.nextInstance(HedgingDatabase.class, _jobName)));
+    _latencies = new long[LATENCY_WINDOW];
+    _latencyCount = 0;
+
+    if(_hedgeDelayNs >= 0)
+    {
+      _executor = Executors.newCachedThreadPool(new ThreadFactory()
+      {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+          Thread thr = new Thread(r, "hedge-" + _jobName);
+          thr.setDaemon(true);
+          return thr;
+        }
+      });
+    }
+
+    //create the instances needed without hedging, or with one hedge, before the measurement starts
+    int initialSlots = _hedgeDelayNs >= 0 ? 2 : 1;
+    for(int a = 0; a<initialSlots; a++)
+    {
+      if(addSlot() == null)
+        return DatabaseResult.FAIL;
+    }
+
+    _LOG.debug("Hedging database for job " + _jobName + ": inner=" + _innerClass.getName() + " delayNs=" + _hedgeDelayNs
+        + " percentile=" + _hedgePercentile + " retries=" + _retries + " maxConcurrency=" + maxConcurrency);
+    return DatabaseResult.OK;
+  }
+
+  private static Semaphore acquireLimit(String jobName, int maxConcurrency)
+  {
+    synchronized(_LIMITS)
+    {
+      Semaphore limit = _LIMITS.get(jobName);
+      if(limit == null)
+      {
+        limit = new Semaphore(maxConcurrency);
+        _LIMITS.put(jobName, limit);
+        _LIMIT_REFS.put(jobName, 0);
+      }
+      _LIMIT_REFS.put(jobName, _LIMIT_REFS.get(jobName) + 1);
+      return limit;
+    }
+  }
+
+  private static void releaseLimit(String jobName)
+  {
+    synchronized(_LIMITS)
+    {
+      Integer refs = _LIMIT_REFS.get(jobName);
+      if(refs == null)
+        return;
+      if(refs <= 1)
+      {
+        _LIMITS.remove(jobName);
+        _LIMIT_REFS.remove(jobName);
+      }
+      else
+      {
+        _LIMIT_REFS.put(jobName, refs - 1);
+      }
+    }
+  }
+
+  private Slot addSlot()
+  {
+    try
+    {
+      Database db = (Database) _innerClass.newInstance();
+      if(db.init(_workPlanProperties, _jobProperties) == DatabaseResult.FAIL)
+      {
+        _LOG.error("Inner database init failed for job " + _jobName);
+        return null;
+      }
+
+      Slot slot = new Slot(db);
+      _slots.add(slot);
+      return slot;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Error in creating inner database for job " + _jobName, e);
+      return null;
+    }
+  }
+
+  /**
+   * @param create True to create a new instance if every one is busy and the cap is not reached
+   * @return An instance without a request in flight, or null if there is none
+   */
+  private Slot freeSlot(boolean create)
+  {
+    for(int a = 0; a<_slots.size(); a++)
+    {
+      if(!_slots.get(a)._busy)
+        return _slots.get(a);
+    }
+
+    if(create && _slots.size() < MAX_SLOTS)
+      return addSlot();
+    else
+      return null;
+  }
+
+  private static DatabaseResult execute(Database db, Query q)
+  {
+    switch(q.getType())
+    {
+      case INSERT:
+        return db.doInsert(q);
+      case READ:
+        return db.doRead(q);
+      case DELETE:
+        return db.doDelete(q);
+      case UPDATE:
+        return db.doUpdate(q);
+      case SCAN:
+        return db.doScan(q);
+      case MULTI_GET:
+        return db.doMultiGet(q);
+      case READ_MODIFY_WRITE:
+        return db.doReadModifyWrite(q);
+      default:
+        return DatabaseResult.FAIL;
+    }
+  }
+
+  private DatabaseResult run(Query q)
+  {
+    QueryType type = q.getType();
+    boolean hedge = _hedgeDelayNs >= 0 && (type == QueryType.READ || type == QueryType.SCAN || type == QueryType.MULTI_GET);
+    int retries = type == QueryType.READ_MODIFY_WRITE ? 0 : _retries;
+
+    _attempts = 0;
+    DatabaseResult res = DatabaseResult.FAIL;
+    try
+    {
+      for(int a = 0; a<=retries; a++)
+      {
+        if(a > 0)
+          Thread.sleep(backoff(a));
+
+        res = hedge ? runHedged(q) : runOnce(q);
+        if(res == DatabaseResult.OK)
+          break;
+      }
+    }
+    catch(InterruptedException e)
+    {
+      _LOG.warn("Interrupted while executing a query");
+      Thread.currentThread().interrupt();
+      res = DatabaseResult.FAIL;
+    }
+
+    q.setAttempts(_attempts);
+    return res;
+  }
+
+  /**
+   * @param retry Number of the retry, starting from 1
+   * @return Random sleep in milliseconds up to the exponential backoff of the retry
+   */
+  long backoff(int retry)
+  {
+    long max = _backoffMs << Math.min(retry - 1, 30);
+    if(max > _backoffMaxMs || max <= 0)
+      max = _backoffMaxMs;
+    return (long) (_ranGen.nextDouble() * max) + 1;
+  }
+
+  private DatabaseResult runOnce(Query q) throws InterruptedException
+  {
+    Slot slot = freeSlot(true);
+    if(slot == null)
+      slot = waitForSlot();
+    if(slot == null)
+      return DatabaseResult.FAIL;
+
+    if(_limit != null)
+      _limit.acquire();
+    _attempts++;
+    try
+    {
+      slot.load(q);
+      DatabaseResult res = slot.execute();
+      copyResult(slot, q);
+      return res;
+    }
+    finally
+    {
+      if(_limit != null)
+        _limit.release();
+    }
+  }
+
+  private DatabaseResult runHedged(Query q) throws InterruptedException
+  {
+    long seq = ++_sequence;
+
+    Slot slot = freeSlot(true);
+    if(slot == null)
+      slot = waitForSlot();
+    if(slot == null)
+      return DatabaseResult.FAIL;
+    if(_limit != null)
+      _limit.acquire();
+    start(slot, q, seq);
+
+    //lost hedges of earlier queries complete while this one waits, they must not push the hedge back
+    long hedgeAt = System.nanoTime() + _hedgeDelayNs;
+    int outstanding = 1;
+    boolean hedged = false;
+    while(outstanding > 0)
+    {
+      Outcome o;
+      if(hedged)
+        o = _outcomes.take();
+      else
+        o = _outcomes.poll(Math.max(0, hedgeAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+      if(o == null)
+      {
+        //no response within the delay, send the hedge if there is an instance and a slot of the limit for it
+        hedged = true;
+        Slot hedgeSlot = freeSlot(true);
+        if(hedgeSlot != null && (_limit == null || _limit.tryAcquire()))
+        {
+          start(hedgeSlot, q, seq);
+          outstanding++;
+        }
+        continue;
+      }
+
+      //outcomes of earlier queries are hedges that lost. Their latency still counts for the percentile
+      addLatency(o._latency);
+      if(o._sequence != seq)
+        continue;
+
+      outstanding--;
+      if(o._result == DatabaseResult.OK)
+      {
+        copyResult(o._slot, q);
+        return DatabaseResult.OK;
+      }
+    }
+
+    return DatabaseResult.FAIL;
+  }
+
+  /**
+   * Wait for a request of an earlier query to complete when every instance is busy.
+   */
+  private Slot waitForSlot() throws InterruptedException
+  {
+    while(true)
+    {
+      Slot slot = freeSlot(false);
+      if(slot != null)
+        return slot;
+      if(_executor == null)
+        return null;
+      _outcomes.poll(1, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void start(final Slot slot, Query q, final long seq)
+  {
+    slot.load(q);
+    slot._busy = true;
+    _attempts++;
+
+    _executor.execute(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        long st = System.nanoTime();
+        DatabaseResult res;
+        try
+        {
+          res = slot.execute();
+        }
+        catch(RuntimeException e)
+        {
+          _LOG.error("Error in executing a query", e);
+          res = DatabaseResult.FAIL;
+        }
+        long latency = System.nanoTime() - st;
+
+        if(_limit != null)
+          _limit.release();
+        slot._busy = false;
+        _outcomes.add(new Outcome(slot, seq, res, latency));
+      }
+    });
+  }
+
+  private void copyResult(Slot slot, Query q)
+  {
+    q.setScanCount(slot._query.getScanCount());
+    if(slot._query.hasResult())
+      q.setResult(slot._query.getResultArray(), slot._query.getResultOffset(), slot._query.getResultLength());
+  }
+
+  /**
+   * @return Current hedge delay in nanoseconds, -1 if hedging is disabled
+   */
+  long getHedgeDelayNs()
+  {
+    return _hedgeDelayNs;
+  }
+
+  /**
+   * Record the latency of a request and recompute the hedge delay if it follows a percentile.
+   */
+  private void addLatency(long latency)
+  {
+    if(_hedgePercentile < 0)
+      return;
+
+    _latencies[_latencyCount % LATENCY_WINDOW] = latency;
+    _latencyCount++;
+
+    if(_latencyCount % LATENCY_REFRESH == 0)
+    {
+      int n = Math.min(_latencyCount, LATENCY_WINDOW);
+      long sorted[] = Arrays.copyOf(_latencies, n);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(_hedgePercentile / 100 * n) - 1;
+      _hedgeDelayNs = sorted[Math.max(0, Math.min(index, n - 1))];
+    }
+  }
+
+  @Override
+  public DatabaseResult doInsert(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doRead(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doDelete(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doUpdate(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    return run(q);
+  }
+
+  @Override
+  public DatabaseResult close()
+  {
+    DatabaseResult result = DatabaseResult.OK;
+
+    //let lost hedges complete before their instances are closed
+    if(_executor != null)
+    {
+      _executor.shutdown();
+      try
+      {
+        if(!_executor.awaitTermination(10, TimeUnit.SECONDS))
+          _LOG.warn("Hedged requests of job " + _jobName + " are still running");
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    for(int a = 0; a<_slots.size(); a++)
+    {
+      if(_slots.get(a)._db.close() == DatabaseResult.FAIL)
+        result = DatabaseResult.FAIL;
+    }
+
+    if(_limit != null)
+      releaseLimit(_jobName);
+
+    return result;
+  }
+}
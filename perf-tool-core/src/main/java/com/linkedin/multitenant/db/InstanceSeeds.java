@@ -0,0 +1,59 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.linkedin.multitenant.workload.CoreWorkload;
+import com.yahoo.ycsb.FastRandom;
+
+/**
+ * Seeds of the random generators of Database classes, so that their randomness is reproducible from work.randomSeed
+ * like the workloads'. Database.init doesn't get the worker id, so the instances of a class for a job are numbered in
+ * the order they are created on this machine, which is the order of the workers.
+ */
+public class InstanceSeeds
+{
+  private static final Map<String, Integer> _INSTANCES = new HashMap<String, Integer>();
+
+  private InstanceSeeds()
+  {
+  }
+
+  /**
+   * @return Number of the next instance of the class for the job on this machine, starting from 0
+   */
+  public static int nextInstance(Class<?> dbClass, String jobName)
+  {
+    String name = dbClass.getName() + "." + jobName;
+    synchronized(_INSTANCES)
+    {
+      Integer result = _INSTANCES.get(name);
+      if(result == null)
+        result = 0;
+      _INSTANCES.put(name, result + 1);
+      return result;
+    }
+  }
+
+  /**
+   * @param workPlanProperties Work plan properties with the optional work.randomSeed
+   * @param dbClass Database class, so that its stream differs from the workload's of the same worker
+   * @param jobName Job name
+   * @param instance Number of the instance from nextInstance
+   * @return Seed of the instance
+   */
+  public static long seed(Map<String, String> workPlanProperties, Class<?> dbClass, String jobName, int instance)
+  {
+    long baseSeed = 0;
+    if(workPlanProperties != null && workPlanProperties.get(CoreWorkload.FLAG_WORK_RANDOM_SEED) != null)
+      baseSeed = Long.parseLong(workPlanProperties.get(CoreWorkload.FLAG_WORK_RANDOM_SEED));
+    return FastRandom.deriveSeed(baseSeed, dbClass.getName() + "." + jobName, instance);
+  }
+}
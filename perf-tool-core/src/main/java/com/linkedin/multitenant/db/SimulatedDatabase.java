@@ -0,0 +1,206 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.yahoo.ycsb.FastRandom;
+
+/**
+ * In-process backend that serves every query from a simulated queue instead of a real database, so that the latency
+ * the harness measures can be compared to queueing theory. The threads of a job on a machine share one
+ * SimulatedServers with the given number of servers, pauses and service time distribution. Values are not stored.
+ */
+public class SimulatedDatabase implements Database
+{
+  public static final String FLAG_SIM_SERVERS             = "job.sim.servers";
+  public static final String FLAG_SIM_SERVICE_TIME        = "job.sim.serviceTime";
+  public static final String FLAG_SIM_SERVICE_TIME_DIST   = "job.sim.serviceTime.dist";
+  public static final String FLAG_SIM_PAUSE_INTERVAL      = "job.sim.pause.interval";
+  public static final String FLAG_SIM_PAUSE_DURATION      = "job.sim.pause.duration";
+
+  public static final String CONST_DIST_CONSTANT = "constant";
+  public static final String CONST_DIST_UNIFORM = "uniform";
+  public static final String CONST_DIST_EXPONENTIAL = "exponential";
+
+  private static final Logger _LOG = Logger.getLogger(SimulatedDatabase.class);
+
+  //servers of the jobs on this machine
+  private static final Map<String, SimulatedServers> _SERVERS = new HashMap<String, SimulatedServers>();
+  private static final Map<String, Integer> _SERVER_REFS = new HashMap<String, Integer>();
+
+  private String _jobName;
+  private SimulatedServers _servers;
+  private String _dist;
+  private long _serviceNs;
+  private FastRandom _ranGen;
+
+  @Override
+  public DatabaseResult init(Map<String, String> workPlanProperties, Map<String, String> jobProperties) throws Exception
+  {
+    _jobName = jobProperties.get(RunExperiment.FLAG_JOB_NAME);
+
+    int servers = 1;
+    String temp = jobProperties.get(FLAG_SIM_SERVERS);
+    if(temp != null)
+      servers = Integer.parseInt(temp);
+
+    double serviceMs = 1;
+    temp = jobProperties.get(FLAG_SIM_SERVICE_TIME);
+    if(temp != null)
+      serviceMs = Double.parseDouble(temp);
+    _serviceNs = (long) (serviceMs * 1000000);
+
+    _dist = CONST_DIST_EXPONENTIAL;
+    temp = jobProperties.get(FLAG_SIM_SERVICE_TIME_DIST);
+    if(temp != null)
+      _dist = temp;
+    if(!_dist.equals(CONST_DIST_CONSTANT) && !_dist.equals(CONST_DIST_UNIFORM) && !_dist.equals(CONST_DIST_EXPONENTIAL))
+    {
+      _LOG.error("Unknown service time distribution " + _dist + " for job " + _jobName);
+      return DatabaseResult.FAIL;
+    }
+
+    double pauseIntervalMs = 0;
+    temp = jobProperties.get(FLAG_SIM_PAUSE_INTERVAL);
+    if(temp != null)
+      pauseIntervalMs = Double.parseDouble(temp);
+    double pauseDurationMs = 0;
+    temp = jobProperties.get(FLAG_SIM_PAUSE_DURATION);
+    if(temp != null)
+      pauseDurationMs = Double.parseDouble(temp);
+
+    try
+    {
+      _servers = acquireServers(_jobName, servers, (long) (pauseIntervalMs * 1000000), (long) (pauseDurationMs * 1000000));
+    }
+    catch(IllegalArgumentException e)
+    {
+      _LOG.error("Simulated servers of job " + _jobName + " are invalid: " + e.getMessage());
+      return DatabaseResult.FAIL;
+    }
+
+    //service times are reproducible from the run seed
+    _ranGen = new FastRandom(InstanceSeeds.seed(workPlanProperties, SimulatedDatabase.class, _jobName,
+        InstanceSeeds.nextInstance(SimulatedDatabase.class, _jobName)));
+
+    _LOG.debug("Simulated database for job " + _jobName + ": servers=" + servers + " serviceMs=" + serviceMs + " dist=" + _dist
+        + " pauseIntervalMs=" + pauseIntervalMs + " pauseDurationMs=" + pauseDurationMs);
+    return DatabaseResult.OK;
+  }
+
+  private static SimulatedServers acquireServers(String jobName, int servers, long pauseIntervalNs, long pauseDurationNs)
+  {
+    synchronized(_SERVERS)
+    {
+      SimulatedServers result = _SERVERS.get(jobName);
+      if(result == null)
+      {
+        result = new SimulatedServers(servers, System.nanoTime(), pauseIntervalNs, pauseDurationNs);
+        _SERVERS.put(jobName, result);
+        _SERVER_REFS.put(jobName, 0);
+      }
+      _SERVER_REFS.put(jobName, _SERVER_REFS.get(jobName) + 1);
+      return result;
+    }
+  }
+
+  private static void releaseServers(String jobName)
+  {
+    synchronized(_SERVERS)
+    {
+      Integer refs = _SERVER_REFS.get(jobName);
+      if(refs == null)
+        return;
+      if(refs <= 1)
+      {
+        _SERVERS.remove(jobName);
+        _SERVER_REFS.remove(jobName);
+      }
+      else
+      {
+        _SERVER_REFS.put(jobName, refs - 1);
+      }
+    }
+  }
+
+  /**
+   * @return Service time of the next query in nanoseconds
+   */
+  long nextServiceTime()
+  {
+    if(_dist.equals(CONST_DIST_CONSTANT))
+      return _serviceNs;
+    else if(_dist.equals(CONST_DIST_UNIFORM))
+      return (long) (_ranGen.nextDouble() * 2 * _serviceNs);
+    else
+      return (long) (-Math.log(1 - _ranGen.nextDouble()) * _serviceNs);
+  }
+
+  private DatabaseResult serve()
+  {
+    long finish = _servers.schedule(System.nanoTime(), nextServiceTime());
+    SimulatedServers.waitUntil(finish);
+    return DatabaseResult.OK;
+  }
+
+  @Override
+  public DatabaseResult doInsert(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doRead(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doDelete(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doUpdate(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    return serve();
+  }
+
+  @Override
+  public DatabaseResult close()
+  {
+    if(_servers != null)
+      releaseServers(_jobName);
+    return DatabaseResult.OK;
+  }
+}
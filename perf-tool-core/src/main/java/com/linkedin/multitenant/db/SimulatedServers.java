@@ -0,0 +1,123 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FIFO queue in front of a fixed number of identical servers, i.e. the c servers of an M/G/c queue when arrivals are
+ * random. Requests are scheduled in virtual time: each request gets the server that becomes free first, starts when
+ * it arrives or when the server is free, and finishes a service time later. The callers then wait until the finish
+ * time, so the queueing is exact regardless of how the threads are scheduled, and the tests can check it without
+ * waiting.<br>
+ * Pauses model stop-the-world events such as garbage collection or compaction stalls. Every pause interval after the
+ * start time, no request is served for the pause duration. A request that is in service when a pause starts finishes that much later.
+ * Thread safe.
+ */
+public class SimulatedServers
+{
+  //below this, waits spin instead of parking, since parking overshoots by tens of microseconds
+  private static final long SPIN_NS = 100000;
+
+  private long _freeAt[];
+  private long _startNs;
+  private long _pauseIntervalNs;
+  private long _pauseDurationNs;
+
+  /**
+   * @param servers Number of servers
+   * @param startNs Time the pauses are counted from, in System.nanoTime
+   * @param pauseIntervalNs Time between the starts of two pauses. Non-positive for no pauses.
+   * @param pauseDurationNs Duration of each pause. Must be smaller than the interval.
+   */
+  public SimulatedServers(int servers, long startNs, long pauseIntervalNs, long pauseDurationNs)
+  {
+    if(servers <= 0)
+      throw new IllegalArgumentException("Number of servers must be positive: " + servers);
+    if(pauseIntervalNs > 0 && (pauseDurationNs < 0 || pauseDurationNs >= pauseIntervalNs))
+      throw new IllegalArgumentException("Pause duration must be smaller than the pause interval");
+
+    _freeAt = new long[servers];
+    for(int a = 0; a<servers; a++)
+      _freeAt[a] = startNs;
+    _startNs = startNs;
+    _pauseIntervalNs = pauseIntervalNs;
+    _pauseDurationNs = pauseIntervalNs > 0 ? pauseDurationNs : 0;
+  }
+
+  public int getServers()
+  {
+    return _freeAt.length;
+  }
+
+  /**
+   * Queue a request.
+   * @param arrivalNs Arrival time in System.nanoTime
+   * @param serviceNs Service time of the request
+   * @return Time the request finishes in System.nanoTime
+   */
+  public synchronized long schedule(long arrivalNs, long serviceNs)
+  {
+    int server = 0;
+    for(int a = 1; a<_freeAt.length; a++)
+    {
+      if(_freeAt[a] < _freeAt[server])
+        server = a;
+    }
+
+    long start = Math.max(arrivalNs, _freeAt[server]);
+    long finish = finish(start, serviceNs);
+    _freeAt[server] = finish;
+    return finish;
+  }
+
+  /**
+   * @return Finish time of a service that starts at the given time, skipping the pauses
+   */
+  private long finish(long start, long serviceNs)
+  {
+    if(_pauseIntervalNs <= 0 || _pauseDurationNs == 0)
+      return start + serviceNs;
+
+    long remaining = serviceNs;
+    long now = start;
+    while(true)
+    {
+      //start of the last pause, or the start time before the first pause
+      long k = now < _startNs ? 0 : (now - _startNs) / _pauseIntervalNs;
+      long pauseStart = _startNs + k * _pauseIntervalNs;
+
+      //in a pause, wait for its end
+      if(k > 0 && now < pauseStart + _pauseDurationNs)
+        now = pauseStart + _pauseDurationNs;
+
+      long nextPause = pauseStart + _pauseIntervalNs;
+      if(now + remaining <= nextPause)
+        return now + remaining;
+
+      remaining -= nextPause - now;
+      now = nextPause;
+    }
+  }
+
+  /**
+   * Wait until the given time. Parks for most of the wait and spins for the rest to be accurate to microseconds.
+   * @param deadlineNs Time in System.nanoTime
+   */
+  public static void waitUntil(long deadlineNs)
+  {
+    long remaining;
+    while((remaining = deadlineNs - System.nanoTime()) > 0)
+    {
+      if(remaining > SPIN_NS)
+        LockSupport.parkNanos(remaining - SPIN_NS);
+      else
+        Thread.yield();
+    }
+  }
+}
@@ -90,6 +90,19 @@ public class GoogleVisualizerExporter implements DataExporter
     out.println("\t\t\t\tdata.addColumn('number', 'UpdateAvgLat(ms)');");
     out.println("\t\t\t\tdata.addColumn('number', 'Update95PercLat(ms)');");
     out.println("\t\t\t\tdata.addColumn('number', 'Update99PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ScanOptPerformed(opt)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ScanAvgLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'Scan95PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'Scan99PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'MultiGetOptPerformed(opt)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'MultiGetAvgLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'MultiGet95PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'MultiGet99PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'MultiGetKeysPerSec(keys)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ReadModifyWriteOptPerformed(opt)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ReadModifyWriteAvgLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ReadModifyWrite95PercLat(ms)');");
+    out.println("\t\t\t\tdata.addColumn('number', 'ReadModifyWrite99PercLat(ms)');");
     out.println("\t\t\t\tdata.addColumn('number', 'TotalOptPerformed(opt)');");
     out.println("\t\t\t\tdata.addColumn('number', 'TotalAvgLat(ms)');");
     out.println("\t\t\t\tdata.addColumn('number', 'Total95PercLat(ms)');");
@@ -109,10 +122,16 @@ public class GoogleVisualizerExporter implements DataExporter
         EpochResult readEpoch = prof.getReadResults().getArr()[a];
         EpochResult deleteEpoch = prof.getDeleteResults().getArr()[a];
         EpochResult updateEpoch = prof.getUpdateResults().getArr()[a];
+        EpochResult scanEpoch = prof.getScanResults().getArr()[a];
+        EpochResult multiGetEpoch = prof.getMultiGetResults().getArr()[a];
+        EpochResult readModifyWriteEpoch = prof.getReadModifyWriteResults().getArr()[a];
         EpochResult totalEpoch = insertEpoch.copy();
         totalEpoch.add(readEpoch);
         totalEpoch.add(deleteEpoch);
         totalEpoch.add(updateEpoch);
+        totalEpoch.add(scanEpoch);
+        totalEpoch.add(multiGetEpoch);
+        totalEpoch.add(readModifyWriteEpoch);
 
         out.print("\t\t\t\tdata.addRow([");
 
@@ -166,6 +185,41 @@ public class GoogleVisualizerExporter implements DataExporter
         //write update99PercLatency
         out.print(summary.get(4).toString() + ", ");
 
+        //get scan summary
+        summary = scanEpoch.summarize();
+        //write scanOptPerformed
+        out.print(summary.get(1).toString() + ", ");
+        //write scanAvgLatency
+        out.print(summary.get(2).toString() + ", ");
+        //write scan95PercLatency
+        out.print(summary.get(3).toString() + ", ");
+        //write scan99PercLatency
+        out.print(summary.get(4).toString() + ", ");
+
+        //get multi-get summary
+        summary = multiGetEpoch.summarize();
+        //write multiGetOptPerformed
+        out.print(summary.get(1).toString() + ", ");
+        //write multiGetAvgLatency
+        out.print(summary.get(2).toString() + ", ");
+        //write multiGet95PercLatency
+        out.print(summary.get(3).toString() + ", ");
+        //write multiGet99PercLatency
+        out.print(summary.get(4).toString() + ", ");
+        //write multiGetKeysPerSec
+        out.print(summary.get(5).toString() + ", ");
+
+        //get read-modify-write summary
+        summary = readModifyWriteEpoch.summarize();
+        //write readModifyWriteOptPerformed
+        out.print(summary.get(1).toString() + ", ");
+        //write readModifyWriteAvgLatency
+        out.print(summary.get(2).toString() + ", ");
+        //write readModifyWrite95PercLatency
+        out.print(summary.get(3).toString() + ", ");
+        //write readModifyWrite99PercLatency
+        out.print(summary.get(4).toString() + ", ");
+
         //get total summary
         summary = totalEpoch.summarize();
         //write totalOptPerformed
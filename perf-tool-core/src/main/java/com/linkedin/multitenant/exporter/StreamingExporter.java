@@ -0,0 +1,366 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.exporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Constants;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.profiler.CompleteResult;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+/**
+ * Appends the results of each epoch to a file as soon as the epoch is over, while the experiment is running.<br>
+ * Every machine writes the epochs of its own threads, one line per job and operation type, as CSV or JSON lines.
+ * Since every line is complete when it is written and the file is synced periodically, a run that is killed still
+ * leaves the epochs before it. The lines of all machines can be merged by summing the counts and histograms of the
+ * same job, operation and epoch.<br>
+ * Streaming doesn't save memory: the profilers still keep every epoch for the exporters at the end of the run, and
+ * the master still merges the profilers of all slaves.
+ */
+public class StreamingExporter extends Thread
+{
+  public static final String FLAG_STREAM_FILE           = "work.stream.file";
+  public static final String FLAG_STREAM_FORMAT         = "work.stream.format";
+  public static final String FLAG_STREAM_SYNC_PERIOD    = "work.stream.syncPeriod";
+
+  public static final String CONST_FORMAT_CSV = "csv";
+  public static final String CONST_FORMAT_JSON = "json";
+
+  private static final Logger _LOG = Logger.getLogger(StreamingExporter.class);
+
+  //an epoch is written this long after its end, so that the queries that ended in it are added by the workers
+  private static final long GRACE_NS = Constants.BILLION;
+
+  private static final QueryType TYPES[] = {QueryType.INSERT, QueryType.READ, QueryType.DELETE, QueryType.UPDATE,
+      QueryType.SCAN, QueryType.MULTI_GET, QueryType.READ_MODIFY_WRITE};
+
+  private Map<String, List<Profiler>> _jobMap;
+  private int _machineId;
+  private boolean _json;
+  private long _syncPeriodNs;
+  private String _path;
+  private AtomicInteger _flag;
+
+  private FileOutputStream _fileOut;
+  private BufferedWriter _out;
+  private int _nextEpoch;
+
+  /**
+   * @param workPlanProperties Properties of the work plan
+   * @param machineId Id of this machine, which is added to the file name
+   */
+  public StreamingExporter(Map<String, String> workPlanProperties, int machineId)
+  {
+    _machineId = machineId;
+    _jobMap = new LinkedHashMap<String, List<Profiler>>();
+    _flag = new AtomicInteger(1);
+    _nextEpoch = 0;
+
+    String temp = workPlanProperties.get(FLAG_STREAM_FORMAT);
+    _json = temp != null && temp.equals(CONST_FORMAT_JSON);
+
+    double syncSeconds = 10;
+    temp = workPlanProperties.get(FLAG_STREAM_SYNC_PERIOD);
+    if(temp != null)
+      syncSeconds = Double.parseDouble(temp);
+    _syncPeriodNs = (long) (syncSeconds * Constants.BILLION);
+
+    _path = fileName(workPlanProperties.get(FLAG_STREAM_FILE), machineId);
+  }
+
+  /**
+   * @return True if the work plan asks for streaming
+   */
+  public static boolean isEnabled(Map<String, String> workPlanProperties)
+  {
+    return workPlanProperties.get(FLAG_STREAM_FILE) != null;
+  }
+
+  /**
+   * Insert the machine id before the extension, e.g. results.csv becomes results-0.csv.
+   */
+  public static String fileName(String path, int machineId)
+  {
+    int slash = path.lastIndexOf(File.separatorChar);
+    int dot = path.lastIndexOf('.');
+    if(dot <= slash + 1)
+      return path + "-" + machineId;
+    else
+      return path.substring(0, dot) + "-" + machineId + path.substring(dot);
+  }
+
+  public String getPath()
+  {
+    return _path;
+  }
+
+  /**
+   * Add the profiler of a worker thread. Must be called before the thread is started.
+   */
+  public void addProfiler(String jobName, Profiler prof)
+  {
+    List<Profiler> list = _jobMap.get(jobName);
+    if(list == null)
+    {
+      list = new ArrayList<Profiler>();
+      _jobMap.put(jobName, list);
+    }
+    list.add(prof);
+  }
+
+  /**
+   * Stop after writing the epochs that are not written yet. The worker threads must be joined before.
+   */
+  public void clear()
+  {
+    _flag.set(0);
+  }
+
+  public void run()
+  {
+    try
+    {
+      boolean exists = new File(_path).length() > 0;
+      _fileOut = new FileOutputStream(_path, true);
+      _out = new BufferedWriter(new OutputStreamWriter(_fileOut, "UTF-8"));
+      if(!_json && !exists)
+      {
+        _out.write("machine,job,op,start,end,succOpt,failedOpt,avgLatMs,lat95Ms,lat99Ms,itemsPerSec,histogram");
+        _out.newLine();
+      }
+    }
+    catch(IOException e)
+    {
+      _LOG.error("Could not open stream file " + _path, e);
+      return;
+    }
+
+    long startTime = System.nanoTime();
+    long lastSync = startTime;
+    try
+    {
+      while(_flag.get() == 1)
+      {
+        Thread.sleep(100);
+
+        long elapsed = System.nanoTime() - startTime;
+        boolean wrote = false;
+        while(_nextEpoch < epochCount() && endOf(_nextEpoch) * Constants.BILLION + GRACE_NS <= elapsed)
+        {
+          writeEpoch(_nextEpoch);
+          _nextEpoch++;
+          wrote = true;
+        }
+
+        if(wrote)
+          _out.flush();
+        if(System.nanoTime() - lastSync >= _syncPeriodNs)
+        {
+          sync();
+          lastSync = System.nanoTime();
+        }
+      }
+
+      //the workers are joined, the rest of the epochs are complete
+      while(_nextEpoch < epochCount())
+      {
+        writeEpoch(_nextEpoch);
+        _nextEpoch++;
+      }
+      sync();
+    }
+    catch(InterruptedException e)
+    {
+      _LOG.warn("Streaming is interrupted");
+    }
+    catch(IOException e)
+    {
+      _LOG.error("Could not write to stream file " + _path, e);
+    }
+    finally
+    {
+      try
+      {
+        _out.close();
+      }
+      catch(IOException e)
+      {
+        _LOG.debug("Could not close stream file " + _path, e);
+      }
+    }
+  }
+
+  private void sync() throws IOException
+  {
+    _out.flush();
+    _fileOut.getFD().sync();
+  }
+
+  private int epochCount()
+  {
+    Iterator<List<Profiler>> itr = _jobMap.values().iterator();
+    if(!itr.hasNext())
+      return 0;
+    return itr.next().get(0).getReadResults().getArr().length;
+  }
+
+  private int endOf(int epoch)
+  {
+    Iterator<List<Profiler>> itr = _jobMap.values().iterator();
+    return itr.next().get(0).getReadResults().getArr()[epoch].getEndTime();
+  }
+
+  private static CompleteResult resultOf(Profiler prof, QueryType type)
+  {
+    switch(type)
+    {
+      case INSERT:
+        return prof.getInsertResults();
+      case READ:
+        return prof.getReadResults();
+      case DELETE:
+        return prof.getDeleteResults();
+      case UPDATE:
+        return prof.getUpdateResults();
+      case SCAN:
+        return prof.getScanResults();
+      case MULTI_GET:
+        return prof.getMultiGetResults();
+      default:
+        return prof.getReadModifyWriteResults();
+    }
+  }
+
+  /**
+   * Write the lines of an epoch, one per job and operation type that had operations.
+   */
+  private void writeEpoch(int epoch) throws IOException
+  {
+    for(Map.Entry<String, List<Profiler>> job : _jobMap.entrySet())
+    {
+      for(QueryType type : TYPES)
+      {
+        EpochResult merged = null;
+        for(Profiler prof : job.getValue())
+        {
+          CompleteResult result = resultOf(prof, type);
+          //makes the epochs the worker closed visible to this thread
+          result.getLastSlot();
+          EpochResult cur = result.getArr()[epoch];
+          if(cur.getSuccOpt() + cur.getFailedOpt() == 0)
+            continue;
+
+          try
+          {
+            if(merged == null)
+              merged = cur.copy();
+            else
+              merged.add(cur);
+          }
+          catch(Exception e)
+          {
+            throw new IOException("Could not copy epoch " + epoch, e);
+          }
+        }
+
+        if(merged != null)
+        {
+          _out.write(_json ? toJson(job.getKey(), type, merged) : toCsv(job.getKey(), type, merged));
+          _out.newLine();
+        }
+      }
+    }
+  }
+
+  private String toCsv(String jobName, QueryType type, EpochResult epoch)
+  {
+    List<Object> summary = epoch.summarize();
+    StringBuilder sb = new StringBuilder();
+    sb.append(_machineId).append(',');
+    sb.append(csvQuote(jobName)).append(',');
+    sb.append(type).append(',');
+    sb.append(epoch.getStartTime()).append(',');
+    sb.append(epoch.getEndTime()).append(',');
+    sb.append(epoch.getSuccOpt()).append(',');
+    sb.append(epoch.getFailedOpt()).append(',');
+    sb.append(String.format(Locale.ROOT, "%.3f", (Double) summary.get(2))).append(',');
+    sb.append(summary.get(3)).append(',');
+    sb.append(summary.get(4)).append(',');
+    sb.append(String.format(Locale.ROOT, "%.1f", (Double) summary.get(5))).append(',');
+
+    //latency in ms:count pairs separated by spaces
+    boolean first = true;
+    for(Map.Entry<Integer, Integer> bucket : new TreeMap<Integer, Integer>(epoch.getMap()).entrySet())
+    {
+      if(!first)
+        sb.append(' ');
+      sb.append(bucket.getKey()).append(':').append(bucket.getValue());
+      first = false;
+    }
+
+    return sb.toString();
+  }
+
+  private String toJson(String jobName, QueryType type, EpochResult epoch)
+  {
+    List<Object> summary = epoch.summarize();
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"machine\":").append(_machineId);
+    sb.append(",\"job\":\"").append(jsonEscape(jobName)).append('"');
+    sb.append(",\"op\":\"").append(type).append('"');
+    sb.append(",\"start\":").append(epoch.getStartTime());
+    sb.append(",\"end\":").append(epoch.getEndTime());
+    sb.append(",\"succOpt\":").append(epoch.getSuccOpt());
+    sb.append(",\"failedOpt\":").append(epoch.getFailedOpt());
+    sb.append(",\"avgLatMs\":").append(String.format(Locale.ROOT, "%.3f", (Double) summary.get(2)));
+    sb.append(",\"lat95Ms\":").append(summary.get(3));
+    sb.append(",\"lat99Ms\":").append(summary.get(4));
+    sb.append(",\"itemsPerSec\":").append(String.format(Locale.ROOT, "%.1f", (Double) summary.get(5)));
+
+    sb.append(",\"histogram\":{");
+    boolean first = true;
+    for(Map.Entry<Integer, Integer> bucket : new TreeMap<Integer, Integer>(epoch.getMap()).entrySet())
+    {
+      if(!first)
+        sb.append(',');
+      sb.append('"').append(bucket.getKey()).append("\":").append(bucket.getValue());
+      first = false;
+    }
+    sb.append("}}");
+
+    return sb.toString();
+  }
+
+  private static String csvQuote(String val)
+  {
+    if(val.indexOf(',') < 0 && val.indexOf('"') < 0)
+      return val;
+    return "\"" + val.replace("\"", "\"\"") + "\"";
+  }
+
+  private static String jsonEscape(String val)
+  {
+    return val.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -13,19 +13,27 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import com.linkedin.multitenant.exporter.ConsoleExporter;
 import com.linkedin.multitenant.exporter.DataExporter;
+import com.linkedin.multitenant.exporter.StreamingExporter;
 import com.linkedin.multitenant.profiler.Profiler;
+import com.linkedin.multitenant.results.ResultsFile;
+import com.linkedin.multitenant.results.SweepSummary;
 import com.linkedin.multitenant.xml.XmlJob;
 import com.linkedin.multitenant.xml.XmlParser;
 import com.linkedin.multitenant.xml.XmlWorkPlan;
@@ -48,6 +56,8 @@ public class RunExperiment
   public static final String FLAG_WORK_PORT                   = "work.port";
   public static final String FLAG_WORK_EXPORTER_CLASS         = "work.exporterClass";
   public static final String FLAG_WORK_STATUS_PERIOD          = "work.status.period";
+  public static final String FLAG_WORK_METRICS_PORT           = "work.metrics.port";
+  public static final String FLAG_WORK_RESULTS_FILE           = "work.results.file";
   public static final String FLAG_JOB_NAME                    = "job.name";
   public static final String FLAG_JOB_ROW                     = "job.rowCount";
 
@@ -370,6 +380,95 @@ public class RunExperiment
     _LOG.info("Read work plan:");
     _LOG.info(xmlWork.toString());
 
+    //run each point of the sweep, or the work plan once if there is no sweep, with the same machines
+    long startTime = System.currentTimeMillis();
+    int pointCount = xmlWork.getSweepPointCount();
+    Map<String, Profiler> profilerMap = new LinkedHashMap<String, Profiler>();
+    SweepSummary summary = new SweepSummary();
+    for(int point = 0; point<pointCount; point++)
+    {
+      String label = xmlWork.getSweepLabel(point);
+      if(pointCount > 1)
+        _LOG.info("Running sweep point " + (point + 1) + " of " + pointCount + ": " + label);
+
+      Map<String, Profiler> pointMap = runPoint(mode, isMaster, machineId, machineCount, sockList, xmlWork.getSweepPoint(point), label);
+      if(pointMap == null)
+        return;
+
+      if(isMaster)
+      {
+        summary.add(label, pointMap);
+        for(Map.Entry<String, Profiler> job : pointMap.entrySet())
+          profilerMap.put(getPointJobName(job.getKey(), label), job.getValue());
+      }
+    }
+
+    for(int a = 0; a<sockList.size(); a++)
+      sockList.get(a).close();
+    _LOG.info("Closed sockets to other machines");
+
+    if(isMaster)
+    {
+      //keep the raw results, so that they can be exported again or merged without running again
+      String resultsPath = getResultsPath(xmlWork.getProperties(), startTime);
+      if(resultsPath != null)
+      {
+        Map<String, String> metadata = new HashMap<String, String>();
+        metadata.put(ResultsFile.META_MODE, mode.name());
+        metadata.put(ResultsFile.META_MACHINES, String.valueOf(machineCount));
+        metadata.put(ResultsFile.META_START_TIME, String.valueOf(startTime));
+        metadata.put(ResultsFile.META_END_TIME, String.valueOf(System.currentTimeMillis()));
+        metadata.put(ResultsFile.META_HOST, getHostName());
+
+        try
+        {
+          new ResultsFile(workPlanData, metadata, profilerMap).write(resultsPath);
+          _LOG.info("Wrote results to " + resultsPath);
+        }
+        catch(Exception e)
+        {
+          _LOG.error("Error writing results to " + resultsPath, e);
+        }
+      }
+
+      DataExporter exp = createExporter(xmlWork.getProperties());
+      exp.init(xmlWork.getProperties(), profilerMap);
+      exp.export();
+
+      if(pointCount > 1)
+      {
+        _LOG.info("Sweep summary:\n" + summary.toString());
+      }
+    }
+
+    _LOG.info("Closing...");
+  }
+
+  /**
+   * @return Name of this machine, or "unknown" if it cannot be resolved
+   */
+  private static String getHostName()
+  {
+    try
+    {
+      return InetAddress.getLocalHost().getHostName();
+    }
+    catch(Exception e)
+    {
+      _LOG.warn("Could not resolve host name", e);
+      return "unknown";
+    }
+  }
+
+  /**
+   * Run a work plan, or one point of a sweep, on this machine and combine the results of all machines.
+   * @param label Label of the sweep point, which is added to job names in streamed results. Empty if there is no sweep.
+   * @return On the master, the results of all machines. On a slave, the results of this machine.
+   * Null if the work plan is invalid.
+   */
+  private static Map<String, Profiler> runPoint(Mode mode, boolean isMaster, int machineId, int machineCount, List<Socket> sockList,
+      XmlWorkPlan xmlWork, String label) throws Exception
+  {
     //create worker threads
     List<WorkerThread> threadList = new ArrayList<WorkerThread>();
     List<XmlJob> jobList = xmlWork.getJobList();
@@ -380,14 +479,14 @@ public class RunExperiment
       if(jobName == null)
       {
         _LOG.fatal("Job name is missing. Closing.");
-        return;
+        return null;
       }
 
       int threadCount = getParamInt(xmlCurrentJob.getProperties(), WorkerThread.FLAG_JOB_THREADS);
       if(threadCount == -1)
       {
         _LOG.fatal("ThreadCount is missing for job " + jobName + ". Closing.");
-        return;
+        return null;
       }
       else
       {
@@ -411,7 +510,18 @@ public class RunExperiment
     int statusPeriod = getParamInt(xmlWork.getProperties(), FLAG_WORK_STATUS_PERIOD);
     if(statusPeriod == -1)
       statusPeriod = 10;
-    StatusThread statThread = new StatusThread(threadList, statusPeriod);
+    int metricsPort = getParamInt(xmlWork.getProperties(), FLAG_WORK_METRICS_PORT);
+    StatusThread statThread = new StatusThread(threadList, statusPeriod, metricsPort);
+
+    //create streaming exporter, which writes each epoch during the run
+    StreamingExporter streamThread = null;
+    if(StreamingExporter.isEnabled(xmlWork.getProperties()))
+    {
+      streamThread = new StreamingExporter(xmlWork.getProperties(), machineId);
+      for(int a = 0; a<threadList.size(); a++)
+        streamThread.addProfiler(getPointJobName(threadList.get(a).getJobName(), label), threadList.get(a).getProfiler());
+      _LOG.info("Streaming epochs to " + streamThread.getPath());
+    }
 
     //barrier to sync execution time
     if(isMaster)
@@ -433,6 +543,8 @@ public class RunExperiment
     }
 
     //start all threads
+    if(streamThread != null)
+      streamThread.start();
     for(int a = 0; a<threadList.size(); a++)
       threadList.get(a).start();
     statThread.start();
@@ -451,6 +563,14 @@ public class RunExperiment
 
     _LOG.info("Joined status thread");
 
+    //stop streaming after the last epochs are written
+    if(streamThread != null)
+    {
+      streamThread.clear();
+      streamThread.join();
+      _LOG.info("Joined streaming thread");
+    }
+
     //join thread-wide results to get machine-wide result
     _LOG.info("Combining thread-wide results");
     Map<String, Profiler> profilerMap = new HashMap<String, Profiler>();
@@ -539,9 +659,6 @@ public class RunExperiment
         outStr.writeInt(3);
 
         _LOG.info("Finished getting machine-wide results from machine-" + whoIs);
-
-        clientSock.close();
-        _LOG.info("Socket to machine " + whoIs + " is closed");
       }
     }
     else
@@ -579,38 +696,63 @@ public class RunExperiment
       }
 
       in.readInt();
-      _LOG.info("Socket to the master is closed");
+      _LOG.info("Master received the results");
     }
 
-    if(isMaster)
-    {
-      DataExporter exp = null;
-      ClassLoader classLoader = RunExperiment.class.getClassLoader();
+    return profilerMap;
+  }
 
-      try
-      {
-        String exporterClass = getParamStr(xmlWork.getProperties(), FLAG_WORK_EXPORTER_CLASS);
-        if(exporterClass == null)
-        {
-          _LOG.warn("Exporter class is changed to com.linkedin.multitenant.exporter.ConsoleExporter by default");
-          exporterClass = "com.linkedin.multitenant.exporter.ConsoleExporter";
-        }
+  /**
+   * @return Name of the job in the results of a sweep point, e.g. job1@job.threads=8. The name itself if there is no sweep.
+   */
+  public static String getPointJobName(String jobName, String label)
+  {
+    if(label.isEmpty())
+      return jobName;
+    else
+      return jobName + "@" + label;
+  }
 
-        @SuppressWarnings("rawtypes")
-        Class expClass = classLoader.loadClass(exporterClass);
-        exp = (DataExporter) expClass.newInstance();
-      }
-      catch(Exception e)
+  /**
+   * Create the exporter given in the work plan properties. Falls back to ConsoleExporter.
+   * @param properties Properties of the work plan
+   */
+  public static DataExporter createExporter(Map<String, String> properties)
+  {
+    ClassLoader classLoader = RunExperiment.class.getClassLoader();
+
+    try
+    {
+      String exporterClass = getParamStr(properties, FLAG_WORK_EXPORTER_CLASS);
+      if(exporterClass == null)
       {
-        _LOG.error("Error loading exporter", e);
-        exp = new ConsoleExporter();
+        _LOG.warn("Exporter class is changed to com.linkedin.multitenant.exporter.ConsoleExporter by default");
+        exporterClass = "com.linkedin.multitenant.exporter.ConsoleExporter";
       }
 
-      exp.init(xmlWork.getProperties(), profilerMap);
-      exp.export();
+      @SuppressWarnings("rawtypes")
+      Class expClass = classLoader.loadClass(exporterClass);
+      return (DataExporter) expClass.newInstance();
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Error loading exporter", e);
+      return new ConsoleExporter();
     }
+  }
 
-    _LOG.info("Closing...");
+  /**
+   * @return Path of the results file, or null if it is disabled. The default path contains the start time of the run.
+   */
+  private static String getResultsPath(Map<String, String> properties, long startTime)
+  {
+    String val = properties.get(FLAG_WORK_RESULTS_FILE);
+    if(val == null)
+      return new SimpleDateFormat("'results-'yyyyMMdd-HHmmss'.mtbt'", Locale.ROOT).format(new Date(startTime));
+    else if(val.isEmpty() || val.equals("none"))
+      return null;
+    else
+      return val;
   }
 
   private static String getParamStr(Map<String, String> properties, String propertyName)
@@ -7,26 +7,67 @@
  */
 package com.linkedin.multitenant.main;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
 import com.linkedin.multitenant.common.Constants;
+import com.linkedin.multitenant.metrics.JobMetrics;
+import com.linkedin.multitenant.metrics.MetricsServer;
 
 public class StatusThread extends Thread
 {
+  private static final Logger _LOG = Logger.getLogger(StatusThread.class);
+
   private List<WorkerThread> _thrList;
   private AtomicInteger _flag;
   private int _sleep;
   private long _startTime = 0;
+  private int _metricsPort;
+
+  //live metrics of each job in the order they appear in the work plan
+  private Map<String, JobMetrics> _jobMap;
+  private List<ObjectName> _mbeanList;
+  private MetricsServer _server;
 
   public StatusThread(List<WorkerThread> thrList, int sleepSeconds)
+  {
+    this(thrList, sleepSeconds, -1);
+  }
+
+  /**
+   * @param thrList Worker threads to watch
+   * @param sleepSeconds Status period in seconds
+   * @param metricsPort Port of the http metrics endpoint. Not started if it is not positive.
+   */
+  public StatusThread(List<WorkerThread> thrList, int sleepSeconds, int metricsPort)
   {
     _thrList = thrList;
     _flag = new AtomicInteger(1);
     _sleep = sleepSeconds;
+    _metricsPort = metricsPort;
+
+    _jobMap = new LinkedHashMap<String, JobMetrics>();
+    for(int a = 0; a<_thrList.size(); a++)
+    {
+      WorkerThread thr = _thrList.get(a);
+      JobMetrics job = _jobMap.get(thr.getJobName());
+      if(job == null)
+      {
+        job = new JobMetrics(thr.getJobName());
+        _jobMap.put(thr.getJobName(), job);
+      }
+      job.addThread(thr.getLiveMetrics());
+    }
+    _mbeanList = new ArrayList<ObjectName>();
   }
 
   public void clear()
@@ -34,45 +75,80 @@ public class StatusThread extends Thread
     _flag.set(0);
   }
 
-  public void run()
+  public List<JobMetrics> getJobMetrics()
   {
-    _startTime = System.nanoTime();
-    long sleepTill = _startTime + (_sleep * Constants.BILLION);
+    return new ArrayList<JobMetrics>(_jobMap.values());
+  }
 
-    while(_flag.get() == 1)
+  private void startPublishing()
+  {
+    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+    for(JobMetrics job : _jobMap.values())
     {
-      Map<String, Integer> jobMap = new HashMap<String, Integer>();
-
-      for(int a = 0; a<_thrList.size(); a++)
+      try
+      {
+        ObjectName name = new ObjectName("com.linkedin.multitenant:type=JobMetrics,job=" + ObjectName.quote(job.getJobName()));
+        if(mbs.isRegistered(name))
+          mbs.unregisterMBean(name);
+        mbs.registerMBean(job, name);
+        _mbeanList.add(name);
+      }
+      catch(Exception e)
       {
-        String jobName = _thrList.get(a).getJobName();
-        int optSucc = _thrList.get(a).getOptSucceeded();
-        int optFail = _thrList.get(a).getOptFailed();
+        _LOG.warn("Could not register metrics of job " + job.getJobName() + " to JMX", e);
+      }
+    }
 
-        int total = optSucc + optFail;
+    if(_metricsPort > 0)
+    {
+      try
+      {
+        _server = new MetricsServer(_metricsPort, getJobMetrics());
+        _server.start();
+      }
+      catch(Exception e)
+      {
+        _LOG.error("Could not start metrics endpoint on port " + _metricsPort, e);
+        _server = null;
+      }
+    }
+  }
 
-        if(jobMap.containsKey(jobName))
-        {
-          total += jobMap.get(jobName).intValue();
-        }
+  private void stopPublishing()
+  {
+    if(_server != null)
+    {
+      _server.stop();
+      _server = null;
+    }
 
-        jobMap.put(jobName, total);
+    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+    for(int a = 0; a<_mbeanList.size(); a++)
+    {
+      try
+      {
+        mbs.unregisterMBean(_mbeanList.get(a));
       }
-
-      long timeElapsed = System.nanoTime() - _startTime;
-      timeElapsed /= Constants.BILLION;
-      Iterator<String> itr = jobMap.keySet().iterator();
-      while(itr.hasNext())
+      catch(Exception e)
       {
-        String jobName = itr.next();
-        int opt = jobMap.get(jobName);
-
-        System.out.println("Time elapsed=" + timeElapsed + " job=" + jobName + " opt=" + opt);
+        _LOG.debug("Could not unregister " + _mbeanList.get(a), e);
       }
+    }
+    _mbeanList.clear();
+  }
 
+  public void run()
+  {
+    startPublishing();
+
+    _startTime = System.nanoTime();
+    long sleepTill = _startTime + (_sleep * Constants.BILLION);
+
+    while(_flag.get() == 1)
+    {
       try
       {
-        while(System.nanoTime() < sleepTill)
+        while(System.nanoTime() < sleepTill && _flag.get() == 1)
           Thread.sleep(2);
 
         sleepTill += _sleep * Constants.BILLION;
@@ -80,6 +156,22 @@ public class StatusThread extends Thread
       catch (InterruptedException e)
       {
       }
+
+      long timeElapsed = System.nanoTime() - _startTime;
+      timeElapsed /= Constants.BILLION;
+      for(JobMetrics job : _jobMap.values())
+      {
+        job.update();
+
+        _LOG.info("Time elapsed=" + timeElapsed + " job=" + job.getJobName() +
+            " opt=" + (job.getSucceeded() + job.getFailed()) +
+            " failed=" + job.getFailed() +
+            " opt/s=" + String.format("%.1f", job.getThroughput()) +
+            " sleepMs=" + job.getSleepTimeMs() +
+            " lagMs=" + String.format("%.1f", job.getMaxScheduleLagMs()));
+      }
     }
+
+    stopPublishing();
   }
 }
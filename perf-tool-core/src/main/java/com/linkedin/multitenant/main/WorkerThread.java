@@ -16,14 +16,18 @@ import org.apache.log4j.Logger;
 import com.linkedin.multitenant.common.Constants;
 import com.linkedin.multitenant.common.Query;
 import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueSource;
+import com.linkedin.multitenant.common.ValueVerifier;
 import com.linkedin.multitenant.db.Database;
 import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.metrics.LiveMetrics;
 import com.linkedin.multitenant.profiler.Profiler;
 import com.linkedin.multitenant.workload.Workload;
 import com.linkedin.multitenant.workload.Workload.WorkloadResult;
 import com.linkedin.multitenant.xml.XmlChange;
 import com.linkedin.multitenant.xml.XmlJob;
 import com.linkedin.multitenant.xml.XmlWorkPlan;
+import com.yahoo.ycsb.FastRandom;
 
 public class WorkerThread extends Thread
 {
@@ -31,11 +35,13 @@ public class WorkerThread extends Thread
   {
     private int _time;
     private double _thr;
+    private double _hotSpot;
 
-    public Change(int time, double thr)
+    public Change(int time, double thr, double hotSpot)
     {
       _time = time;
       _thr = thr;
+      _hotSpot = hotSpot;
     }
 
     public int getTime()
@@ -47,6 +53,11 @@ public class WorkerThread extends Thread
     {
       return _thr;
     }
+
+    public double getHotSpot()
+    {
+      return _hotSpot;
+    }
   }
 
   private static final Logger _log = Logger.getLogger(WorkerThread.class);
@@ -80,11 +91,14 @@ public class WorkerThread extends Thread
   protected int _optFailed;
   protected long _sleepTime;
   protected long _startTime;
+  protected LiveMetrics _liveMetrics;
 
   //core variables
   protected Profiler _prof;
   protected Workload _work;
   protected Database _db;
+  //checks the values read when the job verifies values, null otherwise
+  protected ValueVerifier _verifier;
 
   public WorkerThread(RunExperiment.Mode mode, int id, int numberOfWorkers, XmlWorkPlan xmlWork, XmlJob xmlJob) throws Exception
   {
@@ -181,6 +195,14 @@ public class WorkerThread extends Thread
 
     //set profiler
     _prof = new Profiler(_runTime, gran, histogramSize);
+    _liveMetrics = new LiveMetrics(histogramSize);
+
+    //set verification
+    if(ValueSource.isVerified(jobProperties))
+    {
+      _verifier = new ValueVerifier((int) FastRandom.deriveSeed(0, _jobName, _id));
+      _log.debug(identifier + ": Values are verified");
+    }
 
     //set workload
     temp = workProperties.get(FLAG_WORK_WORKLOAD_CLASS);
@@ -231,7 +253,8 @@ public class WorkerThread extends Thread
     List<XmlChange> changeList = xmlJob.getTimeline();
     for(int a = 0; a<changeList.size(); a++)
     {
-      Change newData = new Change(changeList.get(a).getTime(), changeList.get(a).getTargetThr());
+      XmlChange xmlChange = changeList.get(a);
+      Change newData = new Change(xmlChange.getTime(), xmlChange.getTargetThr(), xmlChange.getHotSpot());
       _changeList.add(newData);
     }
   }
@@ -261,6 +284,11 @@ public class WorkerThread extends Thread
     return _sleepTime;
   }
 
+  public LiveMetrics getLiveMetrics()
+  {
+    return _liveMetrics;
+  }
+
   private void clean()
   {
     String identifier = getIdentifier();
@@ -283,6 +311,7 @@ public class WorkerThread extends Thread
     //capture starting time in nanoseconds
     _startTime = System.nanoTime();
     _log.debug(identifier + ": Start time " + _startTime);
+    _work.start(_startTime);
 
     //check the running mode
     switch (_mode)
@@ -306,20 +335,73 @@ public class WorkerThread extends Thread
     _log.debug(identifier + ": Finished execution");
   }
 
+  /**
+   * Stamp the value of a write and clear the result of a read before the query is executed.
+   * @return Version stamped into the value, 0 if the value is not stamped
+   */
+  private int beforeVerification(Query q)
+  {
+    if(_verifier == null)
+      return 0;
+
+    QueryType type = q.getType();
+    if(type == QueryType.INSERT || type == QueryType.UPDATE)
+    {
+      if(q.getValueArray() != null && q.getValueLength() >= ValueVerifier.HEADER_SIZE)
+        return _verifier.stamp(q.getKeyBytes(), q.getValueArray(), q.getValueOffset(), q.getValueLength());
+    }
+    else if(type == QueryType.READ)
+    {
+      q.clearResult();
+    }
+
+    return 0;
+  }
+
+  /**
+   * Record a successful write, or check the value returned by a successful read.
+   */
+  private void afterVerification(Query q, DatabaseResult res, int version)
+  {
+    if(_verifier == null || res != DatabaseResult.OK)
+      return;
+
+    if(q.getType() == QueryType.READ)
+    {
+      //databases that do not report the read value can't be verified
+      if(q.hasResult())
+      {
+        ValueVerifier.Result result = _verifier.verify(q.getKeyNum(), q.getKeyBytes(), q.getResultArray(), q.getResultOffset(), q.getResultLength());
+        _prof.addVerification(result);
+      }
+    }
+    else
+    {
+      _verifier.acknowledge(q.getKeyNum(), q.getType(), version);
+    }
+  }
+
   public void runModeLoad()
   {
     int rowsResponsible = _work.getRowsResponsible();
 
     for(int a = 0; a<rowsResponsible; a++)
     {
-      //generate insert query for load mode
+      //generate insert query for load mode. Null means the workload has no more rows, e.g. end of a trace
       Query q = _work.generateInsertLoad();
+      if(q == null)
+        break;
+
+      int version = beforeVerification(q);
+      q.setAttempts(1);
 
       //record starting and ending times for the execution of query
       long st = System.nanoTime();
       DatabaseResult res = _db.doInsert(q);
       long en = System.nanoTime();
 
+      afterVerification(q, res, version);
+
       //get latency in nanoseconds
       long latNS = en - st;
       //time since start in seconds
@@ -333,6 +415,8 @@ public class WorkerThread extends Thread
 
       //add profiling
       _prof.add(secondsFromStart, latNS, QueryType.INSERT, res);
+      _prof.addAttempts(QueryType.INSERT, q.getAttempts());
+      _liveMetrics.add(latNS, QueryType.INSERT, res);
     }
   }
 
@@ -348,8 +432,17 @@ public class WorkerThread extends Thread
     //till the specified end time
     while(System.nanoTime() < endTime)
     {
-      //generate query
+      //generate query. Null means the workload has no more queries, e.g. end of a trace
       Query q = _work.generateTransaction();
+      if(q == null)
+      {
+        _log.debug(identifier + ": Workload has no more queries");
+        break;
+      }
+
+      int version = beforeVerification(q);
+      q.setAttempts(1);
+      q.setScanCount(-1);
 
       //record starting and ending times for the execution of query
       long st = System.nanoTime();
@@ -368,12 +461,23 @@ public class WorkerThread extends Thread
         case UPDATE:
           res = _db.doUpdate(q);
           break;
+        case SCAN:
+          res = _db.doScan(q);
+          break;
+        case MULTI_GET:
+          res = _db.doMultiGet(q);
+          break;
+        case READ_MODIFY_WRITE:
+          res = _db.doReadModifyWrite(q);
+          break;
         default:
           res = DatabaseResult.FAIL;
           break;
       }
       long en = System.nanoTime();
 
+      afterVerification(q, res, version);
+
       //statistics about the current transaction
       long latNS = en - st;
       int secondsFromStart = (int) ((en - _startTime)/Constants.BILLION);
@@ -384,12 +488,28 @@ public class WorkerThread extends Thread
       else
         _optFailed++;
 
-      //update profiler
-      _prof.add(secondsFromStart, latNS, q.getType(), res);
+      //number of keys the query touched, for keys/s of scans and multi-gets. Scans count the rows the database read,
+      //or the requested length if the database doesn't report them
+      int items;
+      if(q.getType() == QueryType.SCAN)
+        items = q.getScanCount() >= 0 ? q.getScanCount() : q.getScanLength();
+      else if(q.getType() == QueryType.MULTI_GET)
+        items = q.getMultiKeyCount();
+      else
+        items = 1;
+
+      //update profiler. The latency includes every retry and hedge of the database
+      _prof.add(secondsFromStart, latNS, q.getType(), res, items);
+      _prof.addAttempts(q.getType(), q.getAttempts());
+      _liveMetrics.add(latNS, q.getType(), res);
 
-      //should I throttle
+      //should I throttle. Non-positive target throughput disables throttling, e.g. when the workload paces itself
       boolean shouldThrottle = false;
-      if(secondsFromStart == lastSecondToHaveQuery)
+      if(_targetThrSec <= 0)
+      {
+        shouldThrottle = false;
+      }
+      else if(secondsFromStart == lastSecondToHaveQuery)
       {
         /*
          * If I had operations in current second before, then add this newly executed query to statistics
@@ -416,6 +536,9 @@ public class WorkerThread extends Thread
          */
         lastSecondToHaveQuery = secondsFromStart;
         queriesInLastSecond = 0;
+
+        //we are behind the schedule at least by the time passed in the new second
+        _liveMetrics.setScheduleLag(en - (_startTime + (lastSecondToHaveQuery * Constants.BILLION)));
       }
 
       //Throttle
@@ -425,7 +548,12 @@ public class WorkerThread extends Thread
         long lastSecondHeadNs = _startTime + (lastSecondToHaveQuery * Constants.BILLION);
 
         //calculate the ms passed in this 1-sec epoch
-        long millisecondsFromLastHead = (System.nanoTime() - lastSecondHeadNs) / Constants.MILLION;
+        long nanosecondsFromLastHead = System.nanoTime() - lastSecondHeadNs;
+        long millisecondsFromLastHead = nanosecondsFromLastHead / Constants.MILLION;
+
+        //lag is the time passed beyond the scheduled time of the next query
+        long scheduleLag = nanosecondsFromLastHead - (long) ((queriesInLastSecond / targetThrMs) * Constants.MILLION);
+        _liveMetrics.setScheduleLag(scheduleLag > 0 ? scheduleLag : 0);
 
         //while enough ms has passed, sleep for 1 ms
         while(millisecondsFromLastHead < (queriesInLastSecond / targetThrMs))
@@ -435,6 +563,7 @@ public class WorkerThread extends Thread
             Thread.sleep(1);
             millisecondsFromLastHead = (System.nanoTime() - lastSecondHeadNs) / Constants.MILLION;
             _sleepTime += 1;
+            _liveMetrics.addSleep(1);
           }
           catch(Exception e)
           {
@@ -443,12 +572,23 @@ public class WorkerThread extends Thread
         }
       }
 
-      //check if time has come to change throughput
+      //check if time has come to change throughput or hot spot
       if(_changeList.size() > 0 && secondsFromStart >= _changeList.get(0).getTime())
       {
-        _targetThrSec = _changeList.get(0).getThr();
-        targetThrMs = _targetThrSec / Constants.THOUSAND;
-        _log.warn(identifier + ": " + "Target opt/s is changed to " + _targetThrSec + " at time=" + secondsFromStart + "s");
+        Change change = _changeList.get(0);
+        if(!Double.isNaN(change.getThr()))
+        {
+          _targetThrSec = change.getThr();
+          targetThrMs = _targetThrSec / Constants.THOUSAND;
+          _log.warn(identifier + ": " + "Target opt/s is changed to " + _targetThrSec + " at time=" + secondsFromStart + "s");
+        }
+        if(!Double.isNaN(change.getHotSpot()))
+        {
+          if(_work.moveHotSpot(change.getHotSpot()) == WorkloadResult.OK)
+            _log.warn(identifier + ": " + "Hot spot is moved to " + change.getHotSpot() + " at time=" + secondsFromStart + "s");
+          else
+            _log.warn(identifier + ": " + "Workload has no hot spot to move at time=" + secondsFromStart + "s");
+        }
 
         _changeList.remove(0);
       }
@@ -0,0 +1,329 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.linkedin.multitenant.common.Constants;
+import com.linkedin.multitenant.common.Query.QueryType;
+
+/**
+ * Aggregates the LiveMetrics of all threads of a job on this machine.<br>
+ * update() is called by the status thread once per period. It computes per operation throughput and latency
+ * quantiles over the period that has just finished. Readers (JMX, http endpoint) only see the last computed values.
+ */
+public class JobMetrics implements JobMetricsMXBean
+{
+  private static final QueryType TYPES[] = QueryType.values();
+
+  private String _jobName;
+  private List<LiveMetrics> _thrMetrics;
+  private int _histogramMax;
+
+  //values seen at the previous update. Used to compute per period values
+  private long _prevTime;
+  private long _prevSucc[];
+  private long _prevFailed[];
+  private long _prevLat[];
+  private long _prevHist[][];
+
+  //published values
+  private long _succ[];
+  private long _failed[];
+  private double _thr[];
+  private double _failRate[];
+  private double _avgLat[];
+  private long _p50[];
+  private long _p95[];
+  private long _p99[];
+  private long _sleepTime;
+  private double _maxLag;
+
+  public JobMetrics(String jobName)
+  {
+    _jobName = jobName;
+    _thrMetrics = new ArrayList<LiveMetrics>();
+    _histogramMax = 0;
+
+    _prevTime = System.nanoTime();
+    _prevSucc = new long[TYPES.length];
+    _prevFailed = new long[TYPES.length];
+    _prevLat = new long[TYPES.length];
+    _prevHist = new long[TYPES.length][];
+
+    _succ = new long[TYPES.length];
+    _failed = new long[TYPES.length];
+    _thr = new double[TYPES.length];
+    _failRate = new double[TYPES.length];
+    _avgLat = new double[TYPES.length];
+    _p50 = new long[TYPES.length];
+    _p95 = new long[TYPES.length];
+    _p99 = new long[TYPES.length];
+    _sleepTime = 0;
+    _maxLag = 0;
+  }
+
+  public synchronized void addThread(LiveMetrics metrics)
+  {
+    _thrMetrics.add(metrics);
+    _histogramMax = Math.max(_histogramMax, metrics.getHistogramMax());
+  }
+
+  /**
+   * Recompute the published values from the thread counters.
+   */
+  public synchronized void update()
+  {
+    long now = System.nanoTime();
+    double elapsedSec = ((double) (now - _prevTime)) / Constants.BILLION;
+    if(elapsedSec <= 0)
+      elapsedSec = 1;
+    _prevTime = now;
+
+    long sleepTime = 0;
+    long maxLag = 0;
+    for(int a = 0; a<_thrMetrics.size(); a++)
+    {
+      LiveMetrics cur = _thrMetrics.get(a);
+      sleepTime += cur.getSleepTime();
+      maxLag = Math.max(maxLag, cur.getScheduleLag());
+    }
+    _sleepTime = sleepTime;
+    _maxLag = ((double) maxLag) / Constants.MILLION;
+
+    for(int t = 0; t<TYPES.length; t++)
+    {
+      QueryType type = TYPES[t];
+      long succ = 0;
+      long failed = 0;
+      long lat = 0;
+      long hist[] = new long[_histogramMax + 1];
+
+      for(int a = 0; a<_thrMetrics.size(); a++)
+      {
+        LiveMetrics cur = _thrMetrics.get(a);
+        succ += cur.getSuccOpt(type);
+        failed += cur.getFailedOpt(type);
+        lat += cur.getTotalLat(type);
+        cur.addHistogramTo(type, hist);
+      }
+
+      long periodSucc = succ - _prevSucc[t];
+      long periodFailed = failed - _prevFailed[t];
+      long periodLat = lat - _prevLat[t];
+      long periodHist[] = new long[hist.length];
+      for(int a = 0; a<hist.length; a++)
+      {
+        periodHist[a] = hist[a];
+        if(_prevHist[t] != null && a < _prevHist[t].length)
+          periodHist[a] -= _prevHist[t][a];
+      }
+
+      _succ[t] = succ;
+      _failed[t] = failed;
+      _thr[t] = (periodSucc + periodFailed) / elapsedSec;
+      _failRate[t] = periodFailed / elapsedSec;
+      _avgLat[t] = (periodSucc == 0) ? 0 : ((double) periodLat) / periodSucc / Constants.MILLION;
+      _p50[t] = quantile(periodHist, periodSucc, 0.50);
+      _p95[t] = quantile(periodHist, periodSucc, 0.95);
+      _p99[t] = quantile(periodHist, periodSucc, 0.99);
+
+      _prevSucc[t] = succ;
+      _prevFailed[t] = failed;
+      _prevLat[t] = lat;
+      _prevHist[t] = hist;
+    }
+  }
+
+  private static long quantile(long hist[], long total, double q)
+  {
+    if(total == 0)
+      return 0;
+
+    long target = (long) Math.ceil(total * q);
+    long sum = 0;
+    for(int a = 0; a<hist.length; a++)
+    {
+      sum += hist[a];
+      if(sum >= target)
+        return a;
+    }
+
+    return hist.length - 1;
+  }
+
+  private static String optName(QueryType type)
+  {
+    return type.toString().toLowerCase();
+  }
+
+  /**
+   * @return Operation types that are reported. NA is skipped.
+   */
+  public static List<QueryType> getReportedTypes()
+  {
+    List<QueryType> result = new ArrayList<QueryType>();
+    for(int a = 0; a<TYPES.length; a++)
+    {
+      if(TYPES[a] != QueryType.NA)
+        result.add(TYPES[a]);
+    }
+    return result;
+  }
+
+  public synchronized long getSucceeded(QueryType type)
+  {
+    return _succ[type.ordinal()];
+  }
+
+  public synchronized long getFailed(QueryType type)
+  {
+    return _failed[type.ordinal()];
+  }
+
+  public synchronized double getThroughput(QueryType type)
+  {
+    return _thr[type.ordinal()];
+  }
+
+  public synchronized double getFailureRate(QueryType type)
+  {
+    return _failRate[type.ordinal()];
+  }
+
+  public synchronized double getAverageLatencyMs(QueryType type)
+  {
+    return _avgLat[type.ordinal()];
+  }
+
+  public synchronized long getP50LatencyMs(QueryType type)
+  {
+    return _p50[type.ordinal()];
+  }
+
+  public synchronized long getP95LatencyMs(QueryType type)
+  {
+    return _p95[type.ordinal()];
+  }
+
+  public synchronized long getP99LatencyMs(QueryType type)
+  {
+    return _p99[type.ordinal()];
+  }
+
+  @Override
+  public String getJobName()
+  {
+    return _jobName;
+  }
+
+  @Override
+  public synchronized int getThreadCount()
+  {
+    return _thrMetrics.size();
+  }
+
+  @Override
+  public synchronized long getSucceeded()
+  {
+    long result = 0;
+    for(int a = 0; a<_succ.length; a++)
+      result += _succ[a];
+    return result;
+  }
+
+  @Override
+  public synchronized long getFailed()
+  {
+    long result = 0;
+    for(int a = 0; a<_failed.length; a++)
+      result += _failed[a];
+    return result;
+  }
+
+  @Override
+  public synchronized double getThroughput()
+  {
+    double result = 0;
+    for(int a = 0; a<_thr.length; a++)
+      result += _thr[a];
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Double> getThroughputByOpt()
+  {
+    Map<String, Double> result = new LinkedHashMap<String, Double>();
+    List<QueryType> types = getReportedTypes();
+    for(int a = 0; a<types.size(); a++)
+      result.put(optName(types.get(a)), _thr[types.get(a).ordinal()]);
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Double> getFailureRateByOpt()
+  {
+    Map<String, Double> result = new LinkedHashMap<String, Double>();
+    List<QueryType> types = getReportedTypes();
+    for(int a = 0; a<types.size(); a++)
+      result.put(optName(types.get(a)), _failRate[types.get(a).ordinal()]);
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Double> getAverageLatencyMsByOpt()
+  {
+    Map<String, Double> result = new LinkedHashMap<String, Double>();
+    List<QueryType> types = getReportedTypes();
+    for(int a = 0; a<types.size(); a++)
+      result.put(optName(types.get(a)), _avgLat[types.get(a).ordinal()]);
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Long> getP50LatencyMsByOpt()
+  {
+    return toMap(_p50);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getP95LatencyMsByOpt()
+  {
+    return toMap(_p95);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getP99LatencyMsByOpt()
+  {
+    return toMap(_p99);
+  }
+
+  private Map<String, Long> toMap(long arr[])
+  {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    List<QueryType> types = getReportedTypes();
+    for(int a = 0; a<types.size(); a++)
+      result.put(optName(types.get(a)), arr[types.get(a).ordinal()]);
+    return result;
+  }
+
+  @Override
+  public synchronized long getSleepTimeMs()
+  {
+    return _sleepTime;
+  }
+
+  @Override
+  public synchronized double getMaxScheduleLagMs()
+  {
+    return _maxLag;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the live metrics of a job. Rates and quantiles are computed over the last status period,
+ * counters are cumulative since the start of the run. Maps are keyed by the lower case operation name.
+ */
+public interface JobMetricsMXBean
+{
+  public String getJobName();
+
+  public int getThreadCount();
+
+  public long getSucceeded();
+
+  public long getFailed();
+
+  public double getThroughput();
+
+  public Map<String, Double> getThroughputByOpt();
+
+  public Map<String, Double> getFailureRateByOpt();
+
+  public Map<String, Double> getAverageLatencyMsByOpt();
+
+  public Map<String, Long> getP50LatencyMsByOpt();
+
+  public Map<String, Long> getP95LatencyMsByOpt();
+
+  public Map<String, Long> getP99LatencyMsByOpt();
+
+  public long getSleepTimeMs();
+
+  public double getMaxScheduleLagMs();
+}
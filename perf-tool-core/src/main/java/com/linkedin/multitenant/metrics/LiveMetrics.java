@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.linkedin.multitenant.common.Constants;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+
+/**
+ * Live counters of a single WorkerThread.<br>
+ * There is exactly one writer (the owning WorkerThread), so values are published with lazySet and can be read
+ * by the status thread at any time without locking the hot path.
+ */
+public class LiveMetrics
+{
+  private static final int TYPES = QueryType.values().length;
+
+  //maximum latency bucket in milliseconds
+  private int _histogramMax;
+
+  //per query type counters
+  private AtomicLongArray _succOpt;
+  private AtomicLongArray _failedOpt;
+  private AtomicLongArray _totalLat;
+
+  //per query type latency histogram. Index is (type * (histogramMax+1)) + bucket
+  private AtomicLongArray _histogram;
+
+  //time spent in throttling in milliseconds
+  private AtomicLong _sleepTime;
+
+  //how late the thread is compared to its target schedule in nanoseconds
+  private volatile long _scheduleLag;
+
+  public LiveMetrics(int histogramSize)
+  {
+    if(histogramSize <= 0)
+      _histogramMax = 100;
+    else
+      _histogramMax = histogramSize;
+
+    _succOpt = new AtomicLongArray(TYPES);
+    _failedOpt = new AtomicLongArray(TYPES);
+    _totalLat = new AtomicLongArray(TYPES);
+    _histogram = new AtomicLongArray(TYPES * (_histogramMax + 1));
+    _sleepTime = new AtomicLong(0);
+    _scheduleLag = 0;
+  }
+
+  public int getHistogramMax()
+  {
+    return _histogramMax;
+  }
+
+  /**
+   * Record a finished operation. Must only be called by the owning thread.
+   * @param latency Latency in nanoseconds
+   * @param optType Operation type
+   * @param optResult Result of the operation
+   */
+  public void add(long latency, QueryType optType, DatabaseResult optResult)
+  {
+    int t = optType.ordinal();
+
+    if(optResult == DatabaseResult.FAIL)
+    {
+      _failedOpt.lazySet(t, _failedOpt.get(t) + 1);
+      return;
+    }
+
+    int bucket = (int) (latency / Constants.MILLION);
+    if(bucket >= _histogramMax)
+      bucket = _histogramMax;
+    else if(bucket < 0)
+      bucket = 0;
+
+    int index = t * (_histogramMax + 1) + bucket;
+    _histogram.lazySet(index, _histogram.get(index) + 1);
+    _totalLat.lazySet(t, _totalLat.get(t) + latency);
+    _succOpt.lazySet(t, _succOpt.get(t) + 1);
+  }
+
+  /**
+   * Record time spent sleeping for throttling. Must only be called by the owning thread.
+   * @param ms Sleep time in milliseconds
+   */
+  public void addSleep(long ms)
+  {
+    _sleepTime.lazySet(_sleepTime.get() + ms);
+  }
+
+  /**
+   * Set how far behind its target schedule the thread is.
+   * @param lag Lag in nanoseconds. 0 if the thread is on time.
+   */
+  public void setScheduleLag(long lag)
+  {
+    _scheduleLag = lag;
+  }
+
+  public long getSuccOpt(QueryType optType)
+  {
+    return _succOpt.get(optType.ordinal());
+  }
+
+  public long getFailedOpt(QueryType optType)
+  {
+    return _failedOpt.get(optType.ordinal());
+  }
+
+  public long getTotalLat(QueryType optType)
+  {
+    return _totalLat.get(optType.ordinal());
+  }
+
+  /**
+   * Add the latency histogram of the given type to arr.
+   * @param optType Operation type
+   * @param arr Array of size histogramMax+1
+   */
+  public void addHistogramTo(QueryType optType, long arr[])
+  {
+    int base = optType.ordinal() * (_histogramMax + 1);
+    for(int a = 0; a<=_histogramMax; a++)
+      arr[a] += _histogram.get(base + a);
+  }
+
+  public long getSleepTime()
+  {
+    return _sleepTime.get();
+  }
+
+  public long getScheduleLag()
+  {
+    return _scheduleLag;
+  }
+}
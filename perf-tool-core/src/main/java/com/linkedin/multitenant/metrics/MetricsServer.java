@@ -0,0 +1,176 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded http server exposing the live metrics of all jobs at /metrics in Prometheus text format.
+ */
+public class MetricsServer implements HttpHandler
+{
+  private static final Logger _LOG = Logger.getLogger(MetricsServer.class);
+
+  private static final String PREFIX = "mtbt_";
+
+  private List<JobMetrics> _jobList;
+  private HttpServer _server;
+  private ExecutorService _executor;
+
+  public MetricsServer(int port, List<JobMetrics> jobList) throws IOException
+  {
+    _jobList = jobList;
+    _server = HttpServer.create(new InetSocketAddress(port), 0);
+    _server.createContext("/metrics", this);
+    _executor = Executors.newSingleThreadExecutor();
+    _server.setExecutor(_executor);
+  }
+
+  public void start()
+  {
+    _server.start();
+    _LOG.info("Metrics endpoint is listening on port " + _server.getAddress().getPort());
+  }
+
+  /**
+   * @return Port the endpoint listens on, useful when it is created with port 0
+   */
+  public int getPort()
+  {
+    return _server.getAddress().getPort();
+  }
+
+  public void stop()
+  {
+    _server.stop(0);
+    _executor.shutdown();
+    _LOG.debug("Metrics endpoint is stopped");
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException
+  {
+    byte body[] = toPrometheus().getBytes("UTF-8");
+
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    exchange.sendResponseHeaders(200, body.length);
+    OutputStream out = exchange.getResponseBody();
+    try
+    {
+      out.write(body);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  public String toPrometheus()
+  {
+    StringBuilder sb = new StringBuilder();
+    List<QueryType> types = JobMetrics.getReportedTypes();
+
+    header(sb, "operations_total", "counter", "Completed operations since start.");
+    for(int a = 0; a<_jobList.size(); a++)
+    {
+      JobMetrics job = _jobList.get(a);
+      for(int b = 0; b<types.size(); b++)
+      {
+        QueryType type = types.get(b);
+        line(sb, "operations_total", job, type, "result=\"ok\"", job.getSucceeded(type));
+        line(sb, "operations_total", job, type, "result=\"fail\"", job.getFailed(type));
+      }
+    }
+
+    header(sb, "throughput", "gauge", "Operations per second over the last status period.");
+    for(int a = 0; a<_jobList.size(); a++)
+    {
+      JobMetrics job = _jobList.get(a);
+      for(int b = 0; b<types.size(); b++)
+        line(sb, "throughput", job, types.get(b), null, job.getThroughput(types.get(b)));
+    }
+
+    header(sb, "failures_per_second", "gauge", "Failed operations per second over the last status period.");
+    for(int a = 0; a<_jobList.size(); a++)
+    {
+      JobMetrics job = _jobList.get(a);
+      for(int b = 0; b<types.size(); b++)
+        line(sb, "failures_per_second", job, types.get(b), null, job.getFailureRate(types.get(b)));
+    }
+
+    header(sb, "latency_avg_ms", "gauge", "Average latency of successful operations over the last status period.");
+    for(int a = 0; a<_jobList.size(); a++)
+    {
+      JobMetrics job = _jobList.get(a);
+      for(int b = 0; b<types.size(); b++)
+        line(sb, "latency_avg_ms", job, types.get(b), null, job.getAverageLatencyMs(types.get(b)));
+    }
+
+    header(sb, "latency_ms", "gauge", "Latency quantiles of successful operations over the last status period.");
+    for(int a = 0; a<_jobList.size(); a++)
+    {
+      JobMetrics job = _jobList.get(a);
+      for(int b = 0; b<types.size(); b++)
+      {
+        QueryType type = types.get(b);
+        line(sb, "latency_ms", job, type, "quantile=\"0.5\"", job.getP50LatencyMs(type));
+        line(sb, "latency_ms", job, type, "quantile=\"0.95\"", job.getP95LatencyMs(type));
+        line(sb, "latency_ms", job, type, "quantile=\"0.99\"", job.getP99LatencyMs(type));
+      }
+    }
+
+    header(sb, "throttle_sleep_ms_total", "counter", "Time worker threads spent sleeping for throttling.");
+    for(int a = 0; a<_jobList.size(); a++)
+      line(sb, "throttle_sleep_ms_total", _jobList.get(a), null, null, _jobList.get(a).getSleepTimeMs());
+
+    header(sb, "schedule_lag_ms", "gauge", "Maximum lag of a worker thread behind its target schedule.");
+    for(int a = 0; a<_jobList.size(); a++)
+      line(sb, "schedule_lag_ms", _jobList.get(a), null, null, _jobList.get(a).getMaxScheduleLagMs());
+
+    return sb.toString();
+  }
+
+  private static void header(StringBuilder sb, String name, String type, String help)
+  {
+    sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void line(StringBuilder sb, String name, JobMetrics job, QueryType type, String extraLabel, double value)
+  {
+    sb.append(PREFIX).append(name).append("{job=\"").append(escape(job.getJobName())).append('"');
+    if(type != null)
+      sb.append(",opt=\"").append(type.toString().toLowerCase()).append('"');
+    if(extraLabel != null)
+      sb.append(',').append(extraLabel);
+    sb.append("} ");
+
+    if(value == Math.rint(value) && !Double.isInfinite(value))
+      sb.append((long) value);
+    else
+      sb.append(value);
+    sb.append('\n');
+  }
+
+  private static String escape(String value)
+  {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -22,6 +22,8 @@ public class CompleteResult
 
   private int _gran;
   private EpochResult _arr[];
+  //written after every add, so that a thread reading it sees the epochs that the writer has closed
+  private volatile int _lastSlot;
 
   public CompleteResult(int runTime, int gran, int histogramSize)
   {
@@ -68,6 +70,12 @@ public class CompleteResult
     in.close();
   }
 
+  private CompleteResult(int gran, EpochResult arr[])
+  {
+    _gran = gran;
+    _arr = arr;
+  }
+
   public CompleteResult copy() throws Exception
   {
     byte[] temp = toByteArray();
@@ -75,6 +83,7 @@ public class CompleteResult
     return new CompleteResult(temp);
   }
 
+  //part of the Profiler encoding, a change of the layout must bump Profiler.FORMAT_VERSION
   public byte[] toByteArray() throws Exception
   {
     ByteArrayOutputStream bs = new ByteArrayOutputStream();
@@ -115,13 +124,40 @@ public class CompleteResult
    * @param optResult Result of the operation
    */
   public void add(int timeFromStart, long latency, DatabaseResult optResult)
+  {
+    add(timeFromStart, latency, optResult, 1);
+  }
+
+  /**
+   * Add operation data that touched several items, e.g. a multi-get.
+   * @param timeFromStart Time passed in seconds since the start of experiment
+   * @param latency Latency in nanoseconds for the operation
+   * @param optResult Result of the operation
+   * @param items Number of items the operation touched
+   */
+  public void add(int timeFromStart, long latency, DatabaseResult optResult, int items)
   {
     int slot = timeFromStart / _gran;
 
     if(0 <= slot && slot < _arr.length)
-      _arr[slot].add(latency, optResult);
+    {
+      _arr[slot].add(latency, optResult, items);
+      _lastSlot = slot;
+    }
     else
+    {
       _LOG.trace("Invalid slot");
+    }
+  }
+
+  /**
+   * Epochs before the returned one are not written by the writer thread anymore, if its clock has passed them.
+   * Reading this value also makes every add before the last one visible to the calling thread.
+   * @return Epoch of the last add
+   */
+  public int getLastSlot()
+  {
+    return _lastSlot;
   }
 
   /**
@@ -139,6 +175,31 @@ public class CompleteResult
       _arr[a].add(rhsArr[a]);
   }
 
+  /**
+   * @param from Start of the time range in seconds
+   * @param to End of the time range in seconds
+   * @return Copy of the epochs that lie within [from, to)
+   */
+  public CompleteResult slice(int from, int to) throws Exception
+  {
+    int count = 0;
+    for(int a = 0; a<_arr.length; a++)
+    {
+      if(_arr[a].getStartTime() >= from && _arr[a].getEndTime() <= to)
+        count++;
+    }
+
+    EpochResult result[] = new EpochResult[count];
+    count = 0;
+    for(int a = 0; a<_arr.length; a++)
+    {
+      if(_arr[a].getStartTime() >= from && _arr[a].getEndTime() <= to)
+        result[count++] = _arr[a].copy();
+    }
+
+    return new CompleteResult(_gran, result);
+  }
+
   public String toString()
   {
     StringBuilder sb = new StringBuilder();
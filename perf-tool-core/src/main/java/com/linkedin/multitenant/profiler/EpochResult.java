@@ -42,6 +42,9 @@ public class EpochResult
   //number of failed operations
   private int _failedOpt;
 
+  //number of items (keys or rows) touched by successful operations
+  private long _items;
+
   //starting time in seconds for this epoch (inclusive)
   private int _start;
 
@@ -60,11 +63,27 @@ public class EpochResult
     _totalLat = 0;
     _succOpt = 0;
     _failedOpt = 0;
+    _items = 0;
 
     _start = start;
     _end = end;
   }
 
+  /**
+   * Create an epoch from values that are read back, e.g. from an exported file.
+   * @param histogram Mapping of latency in milliseconds to number of successful operations. It is not copied.
+   */
+  public EpochResult(int histogramSize, int start, int end, int succOpt, int failedOpt, long totalLat, long items, Map<Integer, Integer> histogram)
+  {
+    this(histogramSize, start, end);
+
+    _succOpt = succOpt;
+    _failedOpt = failedOpt;
+    _totalLat = totalLat;
+    _items = items;
+    _map = histogram;
+  }
+
   public EpochResult(byte arr[]) throws Exception
   {
     ByteArrayInputStream bs = new ByteArrayInputStream(arr);
@@ -82,6 +101,8 @@ public class EpochResult
     _succOpt = in.readInt();
     //read failedOpt
     _failedOpt = in.readInt();
+    //read items
+    _items = in.readLong();
     //read number of elements in map
     int size = in.readInt();
     _map = new HashMap<Integer, Integer>();
@@ -103,6 +124,7 @@ public class EpochResult
     return new EpochResult(tempArr);
   }
 
+  //part of the Profiler encoding, a change of the layout must bump Profiler.FORMAT_VERSION
   public byte[] toByteArray() throws Exception
   {
     ByteArrayOutputStream bs = new ByteArrayOutputStream();
@@ -120,6 +142,8 @@ public class EpochResult
     out.writeInt(_succOpt);
     //write failedOpt
     out.writeInt(_failedOpt);
+    //write items
+    out.writeLong(_items);
     //number of elements in map
     out.writeInt(_map.size());
     //write each element in the map
@@ -146,6 +170,11 @@ public class EpochResult
     return _totalLat;
   }
 
+  public int getHistogramMax()
+  {
+    return _histogramMax;
+  }
+
   public int getStartTime()
   {
     return _start;
@@ -166,6 +195,15 @@ public class EpochResult
     return _failedOpt;
   }
 
+  /**
+   * Returns number of items touched by successful operations
+   * @return
+   */
+  public long getItems()
+  {
+    return _items;
+  }
+
   public Map<Integer, Integer> getMap()
   {
     return _map;
@@ -176,6 +214,16 @@ public class EpochResult
    * @param latency Latency in nanoseconds
    */
   public void add(long latency, DatabaseResult optResult)
+  {
+    add(latency, optResult, 1);
+  }
+
+  /**
+   * Add a measured latency value of an operation that touched several items, e.g. a multi-get or a scan
+   * @param latency Latency in nanoseconds
+   * @param items Number of items the operation touched
+   */
+  public void add(long latency, DatabaseResult optResult, int items)
   {
     if(optResult == DatabaseResult.FAIL)
     {
@@ -200,6 +248,7 @@ public class EpochResult
 
     _totalLat += latency;
     _succOpt++;
+    _items += items;
   }
 
   /**
@@ -211,6 +260,7 @@ public class EpochResult
     _totalLat += rhs.getTotalLat();
     _succOpt += rhs.getSuccOpt();
     _failedOpt += rhs.getFailedOpt();
+    _items += rhs.getItems();
 
     Map<Integer, Integer> rhsMap = rhs.getMap();
     Iterator<Integer> itr = rhsMap.keySet().iterator();
@@ -245,6 +295,9 @@ public class EpochResult
     sb.append(" FailedOpt=");
     sb.append(_failedOpt);
 
+    sb.append(" Items=");
+    sb.append(_items);
+
     sb.append(" Lat-Opt\t" );
     for(int a = 0; a <= _histogramMax; a++)
     {
@@ -275,17 +328,18 @@ public class EpochResult
    * Index-1: (Integer) Number of successful operations<br>
    * Index-2: (Double) Average Latency in milliseconds<br>
    * Index-3: (Integer) 95% latency in milliseconds<br>
-   * Index-4: (Integer) 99% latency in milliseconds
+   * Index-4: (Integer) 99% latency in milliseconds<br>
+   * Index-5: (Double) Items per second
    */
   public List<Object> summarize()
   {
     List<Object> rtnList = new ArrayList<Object>();
 
     //add end time
-    rtnList.add(new Integer(_end));
+    rtnList.add(Integer.valueOf(_end));
 
     //add number of operations
-    rtnList.add(new Integer(_succOpt));
+    rtnList.add(Integer.valueOf(_succOpt));
 
     //add average latency
     long avgLatInNs;
@@ -294,7 +348,7 @@ public class EpochResult
     else
       avgLatInNs = _totalLat/_succOpt;
     double avgLatInMS = ((double) avgLatInNs) / 1000000;
-    rtnList.add(new Double(avgLatInMS));
+    rtnList.add(Double.valueOf(avgLatInMS));
 
     //calculate 95% and 99% latencies
     long swappedOpt = 0;
@@ -324,10 +378,17 @@ public class EpochResult
     }
 
     //add 95% latency
-    rtnList.add(new Integer(lat95));
+    rtnList.add(Integer.valueOf(lat95));
 
     //add 99% latency
-    rtnList.add(new Integer(lat99));
+    rtnList.add(Integer.valueOf(lat99));
+
+    //add items per second
+    int duration = _end - _start;
+    if(duration <= 0)
+      rtnList.add(Double.valueOf(0));
+    else
+      rtnList.add(Double.valueOf(((double) _items) / duration));
 
     return rtnList;
   }
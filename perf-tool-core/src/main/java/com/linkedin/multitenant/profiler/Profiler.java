@@ -11,27 +11,49 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.IOException;
 
 import org.apache.log4j.Logger;
 
 import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueVerifier;
 import com.linkedin.multitenant.db.Database.DatabaseResult;
 
 public class Profiler
 {
+  /**
+   * Version of the toByteArray encoding, which includes the encodings of CompleteResult and EpochResult. It is written
+   * first and checked when the bytes are read back, so it must be bumped whenever any of these layouts changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
   private static final Logger _LOG = Logger.getLogger(Profiler.class);
 
   private CompleteResult _insertResult;
   private CompleteResult _readResult;
   private CompleteResult _deleteResult;
   private CompleteResult _updateResult;
+  private CompleteResult _scanResult;
+  private CompleteResult _multiGetResult;
+  private CompleteResult _readModifyWriteResult;
+  //number of verified reads per ValueVerifier.Result ordinal
+  private long _verifications[];
+  //number of requests sent, and number of queries that needed more than one, per QueryType ordinal
+  private long _attempts[];
+  private long _multiAttemptQueries[];
 
   public Profiler(int runTime, int gran, int histogramSize)
   {
+    _verifications = new long[ValueVerifier.Result.values().length];
+    _attempts = new long[QueryType.values().length];
+    _multiAttemptQueries = new long[QueryType.values().length];
     _insertResult = new CompleteResult(runTime, gran, histogramSize);
     _readResult = new CompleteResult(runTime, gran, histogramSize);
     _deleteResult = new CompleteResult(runTime, gran, histogramSize);
     _updateResult = new CompleteResult(runTime, gran, histogramSize);
+    _scanResult = new CompleteResult(runTime, gran, histogramSize);
+    _multiGetResult = new CompleteResult(runTime, gran, histogramSize);
+    _readModifyWriteResult = new CompleteResult(runTime, gran, histogramSize);
   }
 
   public Profiler(byte arr[]) throws Exception
@@ -39,6 +61,10 @@ public class Profiler
     ByteArrayInputStream bs = new ByteArrayInputStream(arr);
     DataInputStream in = new DataInputStream(bs);
 
+    int version = in.readInt();
+    if(version != FORMAT_VERSION)
+      throw new IOException("Profiler encoding version " + version + " is not supported, expected version " + FORMAT_VERSION);
+
     //read insert results size and data
     int size = in.readInt();
     _LOG.debug("Insert CompleteResult len: " + size);
@@ -67,6 +93,52 @@ public class Profiler
     in.readFully(temp);
     _updateResult = new CompleteResult(temp);
 
+    //read scan results size and data
+    size = in.readInt();
+    _LOG.debug("Scan CompleteResult len: " + size);
+    temp = new byte[size];
+    in.readFully(temp);
+    _scanResult = new CompleteResult(temp);
+
+    //read multi-get results size and data
+    size = in.readInt();
+    _LOG.debug("MultiGet CompleteResult len: " + size);
+    temp = new byte[size];
+    in.readFully(temp);
+    _multiGetResult = new CompleteResult(temp);
+
+    //read read-modify-write results size and data
+    size = in.readInt();
+    _LOG.debug("ReadModifyWrite CompleteResult len: " + size);
+    temp = new byte[size];
+    in.readFully(temp);
+    _readModifyWriteResult = new CompleteResult(temp);
+
+    //read verification counts
+    size = in.readInt();
+    _verifications = new long[ValueVerifier.Result.values().length];
+    for(int a = 0; a<size; a++)
+    {
+      long count = in.readLong();
+      if(a < _verifications.length)
+        _verifications[a] = count;
+    }
+
+    //read attempt counts
+    size = in.readInt();
+    _attempts = new long[QueryType.values().length];
+    _multiAttemptQueries = new long[QueryType.values().length];
+    for(int a = 0; a<size; a++)
+    {
+      long count = in.readLong();
+      long multi = in.readLong();
+      if(a < _attempts.length)
+      {
+        _attempts[a] = count;
+        _multiAttemptQueries[a] = multi;
+      }
+    }
+
     in.close();
   }
 
@@ -75,6 +147,8 @@ public class Profiler
     ByteArrayOutputStream bs = new ByteArrayOutputStream();
     DataOutputStream out = new DataOutputStream(bs);
 
+    out.writeInt(FORMAT_VERSION);
+
     //write write results size and data
     byte temp[] = _insertResult.toByteArray();
     out.writeInt(temp.length);
@@ -99,6 +173,37 @@ public class Profiler
     _LOG.debug("Update CompleteResult len: " + temp.length);
     out.write(temp);
 
+    //write scan results size and data
+    temp = _scanResult.toByteArray();
+    out.writeInt(temp.length);
+    _LOG.debug("Scan CompleteResult len: " + temp.length);
+    out.write(temp);
+
+    //write multi-get results size and data
+    temp = _multiGetResult.toByteArray();
+    out.writeInt(temp.length);
+    _LOG.debug("MultiGet CompleteResult len: " + temp.length);
+    out.write(temp);
+
+    //write read-modify-write results size and data
+    temp = _readModifyWriteResult.toByteArray();
+    out.writeInt(temp.length);
+    _LOG.debug("ReadModifyWrite CompleteResult len: " + temp.length);
+    out.write(temp);
+
+    //write verification counts
+    out.writeInt(_verifications.length);
+    for(int a = 0; a<_verifications.length; a++)
+      out.writeLong(_verifications[a]);
+
+    //write attempt counts
+    out.writeInt(_attempts.length);
+    for(int a = 0; a<_attempts.length; a++)
+    {
+      out.writeLong(_attempts[a]);
+      out.writeLong(_multiAttemptQueries[a]);
+    }
+
     out.close();
     return bs.toByteArray();
   }
@@ -123,6 +228,67 @@ public class Profiler
     return _updateResult;
   }
 
+  public CompleteResult getScanResults()
+  {
+    return _scanResult;
+  }
+
+  public CompleteResult getMultiGetResults()
+  {
+    return _multiGetResult;
+  }
+
+  public CompleteResult getReadModifyWriteResults()
+  {
+    return _readModifyWriteResult;
+  }
+
+  /**
+   * @param result Result of the verification
+   * @return Number of reads verified with the given result
+   */
+  public long getVerifications(ValueVerifier.Result result)
+  {
+    return _verifications[result.ordinal()];
+  }
+
+  /**
+   * Count a verified read.
+   * @param result Result of the verification
+   */
+  public void addVerification(ValueVerifier.Result result)
+  {
+    _verifications[result.ordinal()]++;
+  }
+
+  /**
+   * @return Number of requests sent to the database for queries of the given type
+   */
+  public long getAttempts(QueryType optType)
+  {
+    return _attempts[optType.ordinal()];
+  }
+
+  /**
+   * @return Number of queries of the given type that were sent more than once, i.e. retried or hedged
+   */
+  public long getMultiAttemptQueries(QueryType optType)
+  {
+    return _multiAttemptQueries[optType.ordinal()];
+  }
+
+  /**
+   * Count the requests sent for a query. Its latency is added with add as usual, so it is the latency seen by the user.
+   * @param optType Operation type
+   * @param attempts Number of requests sent to the database for the query
+   */
+  public void addAttempts(QueryType optType, int attempts)
+  {
+    _attempts[optType.ordinal()] += attempts;
+    if(attempts > 1)
+      _multiAttemptQueries[optType.ordinal()]++;
+  }
+
   /**
    * Insert a completed operation data.
    * @param timeFromStart Time passed in seconds since the start of experiments
@@ -130,23 +296,47 @@ public class Profiler
    * @param optType Operation type
    */
   public void add(int timeFromStart, long latency, QueryType optType, DatabaseResult optResult)
+  {
+    add(timeFromStart, latency, optType, optResult, 1);
+  }
+
+  /**
+   * Insert a completed operation data that touched several items, e.g. a multi-get or a scan.
+   * @param timeFromStart Time passed in seconds since the start of experiments
+   * @param latency Latency in nanoseconds for the operation
+   * @param optType Operation type
+   * @param items Number of keys or rows the operation touched
+   */
+  public void add(int timeFromStart, long latency, QueryType optType, DatabaseResult optResult, int items)
   {
     switch (optType)
     {
       case INSERT:
-        _insertResult.add(timeFromStart, latency, optResult);
+        _insertResult.add(timeFromStart, latency, optResult, items);
         break;
 
       case READ:
-        _readResult.add(timeFromStart, latency, optResult);
+        _readResult.add(timeFromStart, latency, optResult, items);
         break;
 
       case DELETE:
-        _deleteResult.add(timeFromStart, latency, optResult);
+        _deleteResult.add(timeFromStart, latency, optResult, items);
         break;
 
       case UPDATE:
-        _updateResult.add(timeFromStart, latency, optResult);
+        _updateResult.add(timeFromStart, latency, optResult, items);
+        break;
+
+      case SCAN:
+        _scanResult.add(timeFromStart, latency, optResult, items);
+        break;
+
+      case MULTI_GET:
+        _multiGetResult.add(timeFromStart, latency, optResult, items);
+        break;
+
+      case READ_MODIFY_WRITE:
+        _readModifyWriteResult.add(timeFromStart, latency, optResult, items);
         break;
 
       default:
@@ -155,6 +345,25 @@ public class Profiler
     }
   }
 
+  /**
+   * Copy of this profiler with only the epochs that lie within [from, to).
+   * Verification and attempt counts are not kept per epoch, so they are copied as they are.
+   * @param from Start of the time range in seconds
+   * @param to End of the time range in seconds
+   */
+  public Profiler slice(int from, int to) throws Exception
+  {
+    Profiler result = new Profiler(toByteArray());
+    result._insertResult = _insertResult.slice(from, to);
+    result._readResult = _readResult.slice(from, to);
+    result._deleteResult = _deleteResult.slice(from, to);
+    result._updateResult = _updateResult.slice(from, to);
+    result._scanResult = _scanResult.slice(from, to);
+    result._multiGetResult = _multiGetResult.slice(from, to);
+    result._readModifyWriteResult = _readModifyWriteResult.slice(from, to);
+    return result;
+  }
+
   /**
    * Add rhs Profiler to this instance. The result is this instance.
    * @param rhs
@@ -165,6 +374,16 @@ public class Profiler
     _readResult.add(rhs.getReadResults());
     _deleteResult.add(rhs.getDeleteResults());
     _updateResult.add(rhs.getUpdateResults());
+    _scanResult.add(rhs.getScanResults());
+    _multiGetResult.add(rhs.getMultiGetResults());
+    _readModifyWriteResult.add(rhs.getReadModifyWriteResults());
+    for(int a = 0; a<_verifications.length; a++)
+      _verifications[a] += rhs._verifications[a];
+    for(int a = 0; a<_attempts.length; a++)
+    {
+      _attempts[a] += rhs._attempts[a];
+      _multiAttemptQueries[a] += rhs._multiAttemptQueries[a];
+    }
   }
 
   public String toString()
@@ -193,6 +412,50 @@ public class Profiler
     sb.append("\n");
     sb.append(_updateResult.toString());
 
+    sb.append("\n");
+
+    sb.append("Scan:");
+    sb.append("\n");
+    sb.append(_scanResult.toString());
+
+    sb.append("\n");
+
+    sb.append("MultiGet:");
+    sb.append("\n");
+    sb.append(_multiGetResult.toString());
+
+    sb.append("\n");
+
+    sb.append("ReadModifyWrite:");
+    sb.append("\n");
+    sb.append(_readModifyWriteResult.toString());
+
+    //only printed in verification mode
+    long verified = 0;
+    for(int a = 0; a<_verifications.length; a++)
+      verified += _verifications[a];
+    if(verified > 0)
+    {
+      sb.append("\n");
+      sb.append("Verification:");
+      sb.append(" Verified=" + verified);
+      sb.append(" Stale=" + getVerifications(ValueVerifier.Result.STALE));
+      sb.append(" Corrupt=" + getVerifications(ValueVerifier.Result.CORRUPT));
+      sb.append(" Missing=" + getVerifications(ValueVerifier.Result.MISSING));
+    }
+
+    //only printed if a database retried or hedged queries
+    for(QueryType type : QueryType.values())
+    {
+      if(_multiAttemptQueries[type.ordinal()] > 0)
+      {
+        sb.append("\n");
+        sb.append("Attempts of " + type + ":");
+        sb.append(" Total=" + _attempts[type.ordinal()]);
+        sb.append(" MultiAttemptQueries=" + _multiAttemptQueries[type.ordinal()]);
+      }
+    }
+
     return sb.toString();
   }
 }
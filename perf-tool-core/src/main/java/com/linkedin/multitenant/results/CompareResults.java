@@ -0,0 +1,329 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.profiler.EpochResult;
+
+/**
+ * Compares the results of a baseline and a candidate run, job by job and operation by operation, and fails if the
+ * candidate is significantly worse.<br>
+ * For each metric, the samples are the values of the epochs (default), or the values of whole runs if each side has
+ * repeated trials. The difference of the means is tested with Welch's t-test. A metric regresses if the candidate is
+ * worse by more than the threshold and the p-value is below alpha, or if there are too few samples for the test.<br>
+ * Command line options:<br>
+ * -base=PATH[,PATH...]: Results of a baseline run. Files separated by commas are the machines of one run and merged.
+ * Repeat the option for repeated trials.<br>
+ * -cand=PATH[,PATH...]: Results of a candidate run, in the same way.<br>
+ * -threshold=PERCENT: Largest allowed worsening. Default is 5.<br>
+ * -alpha=P: Significance level. Default is 0.05.<br>
+ * -unit=epoch|trial: Unit of the samples. Default is epoch.<br>
+ * -from=SECONDS, -to=SECONDS: Time range of the epochs to compare, e.g. to leave out the warm up. Default is the whole run.<br>
+ * Exit code is 0 if nothing regresses, 1 if something regresses, 2 if the input is invalid.
+ */
+public class CompareResults
+{
+  public static final String CMD_BASE       = "base";
+  public static final String CMD_CAND       = "cand";
+  public static final String CMD_THRESHOLD  = "threshold";
+  public static final String CMD_ALPHA      = "alpha";
+  public static final String CMD_UNIT       = "unit";
+  public static final String CMD_FROM       = "from";
+  public static final String CMD_TO         = "to";
+
+  public static final String CONST_UNIT_EPOCH = "epoch";
+  public static final String CONST_UNIT_TRIAL = "trial";
+
+  public static final int EXIT_OK = 0;
+  public static final int EXIT_REGRESSION = 1;
+  public static final int EXIT_INVALID = 2;
+
+  public enum Metric
+  {
+    THROUGHPUT("opt/s", true), AVG_LATENCY("avgMs", false), LATENCY_95("p95Ms", false), LATENCY_99("p99Ms", false);
+
+    private String _label;
+    private boolean _higherIsBetter;
+
+    private Metric(String label, boolean higherIsBetter)
+    {
+      _label = label;
+      _higherIsBetter = higherIsBetter;
+    }
+
+    public String getLabel()
+    {
+      return _label;
+    }
+
+    public boolean isHigherBetter()
+    {
+      return _higherIsBetter;
+    }
+
+    /**
+     * @return Value of the metric for the given epoch, or NaN if it has no successful operation
+     */
+    public double valueOf(EpochResult epoch)
+    {
+      int duration = epoch.getEndTime() - epoch.getStartTime();
+      if(this == THROUGHPUT)
+        return duration <= 0 ? Double.NaN : ((double) epoch.getSuccOpt()) / duration;
+      if(epoch.getSuccOpt() == 0)
+        return Double.NaN;
+
+      List<Object> summary = epoch.summarize();
+      if(this == AVG_LATENCY)
+        return (Double) summary.get(2);
+      else if(this == LATENCY_95)
+        return (Integer) summary.get(3);
+      else
+        return (Integer) summary.get(4);
+    }
+  }
+
+  private List<RunResults> _base;
+  private List<RunResults> _cand;
+  private double _threshold;
+  private double _alpha;
+  private boolean _byTrial;
+  private int _from;
+  private int _to;
+
+  /**
+   * @param base Baseline trials
+   * @param cand Candidate trials
+   * @param threshold Largest allowed worsening in percent
+   * @param alpha Significance level
+   * @param byTrial True to use one sample per trial, false for one sample per epoch
+   * @param from Start of the compared time range in seconds
+   * @param to End of the compared time range in seconds
+   */
+  public CompareResults(List<RunResults> base, List<RunResults> cand, double threshold, double alpha, boolean byTrial, int from, int to)
+  {
+    _base = base;
+    _cand = cand;
+    _threshold = threshold;
+    _alpha = alpha;
+    _byTrial = byTrial;
+    _from = from;
+    _to = to;
+  }
+
+  private boolean inRange(EpochResult epoch)
+  {
+    return epoch.getStartTime() >= _from && epoch.getEndTime() <= _to;
+  }
+
+  /**
+   * @return Samples of the metric for a job and operation type over the given trials
+   */
+  private double[] samples(List<RunResults> trials, String jobName, QueryType type, Metric metric)
+  {
+    List<Double> values = new ArrayList<Double>();
+    for(RunResults trial : trials)
+    {
+      EpochResult whole = null;
+      for(EpochResult epoch : trial.getEpochs(jobName, type))
+      {
+        if(!inRange(epoch) || epoch.getSuccOpt() + epoch.getFailedOpt() == 0)
+          continue;
+
+        if(!_byTrial)
+        {
+          double val = metric.valueOf(epoch);
+          if(!Double.isNaN(val))
+            values.add(val);
+        }
+        else if(whole == null)
+        {
+          whole = new EpochResult(epoch.getHistogramMax(), epoch.getStartTime(), epoch.getEndTime());
+          whole.add(epoch);
+        }
+        else
+        {
+          //the merged epoch spans from the first to the last epoch
+          EpochResult next = new EpochResult(Math.max(whole.getHistogramMax(), epoch.getHistogramMax()), whole.getStartTime(), epoch.getEndTime());
+          next.add(whole);
+          next.add(epoch);
+          whole = next;
+        }
+      }
+
+      if(whole != null)
+      {
+        double val = metric.valueOf(whole);
+        if(!Double.isNaN(val))
+          values.add(val);
+      }
+    }
+
+    double result[] = new double[values.size()];
+    for(int a = 0; a<result.length; a++)
+      result[a] = values.get(a);
+    return result;
+  }
+
+  /**
+   * Compare every job and operation type of the baseline with the candidate and print a line per metric.
+   * A job missing in the candidate, or a metric with samples in the baseline but none in the candidate, is a regression.
+   * @return Number of regressed metrics
+   */
+  public int compare(PrintStream out)
+  {
+    int regressions = 0;
+    out.println(String.format(Locale.ROOT, "%-20s %-18s %-7s %12s %12s %9s %9s  %s", "job", "op", "metric", "base", "cand", "delta%", "p", "verdict"));
+
+    for(String jobName : _base.get(0).getJobNames())
+    {
+      boolean found = false;
+      for(RunResults cand : _cand)
+        found |= cand.getJobNames().contains(jobName);
+      if(!found)
+      {
+        out.println(String.format(Locale.ROOT, "%-20s %-18s %-7s %12s %12s %9s %9s  %s", jobName, "-", "-", "-", "-", "-", "-", "MISSING"));
+        regressions++;
+        continue;
+      }
+
+      for(QueryType type : _base.get(0).getTypes(jobName))
+      {
+        for(Metric metric : Metric.values())
+        {
+          double base[] = samples(_base, jobName, type, metric);
+          double cand[] = samples(_cand, jobName, type, metric);
+          if(base.length == 0)
+            continue;
+          if(cand.length == 0)
+          {
+            out.println(String.format(Locale.ROOT, "%-20s %-18s %-7s %12.3f %12s %9s %9s  %s",
+                jobName, type, metric.getLabel(), WelchTest.mean(base), "-", "-", "-", "NO DATA"));
+            regressions++;
+            continue;
+          }
+
+          double baseMean = WelchTest.mean(base);
+          double candMean = WelchTest.mean(cand);
+          double delta = baseMean == 0 ? 0 : (candMean - baseMean) / baseMean * 100;
+          double worsening = metric.isHigherBetter() ? -delta : delta;
+          double p = WelchTest.pValue(base, cand);
+          boolean significant = Double.isNaN(p) || p < _alpha;
+
+          String verdict = "";
+          if(worsening > _threshold && significant)
+          {
+            verdict = "REGRESSION";
+            regressions++;
+          }
+          else if(-worsening > _threshold && significant)
+          {
+            verdict = "improvement";
+          }
+
+          out.println(String.format(Locale.ROOT, "%-20s %-18s %-7s %12.3f %12.3f %9.2f %9.4f  %s",
+              jobName, type, metric.getLabel(), baseMean, candMean, delta, p, verdict));
+        }
+      }
+    }
+
+    return regressions;
+  }
+
+  /**
+   * Load the files of one run, separated by commas, and merge them.
+   */
+  public static RunResults loadRun(String paths) throws IOException
+  {
+    RunResults result = new RunResults();
+    String parts[] = paths.split(",");
+    for(int a = 0; a<parts.length; a++)
+      result.add(RunResults.load(parts[a]));
+    return result;
+  }
+
+  /**
+   * Run the tool with the given command line options.
+   * @return Exit code
+   */
+  public static int run(String args[], PrintStream out)
+  {
+    List<RunResults> base = new ArrayList<RunResults>();
+    List<RunResults> cand = new ArrayList<RunResults>();
+    double threshold = 5;
+    double alpha = 0.05;
+    boolean byTrial = false;
+    int from = 0;
+    int to = Integer.MAX_VALUE;
+
+    try
+    {
+      for(int a = 0; a<args.length; a++)
+      {
+        int eq = args[a].indexOf('=');
+        if(!args[a].startsWith("-") || eq < 0)
+        {
+          out.println("Unknown option: " + args[a]);
+          return EXIT_INVALID;
+        }
+
+        String name = args[a].substring(1, eq);
+        String value = args[a].substring(eq + 1);
+        if(name.equals(CMD_BASE))
+          base.add(loadRun(value));
+        else if(name.equals(CMD_CAND))
+          cand.add(loadRun(value));
+        else if(name.equals(CMD_THRESHOLD))
+          threshold = Double.parseDouble(value);
+        else if(name.equals(CMD_ALPHA))
+          alpha = Double.parseDouble(value);
+        else if(name.equals(CMD_UNIT) && (value.equals(CONST_UNIT_EPOCH) || value.equals(CONST_UNIT_TRIAL)))
+          byTrial = value.equals(CONST_UNIT_TRIAL);
+        else if(name.equals(CMD_FROM))
+          from = Integer.parseInt(value);
+        else if(name.equals(CMD_TO))
+          to = Integer.parseInt(value);
+        else
+        {
+          out.println("Unknown option: " + args[a]);
+          return EXIT_INVALID;
+        }
+      }
+    }
+    catch(IOException e)
+    {
+      out.println("Cannot read results: " + e.getMessage());
+      return EXIT_INVALID;
+    }
+    catch(NumberFormatException e)
+    {
+      out.println("Invalid number: " + e.getMessage());
+      return EXIT_INVALID;
+    }
+
+    if(base.isEmpty() || cand.isEmpty())
+    {
+      out.println("Usage: CompareResults -base=PATH[,PATH...] [-base=...] -cand=PATH[,PATH...] [-cand=...] [-threshold=PERCENT] [-alpha=P] [-unit=epoch|trial] [-from=SECONDS] [-to=SECONDS]");
+      return EXIT_INVALID;
+    }
+
+    int regressions = new CompareResults(base, cand, threshold, alpha, byTrial, from, to).compare(out);
+    out.println(regressions + " regression(s) over " + threshold + "% at alpha=" + alpha);
+    return regressions == 0 ? EXIT_OK : EXIT_REGRESSION;
+  }
+
+  public static void main(String[] args)
+  {
+    System.exit(run(args, System.out));
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.linkedin.multitenant.profiler.Profiler;
+import com.linkedin.multitenant.xml.XmlParser;
+import com.linkedin.multitenant.xml.XmlWorkPlan;
+
+/**
+ * Raw, mergeable results of a run: the work plan, metadata about the run and the merged Profiler of each job.<br>
+ * The file starts with a magic number and a format version. Readers refuse files of other versions.
+ * Version 1 layout, in DataOutputStream encoding:<br>
+ * int magic, int version, int work plan length, work plan bytes,
+ * int metadata count, (UTF name, UTF value) per entry,
+ * int job count, (UTF job name, int profiler length, Profiler.toByteArray) per job.<br>
+ * VERSION covers this envelope and must be bumped when it changes. The profiler bytes carry their own
+ * Profiler.FORMAT_VERSION, which the Profiler checks when they are read.
+ */
+public class ResultsFile
+{
+  public static final int MAGIC = 0x4D544252; //"MTBR"
+  public static final int VERSION = 1;
+
+  public static final String META_MODE = "mode";
+  public static final String META_MACHINES = "machines";
+  public static final String META_START_TIME = "startTime";
+  public static final String META_END_TIME = "endTime";
+  public static final String META_HOST = "host";
+  public static final String META_SOURCES = "sources";
+
+  private byte _workPlan[];
+  private Map<String, String> _metadata;
+  private Map<String, Profiler> _profMap;
+
+  /**
+   * @param workPlan Work plan of the run as given to RunExperiment
+   * @param metadata Name-value pairs describing the run
+   * @param profMap Mapping of jobs to their merged profilers
+   */
+  public ResultsFile(byte workPlan[], Map<String, String> metadata, Map<String, Profiler> profMap)
+  {
+    _workPlan = workPlan;
+    _metadata = new TreeMap<String, String>(metadata);
+    _profMap = new TreeMap<String, Profiler>(profMap);
+  }
+
+  public byte[] getWorkPlan()
+  {
+    return _workPlan;
+  }
+
+  /**
+   * @return Parsed work plan, e.g. to get the properties for an exporter
+   */
+  public XmlWorkPlan parseWorkPlan() throws Exception
+  {
+    return XmlParser.parseWorkPlan(_workPlan);
+  }
+
+  public Map<String, String> getMetadata()
+  {
+    return _metadata;
+  }
+
+  public Map<String, Profiler> getProfilers()
+  {
+    return _profMap;
+  }
+
+  /**
+   * Add the results of another run. Profilers of jobs with the same name are added, which needs the same run time and
+   * granularity. Other jobs are copied. The work plan of this instance is kept.
+   */
+  public void add(ResultsFile rhs) throws Exception
+  {
+    for(Map.Entry<String, Profiler> job : rhs._profMap.entrySet())
+    {
+      Profiler mine = _profMap.get(job.getKey());
+      if(mine == null)
+      {
+        _profMap.put(job.getKey(), new Profiler(job.getValue().toByteArray()));
+      }
+      else if(mine.getReadResults().getArr().length != job.getValue().getReadResults().getArr().length)
+      {
+        throw new IllegalArgumentException("Job " + job.getKey() + " has a different number of epochs in the merged results");
+      }
+      else
+      {
+        mine.add(job.getValue());
+      }
+    }
+
+    String sources = _metadata.get(META_SOURCES);
+    String rhsSources = rhs._metadata.get(META_SOURCES);
+    _metadata.put(META_SOURCES, (sources == null ? "1" : sources) + "+" + (rhsSources == null ? "1" : rhsSources));
+  }
+
+  /**
+   * Replace each profiler with the epochs that lie within [from, to).
+   */
+  public void slice(int from, int to) throws Exception
+  {
+    for(Map.Entry<String, Profiler> job : _profMap.entrySet())
+      job.setValue(job.getValue().slice(from, to));
+  }
+
+  /**
+   * Write the results. The file is written next to the target and renamed, so that a crash does not leave a partial file.
+   */
+  public void write(String path) throws Exception
+  {
+    File target = new File(path);
+    File temp = new File(target.getPath() + ".tmp");
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      out.writeInt(_workPlan.length);
+      out.write(_workPlan);
+
+      out.writeInt(_metadata.size());
+      for(Map.Entry<String, String> entry : _metadata.entrySet())
+      {
+        out.writeUTF(entry.getKey());
+        out.writeUTF(entry.getValue());
+      }
+
+      out.writeInt(_profMap.size());
+      for(Map.Entry<String, Profiler> job : _profMap.entrySet())
+      {
+        byte data[] = job.getValue().toByteArray();
+        out.writeUTF(job.getKey());
+        out.writeInt(data.length);
+        out.write(data);
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+
+    if(target.exists() && !target.delete())
+      throw new IOException("Cannot replace " + path);
+    if(!temp.renameTo(target))
+      throw new IOException("Cannot rename " + temp.getPath() + " to " + path);
+  }
+
+  /**
+   * @return True if the stream starts with the magic number. The stream must support mark.
+   */
+  public static boolean isResultsFile(InputStream in) throws IOException
+  {
+    in.mark(4);
+    try
+    {
+      DataInputStream din = new DataInputStream(in);
+      return din.readInt() == MAGIC;
+    }
+    catch(IOException e)
+    {
+      return false;
+    }
+    finally
+    {
+      in.reset();
+    }
+  }
+
+  public static ResultsFile read(String path) throws Exception
+  {
+    InputStream in = new BufferedInputStream(new FileInputStream(path));
+    try
+    {
+      return read(in);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  public static ResultsFile read(InputStream is) throws Exception
+  {
+    DataInputStream in = new DataInputStream(is);
+    if(in.readInt() != MAGIC)
+      throw new IOException("Not a results file");
+    int version = in.readInt();
+    if(version != VERSION)
+      throw new IOException("Results file version " + version + " is not supported, the supported version is " + VERSION);
+
+    byte workPlan[] = new byte[in.readInt()];
+    in.readFully(workPlan);
+
+    Map<String, String> metadata = new TreeMap<String, String>();
+    int count = in.readInt();
+    for(int a = 0; a<count; a++)
+    {
+      String name = in.readUTF();
+      metadata.put(name, in.readUTF());
+    }
+
+    Map<String, Profiler> profMap = new TreeMap<String, Profiler>();
+    count = in.readInt();
+    for(int a = 0; a<count; a++)
+    {
+      String jobName = in.readUTF();
+      byte data[] = new byte[in.readInt()];
+      in.readFully(data);
+      profMap.put(jobName, new Profiler(data));
+    }
+
+    return new ResultsFile(workPlan, metadata, profMap);
+  }
+}
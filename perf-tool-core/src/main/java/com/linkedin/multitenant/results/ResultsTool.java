@@ -0,0 +1,166 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.linkedin.multitenant.exporter.DataExporter;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.profiler.Profiler;
+
+/**
+ * Works on results files written by RunExperiment, without running the experiment again.<br>
+ * Command line options:<br>
+ * -in=PATH: Results file to read. Repeat the option to merge several files, e.g. of separate runs.<br>
+ * -from=SECONDS, -to=SECONDS: Keep only the epochs in this time range.<br>
+ * -out=PATH: Write the merged and sliced results to a new results file.<br>
+ * -export: Export the results with the exporter of the work plan of the first file.<br>
+ * -exporterClass=CLASS: Export the results with the given exporter instead.<br>
+ * -set=NAME=VALUE: Override a property of the work plan for the exporter, e.g. the output path.<br>
+ * Exit code is 0 on success, 1 if writing or exporting fails, 2 if the input is invalid.
+ */
+public class ResultsTool
+{
+  public static final String CMD_IN             = "in";
+  public static final String CMD_FROM           = "from";
+  public static final String CMD_TO             = "to";
+  public static final String CMD_OUT            = "out";
+  public static final String CMD_EXPORT         = "export";
+  public static final String CMD_EXPORTER_CLASS = "exporterClass";
+  public static final String CMD_SET            = "set";
+
+  public static final int EXIT_OK = 0;
+  public static final int EXIT_ERROR = 1;
+  public static final int EXIT_INVALID = 2;
+
+  private static final String USAGE = "Usage: ResultsTool -in=PATH [-in=PATH...] [-from=SECONDS] [-to=SECONDS] [-out=PATH] " +
+      "[-export] [-exporterClass=CLASS] [-set=NAME=VALUE...]";
+
+  /**
+   * Run the tool with the given command line options.
+   * @return Exit code
+   */
+  public static int run(String args[], PrintStream out)
+  {
+    List<String> inputs = new ArrayList<String>();
+    Map<String, String> overrides = new HashMap<String, String>();
+    int from = 0;
+    int to = Integer.MAX_VALUE;
+    String outPath = null;
+    boolean export = false;
+
+    try
+    {
+      for(int a = 0; a<args.length; a++)
+      {
+        if(args[a].equals("-" + CMD_EXPORT))
+        {
+          export = true;
+          continue;
+        }
+
+        int eq = args[a].indexOf('=');
+        if(!args[a].startsWith("-") || eq < 0)
+        {
+          out.println("Unknown option: " + args[a]);
+          return EXIT_INVALID;
+        }
+
+        String name = args[a].substring(1, eq);
+        String value = args[a].substring(eq + 1);
+        if(name.equals(CMD_IN))
+          inputs.add(value);
+        else if(name.equals(CMD_FROM))
+          from = Integer.parseInt(value);
+        else if(name.equals(CMD_TO))
+          to = Integer.parseInt(value);
+        else if(name.equals(CMD_OUT))
+          outPath = value;
+        else if(name.equals(CMD_EXPORTER_CLASS))
+        {
+          overrides.put(RunExperiment.FLAG_WORK_EXPORTER_CLASS, value);
+          export = true;
+        }
+        else if(name.equals(CMD_SET) && value.indexOf('=') > 0)
+          overrides.put(value.substring(0, value.indexOf('=')), value.substring(value.indexOf('=') + 1));
+        else
+        {
+          out.println("Unknown option: " + args[a]);
+          return EXIT_INVALID;
+        }
+      }
+    }
+    catch(NumberFormatException e)
+    {
+      out.println("Invalid number: " + e.getMessage());
+      return EXIT_INVALID;
+    }
+
+    if(inputs.isEmpty())
+    {
+      out.println(USAGE);
+      return EXIT_INVALID;
+    }
+
+    ResultsFile results;
+    try
+    {
+      results = ResultsFile.read(inputs.get(0));
+      for(int a = 1; a<inputs.size(); a++)
+        results.add(ResultsFile.read(inputs.get(a)));
+      if(from != 0 || to != Integer.MAX_VALUE)
+        results.slice(from, to);
+    }
+    catch(Exception e)
+    {
+      out.println("Cannot read results: " + e.getMessage());
+      return EXIT_INVALID;
+    }
+
+    for(Map.Entry<String, String> entry : results.getMetadata().entrySet())
+      out.println(entry.getKey() + "=" + entry.getValue());
+    for(Map.Entry<String, Profiler> job : results.getProfilers().entrySet())
+      out.println("Job=" + job.getKey() + " epochs=" + job.getValue().getReadResults().getArr().length);
+
+    try
+    {
+      if(outPath != null)
+      {
+        results.write(outPath);
+        out.println("Wrote results to " + outPath);
+      }
+
+      if(export)
+      {
+        Map<String, String> properties = new HashMap<String, String>(results.parseWorkPlan().getProperties());
+        properties.putAll(overrides);
+
+        DataExporter exp = RunExperiment.createExporter(properties);
+        exp.init(properties, results.getProfilers());
+        exp.export();
+        out.println("Exported results with " + exp.getClass().getName());
+      }
+    }
+    catch(Exception e)
+    {
+      out.println("Error: " + e.getMessage());
+      return EXIT_ERROR;
+    }
+
+    return EXIT_OK;
+  }
+
+  public static void main(String[] args)
+  {
+    System.exit(run(args, System.out));
+  }
+}
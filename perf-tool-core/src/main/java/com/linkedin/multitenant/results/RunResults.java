@@ -0,0 +1,347 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.profiler.CompleteResult;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+/**
+ * Epoch results of a run per job and operation type, for tools that work on the results after the run.<br>
+ * Results can be read from results files of RunExperiment, from the output of FileExporter or from the files of
+ * StreamingExporter in csv format.
+ * Epochs of the same job, operation type and start time are merged, so the files of all machines of a run
+ * can be loaded into one instance.
+ */
+public class RunResults
+{
+  private static final Pattern EPOCH_PATTERN = Pattern.compile(
+      "^\\[(\\d+), (\\d+)\\) SuccOpt=(\\d+) TotalLatInNanoSec=(\\d+) FailedOpt=(\\d+)(?: Items=(\\d+))? Lat-Opt\\s*(.*)$");
+
+  //section titles of Profiler.toString
+  private static final Map<String, QueryType> SECTIONS = new HashMap<String, QueryType>();
+  static
+  {
+    SECTIONS.put("Insert:", QueryType.INSERT);
+    SECTIONS.put("Read:", QueryType.READ);
+    SECTIONS.put("Delete:", QueryType.DELETE);
+    SECTIONS.put("Update:", QueryType.UPDATE);
+    SECTIONS.put("Scan:", QueryType.SCAN);
+    SECTIONS.put("MultiGet:", QueryType.MULTI_GET);
+    SECTIONS.put("ReadModifyWrite:", QueryType.READ_MODIFY_WRITE);
+  }
+
+  private static final String CSV_HEADER_START = "machine,job,op,";
+
+  //job name -> operation type -> epochs sorted by start time
+  private Map<String, Map<QueryType, List<EpochResult>>> _jobs;
+
+  public RunResults()
+  {
+    _jobs = new LinkedHashMap<String, Map<QueryType, List<EpochResult>>>();
+  }
+
+  /**
+   * @param profMap Mapping of jobs to their profilers
+   * @return Results with copies of the epochs of the profilers
+   */
+  public static RunResults fromProfilers(Map<String, Profiler> profMap)
+  {
+    RunResults result = new RunResults();
+    for(Map.Entry<String, Profiler> job : profMap.entrySet())
+    {
+      Profiler prof = job.getValue();
+      result.addAll(job.getKey(), QueryType.INSERT, prof.getInsertResults());
+      result.addAll(job.getKey(), QueryType.READ, prof.getReadResults());
+      result.addAll(job.getKey(), QueryType.DELETE, prof.getDeleteResults());
+      result.addAll(job.getKey(), QueryType.UPDATE, prof.getUpdateResults());
+      result.addAll(job.getKey(), QueryType.SCAN, prof.getScanResults());
+      result.addAll(job.getKey(), QueryType.MULTI_GET, prof.getMultiGetResults());
+      result.addAll(job.getKey(), QueryType.READ_MODIFY_WRITE, prof.getReadModifyWriteResults());
+    }
+    return result;
+  }
+
+  private void addAll(String jobName, QueryType type, CompleteResult result)
+  {
+    EpochResult arr[] = result.getArr();
+    for(int a = 0; a<arr.length; a++)
+      addEpoch(jobName, type, arr[a]);
+  }
+
+  /**
+   * Read a results file. Binary files written by ResultsFile are read with their profilers, files starting with the
+   * csv header of StreamingExporter are read as csv, others as the output of FileExporter.
+   * @param path Path of the file
+   */
+  public static RunResults load(String path) throws IOException
+  {
+    BufferedInputStream bin = new BufferedInputStream(new FileInputStream(path));
+    if(ResultsFile.isResultsFile(bin))
+    {
+      try
+      {
+        return fromProfilers(ResultsFile.read(bin).getProfilers());
+      }
+      catch(IOException e)
+      {
+        throw e;
+      }
+      catch(Exception e)
+      {
+        throw new IOException("Cannot read " + path, e);
+      }
+      finally
+      {
+        bin.close();
+      }
+    }
+
+    BufferedReader in = new BufferedReader(new InputStreamReader(bin, "UTF-8"));
+    try
+    {
+      in.mark(1024);
+      String first = in.readLine();
+      in.reset();
+
+      if(first != null && first.startsWith(CSV_HEADER_START))
+        return loadStreamCsv(in);
+      else
+        return loadText(in);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Read the output of FileExporter, i.e. Profiler.toString after a Job=name line for each job.
+   */
+  public static RunResults loadText(BufferedReader in) throws IOException
+  {
+    RunResults result = new RunResults();
+    String jobName = null;
+    QueryType type = null;
+
+    String line;
+    while((line = in.readLine()) != null)
+    {
+      if(line.startsWith("Job="))
+      {
+        jobName = line.substring(4);
+        type = null;
+      }
+      else if(SECTIONS.containsKey(line))
+      {
+        type = SECTIONS.get(line);
+      }
+      else if(line.startsWith("[") && jobName != null && type != null)
+      {
+        Matcher m = EPOCH_PATTERN.matcher(line);
+        if(!m.matches())
+          throw new IOException("Invalid epoch line: " + line);
+
+        Map<Integer, Integer> histogram = new HashMap<Integer, Integer>();
+        int histogramMax = parseHistogram(m.group(7), histogram);
+        long items = m.group(6) == null ? 0 : Long.parseLong(m.group(6));
+        result.addEpoch(jobName, type, new EpochResult(histogramMax, Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)),
+            Integer.parseInt(m.group(3)), Integer.parseInt(m.group(5)), Long.parseLong(m.group(4)), items, histogram));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Read a csv file of StreamingExporter. Lines of different machines are merged.
+   */
+  public static RunResults loadStreamCsv(BufferedReader in) throws IOException
+  {
+    RunResults result = new RunResults();
+
+    String line;
+    while((line = in.readLine()) != null)
+    {
+      if(line.length() == 0 || line.startsWith(CSV_HEADER_START))
+        continue;
+
+      List<String> cols = splitCsv(line);
+      if(cols.size() != 12)
+        throw new IOException("Invalid csv line: " + line);
+
+      int start = Integer.parseInt(cols.get(3));
+      int end = Integer.parseInt(cols.get(4));
+      int succOpt = Integer.parseInt(cols.get(5));
+      //the average and items per second are rounded, the totals are recovered from them
+      long totalLat = Math.round(Double.parseDouble(cols.get(7)) * 1000000 * succOpt);
+      long items = Math.round(Double.parseDouble(cols.get(10)) * (end - start));
+
+      Map<Integer, Integer> histogram = new HashMap<Integer, Integer>();
+      int histogramMax = parseHistogram(cols.get(11), histogram);
+      result.addEpoch(cols.get(1), QueryType.valueOf(cols.get(2)), new EpochResult(histogramMax, start, end,
+          succOpt, Integer.parseInt(cols.get(6)), totalLat, items, histogram));
+    }
+
+    return result;
+  }
+
+  /**
+   * Parse space separated latency:count pairs.
+   * @return Largest latency in the histogram
+   */
+  private static int parseHistogram(String str, Map<Integer, Integer> histogram)
+  {
+    int max = 0;
+    String parts[] = str.trim().split(" ");
+    for(int a = 0; a<parts.length; a++)
+    {
+      if(parts[a].length() == 0)
+        continue;
+
+      int colon = parts[a].indexOf(':');
+      int lat = Integer.parseInt(parts[a].substring(0, colon));
+      int cnt = Integer.parseInt(parts[a].substring(colon + 1));
+      max = Math.max(max, lat);
+      if(cnt > 0)
+        histogram.put(lat, cnt);
+    }
+    return max;
+  }
+
+  private static List<String> splitCsv(String line)
+  {
+    List<String> result = new ArrayList<String>();
+    StringBuilder cur = new StringBuilder();
+    boolean quoted = false;
+    for(int a = 0; a<line.length(); a++)
+    {
+      char c = line.charAt(a);
+      if(quoted)
+      {
+        if(c == '"' && a + 1 < line.length() && line.charAt(a + 1) == '"')
+        {
+          cur.append('"');
+          a++;
+        }
+        else if(c == '"')
+        {
+          quoted = false;
+        }
+        else
+        {
+          cur.append(c);
+        }
+      }
+      else if(c == '"')
+      {
+        quoted = true;
+      }
+      else if(c == ',')
+      {
+        result.add(cur.toString());
+        cur.setLength(0);
+      }
+      else
+      {
+        cur.append(c);
+      }
+    }
+    result.add(cur.toString());
+    return result;
+  }
+
+  /**
+   * Add an epoch. It is merged into the epoch with the same start time if there is one. The given epoch is not kept.
+   */
+  public void addEpoch(String jobName, QueryType type, EpochResult epoch)
+  {
+    Map<QueryType, List<EpochResult>> job = _jobs.get(jobName);
+    if(job == null)
+    {
+      job = new LinkedHashMap<QueryType, List<EpochResult>>();
+      _jobs.put(jobName, job);
+    }
+    List<EpochResult> list = job.get(type);
+    if(list == null)
+    {
+      list = new ArrayList<EpochResult>();
+      job.put(type, list);
+    }
+
+    int index = 0;
+    while(index < list.size() && list.get(index).getStartTime() < epoch.getStartTime())
+      index++;
+
+    EpochResult target;
+    if(index < list.size() && list.get(index).getStartTime() == epoch.getStartTime())
+    {
+      target = list.get(index);
+    }
+    else
+    {
+      target = new EpochResult(epoch.getHistogramMax(), epoch.getStartTime(), epoch.getEndTime());
+      list.add(index, target);
+    }
+    target.add(epoch);
+  }
+
+  /**
+   * Merge the epochs of another run into this one, e.g. the results of another machine.
+   */
+  public void add(RunResults rhs)
+  {
+    for(Map.Entry<String, Map<QueryType, List<EpochResult>>> job : rhs._jobs.entrySet())
+    {
+      for(Map.Entry<QueryType, List<EpochResult>> op : job.getValue().entrySet())
+      {
+        for(EpochResult epoch : op.getValue())
+          addEpoch(job.getKey(), op.getKey(), epoch);
+      }
+    }
+  }
+
+  public Set<String> getJobNames()
+  {
+    return _jobs.keySet();
+  }
+
+  /**
+   * @return Operation types of the job that have epochs
+   */
+  public Set<QueryType> getTypes(String jobName)
+  {
+    return _jobs.get(jobName).keySet();
+  }
+
+  /**
+   * @return Epochs of the job and operation type sorted by start time. Empty if there is none.
+   */
+  public List<EpochResult> getEpochs(String jobName, QueryType type)
+  {
+    Map<QueryType, List<EpochResult>> job = _jobs.get(jobName);
+    if(job == null || job.get(type) == null)
+      return new ArrayList<EpochResult>();
+    return job.get(type);
+  }
+}
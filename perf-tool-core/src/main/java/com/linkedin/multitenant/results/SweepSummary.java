@@ -0,0 +1,90 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+/**
+ * Table with a line per sweep point, job and operation type, with the throughput and latencies over the whole point.
+ * Operation types without any operation are left out.
+ */
+public class SweepSummary
+{
+  private List<String> _lines;
+
+  public SweepSummary()
+  {
+    _lines = new ArrayList<String>();
+    _lines.add(String.format(Locale.ROOT, "%-40s %-20s %-18s %10s %10s %10s %8s %8s %8s",
+        "point", "job", "op", "succOpt", "failedOpt", "opt/s", "avgMs", "p95Ms", "p99Ms"));
+  }
+
+  /**
+   * Add the results of a sweep point.
+   * @param label Label of the point
+   * @param profMap Merged profiler of each job at this point
+   */
+  public void add(String label, Map<String, Profiler> profMap)
+  {
+    RunResults run = RunResults.fromProfilers(profMap);
+    for(String jobName : run.getJobNames())
+    {
+      for(QueryType type : run.getTypes(jobName))
+      {
+        List<EpochResult> epochs = run.getEpochs(jobName, type);
+        EpochResult whole = merge(epochs);
+        if(whole == null || whole.getSuccOpt() + whole.getFailedOpt() == 0)
+          continue;
+
+        List<Object> summary = whole.summarize();
+        int duration = whole.getEndTime() - whole.getStartTime();
+        _lines.add(String.format(Locale.ROOT, "%-40s %-20s %-18s %10d %10d %10.1f %8.3f %8d %8d",
+            label, jobName, type, whole.getSuccOpt(), whole.getFailedOpt(),
+            duration <= 0 ? 0.0 : ((double) whole.getSuccOpt()) / duration, (Double) summary.get(2),
+            (Integer) summary.get(3), (Integer) summary.get(4)));
+      }
+    }
+  }
+
+  /**
+   * @return One epoch spanning the given epochs, or null if there is none
+   */
+  private static EpochResult merge(List<EpochResult> epochs)
+  {
+    if(epochs.isEmpty())
+      return null;
+
+    int histogramMax = 0;
+    for(EpochResult epoch : epochs)
+      histogramMax = Math.max(histogramMax, epoch.getHistogramMax());
+
+    EpochResult result = new EpochResult(histogramMax, epochs.get(0).getStartTime(), epochs.get(epochs.size() - 1).getEndTime());
+    for(EpochResult epoch : epochs)
+      result.add(epoch);
+    return result;
+  }
+
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int a = 0; a<_lines.size(); a++)
+    {
+      if(a > 0)
+        sb.append("\n");
+      sb.append(_lines.get(a));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+/**
+ * Welch's t-test of two samples with possibly different variances.
+ */
+public class WelchTest
+{
+  private static final int MAX_ITERATIONS = 300;
+  private static final double EPSILON = 1e-14;
+
+  private WelchTest()
+  {
+  }
+
+  public static double mean(double x[])
+  {
+    double sum = 0;
+    for(int a = 0; a<x.length; a++)
+      sum += x[a];
+    return sum / x.length;
+  }
+
+  /**
+   * @return Unbiased sample variance
+   */
+  public static double variance(double x[])
+  {
+    double m = mean(x);
+    double sum = 0;
+    for(int a = 0; a<x.length; a++)
+      sum += (x[a] - m) * (x[a] - m);
+    return sum / (x.length - 1);
+  }
+
+  /**
+   * @return Two-sided p-value of the hypothesis that the two samples have the same mean.
+   * NaN if a sample has less than 2 values.
+   */
+  public static double pValue(double x[], double y[])
+  {
+    if(x.length < 2 || y.length < 2)
+      return Double.NaN;
+
+    double vx = variance(x) / x.length;
+    double vy = variance(y) / y.length;
+    double diff = mean(x) - mean(y);
+    if(vx + vy == 0)
+      return diff == 0 ? 1 : 0;
+
+    double t = diff / Math.sqrt(vx + vy);
+    double df = (vx + vy) * (vx + vy) / (vx * vx / (x.length - 1) + vy * vy / (y.length - 1));
+    return incompleteBeta(df / (df + t * t), df / 2, 0.5);
+  }
+
+  /**
+   * @return Regularized incomplete beta function I_x(a, b)
+   */
+  public static double incompleteBeta(double x, double a, double b)
+  {
+    if(x <= 0)
+      return 0;
+    if(x >= 1)
+      return 1;
+
+    double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x));
+    //the continued fraction converges fast on this side, use the symmetry otherwise
+    if(x < (a + 1) / (a + b + 2))
+      return front * betaFraction(x, a, b) / a;
+    else
+      return 1 - front * betaFraction(1 - x, b, a) / b;
+  }
+
+  /**
+   * Continued fraction of the incomplete beta function with the modified Lentz method.
+   */
+  private static double betaFraction(double x, double a, double b)
+  {
+    double tiny = 1e-300;
+    double c = 1;
+    double d = 1 - (a + b) * x / (a + 1);
+    if(Math.abs(d) < tiny)
+      d = tiny;
+    d = 1 / d;
+    double h = d;
+
+    for(int m = 1; m<=MAX_ITERATIONS; m++)
+    {
+      int m2 = 2 * m;
+
+      //even step
+      double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+      d = 1 + aa * d;
+      if(Math.abs(d) < tiny)
+        d = tiny;
+      c = 1 + aa / c;
+      if(Math.abs(c) < tiny)
+        c = tiny;
+      d = 1 / d;
+      h *= d * c;
+
+      //odd step
+      aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+      d = 1 + aa * d;
+      if(Math.abs(d) < tiny)
+        d = tiny;
+      c = 1 + aa / c;
+      if(Math.abs(c) < tiny)
+        c = tiny;
+      d = 1 / d;
+      double del = d * c;
+      h *= del;
+
+      if(Math.abs(del - 1) < EPSILON)
+        break;
+    }
+
+    return h;
+  }
+
+  /**
+   * @return Logarithm of the gamma function with the Lanczos approximation, for positive x
+   */
+  public static double logGamma(double x)
+  {
+    double coef[] = {76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155,
+        0.1208650973866179e-2, -0.5395239384953e-5};
+
+    double y = x;
+    double tmp = x + 5.5;
+    tmp -= (x + 0.5) * Math.log(tmp);
+    double ser = 1.000000000190015;
+    for(int a = 0; a<coef.length; a++)
+    {
+      y++;
+      ser += coef[a] / y;
+    }
+    return -tmp + Math.log(2.5066282746310005 * ser / x);
+  }
+}
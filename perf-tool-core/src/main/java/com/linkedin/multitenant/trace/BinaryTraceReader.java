@@ -0,0 +1,170 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+/**
+ * Reads a binary trace captured by mt-proxy through memory mapped windows of the file. The layout is described in
+ * TraceFormat.<br>
+ * Writes are replayed as updates and merges as read-modify-writes. If a database name is given, records of other
+ * databases are skipped.
+ */
+public class BinaryTraceReader implements TraceReader
+{
+  private static final Logger _LOG = Logger.getLogger(BinaryTraceReader.class);
+
+  private static final long WINDOW_SIZE = 1L << 30;
+
+  private String _path;
+  private RandomAccessFile _file;
+  private FileChannel _channel;
+  private long _fileSize;
+  private long _windowStart;
+  private MappedByteBuffer _buf;
+  private byte _db[];
+
+  /**
+   * @param file Trace file
+   * @param db Name of the database to replay. Null to replay all databases.
+   */
+  public BinaryTraceReader(File file, String db) throws IOException
+  {
+    _path = file.getPath();
+    _file = new RandomAccessFile(file, "r");
+    _channel = _file.getChannel();
+    _fileSize = _channel.size();
+    _db = db == null ? null : db.getBytes("UTF-8");
+
+    map(0);
+    if(_buf.remaining() < TraceFormat.HEADER_SIZE || _buf.getInt() != TraceFormat.MAGIC)
+    {
+      close();
+      throw new IOException(_path + " is not a binary trace");
+    }
+    short version = _buf.getShort();
+    if(version != TraceFormat.VERSION)
+    {
+      close();
+      throw new IOException(_path + " has unsupported trace version " + version);
+    }
+  }
+
+  /**
+   * @param file File to check
+   * @return True if the file starts with the magic number of binary traces
+   */
+  public static boolean isBinaryTrace(File file) throws IOException
+  {
+    RandomAccessFile f = new RandomAccessFile(file, "r");
+    try
+    {
+      return f.length() >= 4 && f.readInt() == TraceFormat.MAGIC;
+    }
+    finally
+    {
+      f.close();
+    }
+  }
+
+  private void map(long start) throws IOException
+  {
+    _windowStart = start;
+    _buf = _channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, _fileSize - start));
+  }
+
+  @Override
+  public boolean next(TraceRecord rec) throws IOException
+  {
+    while(true)
+    {
+      //records never span two windows, the next window starts at the beginning of the record
+      if(_buf.remaining() < TraceFormat.MAX_RECORD_SIZE && _windowStart + _buf.limit() < _fileSize)
+        map(_windowStart + _buf.position());
+
+      if(!_buf.hasRemaining())
+        return false;
+
+      try
+      {
+        rec.setTimestamp(_buf.getLong());
+        byte op = _buf.get();
+
+        int dbLength = _buf.getShort() & 0xffff;
+        boolean match = matchDb(dbLength);
+        _buf.position(_buf.position() + dbLength);
+
+        int keyLength = _buf.getShort() & 0xffff;
+        _buf.get(rec.prepareKey(keyLength), 0, keyLength);
+        rec.setValueSize(_buf.getInt());
+
+        if(op == TraceFormat.OP_WRITE)
+          rec.setType(QueryType.UPDATE);
+        else if(op == TraceFormat.OP_READ)
+          rec.setType(QueryType.READ);
+        else if(op == TraceFormat.OP_DELETE)
+          rec.setType(QueryType.DELETE);
+        else if(op == TraceFormat.OP_SCAN)
+          rec.setType(QueryType.SCAN);
+        else if(op == TraceFormat.OP_MULTI_GET)
+          rec.setType(QueryType.MULTI_GET);
+        else if(op == TraceFormat.OP_MERGE)
+          rec.setType(QueryType.READ_MODIFY_WRITE);
+        else
+          throw new IOException(_path + ": unknown operation " + op + " at offset " + (_windowStart + _buf.position()));
+
+        if(match)
+          return true;
+      }
+      catch(BufferUnderflowException e)
+      {
+        _LOG.warn(_path + " ends with a truncated record");
+        return false;
+      }
+    }
+  }
+
+  private boolean matchDb(int dbLength)
+  {
+    if(_db == null)
+      return true;
+    if(_db.length != dbLength)
+      return false;
+
+    int pos = _buf.position();
+    for(int a = 0; a<dbLength; a++)
+    {
+      if(_buf.get(pos + a) != _db[a])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void close()
+  {
+    try
+    {
+      _channel.close();
+      _file.close();
+    }
+    catch(Exception e)
+    {
+      _LOG.warn("Failed to close trace file " + _path, e);
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+/**
+ * Reads a text trace through memory mapped windows of the file. Each line is an operation:<br>
+ * <code>timestamp op key [valueSize]</code><br>
+ * Fields are separated by spaces or tabs. Timestamp is in milliseconds and may have up to three fractional digits.
+ * Op is the case insensitive name of a QueryType, e.g. insert, read, delete or update. Value size defaults to 0.
+ * Empty lines and lines starting with # are skipped.
+ */
+public class TextTraceReader implements TraceReader
+{
+  private static final Logger _LOG = Logger.getLogger(TextTraceReader.class);
+
+  //size of a mapped window. Lines never span two windows, the next window starts at the beginning of the line.
+  private static final long WINDOW_SIZE = 1L << 30;
+
+  private static final QueryType TYPES[] = QueryType.values();
+  private static final byte TYPE_NAMES[][] = new byte[TYPES.length][];
+  static
+  {
+    for(int a = 0; a<TYPES.length; a++)
+      TYPE_NAMES[a] = TYPES[a].toString().toLowerCase().getBytes();
+  }
+
+  private String _path;
+  private RandomAccessFile _file;
+  private FileChannel _channel;
+  private long _fileSize;
+  private long _windowStart;
+  private MappedByteBuffer _buf;
+  private int _pos;
+  private long _lineNo;
+
+  public TextTraceReader(File file) throws IOException
+  {
+    _path = file.getPath();
+    _file = new RandomAccessFile(file, "r");
+    _channel = _file.getChannel();
+    _fileSize = _channel.size();
+    _lineNo = 0;
+    map(0);
+  }
+
+  private void map(long start) throws IOException
+  {
+    _windowStart = start;
+    _buf = _channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, _fileSize - start));
+    _pos = 0;
+  }
+
+  @Override
+  public boolean next(TraceRecord rec) throws IOException
+  {
+    while(true)
+    {
+      int limit = _buf.limit();
+      int lineEnd = _pos;
+      while(lineEnd < limit && _buf.get(lineEnd) != '\n')
+        lineEnd++;
+
+      if(lineEnd >= limit)
+      {
+        if(_windowStart + limit < _fileSize)
+        {
+          if(_pos == 0)
+            throw new IOException(_path + ": line " + (_lineNo + 1) + " is longer than a mapped window");
+
+          map(_windowStart + _pos);
+          continue;
+        }
+        else if(_pos >= limit)
+        {
+          return false;
+        }
+      }
+
+      int start = _pos;
+      _pos = lineEnd + 1;
+      _lineNo++;
+
+      if(parse(start, lineEnd, rec))
+        return true;
+    }
+  }
+
+  private int skipSpace(int pos, int end)
+  {
+    while(pos < end)
+    {
+      byte b = _buf.get(pos);
+      if(b != ' ' && b != '\t' && b != '\r')
+        break;
+      pos++;
+    }
+    return pos;
+  }
+
+  private int tokenEnd(int pos, int end)
+  {
+    while(pos < end)
+    {
+      byte b = _buf.get(pos);
+      if(b == ' ' || b == '\t' || b == '\r')
+        break;
+      pos++;
+    }
+    return pos;
+  }
+
+  private boolean parse(int start, int end, TraceRecord rec) throws IOException
+  {
+    int pos = skipSpace(start, end);
+    if(pos == end || _buf.get(pos) == '#')
+      return false;
+
+    //timestamp in ms with optional fraction, kept in microseconds
+    int tokEnd = tokenEnd(pos, end);
+    long ts = 0;
+    int fraction = -1;
+    for(int a = pos; a<tokEnd; a++)
+    {
+      byte b = _buf.get(a);
+      if(b == '.' && fraction == -1)
+      {
+        fraction = 0;
+      }
+      else if(b >= '0' && b <= '9')
+      {
+        if(fraction == -1)
+        {
+          ts = ts * 10 + (b - '0');
+        }
+        else if(fraction < 3)
+        {
+          ts = ts * 10 + (b - '0');
+          fraction++;
+        }
+      }
+      else
+      {
+        throw malformed("timestamp");
+      }
+    }
+    if(tokEnd == pos)
+      throw malformed("timestamp");
+    for(int a = Math.max(fraction, 0); a<3; a++)
+      ts *= 10;
+    rec.setTimestamp(ts);
+
+    //operation
+    pos = skipSpace(tokEnd, end);
+    tokEnd = tokenEnd(pos, end);
+    rec.setType(parseType(pos, tokEnd));
+
+    //key
+    pos = skipSpace(tokEnd, end);
+    tokEnd = tokenEnd(pos, end);
+    if(tokEnd == pos)
+      throw malformed("key");
+    byte key[] = rec.prepareKey(tokEnd - pos);
+    for(int a = pos; a<tokEnd; a++)
+      key[a - pos] = _buf.get(a);
+
+    //optional value size
+    pos = skipSpace(tokEnd, end);
+    tokEnd = tokenEnd(pos, end);
+    int valueSize = 0;
+    for(int a = pos; a<tokEnd; a++)
+    {
+      byte b = _buf.get(a);
+      if(b < '0' || b > '9')
+        throw malformed("value size");
+      valueSize = valueSize * 10 + (b - '0');
+    }
+    rec.setValueSize(valueSize);
+
+    return true;
+  }
+
+  private QueryType parseType(int pos, int end) throws IOException
+  {
+    int len = end - pos;
+    for(int t = 0; t<TYPES.length; t++)
+    {
+      byte name[] = TYPE_NAMES[t];
+      if(TYPES[t] == QueryType.NA || name.length != len)
+        continue;
+
+      boolean match = true;
+      for(int a = 0; a<len && match; a++)
+      {
+        byte b = _buf.get(pos + a);
+        if(b >= 'A' && b <= 'Z')
+          b = (byte) (b + ('a' - 'A'));
+        match = (b == name[a]);
+      }
+
+      if(match)
+        return TYPES[t];
+    }
+
+    throw malformed("operation");
+  }
+
+  private IOException malformed(String field)
+  {
+    return new IOException(_path + ": malformed " + field + " at line " + _lineNo);
+  }
+
+  @Override
+  public void close()
+  {
+    try
+    {
+      _channel.close();
+      _file.close();
+    }
+    catch(Exception e)
+    {
+      _LOG.warn("Failed to close trace file " + _path, e);
+    }
+  }
+}
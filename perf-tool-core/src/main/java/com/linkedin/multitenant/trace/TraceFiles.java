@@ -0,0 +1,91 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Opens trace files, detecting their format from the first bytes.
+ */
+public class TraceFiles
+{
+  /**
+   * Reads the given files one after the other, e.g. the rotated files of a capture.
+   */
+  private static class ChainedTraceReader implements TraceReader
+  {
+    private File _files[];
+    private String _db;
+    private int _index;
+    private TraceReader _current;
+
+    private ChainedTraceReader(File files[], String db) throws IOException
+    {
+      _files = files;
+      _db = db;
+      _index = 0;
+      _current = open(_files[0], _db);
+    }
+
+    @Override
+    public boolean next(TraceRecord rec) throws IOException
+    {
+      while(!_current.next(rec))
+      {
+        if(_index == _files.length - 1)
+          return false;
+
+        _current.close();
+        _index++;
+        _current = open(_files[_index], _db);
+      }
+
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+      _current.close();
+    }
+  }
+
+  /**
+   * Open a single trace file. Binary traces are recognized by their magic number, anything else is read as text.
+   * @param file Trace file
+   * @param db Name of the database to replay from a binary trace. Null for all. Text traces have no database.
+   * @return Reader of the file
+   */
+  public static TraceReader open(File file, String db) throws IOException
+  {
+    if(BinaryTraceReader.isBinaryTrace(file))
+      return new BinaryTraceReader(file, db);
+    else
+      return new TextTraceReader(file);
+  }
+
+  /**
+   * Open a comma separated list of trace files that are read in the given order.
+   * @param paths Comma separated paths
+   * @param db Name of the database to replay from binary traces. Null for all.
+   * @return Reader of all files
+   */
+  public static TraceReader open(String paths, String db) throws IOException
+  {
+    String parts[] = paths.split(",");
+    File files[] = new File[parts.length];
+    for(int a = 0; a<parts.length; a++)
+      files[a] = new File(parts[a].trim());
+
+    if(files.length == 1)
+      return open(files[0], db);
+    else
+      return new ChainedTraceReader(files, db);
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+/**
+ * Layout of the binary traces that mt-proxy captures and BinaryTraceReader replays. Both sides use these constants, so a
+ * change of the layout must bump VERSION.<br>
+ * All numbers are big endian.<br>
+ * header: magic int 0x4D545452 ("MTTR"), version short (1)<br>
+ * record: timestamp long (microseconds since epoch), op byte (1=write, 2=read, 3=delete, 4=scan, 5=multi-get, 6=merge),
+ * db length short, db bytes, key length short, key bytes (UTF-8), value length int (limit for scans)<br>
+ * The key of a multi-get record is its keys separated by KEY_SEPARATOR and its value length is the number of keys.
+ * Lengths are unsigned shorts, so db names and keys longer than MAX_FIELD_LENGTH bytes cannot be stored.
+ */
+public class TraceFormat
+{
+  public static final int MAGIC = 0x4D545452;
+  public static final short VERSION = 1;
+  public static final int HEADER_SIZE = 4 + 2;
+
+  public static final byte OP_WRITE = 1;
+  public static final byte OP_READ = 2;
+  public static final byte OP_DELETE = 3;
+  public static final byte OP_SCAN = 4;
+  public static final byte OP_MULTI_GET = 5;
+  public static final byte OP_MERGE = 6;
+
+  public static final byte KEY_SEPARATOR = '\n';
+  public static final int MAX_FIELD_LENGTH = 0xffff;
+
+  //timestamp, op, db length, key length and value length of a record
+  public static final int RECORD_OVERHEAD = 8 + 1 + 2 + 2 + 4;
+  public static final int MAX_RECORD_SIZE = RECORD_OVERHEAD + MAX_FIELD_LENGTH + MAX_FIELD_LENGTH;
+
+  private TraceFormat()
+  {
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import java.io.IOException;
+
+/**
+ * Sequential reader of a trace file.
+ */
+public interface TraceReader
+{
+  /**
+   * Read the next operation into the given record.
+   * @param rec Record to fill
+   * @return True if a record is read. False at the end of the trace.
+   * @throws IOException if the trace cannot be read or is malformed
+   */
+  public boolean next(TraceRecord rec) throws IOException;
+
+  /**
+   * Release the file.
+   */
+  public void close();
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+/**
+ * A single operation of a trace. Instances are reused by the readers, so the key buffer is only valid until the next read.
+ */
+public class TraceRecord
+{
+  //separates the keys of a multi-get record
+  public static final byte KEY_SEPARATOR = TraceFormat.KEY_SEPARATOR;
+
+  //timestamp in microseconds
+  protected long _timestamp;
+  protected QueryType _type;
+  protected byte _key[];
+  protected int _keyLength;
+  protected int _valueSize;
+
+  public TraceRecord()
+  {
+    _key = new byte[64];
+    _keyLength = 0;
+    _type = QueryType.NA;
+  }
+
+  public long getTimestamp()
+  {
+    return _timestamp;
+  }
+
+  public void setTimestamp(long timestamp)
+  {
+    _timestamp = timestamp;
+  }
+
+  public QueryType getType()
+  {
+    return _type;
+  }
+
+  public void setType(QueryType type)
+  {
+    _type = type;
+  }
+
+  /**
+   * @return Buffer holding the key in its first getKeyLength() bytes
+   */
+  public byte[] getKeyBuffer()
+  {
+    return _key;
+  }
+
+  public int getKeyLength()
+  {
+    return _keyLength;
+  }
+
+  /**
+   * Make sure the key buffer can hold the given number of bytes and set the key length.
+   * @param length Key length
+   * @return Key buffer to be filled
+   */
+  public byte[] prepareKey(int length)
+  {
+    if(_key.length < length)
+      _key = new byte[Math.max(length, _key.length * 2)];
+    _keyLength = length;
+    return _key;
+  }
+
+  public int getValueSize()
+  {
+    return _valueSize;
+  }
+
+  public void setValueSize(int valueSize)
+  {
+    _valueSize = valueSize;
+  }
+
+  /**
+   * @return FNV-1a hash of the key bytes. Used to partition the trace amongst workers.
+   */
+  public long keyHash()
+  {
+    long h = 0xCBF29CE484222325L;
+    for(int a = 0; a<_keyLength; a++)
+    {
+      h ^= (_key[a] & 0xff);
+      h *= 1099511628211L;
+    }
+    return h;
+  }
+}
@@ -12,19 +12,23 @@ import java.util.Random;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.multitenant.common.KeyBuilder;
+import com.linkedin.multitenant.common.MergeOperator;
 import com.linkedin.multitenant.common.Query;
 import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueSource;
 import com.linkedin.multitenant.main.RunExperiment;
-import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.FastRandom;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
-import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
+import com.yahoo.ycsb.generator.FastLatestGenerator;
+import com.yahoo.ycsb.generator.FastScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.FastZipfianGenerator;
+import com.yahoo.ycsb.generator.ShiftingHotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
-import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
-import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
 import com.yahoo.ycsb.generator.UpdatedUniformIntegerGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
 
 public class CoreWorkload implements Workload
 {
@@ -32,33 +36,62 @@ public class CoreWorkload implements Workload
   public static final String FLAG_JOB_READ_RATE               = "job.readRate";
   public static final String FLAG_JOB_DELETE_RATE             = "job.deleteRate";
   public static final String FLAG_JOB_UPDATE_RATE             = "job.updateRate";
+  public static final String FLAG_JOB_SCAN_RATE               = "job.scanRate";
+  public static final String FLAG_JOB_SCAN_LENGTH             = "job.scanLength";
+  public static final String FLAG_JOB_SCAN_LENGTH_DISTRIBUTION = "job.scanLength.dist";
+  public static final String FLAG_JOB_MULTIGET_RATE           = "job.multiGetRate";
+  public static final String FLAG_JOB_MULTIGET_KEYS           = "job.multiGetKeys";
+  public static final String FLAG_JOB_MULTIGET_KEYS_DISTRIBUTION = "job.multiGetKeys.dist";
+  public static final String FLAG_JOB_RMW_RATE                = "job.readModifyWriteRate";
+  public static final String FLAG_JOB_RMW_OPERATOR            = "job.readModifyWrite.operator";
   public static final String FLAG_JOB_QUERY_DISTRIBUTION      = "job.queryDist";
   public static final String FLAG_JOB_HOTSPOT_SETFRAC         = "job.queryDist.hotSpot.setFrac";
   public static final String FLAG_JOB_HOTSPOT_OPNFRAC         = "job.queryDist.hotSpot.optFrac";
+  public static final String FLAG_JOB_HOTSPOT_SHIFT_PERIOD    = "job.queryDist.hotSpot.shiftPeriod";
+  public static final String FLAG_JOB_HOTSPOT_SHIFT_STEP      = "job.queryDist.hotSpot.shiftStep";
+  public static final String FLAG_JOB_ZIPFIAN_CONSTANT        = "job.queryDist.zipfian.constant";
   public static final String FLAG_JOB_VALUE_SIZE_DISTRIBUTION = "job.valueSize.dist";
   public static final String FLAG_JOB_VALUE_SIZE              = "job.valueSize";
   public static final String FLAG_JOB_VALUE_SIZE_MIN          = "job.valueSize.min";
+  public static final String FLAG_JOB_KEY_FORMAT              = "job.keyFormat";
+  public static final String FLAG_JOB_VALUE_HEADER            = ValueSource.FLAG_JOB_VALUE_HEADER;
+  public static final String FLAG_JOB_VALUE_CONTENT           = ValueSource.FLAG_JOB_VALUE_CONTENT;
+  public static final String FLAG_JOB_VALUE_CONTENT_RATIO     = ValueSource.FLAG_JOB_VALUE_CONTENT_RATIO;
+  public static final String FLAG_JOB_VERIFY                  = ValueSource.FLAG_JOB_VERIFY;
+  public static final String FLAG_WORK_VALUE_SLAB_SIZE        = ValueSource.FLAG_WORK_VALUE_SLAB_SIZE;
+  public static final String FLAG_WORK_VALUE_SLAB_OFFHEAP     = ValueSource.FLAG_WORK_VALUE_SLAB_OFFHEAP;
+  public static final String FLAG_WORK_RANDOM_SEED            = "work.randomSeed";
 
-  public static final String CONST_QUERY_INSERT = "in";
-  public static final String CONST_QUERY_READ = "re";
-  public static final String CONST_QUERY_DELETE = "de";
-  public static final String CONST_QUERY_UPDATE = "up";
   public static final String CONST_DIST_UNIFORM = "uniform";
   public static final String CONST_DIST_ZIPFIAN = "zipfian";
   public static final String CONST_DIST_LATEST = "latest";
   public static final String CONST_DIST_HOTSPOT = "hotspot";
   public static final String CONST_DIST_CONSTANT = "constant";
+  public static final String CONST_KEY_DECIMAL = "decimal";
+  public static final String CONST_KEY_FIXED = "fixed";
 
   private static final Logger _LOG = Logger.getLogger(CoreWorkload.class);
 
   protected int _id;
-  protected DiscreteGenerator _operationGen;
+  protected OperationChooser _operationGen;
   protected IntegerGenerator _loadInsertKeyGen;
   protected IntegerGenerator _transactionKeyGen;
   protected IntegerGenerator _transactionInsertKeyGen;
   protected IntegerGenerator _valueGen;
+  protected IntegerGenerator _scanLengthGen;
+  protected IntegerGenerator _multiGetKeysGen;
   protected Random _ranGen;
   protected int _rowsResponsible;
+  protected KeyBuilder _keyBuilder;
+  //one builder per key of a multi-get, since a builder reuses its buffers
+  protected KeyBuilder _multiGetKeyBuilders[];
+  protected byte _multiGetKeys[][];
+  protected MergeOperator _mergeOperator;
+  //operand of counter read-modify-writes, always 1
+  protected byte _counterOperand[];
+  protected ValueSource _valueSource;
+  //query instance reused for every generated operation
+  protected Query _query;
 
   public int getRowsResponsible()
   {
@@ -104,11 +137,14 @@ public class CoreWorkload implements Workload
     }
 
     //set operation distributions
-    _operationGen = new DiscreteGenerator();
+    _operationGen = new OperationChooser();
     float insertRate;
     float readRate;
     float deleteRate;
     float updateRate;
+    float scanRate;
+    float multiGetRate;
+    float rmwRate;
     temp = jobProperties.get(FLAG_JOB_INSERT_RATE);
     if(temp == null)
     {
@@ -157,34 +193,79 @@ public class CoreWorkload implements Workload
       _LOG.debug("Update rate for job " + jobName + " is set to " + updateRate);
     }
 
-    //normalize operation rate values
-    float sum = 0;
-    if(readRate > 0)
-      sum += readRate;
-    if(insertRate > 0)
-      sum += insertRate;
-    if(deleteRate > 0)
-      sum += deleteRate;
-    if(updateRate > 0)
-      sum += updateRate;
+    temp = jobProperties.get(FLAG_JOB_SCAN_RATE);
+    if(temp == null)
+    {
+      scanRate = 0;
+      _LOG.debug("Scan rate for job " + jobName + " is not given. Assigned 0 by default");
+    }
+    else
+    {
+      scanRate = Float.parseFloat(temp);
+      _LOG.debug("Scan rate for job " + jobName + " is set to " + scanRate);
+    }
+
+    temp = jobProperties.get(FLAG_JOB_MULTIGET_RATE);
+    if(temp == null)
+    {
+      multiGetRate = 0;
+      _LOG.debug("Multi-get rate for job " + jobName + " is not given. Assigned 0 by default");
+    }
+    else
+    {
+      multiGetRate = Float.parseFloat(temp);
+      _LOG.debug("Multi-get rate for job " + jobName + " is set to " + multiGetRate);
+    }
+
+    temp = jobProperties.get(FLAG_JOB_RMW_RATE);
+    if(temp == null)
+    {
+      rmwRate = 0;
+      _LOG.debug("Read-modify-write rate for job " + jobName + " is not given. Assigned 0 by default");
+    }
+    else
+    {
+      rmwRate = Float.parseFloat(temp);
+      _LOG.debug("Read-modify-write rate for job " + jobName + " is set to " + rmwRate);
+    }
 
-    if(readRate == 0 && insertRate == 0 && deleteRate == 0 && updateRate == 0)
+    //operation chooser normalizes the rates itself
+    if(readRate <= 0 && insertRate <= 0 && deleteRate <= 0 && updateRate <= 0 && scanRate <= 0 && multiGetRate <= 0
+        && rmwRate <= 0)
     {
-      _operationGen.addValue(0.25, CONST_QUERY_INSERT);
-      _operationGen.addValue(0.25, CONST_QUERY_READ);
-      _operationGen.addValue(0.25, CONST_QUERY_DELETE);
-      _operationGen.addValue(0.25, CONST_QUERY_UPDATE);
+      _operationGen.addOperation(QueryType.INSERT, 0.25);
+      _operationGen.addOperation(QueryType.READ, 0.25);
+      _operationGen.addOperation(QueryType.DELETE, 0.25);
+      _operationGen.addOperation(QueryType.UPDATE, 0.25);
     }
     else
     {
-      if(readRate > 0)
-        _operationGen.addValue(readRate/sum, CONST_QUERY_READ);
-      if(insertRate > 0)
-        _operationGen.addValue(insertRate/sum, CONST_QUERY_INSERT);
-      if(deleteRate > 0)
-        _operationGen.addValue(deleteRate/sum, CONST_QUERY_DELETE);
-      if(updateRate > 0)
-        _operationGen.addValue(updateRate/sum, CONST_QUERY_UPDATE);
+      _operationGen.addOperation(QueryType.READ, readRate);
+      _operationGen.addOperation(QueryType.INSERT, insertRate);
+      _operationGen.addOperation(QueryType.DELETE, deleteRate);
+      _operationGen.addOperation(QueryType.UPDATE, updateRate);
+      _operationGen.addOperation(QueryType.SCAN, scanRate);
+      _operationGen.addOperation(QueryType.MULTI_GET, multiGetRate);
+      _operationGen.addOperation(QueryType.READ_MODIFY_WRITE, rmwRate);
+    }
+    _operationGen.build();
+
+    //set zipfian constant used by zipfian and latest distributions
+    double zipfianConstant;
+    temp = jobProperties.get(FLAG_JOB_ZIPFIAN_CONSTANT);
+    if(temp == null)
+    {
+      zipfianConstant = ZipfianGenerator.ZIPFIAN_CONSTANT;
+    }
+    else
+    {
+      zipfianConstant = Double.parseDouble(temp);
+      if(zipfianConstant <= 0 || zipfianConstant >= 1)
+      {
+        _LOG.error("Zipfian constant for job " + jobName + " must be in (0, 1): " + zipfianConstant);
+        return WorkloadResult.FAIL;
+      }
+      _LOG.debug("Zipfian constant for job " + jobName + " is set to " + zipfianConstant);
     }
 
     //set query distribution. possible options are uniform, zipfian, latest, hotspot
@@ -204,11 +285,11 @@ public class CoreWorkload implements Workload
       }
       else if(temp.equals(CONST_DIST_ZIPFIAN))
       {
-        _transactionKeyGen = new ScrambledZipfianGenerator(_rowsResponsible);
+        _transactionKeyGen = new FastScrambledZipfianGenerator(0, _rowsResponsible - 1, zipfianConstant);
       }
       else if(temp.equals(CONST_DIST_LATEST))
       {
-        _transactionKeyGen = new SkewedLatestGenerator((CounterGenerator) _transactionInsertKeyGen);
+        _transactionKeyGen = new FastLatestGenerator((CounterGenerator) _transactionInsertKeyGen, zipfianConstant);
       }
       else if(temp.equals(CONST_DIST_HOTSPOT))
       {
@@ -239,7 +320,26 @@ public class CoreWorkload implements Workload
           _LOG.debug("Operation fraction for hotspot is set to " + opnFrac);
         }
 
-        _transactionKeyGen = new HotspotIntegerGenerator(0, _rowsResponsible-1, setFrac, opnFrac);
+        //hot set moves by shiftStep of the key space every shiftPeriod seconds, and on hotSpot changes in the timeline
+        double shiftPeriod = 0;
+        in = jobProperties.get(FLAG_JOB_HOTSPOT_SHIFT_PERIOD);
+        if(in != null)
+          shiftPeriod = Double.parseDouble(in);
+        double shiftStep = setFrac;
+        in = jobProperties.get(FLAG_JOB_HOTSPOT_SHIFT_STEP);
+        if(in != null)
+          shiftStep = Double.parseDouble(in);
+        _LOG.debug("Hot set shifts by " + shiftStep + " every " + shiftPeriod + " seconds");
+
+        try
+        {
+          _transactionKeyGen = new ShiftingHotspotIntegerGenerator(0, _rowsResponsible-1, setFrac, opnFrac, shiftPeriod, shiftStep);
+        }
+        catch(IllegalArgumentException e)
+        {
+          _LOG.error("Hotspot distribution for job " + jobName + " is invalid: " + e.getMessage());
+          return WorkloadResult.FAIL;
+        }
       }
       else
       {
@@ -291,7 +391,7 @@ public class CoreWorkload implements Workload
       }
       else if(temp.equals(CONST_DIST_ZIPFIAN))
       {
-        _valueGen = new ScrambledZipfianGenerator(valSizeMin, valSize);
+        _valueGen = new FastScrambledZipfianGenerator(valSizeMin, valSize, ZipfianGenerator.ZIPFIAN_CONSTANT);
       }
       else
       {
@@ -301,8 +401,142 @@ public class CoreWorkload implements Workload
     }
     _LOG.debug("Value size distibution for job " + jobName + " is set to " + temp);
 
-    //init random generator
-    _ranGen = new Random(_id);
+    //set scan length distribution. Scans read between 1 and the given number of keys
+    int scanLength = 100;
+    temp = jobProperties.get(FLAG_JOB_SCAN_LENGTH);
+    if(temp != null)
+      scanLength = Integer.parseInt(temp);
+    if(scanLength < 1)
+    {
+      _LOG.error("Scan length for job " + jobName + " must be positive: " + scanLength);
+      return WorkloadResult.FAIL;
+    }
+
+    temp = jobProperties.get(FLAG_JOB_SCAN_LENGTH_DISTRIBUTION);
+    if(temp == null)
+      temp = CONST_DIST_UNIFORM;
+    temp = temp.toLowerCase();
+    if(temp.equals(CONST_DIST_CONSTANT))
+    {
+      _scanLengthGen = new ConstantIntegerGenerator(scanLength);
+    }
+    else if(temp.equals(CONST_DIST_UNIFORM))
+    {
+      _scanLengthGen = new UniformIntegerGenerator(1, scanLength);
+    }
+    else if(temp.equals(CONST_DIST_ZIPFIAN))
+    {
+      _scanLengthGen = new FastZipfianGenerator(1, scanLength, zipfianConstant);
+    }
+    else
+    {
+      _LOG.error("Unkown scan length distribution for job " + jobName + ": " + temp);
+      return WorkloadResult.FAIL;
+    }
+    _LOG.debug("Scan length distribution for job " + jobName + " is set to " + temp + " with maximum " + scanLength);
+
+    //set multi-get key count distribution. Multi-gets read between 1 and the given number of keys
+    int multiGetKeys = 10;
+    temp = jobProperties.get(FLAG_JOB_MULTIGET_KEYS);
+    if(temp != null)
+      multiGetKeys = Integer.parseInt(temp);
+    if(multiGetKeys < 1)
+    {
+      _LOG.error("Multi-get key count for job " + jobName + " must be positive: " + multiGetKeys);
+      return WorkloadResult.FAIL;
+    }
+
+    temp = jobProperties.get(FLAG_JOB_MULTIGET_KEYS_DISTRIBUTION);
+    if(temp == null)
+      temp = CONST_DIST_UNIFORM;
+    temp = temp.toLowerCase();
+    if(temp.equals(CONST_DIST_CONSTANT))
+    {
+      _multiGetKeysGen = new ConstantIntegerGenerator(multiGetKeys);
+    }
+    else if(temp.equals(CONST_DIST_UNIFORM))
+    {
+      _multiGetKeysGen = new UniformIntegerGenerator(1, multiGetKeys);
+    }
+    else if(temp.equals(CONST_DIST_ZIPFIAN))
+    {
+      _multiGetKeysGen = new FastZipfianGenerator(1, multiGetKeys, zipfianConstant);
+    }
+    else
+    {
+      _LOG.error("Unkown multi-get key count distribution for job " + jobName + ": " + temp);
+      return WorkloadResult.FAIL;
+    }
+    _LOG.debug("Multi-get key count distribution for job " + jobName + " is set to " + temp + " with maximum " + multiGetKeys);
+
+    //set read-modify-write operator
+    temp = jobProperties.get(FLAG_JOB_RMW_OPERATOR);
+    try
+    {
+      _mergeOperator = temp == null ? MergeOperator.COUNTER : MergeOperator.parse(temp);
+    }
+    catch(IllegalArgumentException e)
+    {
+      _LOG.error("Unknown read-modify-write operator for job " + jobName + ": " + temp);
+      return WorkloadResult.FAIL;
+    }
+    _counterOperand = new byte[MergeOperator.COUNTER_SIZE];
+    MergeOperator.writeLong(1, _counterOperand, 0);
+    _LOG.debug("Read-modify-write operator for job " + jobName + " is set to " + _mergeOperator);
+
+    //set key format
+    temp = jobProperties.get(FLAG_JOB_KEY_FORMAT);
+    boolean fixedWidth;
+    if(temp == null || temp.toLowerCase().equals(CONST_KEY_DECIMAL))
+    {
+      fixedWidth = false;
+      temp = CONST_KEY_DECIMAL;
+    }
+    else if(temp.toLowerCase().equals(CONST_KEY_FIXED))
+    {
+      fixedWidth = true;
+    }
+    else
+    {
+      _LOG.error("Unknown key format for job " + jobName + ": " + temp);
+      return WorkloadResult.FAIL;
+    }
+    _keyBuilder = new KeyBuilder(_id, fixedWidth);
+    if(multiGetRate > 0)
+    {
+      _multiGetKeyBuilders = new KeyBuilder[multiGetKeys];
+      for(int a = 0; a<multiGetKeys; a++)
+        _multiGetKeyBuilders[a] = new KeyBuilder(_id, fixedWidth);
+      _multiGetKeys = new byte[multiGetKeys][];
+    }
+    _LOG.debug("Key format for job " + jobName + " is set to " + temp);
+    _query = new Query();
+
+    //init random generator. Seed depends on the run seed, job and worker id (hence machine and thread) for reproducible runs
+    long baseSeed = 0;
+    if(workPlanProperties != null && workPlanProperties.get(FLAG_WORK_RANDOM_SEED) != null)
+      baseSeed = Long.parseLong(workPlanProperties.get(FLAG_WORK_RANDOM_SEED));
+    _ranGen = new FastRandom(FastRandom.deriveSeed(baseSeed, jobName, _id));
+    _LOG.debug("Random seed for worker " + _id + " of job " + jobName + " is derived from " + baseSeed);
+
+    //all generators of this worker share its unsynchronized random generator
+    _loadInsertKeyGen.setRandom(_ranGen);
+    _transactionInsertKeyGen.setRandom(_ranGen);
+    _transactionKeyGen.setRandom(_ranGen);
+    _valueGen.setRandom(_ranGen);
+    _scanLengthGen.setRandom(_ranGen);
+    _multiGetKeysGen.setRandom(_ranGen);
+
+    //set value source
+    try
+    {
+      _valueSource = ValueSource.fromProperties(workPlanProperties, jobProperties, _ranGen, _id, valSize);
+    }
+    catch(IllegalArgumentException e)
+    {
+      _LOG.error("Value content for job " + jobName + " is invalid: " + e.getMessage());
+      return WorkloadResult.FAIL;
+    }
 
     return WorkloadResult.OK;
   }
@@ -310,17 +544,15 @@ public class CoreWorkload implements Workload
   @Override
   public Query generateInsertLoad()
   {
-    Query result = new Query();
+    Query result = _query;
 
     //create key part
     long keyNum = _loadInsertKeyGen.nextInt();
-    result.setKey(createKeyString(keyNum));
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
 
     //create value part
-    int valueSize = _valueGen.nextInt();
-    byte[] val = new byte[valueSize];
-    _ranGen.nextBytes(val);
-    result.setValue(val);
+    _valueSource.fill(result, _valueGen.nextInt());
 
     //set query type
     result.setType(QueryType.INSERT);
@@ -331,23 +563,22 @@ public class CoreWorkload implements Workload
   @Override
   public Query generateTransaction()
   {
-    String nextOp = _operationGen.nextString();
-
-    if(nextOp.equals(CONST_QUERY_INSERT))
-    {
-      return generateInsertTransaction();
-    }
-    else if(nextOp.equals(CONST_QUERY_READ))
+    switch(_operationGen.next(_ranGen))
     {
-      return generateReadTransaction();
-    }
-    else if(nextOp.equals(CONST_QUERY_DELETE))
-    {
-      return generateDeleteTransaction();
-    }
-    else
-    {
-      return generateUpdateTransaction();
+      case INSERT:
+        return generateInsertTransaction();
+      case READ:
+        return generateReadTransaction();
+      case DELETE:
+        return generateDeleteTransaction();
+      case SCAN:
+        return generateScanTransaction();
+      case MULTI_GET:
+        return generateMultiGetTransaction();
+      case READ_MODIFY_WRITE:
+        return generateReadModifyWriteTransaction();
+      default:
+        return generateUpdateTransaction();
     }
   }
 
@@ -357,19 +588,34 @@ public class CoreWorkload implements Workload
     return WorkloadResult.OK;
   }
 
+  @Override
+  public void start(long startNs)
+  {
+    if(_transactionKeyGen instanceof ShiftingHotspotIntegerGenerator)
+      ((ShiftingHotspotIntegerGenerator) _transactionKeyGen).start(startNs);
+  }
+
+  @Override
+  public WorkloadResult moveHotSpot(double start)
+  {
+    if(!(_transactionKeyGen instanceof ShiftingHotspotIntegerGenerator))
+      return WorkloadResult.FAIL;
+
+    ((ShiftingHotspotIntegerGenerator) _transactionKeyGen).moveHotSpot(start);
+    return WorkloadResult.OK;
+  }
+
   private Query generateInsertTransaction()
   {
-    Query result = new Query();
+    Query result = _query;
 
     //create key part
     long keyNum = _transactionInsertKeyGen.nextInt();
-    result.setKey(createKeyString(keyNum));
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
 
     //create value part
-    int valueSize = _valueGen.nextInt();
-    byte[] val = new byte[valueSize];
-    _ranGen.nextBytes(val);
-    result.setValue(val);
+    _valueSource.fill(result, _valueGen.nextInt());
 
     //set query type
     result.setType(QueryType.INSERT);
@@ -379,17 +625,15 @@ public class CoreWorkload implements Workload
 
   private Query generateUpdateTransaction()
   {
-    Query result = new Query();
+    Query result = _query;
 
     //create key part
     long keyNum = _transactionKeyGen.nextInt();
-    result.setKey(createKeyString(keyNum));
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
 
     //create value part
-    int valueSize = _valueGen.nextInt();
-    byte[] val = new byte[valueSize];
-    _ranGen.nextBytes(val);
-    result.setValue(val);
+    _valueSource.fill(result, _valueGen.nextInt());
 
     //set query type
     result.setType(QueryType.UPDATE);
@@ -399,11 +643,13 @@ public class CoreWorkload implements Workload
 
   private Query generateReadTransaction()
   {
-    Query result = new Query();
+    Query result = _query;
 
     //create key part
     long keyNum = _transactionKeyGen.nextInt();
-    result.setKey(createKeyString(keyNum));
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
+    result.setValue(null);
 
     //set query type
     result.setType(QueryType.READ);
@@ -413,11 +659,13 @@ public class CoreWorkload implements Workload
 
   private Query generateDeleteTransaction()
   {
-    Query result = new Query();
+    Query result = _query;
 
     //create key part
     long keyNum = _transactionKeyGen.nextInt();
-    result.setKey(createKeyString(keyNum));
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
+    result.setValue(null);
 
     //set query type
     result.setType(QueryType.DELETE);
@@ -425,13 +673,62 @@ public class CoreWorkload implements Workload
     return result;
   }
 
-  private String createKeyString(long keyNum)
+  private Query generateScanTransaction()
+  {
+    Query result = _query;
+
+    //create start key part
+    long keyNum = _transactionKeyGen.nextInt();
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
+    result.setValue(null);
+    result.setScanLength(_scanLengthGen.nextInt());
+
+    //set query type
+    result.setType(QueryType.SCAN);
+
+    return result;
+  }
+
+  private Query generateMultiGetTransaction()
+  {
+    Query result = _query;
+
+    //create key parts. Keys are chosen independently, so a key may repeat
+    int count = _multiGetKeysGen.nextInt();
+    for(int a = 0; a<count; a++)
+    {
+      long keyNum = _transactionKeyGen.nextInt();
+      _multiGetKeys[a] = _multiGetKeyBuilders[a].build(keyNum);
+    }
+    result.setKey(_multiGetKeys[0]);
+    result.setMultiKeys(_multiGetKeys, count);
+    result.setValue(null);
+
+    //set query type
+    result.setType(QueryType.MULTI_GET);
+
+    return result;
+  }
+
+  private Query generateReadModifyWriteTransaction()
   {
-    StringBuilder sb = new StringBuilder();
-    sb.append(Utils.hash(keyNum));
-    sb.append("-");
-    sb.append(_id);
+    Query result = _query;
 
-    return sb.toString();
+    //create key part
+    long keyNum = _transactionKeyGen.nextInt();
+    result.setKey(_keyBuilder.build(keyNum));
+    result.setKeyNum(keyNum);
+
+    //create operand part
+    if(_mergeOperator == MergeOperator.COUNTER)
+      result.setValue(_counterOperand);
+    else
+      _valueSource.fill(result, _valueGen.nextInt());
+
+    //set query type
+    result.setType(QueryType.READ_MODIFY_WRITE);
+
+    return result;
   }
 }
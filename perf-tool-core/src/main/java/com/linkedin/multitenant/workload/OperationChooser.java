@@ -0,0 +1,129 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+/**
+ * Chooses the type of the next operation according to the given weights in O(1) with Vose's alias method.<br>
+ * Add all operations with addOperation, then call build once. After that, next can be called with the worker's
+ * random generator. Weights don't have to sum to 1.
+ */
+public class OperationChooser
+{
+  private List<QueryType> _typeList;
+  private List<Double> _weightList;
+
+  private QueryType _types[];
+  private QueryType _aliases[];
+  private double _prob[];
+
+  public OperationChooser()
+  {
+    _typeList = new ArrayList<QueryType>();
+    _weightList = new ArrayList<Double>();
+  }
+
+  /**
+   * @param type Operation type
+   * @param weight Weight of the operation. Non-positive weights are ignored.
+   */
+  public void addOperation(QueryType type, double weight)
+  {
+    if(weight <= 0)
+      return;
+
+    _typeList.add(type);
+    _weightList.add(weight);
+  }
+
+  /**
+   * Build the alias table from the added operations.
+   * @throws IllegalStateException if no operation with a positive weight is added
+   */
+  public void build()
+  {
+    int n = _typeList.size();
+    if(n == 0)
+      throw new IllegalStateException("No operation is added");
+
+    double sum = 0;
+    for(int a = 0; a<n; a++)
+      sum += _weightList.get(a);
+
+    _types = new QueryType[n];
+    _aliases = new QueryType[n];
+    _prob = new double[n];
+
+    //scaled probabilities, average is 1
+    double scaled[] = new double[n];
+    int small[] = new int[n];
+    int large[] = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for(int a = 0; a<n; a++)
+    {
+      _types[a] = _typeList.get(a);
+      scaled[a] = _weightList.get(a) * n / sum;
+      if(scaled[a] < 1.0)
+        small[smallCount++] = a;
+      else
+        large[largeCount++] = a;
+    }
+
+    while(smallCount > 0 && largeCount > 0)
+    {
+      int s = small[--smallCount];
+      int l = large[--largeCount];
+
+      _prob[s] = scaled[s];
+      _aliases[s] = _types[l];
+
+      scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+      if(scaled[l] < 1.0)
+        small[smallCount++] = l;
+      else
+        large[largeCount++] = l;
+    }
+
+    //remaining ones are 1 up to rounding errors
+    while(largeCount > 0)
+    {
+      int l = large[--largeCount];
+      _prob[l] = 1.0;
+      _aliases[l] = _types[l];
+    }
+    while(smallCount > 0)
+    {
+      int s = small[--smallCount];
+      _prob[s] = 1.0;
+      _aliases[s] = _types[s];
+    }
+  }
+
+  /**
+   * @param ranGen Random generator of the calling worker
+   * @return Type of the next operation
+   */
+  public QueryType next(Random ranGen)
+  {
+    double u = ranGen.nextDouble() * _prob.length;
+    int index = (int) u;
+    if(index == _prob.length)
+      index--;
+
+    if(u - index < _prob[index])
+      return _types[index];
+    else
+      return _aliases[index];
+  }
+}
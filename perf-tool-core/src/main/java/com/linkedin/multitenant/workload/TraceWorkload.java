@@ -0,0 +1,353 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.workload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Constants;
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueSource;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.trace.TraceFiles;
+import com.linkedin.multitenant.trace.TraceReader;
+import com.linkedin.multitenant.trace.TraceRecord;
+import com.yahoo.ycsb.FastRandom;
+
+/**
+ * Replays the operations of a trace file instead of generating synthetic ones.<br>
+ * Every worker of the job reads the whole trace and keeps the records whose key hash maps to its id, so that
+ * all operations on a key are executed by the same worker in trace order. In load mode, the key of every record except
+ * deletes, scans and multi-gets is inserted once, at its first occurrence, as fast as possible. In run mode, records are replayed at their original timing,
+ * a scaled timing or as fast as possible. Both modes return null at the end of the trace.
+ */
+public class TraceWorkload implements Workload
+{
+  public static final String FLAG_JOB_TRACE_FILE  = "job.trace.file";
+  public static final String FLAG_JOB_TRACE_SPEED = "job.trace.speed";
+  public static final String FLAG_JOB_TRACE_DB    = "job.trace.db";
+
+  public static final String CONST_SPEED_ORIGINAL = "original";
+  public static final String CONST_SPEED_MAX = "max";
+
+  private static final Logger _LOG = Logger.getLogger(TraceWorkload.class);
+
+  //keys up to this length are copied into reused exact size buffers
+  private static final int MAX_CACHED_KEY_LENGTH = 256;
+
+  protected int _id;
+  protected int _numberOfWorkers;
+  protected String _jobName;
+  protected String _traceDb;
+  protected TraceReader _reader;
+  protected TraceRecord _record;
+  protected Query _query;
+  protected ValueSource _valueSource;
+  protected int _maxValueSize;
+  protected byte _keyBuffers[][];
+  protected byte _multiKeys[][];
+  //keys inserted so far in load mode
+  protected Set<ByteBuffer> _loadedKeys;
+
+  //replay speed. 0 means as fast as possible
+  protected double _speed;
+  //timestamp of the first record of the trace in microseconds
+  protected long _traceStart;
+  //time that corresponds to the trace start in nanoseconds. -1 until the first transaction
+  protected long _replayStart;
+
+  @Override
+  public WorkloadResult init(int myId, int numberOfWorkers, Map<String, String> workPlanProperties, Map<String, String> jobProperties)
+  {
+    _id = myId;
+    _numberOfWorkers = numberOfWorkers;
+
+    //get job name
+    _jobName = jobProperties.get(RunExperiment.FLAG_JOB_NAME);
+    if(_jobName == null)
+    {
+      _LOG.error("Job name is missing");
+      return WorkloadResult.FAIL;
+    }
+
+    //get replay speed
+    String temp = jobProperties.get(FLAG_JOB_TRACE_SPEED);
+    if(temp == null || temp.toLowerCase().equals(CONST_SPEED_ORIGINAL))
+    {
+      _speed = 1;
+    }
+    else if(temp.toLowerCase().equals(CONST_SPEED_MAX))
+    {
+      _speed = 0;
+    }
+    else
+    {
+      _speed = Double.parseDouble(temp);
+      if(_speed <= 0)
+      {
+        _LOG.error("Trace speed for job " + _jobName + " must be positive: " + temp);
+        return WorkloadResult.FAIL;
+      }
+    }
+    _LOG.debug("Trace speed for job " + _jobName + " is set to " + (_speed == 0 ? CONST_SPEED_MAX : _speed));
+
+    //get maximum value size
+    temp = jobProperties.get(CoreWorkload.FLAG_JOB_VALUE_SIZE);
+    if(temp == null)
+    {
+      _LOG.error("Value size for job " + _jobName + " is not specified.");
+      return WorkloadResult.FAIL;
+    }
+    _maxValueSize = Integer.parseInt(temp);
+
+    //open trace
+    temp = jobProperties.get(FLAG_JOB_TRACE_FILE);
+    if(temp == null)
+    {
+      _LOG.error("Trace file for job " + _jobName + " is not specified.");
+      return WorkloadResult.FAIL;
+    }
+    String tracePaths = temp;
+    _traceDb = jobProperties.get(FLAG_JOB_TRACE_DB);
+    try
+    {
+      //every worker must use the same time origin, which is the first record of the whole trace
+      TraceReader firstReader = openReader(tracePaths);
+      TraceRecord first = new TraceRecord();
+      boolean notEmpty = firstReader.next(first);
+      firstReader.close();
+      if(!notEmpty)
+      {
+        _LOG.error("Trace file " + temp + " for job " + _jobName + " is empty");
+        return WorkloadResult.FAIL;
+      }
+      _traceStart = first.getTimestamp();
+
+      _reader = openReader(tracePaths);
+    }
+    catch(IOException e)
+    {
+      _LOG.error("Cannot open trace file " + temp + " for job " + _jobName, e);
+      return WorkloadResult.FAIL;
+    }
+    _LOG.debug("Thread " + _id + " for job " + _jobName + " replays trace " + temp);
+
+    _record = new TraceRecord();
+    _query = new Query();
+    _keyBuffers = new byte[MAX_CACHED_KEY_LENGTH + 1][];
+    _replayStart = -1;
+
+    //set value source the same way as CoreWorkload
+    long baseSeed = 0;
+    if(workPlanProperties != null)
+    {
+      temp = workPlanProperties.get(CoreWorkload.FLAG_WORK_RANDOM_SEED);
+      if(temp != null)
+        baseSeed = Long.parseLong(temp);
+    }
+    FastRandom ranGen = new FastRandom(FastRandom.deriveSeed(baseSeed, _jobName, _id));
+    try
+    {
+      _valueSource = ValueSource.fromProperties(workPlanProperties, jobProperties, ranGen, _id, _maxValueSize);
+    }
+    catch(IllegalArgumentException e)
+    {
+      _LOG.error("Value content for job " + _jobName + " is invalid: " + e.getMessage());
+      return WorkloadResult.FAIL;
+    }
+
+    return WorkloadResult.OK;
+  }
+
+  protected TraceReader openReader(String tracePaths) throws IOException
+  {
+    return TraceFiles.open(tracePaths, _traceDb);
+  }
+
+  /**
+   * Read the next record of this worker.
+   * @param loadMode True to skip delete, scan and multi-get records, whose keys are not written in load mode
+   * @return False at the end of the trace
+   */
+  protected boolean nextRecord(boolean loadMode)
+  {
+    try
+    {
+      while(_reader.next(_record))
+      {
+        if(loadMode && (_record.getType() == QueryType.DELETE || _record.getType() == QueryType.SCAN
+            || _record.getType() == QueryType.MULTI_GET))
+          continue;
+
+        if(Math.abs(_record.keyHash() % _numberOfWorkers) == _id)
+          return true;
+      }
+    }
+    catch(IOException e)
+    {
+      _LOG.error("Failed to read trace for job " + _jobName, e);
+    }
+
+    return false;
+  }
+
+  protected Query fillQuery(QueryType type)
+  {
+    Query result = _query;
+
+    //create key part
+    int keyLength = _record.getKeyLength();
+    byte key[];
+    if(keyLength <= MAX_CACHED_KEY_LENGTH)
+    {
+      key = _keyBuffers[keyLength];
+      if(key == null)
+      {
+        key = new byte[keyLength];
+        _keyBuffers[keyLength] = key;
+      }
+    }
+    else
+    {
+      key = new byte[keyLength];
+    }
+    System.arraycopy(_record.getKeyBuffer(), 0, key, 0, keyLength);
+    result.setKey(key);
+
+    //create value part
+    if(type == QueryType.INSERT || type == QueryType.UPDATE || type == QueryType.READ_MODIFY_WRITE)
+      _valueSource.fill(result, Math.min(_record.getValueSize(), _maxValueSize));
+    else
+      result.setValue(null);
+
+    //value size field of a scan is its length
+    if(type == QueryType.SCAN)
+      result.setScanLength(Math.max(_record.getValueSize(), 1));
+
+    if(type == QueryType.MULTI_GET)
+      splitKeys(result, key);
+
+    //set query type
+    result.setType(type);
+
+    return result;
+  }
+
+  /**
+   * Split the key of a multi-get record into its keys. The joined key stays as the query key.
+   */
+  protected void splitKeys(Query q, byte joined[])
+  {
+    int count = 1;
+    for(int a = 0; a<joined.length; a++)
+    {
+      if(joined[a] == TraceRecord.KEY_SEPARATOR)
+        count++;
+    }
+
+    if(_multiKeys == null || _multiKeys.length < count)
+      _multiKeys = new byte[count][];
+
+    int start = 0;
+    int index = 0;
+    for(int a = 0; a<=joined.length; a++)
+    {
+      if(a == joined.length || joined[a] == TraceRecord.KEY_SEPARATOR)
+      {
+        _multiKeys[index++] = Arrays.copyOfRange(joined, start, a);
+        start = a + 1;
+      }
+    }
+
+    q.setMultiKeys(_multiKeys, count);
+  }
+
+  @Override
+  public Query generateInsertLoad()
+  {
+    if(_loadedKeys == null)
+      _loadedKeys = new HashSet<ByteBuffer>();
+
+    while(nextRecord(true))
+    {
+      byte key[] = Arrays.copyOf(_record.getKeyBuffer(), _record.getKeyLength());
+      if(_loadedKeys.add(ByteBuffer.wrap(key)))
+        return fillQuery(QueryType.INSERT);
+    }
+
+    _loadedKeys = null;
+    return null;
+  }
+
+  @Override
+  public Query generateTransaction()
+  {
+    //workers start together, so the trace start is aligned to the first call of each worker
+    if(_replayStart == -1)
+      _replayStart = System.nanoTime();
+
+    if(!nextRecord(false))
+      return null;
+
+    if(_speed > 0)
+    {
+      long now = System.nanoTime();
+      long due = _replayStart + (long) ((_record.getTimestamp() - _traceStart) * Constants.THOUSAND / _speed);
+      while(now < due)
+      {
+        LockSupport.parkNanos(due - now);
+        now = System.nanoTime();
+      }
+    }
+
+    return fillQuery(_record.getType());
+  }
+
+  @Override
+  public WorkloadResult close()
+  {
+    if(_reader != null)
+      _reader.close();
+
+    return WorkloadResult.OK;
+  }
+
+  /**
+   * The trace is replayed in its own order, it doesn't change with time.
+   */
+  @Override
+  public void start(long startNs)
+  {
+  }
+
+  /**
+   * Keys come from the trace, so there is no hot spot to move.
+   */
+  @Override
+  public WorkloadResult moveHotSpot(double start)
+  {
+    return WorkloadResult.FAIL;
+  }
+
+  /**
+   * The trace decides how many rows are inserted, load mode runs until generateInsertLoad returns null.
+   */
+  @Override
+  public int getRowsResponsible()
+  {
+    return Integer.MAX_VALUE;
+  }
+}
@@ -31,23 +31,39 @@ public interface Workload
   public abstract WorkloadResult init(int myId, int numberOfWorkers, Map<String, String> workPlanProperties, Map<String, String> jobProperties);
 
   /**
-   * Generate an insert query that is used in the data loading phase.
+   * Generate an insert query that is used in the data loading phase.<br>
+   * Implementations may reuse the same Query instance and key/value buffers in the next call.
    * @return Returns query instance if succeeded. Null otherwise.
    */
   public abstract Query generateInsertLoad();
 
   /**
-   * Generate a transaction chosen randomly amongst read/write/delete if specified before.
+   * Generate a transaction chosen randomly amongst read/write/delete if specified before.<br>
+   * The returned instance may be reused in the next call as in generateInsertLoad.
    * @return Returns query instance if succeeded. Null otherwise.
    */
   public abstract Query generateTransaction();
 
+  /**
+   * Called by the worker before its first query, with the time that its run and its timeline start from.
+   * Workloads whose distribution changes over time should count the time from here instead of from their first query.
+   * @param startNs Start time of the run in System.nanoTime
+   */
+  public abstract void start(long startNs);
+
   /**
    * Close any open connection/file before quitting.
    * @return close result in WorkloadResult type
    */
   public abstract WorkloadResult close();
 
+  /**
+   * Move the hot set of the key distribution, as scheduled by a change in the job's timeline.
+   * @param start Start of the hot set as a fraction of the key space, in [0, 1]
+   * @return OK if the hot set is moved. FAIL if this workload has no movable hot set.
+   */
+  public abstract WorkloadResult moveHotSpot(double start);
+
   /**
    * Return the number of rows that this Workload instances is responsible for.<br>
    * Different Workload implementations may have different assignment techniques to each thread.
@@ -10,32 +10,52 @@ package com.linkedin.multitenant.xml;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Element;
 
+/**
+ * Change in the timeline of a job. It changes the target throughput (to attribute), moves the hot set of a
+ * hotspot key distribution (hotSpot attribute, start of the hot set as a fraction of the key space), or both.
+ * Attributes that are not given are NaN.
+ */
 public class XmlChange implements Comparable<XmlChange>
 {
   private static final Logger _LOG = Logger.getLogger(XmlChange.class);
 
   protected int _time;
   protected double _targetThr;
+  protected double _hotSpot;
 
   public XmlChange(Element headElement) throws Exception
   {
     String at = headElement.getAttribute("at");
     String to = headElement.getAttribute("to");
+    String hotSpot = headElement.getAttribute("hotSpot");
 
     if(at == null || at.equals(""))
     {
       throw new Exception("Changing time is not specified in change element");
     }
-    if(to == null || to.equals(""))
+    if((to == null || to.equals("")) && (hotSpot == null || hotSpot.equals("")))
     {
-      throw new Exception("Target throuhgput is not specified in change element");
+      throw new Exception("Neither target throuhgput nor hot spot is specified in change element");
     }
 
     _time = Integer.parseInt(at);
     _LOG.debug("Changing at: " + _time);
 
-    _targetThr = Double.parseDouble(to);
-    _LOG.debug("Changing to: " + _targetThr);
+    _targetThr = Double.NaN;
+    if(to != null && !to.equals(""))
+    {
+      _targetThr = Double.parseDouble(to);
+      _LOG.debug("Changing to: " + _targetThr);
+    }
+
+    _hotSpot = Double.NaN;
+    if(hotSpot != null && !hotSpot.equals(""))
+    {
+      _hotSpot = Double.parseDouble(hotSpot);
+      if(_hotSpot < 0 || _hotSpot > 1)
+        throw new Exception("Hot spot must be between 0 and 1: " + _hotSpot);
+      _LOG.debug("Moving hot spot to: " + _hotSpot);
+    }
   }
 
   public int getTime()
@@ -48,6 +68,11 @@ public class XmlChange implements Comparable<XmlChange>
     return _targetThr;
   }
 
+  public double getHotSpot()
+  {
+    return _hotSpot;
+  }
+
   public int compareTo(XmlChange rhs)
   {
     if(_time < rhs.getTime())
@@ -64,9 +89,18 @@ public class XmlChange implements Comparable<XmlChange>
 
     sb.append("Change at ");
     sb.append(_time);
-    sb.append(" sec to ");
-    sb.append(_targetThr);
-    sb.append(" opt/sec");
+    sb.append(" sec");
+    if(!Double.isNaN(_targetThr))
+    {
+      sb.append(" to ");
+      sb.append(_targetThr);
+      sb.append(" opt/sec");
+    }
+    if(!Double.isNaN(_hotSpot))
+    {
+      sb.append(" hot spot to ");
+      sb.append(_hotSpot);
+    }
 
     return sb.toString();
   }
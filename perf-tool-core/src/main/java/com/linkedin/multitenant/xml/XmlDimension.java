@@ -0,0 +1,75 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Dimension of a sweep. It sets a property (property attribute) to each of its values (value elements) in turn.
+ * The property is set in the job with the given job.name (job attribute), in all jobs if the job attribute is *,
+ * or in the work plan if there is no job attribute.
+ */
+public class XmlDimension
+{
+  private static final Logger _LOG = Logger.getLogger(XmlDimension.class);
+
+  public static final String ALL_JOBS = "*";
+
+  protected String _property;
+  protected String _job;
+  protected List<String> _values;
+
+  public XmlDimension(Element headElement) throws Exception
+  {
+    _property = headElement.getAttribute("property");
+    if(_property == null || _property.equals(""))
+      throw new Exception("Property is not specified in dimension element");
+
+    _job = headElement.getAttribute("job");
+    if(_job != null && _job.equals(""))
+      _job = null;
+
+    _values = new ArrayList<String>();
+    NodeList tempList = headElement.getElementsByTagName("value");
+    for(int a = 0; a<tempList.getLength(); a++)
+      _values.add(tempList.item(a).getTextContent().trim());
+
+    if(_values.isEmpty())
+      throw new Exception("Dimension of " + _property + " has no value");
+
+    _LOG.debug("Dimension: property=" + _property + " job=" + _job + " values=" + _values);
+  }
+
+  public String getProperty()
+  {
+    return _property;
+  }
+
+  /**
+   * @return Name of the job, * for all jobs, or null for the work plan
+   */
+  public String getJob()
+  {
+    return _job;
+  }
+
+  public List<String> getValues()
+  {
+    return _values;
+  }
+
+  public String toString()
+  {
+    return "Dimension: property=" + _property + (_job == null ? "" : " job=" + _job) + " values=" + _values;
+  }
+}
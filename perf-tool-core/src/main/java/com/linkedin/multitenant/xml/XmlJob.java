@@ -67,6 +67,15 @@ public class XmlJob
     }
   }
 
+  /**
+   * Copy of rhs with its own properties, e.g. to change them for a point of a sweep.
+   */
+  public XmlJob(XmlJob rhs)
+  {
+    _properties = new HashMap<String, String>(rhs._properties);
+    _timeline = new ArrayList<XmlChange>(rhs._timeline);
+  }
+
   public Map<String, String> getProperties()
   {
     return _properties;
@@ -24,11 +24,13 @@ public class XmlWorkPlan
 
   protected Map<String, String> _properties;
   protected List<XmlJob> _jobs;
+  protected List<XmlDimension> _sweep;
 
   public XmlWorkPlan(Element headElement) throws Exception
   {
     _properties = new HashMap<String, String>();
     _jobs = new ArrayList<XmlJob>();
+    _sweep = new ArrayList<XmlDimension>();
 
     NodeList tempList = headElement.getChildNodes();
     for(int a = 0; a<tempList.getLength(); a++)
@@ -62,6 +64,119 @@ public class XmlWorkPlan
       _LOG.debug("processing job-" + a);
       _jobs.add(new XmlJob(childNode));
     }
+
+    tempList = headElement.getElementsByTagName("dimension");
+    _LOG.debug("number of sweep dimensions: " + tempList.getLength());
+    for(int a = 0; a<tempList.getLength(); a++)
+    {
+      XmlDimension dim = new XmlDimension((Element) tempList.item(a));
+      if(dim.getJob() != null && !dim.getJob().equals(XmlDimension.ALL_JOBS) && findJob(dim.getJob()) == null)
+        throw new Exception("Sweep dimension of " + dim.getProperty() + " refers to unknown job " + dim.getJob());
+      _sweep.add(dim);
+    }
+  }
+
+  /**
+   * Copy of rhs with its own properties and jobs, but without the sweep.
+   */
+  protected XmlWorkPlan(XmlWorkPlan rhs)
+  {
+    _properties = new HashMap<String, String>(rhs._properties);
+    _jobs = new ArrayList<XmlJob>();
+    for(int a = 0; a<rhs._jobs.size(); a++)
+      _jobs.add(new XmlJob(rhs._jobs.get(a)));
+    _sweep = new ArrayList<XmlDimension>();
+  }
+
+  private XmlJob findJob(String jobName)
+  {
+    for(int a = 0; a<_jobs.size(); a++)
+    {
+      if(jobName.equals(_jobs.get(a).getProperties().get("job.name")))
+        return _jobs.get(a);
+    }
+    return null;
+  }
+
+  /**
+   * @return Index of the value of each dimension at the given point. The first dimension changes slowest.
+   */
+  private int[] getValueIndexes(int point)
+  {
+    int result[] = new int[_sweep.size()];
+    for(int a = _sweep.size() - 1; a>=0; a--)
+    {
+      int size = _sweep.get(a).getValues().size();
+      result[a] = point % size;
+      point /= size;
+    }
+    return result;
+  }
+
+  public List<XmlDimension> getSweep()
+  {
+    return _sweep;
+  }
+
+  /**
+   * @return Number of points of the sweep, i.e. the product of the number of values of the dimensions.
+   * 1 if there is no sweep.
+   */
+  public int getSweepPointCount()
+  {
+    int result = 1;
+    for(int a = 0; a<_sweep.size(); a++)
+      result *= _sweep.get(a).getValues().size();
+    return result;
+  }
+
+  /**
+   * @param point Index of the point, from 0 to getSweepPointCount() - 1
+   * @return Copy of this work plan with the properties of the point
+   */
+  public XmlWorkPlan getSweepPoint(int point)
+  {
+    XmlWorkPlan result = new XmlWorkPlan(this);
+    int indexes[] = getValueIndexes(point);
+    for(int a = 0; a<_sweep.size(); a++)
+    {
+      XmlDimension dim = _sweep.get(a);
+      String value = dim.getValues().get(indexes[a]);
+      if(dim.getJob() == null)
+      {
+        result._properties.put(dim.getProperty(), value);
+      }
+      else if(dim.getJob().equals(XmlDimension.ALL_JOBS))
+      {
+        for(int b = 0; b<result._jobs.size(); b++)
+          result._jobs.get(b).getProperties().put(dim.getProperty(), value);
+      }
+      else
+      {
+        result.findJob(dim.getJob()).getProperties().put(dim.getProperty(), value);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param point Index of the point, from 0 to getSweepPointCount() - 1
+   * @return Property values of the point, e.g. job.threads=8,job.valueSize=1024. Empty if there is no sweep.
+   */
+  public String getSweepLabel(int point)
+  {
+    StringBuilder sb = new StringBuilder();
+    int indexes[] = getValueIndexes(point);
+    for(int a = 0; a<_sweep.size(); a++)
+    {
+      XmlDimension dim = _sweep.get(a);
+      if(a > 0)
+        sb.append(",");
+      if(dim.getJob() != null && !dim.getJob().equals(XmlDimension.ALL_JOBS))
+        sb.append(dim.getJob()).append(":");
+      sb.append(dim.getProperty()).append("=").append(dim.getValues().get(indexes[a]));
+    }
+    return sb.toString();
   }
 
   public Map<String, String> getProperties()
@@ -96,6 +211,16 @@ public class XmlWorkPlan
       sb.append(_jobs.get(a).toString());
     }
 
+    if(_sweep.size() > 0)
+    {
+      sb.append("\n*****\nSweep:");
+      for(int a = 0; a<_sweep.size(); a++)
+      {
+        sb.append("\n");
+        sb.append(_sweep.get(a).toString());
+      }
+    }
+
     sb.append("\n********");
 
     return sb.toString();
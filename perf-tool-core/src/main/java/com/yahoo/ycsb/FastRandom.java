@@ -0,0 +1,115 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * xoshiro256** generator seeded with SplitMix64.<br>
+ * It extends java.util.Random so it can be passed anywhere a Random is expected, but keeps its state in plain fields
+ * instead of an AtomicLong. An instance must only be used by a single thread.
+ */
+public class FastRandom extends Random
+{
+  private static final long serialVersionUID = 1L;
+
+  //no initializers: Random's constructor calls setSeed before they would run
+  private long m_s0;
+  private long m_s1;
+  private long m_s2;
+  private long m_s3;
+
+  public FastRandom(long seed)
+  {
+    super(seed);
+  }
+
+  /**
+   * SplitMix64 finalizer. Also useful to derive independent seeds from related values.
+   */
+  public static long mix(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Derive a seed from a name and a number. Used to give each worker of a job its own reproducible stream.
+   * @param base Base seed of the run
+   * @param name Name, e.g. job name
+   * @param id Id, e.g. worker id
+   * @return Derived seed
+   */
+  public static long deriveSeed(long base, String name, long id)
+  {
+    long h = Utils.FNV_offset_basis_64;
+    for(int a = 0; a<name.length(); a++)
+    {
+      h ^= name.charAt(a);
+      h *= Utils.FNV_prime_64;
+    }
+
+    return mix(mix(base ^ h) + 0x9E3779B97F4A7C15L * (id + 1));
+  }
+
+  @Override
+  public void setSeed(long seed)
+  {
+    long x = seed;
+    x += 0x9E3779B97F4A7C15L;
+    m_s0 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    m_s1 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    m_s2 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    m_s3 = mix(x);
+  }
+
+  @Override
+  public long nextLong()
+  {
+    long result = Long.rotateLeft(m_s1 * 5, 7) * 9;
+    long t = m_s1 << 17;
+
+    m_s2 ^= m_s0;
+    m_s3 ^= m_s1;
+    m_s1 ^= m_s2;
+    m_s0 ^= m_s3;
+
+    m_s2 ^= t;
+    m_s3 = Long.rotateLeft(m_s3, 45);
+
+    return result;
+  }
+
+  @Override
+  protected int next(int bits)
+  {
+    return (int) (nextLong() >>> (64 - bits));
+  }
+
+  @Override
+  public int nextInt()
+  {
+    return (int) (nextLong() >>> 32);
+  }
+
+  @Override
+  public double nextDouble()
+  {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  @Override
+  public boolean nextBoolean()
+  {
+    return nextLong() < 0;
+  }
+}
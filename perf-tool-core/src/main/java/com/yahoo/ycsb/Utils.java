@@ -32,7 +32,7 @@ public class Utils
     Random ret = rng.get();
     if(ret == null)
     {
-      ret = new Random(rand.nextLong());
+      ret = new FastRandom(rand.nextLong());
       rng.set(ret);
     }
     return ret;
@@ -19,8 +19,6 @@ package com.yahoo.ycsb.generator;
 
 import java.util.Vector;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * Generates a distribution by choosing from a discrete set of values.
  */
@@ -59,7 +57,7 @@ public class DiscreteGenerator extends Generator
       sum+=p._weight;
     }
 
-    double val=Utils.random().nextDouble();
+    double val=random().nextDouble();
 
     for (Pair p : _values)
     {
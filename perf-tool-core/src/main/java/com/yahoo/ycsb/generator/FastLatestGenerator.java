@@ -0,0 +1,61 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+/**
+ * Popularity distribution favoring the items most recently returned by the basis counter, like SkewedLatestGenerator.<br>
+ * The zipfian part is a FastZipfianGenerator, so a growing item count only costs a ZetaCache lookup
+ * instead of a synchronized incremental zeta computation.
+ */
+public class FastLatestGenerator extends IntegerGenerator
+{
+  protected CounterGenerator m_basis;
+  protected FastZipfianGenerator m_zipfian;
+
+  public FastLatestGenerator(CounterGenerator basis)
+  {
+    this(basis, ZipfianGenerator.ZIPFIAN_CONSTANT);
+  }
+
+  /**
+   * @param basis Counter generating the inserted items
+   * @param theta The zipfian constant. Must be in (0, 1).
+   */
+  public FastLatestGenerator(CounterGenerator basis, double theta)
+  {
+    m_basis = basis;
+    m_zipfian = new FastZipfianGenerator(0, Math.max(m_basis.lastInt(), 1) - 1, theta);
+  }
+
+  @Override
+  public int nextInt()
+  {
+    int max = m_basis.lastInt();
+    int ret = max - (int) m_zipfian.nextLong(max);
+    setLastInt(ret);
+    return ret;
+  }
+
+  /**
+   * Also set the random number generator of the underlying zipfian generator.
+   */
+  @Override
+  public void setRandom(Random r)
+  {
+    super.setRandom(r);
+    m_zipfian.setRandom(r);
+  }
+
+  @Override
+  public double mean()
+  {
+    throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
+  }
+}
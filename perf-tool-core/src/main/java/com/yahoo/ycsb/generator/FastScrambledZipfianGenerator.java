@@ -0,0 +1,72 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Scrambled zipfian generator on top of FastZipfianGenerator. Popular items are scattered over [min, max]
+ * by hashing, as in ScrambledZipfianGenerator, but any zipfian constant in (0, 1) can be used without an O(n) setup.
+ */
+public class FastScrambledZipfianGenerator extends IntegerGenerator
+{
+  protected FastZipfianGenerator m_gen;
+  protected long m_min;
+  protected long m_max;
+  protected long m_itemCount;
+
+  public FastScrambledZipfianGenerator(long items)
+  {
+    this(0, items - 1, ZipfianGenerator.ZIPFIAN_CONSTANT);
+  }
+
+  /**
+   * @param min The smallest integer to generate
+   * @param max The largest integer to generate
+   * @param theta The zipfian constant. Must be in (0, 1).
+   */
+  public FastScrambledZipfianGenerator(long min, long max, double theta)
+  {
+    m_min = min;
+    m_max = max;
+    m_itemCount = m_max - m_min + 1;
+    m_gen = new FastZipfianGenerator(0, ScrambledZipfianGenerator.ITEM_COUNT, theta);
+  }
+
+  @Override
+  public int nextInt()
+  {
+    return (int) nextLong();
+  }
+
+  public long nextLong()
+  {
+    long ret = m_gen.nextLong();
+    ret = m_min + Utils.FNVhash64(ret) % m_itemCount;
+    setLastInt((int) ret);
+    return ret;
+  }
+
+  /**
+   * Also set the random number generator of the underlying zipfian generator.
+   */
+  @Override
+  public void setRandom(Random r)
+  {
+    super.setRandom(r);
+    m_gen.setRandom(r);
+  }
+
+  @Override
+  public double mean()
+  {
+    return ((double) (m_min + m_max)) / 2.0;
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+/**
+ * Zipfian generator with the same algorithm as ZipfianGenerator ("Quickly Generating Billion-Record Synthetic Databases",
+ * Jim Gray et al, SIGMOD 1994), but zeta is taken from the shared ZetaCache. Construction and changes of the item count
+ * cost O(1) for any zipfian constant, and there is no synchronized recompute path.<br>
+ * An instance must be used by a single thread. The most popular item is min, then min+1, and so on.
+ */
+public class FastZipfianGenerator extends IntegerGenerator
+{
+  protected long m_base;
+  protected long m_items;
+  protected double m_theta;
+  protected double m_alpha;
+  protected double m_zeta2theta;
+  protected double m_halfPowTheta;
+
+  //values depending on the item count
+  protected long m_countForZeta;
+  protected double m_zetan;
+  protected double m_eta;
+
+  /**
+   * Create a zipfian generator for items in [0, items) with the default zipfian constant.
+   * @param items Number of items
+   */
+  public FastZipfianGenerator(long items)
+  {
+    this(0, items - 1, ZipfianGenerator.ZIPFIAN_CONSTANT);
+  }
+
+  /**
+   * Create a zipfian generator for items between min and max, both inclusive.
+   * @param min The smallest integer to generate
+   * @param max The largest integer to generate
+   * @param theta The zipfian constant. Must be in (0, 1).
+   */
+  public FastZipfianGenerator(long min, long max, double theta)
+  {
+    if(theta <= 0 || theta >= 1)
+      throw new IllegalArgumentException("Zipfian constant must be in (0, 1): " + theta);
+
+    m_base = min;
+    m_items = max - min + 1;
+    m_theta = theta;
+    m_alpha = 1.0 / (1.0 - theta);
+    m_zeta2theta = ZetaCache.zeta(2, theta);
+    m_halfPowTheta = Math.pow(0.5, theta);
+    m_countForZeta = -1;
+  }
+
+  private void setItemCount(long itemcount)
+  {
+    m_countForZeta = itemcount;
+    m_zetan = ZetaCache.zeta(itemcount, m_theta);
+    m_eta = (1 - Math.pow(2.0 / itemcount, 1 - m_theta)) / (1 - m_zeta2theta / m_zetan);
+  }
+
+  /**
+   * Generate the next item among the first itemcount items.
+   * @param itemcount The number of items in the distribution
+   * @return The next item
+   */
+  public long nextLong(long itemcount)
+  {
+    long ret;
+    if(itemcount <= 1)
+    {
+      ret = m_base;
+    }
+    else
+    {
+      if(itemcount != m_countForZeta)
+        setItemCount(itemcount);
+
+      double u = random().nextDouble();
+      double uz = u * m_zetan;
+
+      if(uz < 1.0)
+        ret = m_base;
+      else if(uz < 1.0 + m_halfPowTheta)
+        ret = m_base + 1;
+      else
+        ret = m_base + (long) (itemcount * Math.pow(m_eta * u - m_eta + 1, m_alpha));
+    }
+
+    setLastInt((int) ret);
+    return ret;
+  }
+
+  public long nextLong()
+  {
+    return nextLong(m_items);
+  }
+
+  @Override
+  public int nextInt()
+  {
+    return (int) nextLong(m_items);
+  }
+
+  public double getTheta()
+  {
+    return m_theta;
+  }
+
+  @Override
+  public double mean()
+  {
+    throw new UnsupportedOperationException("Mean of the zipfian distribution is not implemented");
+  }
+}
@@ -17,11 +17,34 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
 /**
  * An expression that generates a sequence of string values, following some distribution (Uniform, Zipfian, Sequential, etc.)
  */
 public abstract class Generator
 {
+  private Random random;
+
+  /**
+   * Use the given random number generator instead of the thread local one of Utils. The generator is not synchronized,
+   * so it must only be used by the thread that owns the given Random.
+   */
+  public void setRandom(Random r)
+  {
+    random=r;
+  }
+
+  /**
+   * Return the random number generator of this generator.
+   */
+  protected Random random()
+  {
+    return (random != null) ? random : Utils.random();
+  }
+
   /**
    * Generate the next string in the distribution.
    */
@@ -18,8 +18,6 @@ package com.yahoo.ycsb.generator;
 
 import java.util.Random;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * Generate integers resembling a hotspot distribution where x% of operations
  * access y% of data items. The parameters specify the bounds for the numbers,
@@ -77,7 +75,7 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
   @Override
   public int nextInt() {
     int value = 0;
-    Random random = Utils.random();
+    Random random = random();
     if (random.nextDouble() < hotOpnFraction) {
       // Choose a value from the hot set.
       value = lowerBound + random.nextInt(hotInterval);
@@ -17,6 +17,8 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.Random;
+
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -127,6 +129,16 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
     }
   }
 
+  /**
+   * Also set the random number generator of the underlying zipfian generator.
+   */
+  @Override
+  public void setRandom(Random r)
+  {
+    super.setRandom(r);
+    gen.setRandom(r);
+  }
+
   /**
    * since the values are scrambled (hopefully uniformly), the mean is simply the middle of the range.
    */
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+/**
+ * Hotspot distribution like HotspotIntegerGenerator, except that the hot set can move over time.<br>
+ * The hot set is a range of hotsetFraction of the items starting at a movable offset, wrapping around the upper bound.
+ * The cold set is the rest of the items. Every period, the hot set moves forward by the given step, so a small
+ * step drifts it slowly and a step of the hot set size jumps it to fresh items. moveHotSpot places it at once,
+ * e.g. from a change in the job's timeline, and restarts the periodic schedule from there.<br>
+ * The periodic moves are counted from the time given to start, so that the generators of all workers that are given
+ * the same run start time move their hot sets together. Until then the hot set stays in place.<br>
+ * Without a period and a move, the numbers are the same as HotspotIntegerGenerator's.
+ * An instance must only be used by a single thread.
+ */
+public class ShiftingHotspotIntegerGenerator extends IntegerGenerator
+{
+  protected int m_lowerBound;
+  protected int m_interval;
+  protected int m_hotInterval;
+  protected int m_coldInterval;
+  protected double m_hotOpnFraction;
+  protected long m_periodNs;
+  protected int m_step;
+
+  //offset of the hot set at m_baseNs. Base time is set by start or moveHotSpot, -1 before
+  protected int m_hotStart;
+  protected long m_baseNs;
+
+  /**
+   * @param lowerBound Lower bound of the distribution
+   * @param upperBound Upper bound of the distribution
+   * @param hotsetFraction Fraction of items in the hot set
+   * @param hotOpnFraction Fraction of operations accessing the hot set
+   * @param periodSec Seconds between two moves of the hot set. 0 or less to keep it in place.
+   * @param stepFraction Distance of each move as a fraction of all items
+   * @throws IllegalArgumentException if a fraction is out of [0, 1] or the bounds are reversed
+   */
+  public ShiftingHotspotIntegerGenerator(int lowerBound, int upperBound, double hotsetFraction, double hotOpnFraction,
+                                         double periodSec, double stepFraction)
+  {
+    if(hotsetFraction < 0 || hotsetFraction > 1)
+      throw new IllegalArgumentException("Hot set fraction out of range: " + hotsetFraction);
+    if(hotOpnFraction < 0 || hotOpnFraction > 1)
+      throw new IllegalArgumentException("Hot operation fraction out of range: " + hotOpnFraction);
+    if(stepFraction < 0 || stepFraction > 1)
+      throw new IllegalArgumentException("Step fraction out of range: " + stepFraction);
+    if(lowerBound > upperBound)
+      throw new IllegalArgumentException("Upper bound " + upperBound + " is smaller than lower bound " + lowerBound);
+
+    m_lowerBound = lowerBound;
+    m_interval = upperBound - lowerBound + 1;
+    m_hotInterval = (int) (m_interval * hotsetFraction);
+    m_coldInterval = m_interval - m_hotInterval;
+    m_hotOpnFraction = hotOpnFraction;
+    m_periodNs = periodSec > 0 ? (long) (periodSec * 1000000000L) : 0;
+    m_step = (int) (m_interval * stepFraction);
+    m_hotStart = 0;
+    m_baseNs = -1;
+  }
+
+  /**
+   * Start the periodic moves of the hot set from the given time.
+   * @param startNs Start time of the run in System.nanoTime
+   */
+  public void start(long startNs)
+  {
+    m_baseNs = startNs;
+  }
+
+  /**
+   * Place the hot set at the given position now. The periodic moves continue from there.
+   * @param startFraction Start of the hot set as a fraction of all items, in [0, 1]
+   */
+  public void moveHotSpot(double startFraction)
+  {
+    m_hotStart = (int) ((long) (m_interval * startFraction) % m_interval);
+    m_baseNs = now();
+  }
+
+  /**
+   * @return Offset of the first hot item from the lower bound at this moment
+   */
+  public int getHotStart()
+  {
+    return currentStart(now());
+  }
+
+  protected long now()
+  {
+    return System.nanoTime();
+  }
+
+  private int currentStart(long nowNs)
+  {
+    if(m_periodNs <= 0 || m_baseNs < 0)
+      return m_hotStart;
+
+    long moves = (nowNs - m_baseNs) / m_periodNs;
+    return (int) ((m_hotStart + (moves % m_interval) * m_step) % m_interval);
+  }
+
+  @Override
+  public int nextInt()
+  {
+    long start = m_periodNs > 0 ? currentStart(now()) : m_hotStart;
+
+    long offset;
+    Random random = random();
+    boolean hot = random.nextDouble() < m_hotOpnFraction;
+    if(m_coldInterval == 0 || (hot && m_hotInterval > 0))
+      offset = start + random.nextInt(m_hotInterval);
+    else
+      offset = start + m_hotInterval + random.nextInt(m_coldInterval);
+
+    int value = m_lowerBound + (int) (offset % m_interval);
+    setLastInt(value);
+    return value;
+  }
+
+  @Override
+  public double mean()
+  {
+    //the hot set visits every item over time
+    return m_lowerBound + (m_interval - 1) / 2.0;
+  }
+}
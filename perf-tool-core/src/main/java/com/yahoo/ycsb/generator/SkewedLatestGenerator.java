@@ -17,6 +17,8 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.Random;
+
 /**
  * Generate a popularity distribution of items, skewed to favor recent items significantly more than older items.
  */
@@ -53,6 +55,16 @@ public class SkewedLatestGenerator extends IntegerGenerator
 
   }
 
+  /**
+   * Also set the random number generator of the underlying zipfian generator.
+   */
+  @Override
+  public void setRandom(Random r)
+  {
+    super.setRandom(r);
+    _zipfian.setRandom(r);
+  }
+
   @Override
   public double mean() {
     throw new UnsupportedOperationException("Can't compute mean of non-stationary distribution!");
@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * Generates integers randomly uniform from an interval.
  */
@@ -42,7 +40,7 @@ public class UniformIntegerGenerator extends IntegerGenerator
   @Override
   public int nextInt()
   {
-    int ret=Utils.random().nextInt(_interval)+_lb;
+    int ret=random().nextInt(_interval)+_lb;
     setLastInt(ret);
 
     return ret;
@@ -1,7 +1,5 @@
 package com.yahoo.ycsb.generator;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * Generates integers uniformly at random from 0 (inclusive) to last inserted integer (inclusive).
  */
@@ -26,7 +24,7 @@ public class UpdatedUniformIntegerGenerator extends IntegerGenerator
   public int nextInt()
   {
     int interval = m_tranInsertGen.lastInt() - m_low + 1;
-    int ret = Utils.random().nextInt(interval) + m_low;
+    int ret = random().nextInt(interval) + m_low;
     setLastInt(ret);
 
     return ret;
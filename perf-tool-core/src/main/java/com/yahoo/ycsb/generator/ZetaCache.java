@@ -0,0 +1,67 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide cache of zeta(n, theta) = sum of 1/i^theta for i in [1, n].<br>
+ * The first EXACT_ITEMS partial sums of each theta are computed once and shared by all threads.
+ * For larger n, the remaining terms are approximated with the Euler-Maclaurin formula, whose error is
+ * far below double precision at this cut-off. Hence zeta of any item count costs O(1) after the first call.
+ */
+public class ZetaCache
+{
+  public static final int EXACT_ITEMS = 1024;
+
+  private static final ConcurrentHashMap<Double, double[]> m_prefixMap = new ConcurrentHashMap<Double, double[]>();
+
+  /**
+   * @param n Number of items
+   * @param theta Zipfian constant
+   * @return zeta(n, theta)
+   */
+  public static double zeta(long n, double theta)
+  {
+    double prefix[] = getPrefix(theta);
+    if(n <= EXACT_ITEMS)
+      return prefix[(int) Math.max(n, 0)];
+
+    //tail of the sum from EXACT_ITEMS+1 to n
+    double a = EXACT_ITEMS + 1;
+    double b = n;
+    double integral;
+    if(theta == 1.0)
+      integral = Math.log(b / a);
+    else
+      integral = (Math.pow(b, 1 - theta) - Math.pow(a, 1 - theta)) / (1 - theta);
+
+    double ends = (Math.pow(a, -theta) + Math.pow(b, -theta)) / 2;
+    double firstDerivative = (-theta * Math.pow(b, -theta - 1) + theta * Math.pow(a, -theta - 1)) / 12;
+
+    return prefix[EXACT_ITEMS] + integral + ends + firstDerivative;
+  }
+
+  private static double[] getPrefix(double theta)
+  {
+    Double key = theta;
+    double result[] = m_prefixMap.get(key);
+    if(result == null)
+    {
+      result = new double[EXACT_ITEMS + 1];
+      for(int a = 1; a<=EXACT_ITEMS; a++)
+        result[a] = result[a-1] + 1 / Math.pow(a, theta);
+
+      double prev[] = m_prefixMap.putIfAbsent(key, result);
+      if(prev != null)
+        result = prev;
+    }
+
+    return result;
+  }
+}
@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import com.yahoo.ycsb.Utils;
-
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than others, according
  * to a zipfian distribution. When you construct an instance of this class, you specify the number of items in the set to draw from, either
@@ -269,7 +267,7 @@ public class ZipfianGenerator extends IntegerGenerator
       }
     }
 
-    double u=Utils.random().nextDouble();
+    double u=random().nextDouble();
     double uz=u*zetan;
 
     if (uz<1.0)
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.yahoo.ycsb.Utils;
+
+public class TestKeyBuilder
+{
+  @Test
+  public void testDecimal()
+  {
+    KeyBuilder kb = new KeyBuilder(7, false);
+    for(long a = 0; a<1000; a++)
+    {
+      String expected = Utils.hash(a) + "-" + 7;
+      Query q = new Query();
+      q.setKey(kb.build(a));
+      Assert.assertEquals(expected, q.getKey());
+    }
+
+    Assert.assertEquals("0-7", new String(kb.encode(0)));
+  }
+
+  @Test
+  public void testFixed()
+  {
+    KeyBuilder kb = new KeyBuilder(12, true);
+    for(long a = 0; a<1000; a++)
+    {
+      byte key[] = kb.build(a);
+      Assert.assertEquals(KeyBuilder.HASH_WIDTH + 3, key.length);
+      Assert.assertEquals(Utils.hash(a), Long.parseLong(new String(key, 0, KeyBuilder.HASH_WIDTH)));
+    }
+
+    Assert.assertEquals("0000000000000000042-12", new String(kb.encode(42)));
+  }
+
+  @Test
+  public void testStringKey()
+  {
+    Query q = new Query();
+    q.setKey("abc-1");
+    Assert.assertArrayEquals("abc-1".getBytes(), q.getKeyBytes());
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMergeOperator
+{
+  @Test
+  public void testAppend()
+  {
+    byte operand[] = {9, 1, 2, 3, 9};
+
+    byte first[] = MergeOperator.APPEND.apply(null, operand, 1, 3);
+    Assert.assertArrayEquals(new byte[] {1, 2, 3}, first);
+
+    byte second[] = MergeOperator.APPEND.apply(first, operand, 0, 2);
+    Assert.assertArrayEquals(new byte[] {1, 2, 3, 9, 1}, second);
+  }
+
+  @Test
+  public void testCounter()
+  {
+    byte one[] = new byte[MergeOperator.COUNTER_SIZE];
+    MergeOperator.writeLong(1, one, 0);
+
+    byte value[] = null;
+    for(int a = 0; a<300; a++)
+      value = MergeOperator.COUNTER.apply(value, one, 0, one.length);
+    Assert.assertEquals(300, MergeOperator.readLong(value, 0, value.length));
+
+    //values of other lengths count as 0
+    value = MergeOperator.COUNTER.apply(new byte[] {1, 2, 3}, one, 0, one.length);
+    Assert.assertEquals(1, MergeOperator.readLong(value, 0, value.length));
+
+    Assert.assertEquals(MergeOperator.COUNTER, MergeOperator.parse("counter"));
+  }
+}
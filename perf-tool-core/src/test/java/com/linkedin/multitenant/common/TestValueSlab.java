@@ -0,0 +1,74 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestValueSlab
+{
+  private static double compressionRatio(ValueSlab slab, int offset, int length)
+  {
+    Deflater deflater = new Deflater();
+    deflater.setInput(slab.getArray(), offset, length);
+    deflater.finish();
+    byte out[] = new byte[length * 2];
+    int compressed = deflater.deflate(out);
+    deflater.end();
+    return (double) length / compressed;
+  }
+
+  @Test
+  public void testRandomIsIncompressible()
+  {
+    ValueSlab slab = ValueSlab.getInstance(64 * 1024, false, ValueSlab.CONTENT_RANDOM, 1);
+    Assert.assertTrue(compressionRatio(slab, 0, 4096) < 1.05);
+  }
+
+  @Test
+  public void testRepeatRatio()
+  {
+    ValueSlab slab = ValueSlab.getInstance(256 * 1024, false, ValueSlab.CONTENT_REPEAT, 4);
+    double ratio = compressionRatio(slab, 1000, 4096);
+    Assert.assertTrue("ratio " + ratio, ratio > 3 && ratio < 5);
+
+    slab = ValueSlab.getInstance(256 * 1024, false, ValueSlab.CONTENT_REPEAT, 1);
+    Assert.assertTrue(compressionRatio(slab, 1000, 4096) < 1.05);
+  }
+
+  @Test
+  public void testText()
+  {
+    ValueSlab slab = ValueSlab.getInstance(256 * 1024, false, ValueSlab.CONTENT_TEXT, 1);
+    double ratio = compressionRatio(slab, 0, 4096);
+    Assert.assertTrue("ratio " + ratio, ratio > 2);
+    for(int a = 0; a<4096; a++)
+    {
+      byte b = slab.getArray()[a];
+      Assert.assertTrue(b == ' ' || b == '.' || b == ',' || (b >= 'a' && b <= 'z'));
+    }
+  }
+
+  @Test
+  public void testOffHeapMatchesHeap()
+  {
+    ValueSlab heap = ValueSlab.getInstance(100 * 1024, false, ValueSlab.CONTENT_REPEAT, 3);
+    ValueSlab direct = ValueSlab.getInstance(100 * 1024, true, ValueSlab.CONTENT_REPEAT, 3);
+    byte copy[] = new byte[heap.getSize()];
+    direct.createView().get(copy);
+    Assert.assertArrayEquals(heap.getArray(), copy);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownContent()
+  {
+    ValueSlab.getInstance(1024, false, "binary", 1);
+  }
+}
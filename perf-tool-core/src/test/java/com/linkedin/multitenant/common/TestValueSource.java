@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestValueSource
+{
+  @Test
+  public void testHeapSlice()
+  {
+    ValueSlab slab = ValueSlab.getInstance(1024, false);
+    ValueSource src = new ValueSource(slab, new Random(1), 1, false, 100);
+
+    Query q = new Query();
+    for(int a = 0; a<100; a++)
+    {
+      src.fill(q, 100);
+      Assert.assertSame(slab.getArray(), q.getValueArray());
+      Assert.assertEquals(100, q.getValueLength());
+      Assert.assertTrue(q.getValueOffset() + q.getValueLength() <= slab.getSize());
+    }
+  }
+
+  @Test
+  public void testOffHeapMatchesHeap()
+  {
+    ValueSlab heap = ValueSlab.getInstance(4096, false);
+    ValueSlab direct = ValueSlab.getInstance(4096, true);
+    ValueSource heapSrc = new ValueSource(heap, new Random(5), 1, false, 64);
+    ValueSource directSrc = new ValueSource(direct, new Random(5), 1, false, 64);
+
+    Query q1 = new Query();
+    Query q2 = new Query();
+    for(int a = 0; a<100; a++)
+    {
+      heapSrc.fill(q1, 64);
+      directSrc.fill(q2, 64);
+      Assert.assertArrayEquals(q1.getValue(), q2.getValue());
+    }
+  }
+
+  @Test
+  public void testHeader()
+  {
+    ValueSlab slab = ValueSlab.getInstance(1024, false);
+    ValueSource src = new ValueSource(slab, new Random(1), 3, true, 32);
+
+    Query q = new Query();
+    src.fill(q, 32);
+    byte first[] = q.getValue().clone();
+    src.fill(q, 32);
+    byte second[] = q.getValue();
+
+    Assert.assertEquals(3, first[3]);
+    Assert.assertEquals(0, first[11]);
+    Assert.assertEquals(1, second[11]);
+
+    //shorter than the header
+    src.fill(q, 2);
+    Assert.assertEquals(2, q.getValue().length);
+  }
+
+  @Test
+  public void testFromProperties()
+  {
+    Map<String, String> work = new HashMap<String, String>();
+    Map<String, String> job = new HashMap<String, String>();
+
+    //defaults point into the shared heap slab
+    ValueSource src = ValueSource.fromProperties(null, job, new Random(1), 1, 100);
+    Query q = new Query();
+    src.fill(q, 100);
+    Assert.assertSame(ValueSlab.getInstance(16 * 1024 * 1024, false).getArray(), q.getValueArray());
+    Assert.assertFalse(ValueSource.isVerified(job));
+
+    //verified values are copied, so that the worker can stamp them. The slab grows to the value size.
+    work.put(ValueSource.FLAG_WORK_VALUE_SLAB_SIZE, "10");
+    job.put(ValueSource.FLAG_JOB_VERIFY, "true");
+    job.put(ValueSource.FLAG_JOB_VALUE_CONTENT, ValueSlab.CONTENT_TEXT);
+    Assert.assertTrue(ValueSource.isVerified(job));
+    src = ValueSource.fromProperties(work, job, new Random(1), 1, 100);
+    src.fill(q, 100);
+    Assert.assertNotSame(ValueSlab.getInstance(100, false, ValueSlab.CONTENT_TEXT, 2).getArray(), q.getValueArray());
+    Assert.assertEquals(100, q.getValueLength());
+
+    job.put(ValueSource.FLAG_JOB_VALUE_CONTENT, "unknown");
+    try
+    {
+      ValueSource.fromProperties(work, job, new Random(1), 1, 100);
+      Assert.fail("Unknown content must be refused");
+    }
+    catch(IllegalArgumentException e)
+    {
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.common;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueVerifier.Result;
+
+public class TestValueVerifier
+{
+  private static final byte KEY[] = "key5".getBytes();
+
+  private static byte[] randomValue(int length)
+  {
+    byte value[] = new byte[length];
+    new Random(3).nextBytes(value);
+    return value;
+  }
+
+  @Test
+  public void testStampedValueVerifies()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    byte value[] = randomValue(100);
+    int version = ver.stamp(KEY, value, 10, 50);
+    ver.acknowledge(5, QueryType.INSERT, version);
+
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, value, 10, 50));
+    Assert.assertEquals(Result.OK, ver.verify(-1, KEY, Arrays.copyOfRange(value, 10, 60), 0, 50));
+  }
+
+  @Test
+  public void testCorrupt()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    byte value[] = randomValue(64);
+    ver.acknowledge(5, QueryType.INSERT, ver.stamp(KEY, value, 0, value.length));
+
+    //another key
+    Assert.assertEquals(Result.CORRUPT, ver.verify(5, "key6".getBytes(), value, 0, value.length));
+    //truncated
+    Assert.assertEquals(Result.CORRUPT, ver.verify(5, KEY, value, 0, value.length - 1));
+    Assert.assertEquals(Result.CORRUPT, ver.verify(5, KEY, value, 0, ValueVerifier.HEADER_SIZE - 1));
+    //flipped payload bit
+    value[40] ^= 1;
+    Assert.assertEquals(Result.CORRUPT, ver.verify(5, KEY, value, 0, value.length));
+  }
+
+  @Test
+  public void testStale()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    byte oldValue[] = randomValue(64);
+    ver.acknowledge(5, QueryType.INSERT, ver.stamp(KEY, oldValue, 0, oldValue.length));
+    byte newValue[] = randomValue(64);
+    ver.acknowledge(5, QueryType.UPDATE, ver.stamp(KEY, newValue, 0, newValue.length));
+
+    Assert.assertEquals(Result.STALE, ver.verify(5, KEY, oldValue, 0, oldValue.length));
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, newValue, 0, newValue.length));
+
+    ver.acknowledge(5, QueryType.DELETE, 0);
+    Assert.assertEquals(Result.STALE, ver.verify(5, KEY, newValue, 0, newValue.length));
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, null, 0, 0));
+  }
+
+  @Test
+  public void testOtherWriterIsNotStale()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    ValueVerifier other = new ValueVerifier(2);
+    byte value[] = randomValue(64);
+    ver.stamp(KEY, value, 0, value.length);
+    ver.acknowledge(5, QueryType.UPDATE, ver.stamp(KEY, value, 0, value.length));
+
+    byte otherValue[] = randomValue(64);
+    other.stamp(KEY, otherValue, 0, otherValue.length);
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, otherValue, 0, otherValue.length));
+
+    ver.acknowledge(5, QueryType.DELETE, 0);
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, otherValue, 0, otherValue.length));
+  }
+
+  @Test
+  public void testMissing()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    byte value[] = randomValue(64);
+    ver.acknowledge(5000, QueryType.INSERT, ver.stamp(KEY, value, 0, value.length));
+
+    Assert.assertEquals(Result.MISSING, ver.verify(5000, KEY, null, 0, 0));
+    Assert.assertEquals(Result.OK, ver.verify(-1, KEY, null, 0, 0));
+  }
+
+  @Test
+  public void testUnverifiable()
+  {
+    ValueVerifier ver = new ValueVerifier(1);
+    byte value[] = randomValue(64);
+    ver.acknowledge(5, QueryType.INSERT, ver.stamp(KEY, value, 0, value.length));
+    ver.acknowledge(5, QueryType.READ_MODIFY_WRITE, 0);
+    Assert.assertEquals(Result.OK, ver.verify(5, KEY, new byte[3], 0, 3));
+
+    //short values are not stamped
+    ver.acknowledge(6, QueryType.INSERT, 0);
+    Assert.assertEquals(Result.OK, ver.verify(6, KEY, new byte[3], 0, 3));
+  }
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.workload.CoreWorkload;
+import com.yahoo.ycsb.FastRandom;
+
+public class TestHedgingDatabase
+{
+  /**
+   * Inner database whose first requests are slow or fail.
+   */
+  public static class FlakyDatabase extends DiscardDatabase
+  {
+    public static final AtomicInteger _CALLS = new AtomicInteger();
+    public static volatile int _slowCalls;
+    public static volatile int _failedCalls;
+    //sleep of each call in milliseconds, overrides _slowCalls if set. Calls after the array sleep _otherCallsMs
+    public static volatile long _callMs[];
+    public static volatile long _otherCallsMs;
+
+    public static void reset()
+    {
+      _CALLS.set(0);
+      _slowCalls = 0;
+      _failedCalls = 0;
+      _callMs = null;
+      _otherCallsMs = 0;
+    }
+
+    private DatabaseResult serve(Query q)
+    {
+      int call = _CALLS.incrementAndGet();
+      if(call <= _failedCalls)
+        return DatabaseResult.FAIL;
+
+      long sleepMs = 0;
+      if(_callMs != null)
+        sleepMs = call <= _callMs.length ? _callMs[call - 1] : _otherCallsMs;
+      else if(call <= _slowCalls)
+        sleepMs = 1000;
+
+      if(sleepMs > 0)
+      {
+        try
+        {
+          Thread.sleep(sleepMs);
+        }
+        catch(InterruptedException e)
+        {
+          return DatabaseResult.FAIL;
+        }
+      }
+
+      q.setResult(q.getKeyBytes(), 0, q.getKeyBytes().length);
+      //the table ends before the requested length
+      q.setScanCount(q.getScanLength() / 2);
+      return DatabaseResult.OK;
+    }
+
+    @Override
+    public DatabaseResult doRead(Query q)
+    {
+      return serve(q);
+    }
+
+    @Override
+    public DatabaseResult doUpdate(Query q)
+    {
+      return serve(q);
+    }
+
+    @Override
+    public DatabaseResult doScan(Query q)
+    {
+      return serve(q);
+    }
+
+    @Override
+    public DatabaseResult doReadModifyWrite(Query q)
+    {
+      return serve(q);
+    }
+  }
+
+  private static HedgingDatabase create(Map<String, String> jobProperties) throws Exception
+  {
+    jobProperties.put(RunExperiment.FLAG_JOB_NAME, "job");
+    jobProperties.put(HedgingDatabase.FLAG_HEDGE_DATABASE_CLASS, FlakyDatabase.class.getName());
+    HedgingDatabase db = new HedgingDatabase();
+    Assert.assertEquals(DatabaseResult.OK, db.init(new HashMap<String, String>(), jobProperties));
+    return db;
+  }
+
+  private static Query query(QueryType type)
+  {
+    Query q = new Query(null, new byte[10], type);
+    q.setKey("key".getBytes());
+    return q;
+  }
+
+  @Test
+  public void testHedgeWins() throws Exception
+  {
+    FlakyDatabase.reset();
+    FlakyDatabase._slowCalls = 1;
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_DELAY, "50");
+    HedgingDatabase db = create(props);
+
+    Query q = query(QueryType.READ);
+    long st = System.nanoTime();
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    long latencyMs = (System.nanoTime() - st) / 1000000;
+
+    Assert.assertTrue("latency " + latencyMs, latencyMs < 500);
+    Assert.assertEquals(2, q.getAttempts());
+    Assert.assertEquals("key", new String(q.getResultArray(), q.getResultOffset(), q.getResultLength()));
+
+    //the next query doesn't wait for the lost hedge
+    q = query(QueryType.READ);
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    Assert.assertEquals(1, q.getAttempts());
+
+    db.close();
+  }
+
+  @Test
+  public void testScanCount() throws Exception
+  {
+    FlakyDatabase.reset();
+    FlakyDatabase._slowCalls = 1;
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_DELAY, "50");
+    HedgingDatabase db = create(props);
+
+    //the rows read by the winning request are reported
+    Query q = query(QueryType.SCAN);
+    q.setScanLength(10);
+    Assert.assertEquals(DatabaseResult.OK, db.doScan(q));
+    Assert.assertEquals(2, q.getAttempts());
+    Assert.assertEquals(5, q.getScanCount());
+
+    db.close();
+  }
+
+  @Test
+  public void testMissingInnerClass() throws Exception
+  {
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(RunExperiment.FLAG_JOB_NAME, "job");
+    Assert.assertEquals(DatabaseResult.FAIL, new HedgingDatabase().init(new HashMap<String, String>(), props));
+  }
+
+  @Test
+  public void testSeededBackoff() throws Exception
+  {
+    Map<String, String> work = new HashMap<String, String>();
+    work.put(CoreWorkload.FLAG_WORK_RANDOM_SEED, "7");
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(RunExperiment.FLAG_JOB_NAME, "seeded");
+    props.put(HedgingDatabase.FLAG_HEDGE_DATABASE_CLASS, FlakyDatabase.class.getName());
+    props.put(HedgingDatabase.FLAG_HEDGE_BACKOFF, "1000");
+    props.put(HedgingDatabase.FLAG_HEDGE_BACKOFF_MAX, "1000");
+
+    //the first and second workers of the job get their own streams, derived from the run seed
+    HedgingDatabase first = new HedgingDatabase();
+    HedgingDatabase second = new HedgingDatabase();
+    Assert.assertEquals(DatabaseResult.OK, first.init(work, props));
+    Assert.assertEquals(DatabaseResult.OK, second.init(work, props));
+
+    FastRandom expectedFirst = new FastRandom(InstanceSeeds.seed(work, HedgingDatabase.class, "seeded", 0));
+    FastRandom expectedSecond = new FastRandom(InstanceSeeds.seed(work, HedgingDatabase.class, "seeded", 1));
+    for(int a = 0; a<10; a++)
+    {
+      Assert.assertEquals((long) (expectedFirst.nextDouble() * 1000) + 1, first.backoff(1));
+      Assert.assertEquals((long) (expectedSecond.nextDouble() * 1000) + 1, second.backoff(1));
+    }
+    Assert.assertTrue(InstanceSeeds.seed(work, HedgingDatabase.class, "seeded", 0) != InstanceSeeds.seed(work, HedgingDatabase.class, "seeded", 1));
+
+    first.close();
+    second.close();
+  }
+
+  @Test
+  public void testRetries() throws Exception
+  {
+    FlakyDatabase.reset();
+    FlakyDatabase._failedCalls = 2;
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_RETRIES, "3");
+    props.put(HedgingDatabase.FLAG_HEDGE_BACKOFF, "1");
+    HedgingDatabase db = create(props);
+
+    Query q = query(QueryType.UPDATE);
+    Assert.assertEquals(DatabaseResult.OK, db.doUpdate(q));
+    Assert.assertEquals(3, q.getAttempts());
+
+    //read-modify-writes are not retried
+    FlakyDatabase._CALLS.set(0);
+    q = query(QueryType.READ_MODIFY_WRITE);
+    Assert.assertEquals(DatabaseResult.FAIL, db.doReadModifyWrite(q));
+    Assert.assertEquals(1, q.getAttempts());
+
+    db.close();
+  }
+
+  @Test
+  public void testLostHedgeKeepsDeadline() throws Exception
+  {
+    //first query: the original takes 390ms and loses to the hedge sent at 200ms
+    //second query: the original is slow, and the lost request of the first one completes 190ms into its wait
+    FlakyDatabase.reset();
+    FlakyDatabase._callMs = new long[] {390, 0, 1000};
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_DELAY, "200");
+    HedgingDatabase db = create(props);
+
+    Query q = query(QueryType.READ);
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    Assert.assertEquals(2, q.getAttempts());
+
+    //the hedge goes out 200ms after the start, not 200ms after the lost request completed
+    q = query(QueryType.READ);
+    long st = System.nanoTime();
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    long latencyMs = (System.nanoTime() - st) / 1000000;
+    Assert.assertEquals(2, q.getAttempts());
+    Assert.assertTrue("latency " + latencyMs, latencyMs >= 200 && latencyMs < 300);
+
+    db.close();
+  }
+
+  @Test
+  public void testMaxConcurrency() throws Exception
+  {
+    FlakyDatabase.reset();
+    FlakyDatabase._callMs = new long[] {300};
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_DELAY, "5");
+    props.put(HedgingDatabase.FLAG_HEDGE_MAX_CONCURRENCY, "1");
+    HedgingDatabase db = create(props);
+
+    //the only slot of the limit is held by the original, so no hedge is sent
+    Query q = query(QueryType.READ);
+    long st = System.nanoTime();
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    long latencyMs = (System.nanoTime() - st) / 1000000;
+    Assert.assertEquals(1, q.getAttempts());
+    Assert.assertTrue("latency " + latencyMs, latencyMs >= 300);
+
+    //the slot is given back when the request completes
+    q = query(QueryType.READ);
+    Assert.assertEquals(DatabaseResult.OK, db.doRead(q));
+    Assert.assertEquals(1, q.getAttempts());
+
+    db.close();
+  }
+
+  @Test
+  public void testPercentileDelay() throws Exception
+  {
+    FlakyDatabase.reset();
+    FlakyDatabase._otherCallsMs = 2;
+    FlakyDatabase._callMs = new long[0];
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(HedgingDatabase.FLAG_HEDGE_PERCENTILE, "50");
+    HedgingDatabase db = create(props);
+
+    //10ms until enough latencies are recorded, hedges on a slow machine add latencies of their own
+    Assert.assertEquals(10000000L, db.getHedgeDelayNs());
+    for(int a = 0; a<128; a++)
+      Assert.assertEquals(DatabaseResult.OK, db.doRead(query(QueryType.READ)));
+
+    //then the median of the recent latencies, which are a little over 2ms
+    long delay = db.getHedgeDelayNs();
+    Assert.assertTrue("delay " + delay, delay >= 2000000L && delay < 10000000L);
+
+    db.close();
+  }
+}
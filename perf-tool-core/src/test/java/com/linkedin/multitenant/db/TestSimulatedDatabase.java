@@ -0,0 +1,197 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.main.WorkerThread;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+import com.linkedin.multitenant.workload.CoreWorkload;
+import com.linkedin.multitenant.xml.XmlParser;
+import com.linkedin.multitenant.xml.XmlWorkPlan;
+import com.yahoo.ycsb.FastRandom;
+
+public class TestSimulatedDatabase
+{
+  private static final long MS = 1000000;
+
+  /**
+   * Queue Poisson arrivals with exponential service times in virtual time, and profile the latencies.
+   * @return Summary of the profiled latencies, see EpochResult.summarize
+   */
+  private static List<Object> simulate(int servers, double arrivalsPerMs, double serviceMs, int count)
+  {
+    Random ran = new Random(7);
+    SimulatedServers queue = new SimulatedServers(servers, 0, 0, 0);
+    Profiler prof = new Profiler(1, 1, 100);
+
+    long arrival = 0;
+    for(int a = 0; a<count; a++)
+    {
+      arrival += (long) (-Math.log(1 - ran.nextDouble()) / arrivalsPerMs * MS);
+      long service = (long) (-Math.log(1 - ran.nextDouble()) * serviceMs * MS);
+      long finish = queue.schedule(arrival, service);
+      prof.add(0, finish - arrival, QueryType.READ, DatabaseResult.OK);
+    }
+
+    return prof.getReadResults().getArr()[0].summarize();
+  }
+
+  @Test
+  public void testMM1Percentiles()
+  {
+    //time in an M/M/1 queue is exponential with rate mu - lambda = 0.2/ms
+    List<Object> summary = simulate(1, 0.8, 1, 400000);
+
+    double avg = (Double) summary.get(2);
+    int p95 = (Integer) summary.get(3);
+    int p99 = (Integer) summary.get(4);
+
+    //mean 5ms, p95 = ln(20)/0.2 = 14.98ms, p99 = ln(100)/0.2 = 23.03ms. The profiler floors to milliseconds
+    Assert.assertEquals(5.0, avg, 0.3);
+    Assert.assertTrue("p95 " + p95, p95 >= 13 && p95 <= 15);
+    Assert.assertTrue("p99 " + p99, p99 >= 21 && p99 <= 24);
+  }
+
+  @Test
+  public void testMM2Mean()
+  {
+    //Erlang C with c=2, rho=0.8: P(wait)=6.4/9, mean wait = P(wait)/(c*mu - lambda) = 1.778ms, plus 1ms of service
+    List<Object> summary = simulate(2, 1.6, 1, 400000);
+
+    double avg = (Double) summary.get(2);
+    Assert.assertEquals(2.778, avg, 0.2);
+  }
+
+  @Test
+  public void testPauses()
+  {
+    //pauses in [100, 120), [200, 220), ... milliseconds
+    SimulatedServers queue = new SimulatedServers(1, 0, 100 * MS, 20 * MS);
+
+    Assert.assertEquals(11 * MS, queue.schedule(10 * MS, 1 * MS));
+    //arrives in a pause
+    Assert.assertEquals(121 * MS, queue.schedule(105 * MS, 1 * MS));
+    //in service when a pause starts
+    Assert.assertEquals(225 * MS, queue.schedule(190 * MS, 15 * MS));
+    //queued behind the previous request
+    Assert.assertEquals(227 * MS, queue.schedule(200 * MS, 2 * MS));
+  }
+
+  @Test
+  public void testSeededServiceTimes() throws Exception
+  {
+    Map<String, String> work = new HashMap<String, String>();
+    work.put(CoreWorkload.FLAG_WORK_RANDOM_SEED, "3");
+    Map<String, String> jobProperties = new HashMap<String, String>();
+    jobProperties.put(RunExperiment.FLAG_JOB_NAME, "seeded");
+    jobProperties.put(SimulatedDatabase.FLAG_SIM_SERVICE_TIME_DIST, SimulatedDatabase.CONST_DIST_UNIFORM);
+
+    //each worker gets its own stream, derived from the run seed
+    SimulatedDatabase first = new SimulatedDatabase();
+    SimulatedDatabase second = new SimulatedDatabase();
+    Assert.assertEquals(DatabaseResult.OK, first.init(work, jobProperties));
+    Assert.assertEquals(DatabaseResult.OK, second.init(work, jobProperties));
+
+    FastRandom expectedFirst = new FastRandom(InstanceSeeds.seed(work, SimulatedDatabase.class, "seeded", 0));
+    FastRandom expectedSecond = new FastRandom(InstanceSeeds.seed(work, SimulatedDatabase.class, "seeded", 1));
+    for(int a = 0; a<10; a++)
+    {
+      Assert.assertEquals((long) (expectedFirst.nextDouble() * 2 * MS), first.nextServiceTime());
+      Assert.assertEquals((long) (expectedSecond.nextDouble() * 2 * MS), second.nextServiceTime());
+    }
+
+    first.close();
+    second.close();
+  }
+
+  @Test
+  public void testMeasuredLatency() throws Exception
+  {
+    Map<String, String> jobProperties = new HashMap<String, String>();
+    jobProperties.put(RunExperiment.FLAG_JOB_NAME, "sim");
+    jobProperties.put(SimulatedDatabase.FLAG_SIM_SERVICE_TIME, "2");
+    jobProperties.put(SimulatedDatabase.FLAG_SIM_SERVICE_TIME_DIST, SimulatedDatabase.CONST_DIST_CONSTANT);
+    SimulatedDatabase db = new SimulatedDatabase();
+    Assert.assertEquals(DatabaseResult.OK, db.init(new HashMap<String, String>(), jobProperties));
+
+    //a closed loop on one server never queues, so every latency is the service time
+    Profiler prof = new Profiler(1, 1, 100);
+    Query q = new Query(null, null, QueryType.READ);
+    for(int a = 0; a<200; a++)
+    {
+      long st = System.nanoTime();
+      db.doRead(q);
+      prof.add(0, System.nanoTime() - st, QueryType.READ, DatabaseResult.OK);
+    }
+    db.close();
+
+    List<Object> summary = prof.getReadResults().getArr()[0].summarize();
+    double avg = (Double) summary.get(2);
+    //sleeping can only make a query longer, the ceiling only catches gross errors on a loaded machine
+    Assert.assertTrue("avg " + avg, avg >= 2.0 && avg < 10);
+  }
+
+  @Test
+  public void testWorkerThread() throws Exception
+  {
+    String inputData =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<workPlan>" +
+              "<property name=\"work.runTime\" value=\"4\"/>" +
+              "<property name=\"work.gran\" value=\"1\"/>" +
+              "<property name=\"work.databaseClass\" value=\"com.linkedin.multitenant.db.SimulatedDatabase\"/>" +
+              "<job>" +
+                "<property name=\"job.name\" value=\"sim\"/>" +
+                "<property name=\"job.threads\" value=\"1\"/>" +
+                "<property name=\"job.targetThr\" value=\"50\"/>" +
+                "<property name=\"job.rowCount\" value=\"100\"/>" +
+                "<property name=\"job.valueSize\" value=\"10\"/>" +
+                "<property name=\"job.insertRate\" value=\"0\"/>" +
+                "<property name=\"job.readRate\" value=\"1\"/>" +
+                "<property name=\"job.deleteRate\" value=\"0\"/>" +
+                "<property name=\"job.updateRate\" value=\"0\"/>" +
+                "<property name=\"job.sim.serviceTime\" value=\"2\"/>" +
+                "<property name=\"job.sim.serviceTime.dist\" value=\"constant\"/>" +
+                "<timeline>" +
+                  "<change at=\"2\" to=\"100\"/>" +
+                "</timeline>" +
+              "</job>" +
+            "</workPlan>";
+
+    //the harness throttles a real thread against the simulated backend and follows the timeline
+    XmlWorkPlan xmlWork = XmlParser.parseWorkPlan(inputData.getBytes());
+    WorkerThread thr = new WorkerThread(RunExperiment.Mode.RUN, 0, 1, xmlWork, xmlWork.getJobList().get(0));
+    thr.run();
+
+    EpochResult arr[] = thr.getProfiler().getReadResults().getArr();
+    for(int a = 0; a<4; a++)
+    {
+      int expected = a < 2 ? 50 : 100;
+      int count = arr[a].getSuccOpt();
+      Assert.assertTrue("second " + a + " count " + count, count >= expected * 8 / 10 && count <= expected * 11 / 10);
+
+      //one server and one thread never queue, so latency is the service time plus scheduling noise
+      double avg = (Double) arr[a].summarize().get(2);
+      Assert.assertTrue("second " + a + " avg " + avg, avg >= 2.0 && avg < 10);
+    }
+    Assert.assertEquals(0, thr.getOptFailed());
+    Assert.assertTrue(thr.getSleepTime() > 0);
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.exporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+public class TestStreamingExporter
+{
+  private static final long MS = 1000000;
+
+  private static List<String> export(String format) throws Exception
+  {
+    File file = File.createTempFile("stream", "." + format);
+    file.deleteOnExit();
+
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(StreamingExporter.FLAG_STREAM_FILE, file.getPath());
+    props.put(StreamingExporter.FLAG_STREAM_FORMAT, format);
+    StreamingExporter exporter = new StreamingExporter(props, 3);
+    File out = new File(exporter.getPath());
+    out.deleteOnExit();
+
+    //two threads of one job with 3 epochs of 10 seconds
+    Profiler p1 = new Profiler(30, 10, 100);
+    Profiler p2 = new Profiler(30, 10, 100);
+    p1.add(1, 2 * MS, QueryType.READ, DatabaseResult.OK);
+    p2.add(5, 4 * MS, QueryType.READ, DatabaseResult.OK);
+    p2.add(6, 4 * MS, QueryType.READ, DatabaseResult.FAIL);
+    p1.add(25, 7 * MS, QueryType.UPDATE, DatabaseResult.OK);
+    exporter.addProfiler("job,1", p1);
+    exporter.addProfiler("job,1", p2);
+
+    //stopping right away writes every epoch
+    exporter.clear();
+    exporter.start();
+    exporter.join();
+
+    List<String> lines = new ArrayList<String>();
+    BufferedReader in = new BufferedReader(new FileReader(out));
+    String line;
+    while((line = in.readLine()) != null)
+      lines.add(line);
+    in.close();
+    return lines;
+  }
+
+  @Test
+  public void testCsv() throws Exception
+  {
+    List<String> lines = export(StreamingExporter.CONST_FORMAT_CSV);
+
+    Assert.assertEquals(3, lines.size());
+    Assert.assertTrue(lines.get(0).startsWith("machine,job,op,start,end"));
+    Assert.assertEquals("3,\"job,1\",READ,0,10,2,1,3.000,2,2,0.2,2:1 4:1", lines.get(1));
+    Assert.assertEquals("3,\"job,1\",UPDATE,20,30,1,0,7.000,7,7,0.1,7:1", lines.get(2));
+  }
+
+  @Test
+  public void testJson() throws Exception
+  {
+    List<String> lines = export(StreamingExporter.CONST_FORMAT_JSON);
+
+    Assert.assertEquals(2, lines.size());
+    Assert.assertEquals("{\"machine\":3,\"job\":\"job,1\",\"op\":\"READ\",\"start\":0,\"end\":10,\"succOpt\":2,\"failedOpt\":1,"
+        + "\"avgLatMs\":3.000,\"lat95Ms\":2,\"lat99Ms\":2,\"itemsPerSec\":0.2,\"histogram\":{\"2\":1,\"4\":1}}", lines.get(0));
+  }
+
+  @Test
+  public void testFileName()
+  {
+    Assert.assertEquals("results-2.csv", StreamingExporter.fileName("results.csv", 2));
+    Assert.assertEquals("out/results-0", StreamingExporter.fileName("out/results", 0));
+    Assert.assertEquals("a.b/results-1", StreamingExporter.fileName("a.b/results", 1));
+  }
+}
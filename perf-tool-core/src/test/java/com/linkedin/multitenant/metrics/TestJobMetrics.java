@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+
+public class TestJobMetrics
+{
+  private static final long MS = 1000000;
+
+  /**
+   * @return Job with two threads that completed reads of 0, 1, ..., 99ms
+   */
+  private static JobMetrics makeJob(String name, LiveMetrics thr1, LiveMetrics thr2)
+  {
+    JobMetrics job = new JobMetrics(name);
+    job.addThread(thr1);
+    job.addThread(thr2);
+    for(int a = 0; a<100; a++)
+      (a % 2 == 0 ? thr1 : thr2).add(a * MS + MS / 2, QueryType.READ, DatabaseResult.OK);
+    return job;
+  }
+
+  @Test
+  public void testQuantiles()
+  {
+    JobMetrics job = makeJob("job1", new LiveMetrics(100), new LiveMetrics(100));
+    job.update();
+
+    assertEquals(2, job.getThreadCount());
+    assertEquals(100, job.getSucceeded(QueryType.READ));
+    assertEquals(0, job.getFailed(QueryType.READ));
+    assertEquals(50.0, job.getAverageLatencyMs(QueryType.READ), 0.001);
+
+    //the k-th quantile is the smallest bucket that holds ceil(k * count) operations
+    assertEquals(49, job.getP50LatencyMs(QueryType.READ));
+    assertEquals(94, job.getP95LatencyMs(QueryType.READ));
+    assertEquals(98, job.getP99LatencyMs(QueryType.READ));
+    assertTrue(job.getThroughput(QueryType.READ) > 0);
+
+    //other types have no operations
+    assertEquals(0, job.getP99LatencyMs(QueryType.INSERT));
+    assertEquals(0.0, job.getAverageLatencyMs(QueryType.INSERT), 0);
+  }
+
+  @Test
+  public void testPeriod() throws Exception
+  {
+    LiveMetrics thr1 = new LiveMetrics(100);
+    LiveMetrics thr2 = new LiveMetrics(100);
+    JobMetrics job = makeJob("job1", thr1, thr2);
+    job.update();
+
+    //the next period only has slow reads, longer than the histogram, and failures
+    for(int a = 0; a<10; a++)
+    {
+      thr1.add(300 * MS, QueryType.READ, DatabaseResult.OK);
+      thr2.add(MS, QueryType.READ, DatabaseResult.FAIL);
+    }
+    thr1.addSleep(7);
+    thr2.setScheduleLag(5 * MS);
+    Thread.sleep(100);
+    job.update();
+
+    //counters are cumulative, rates and quantiles are over the period
+    assertEquals(110, job.getSucceeded(QueryType.READ));
+    assertEquals(10, job.getFailed(QueryType.READ));
+    assertEquals(300.0, job.getAverageLatencyMs(QueryType.READ), 0.001);
+    assertEquals(100, job.getP50LatencyMs(QueryType.READ));
+    assertEquals(100, job.getP99LatencyMs(QueryType.READ));
+
+    //20 operations and 10 failures in a little over 100ms
+    double thr = job.getThroughput(QueryType.READ);
+    assertTrue("throughput " + thr, thr > 20 && thr <= 200);
+    assertEquals(thr / 2, job.getFailureRate(QueryType.READ), 0.001);
+    assertEquals(7, job.getSleepTimeMs());
+    assertEquals(5.0, job.getMaxScheduleLagMs(), 0);
+
+    //an empty period publishes zero rates but keeps the counters
+    job.update();
+    assertEquals(110, job.getSucceeded());
+    assertEquals(0.0, job.getThroughput(), 0);
+    assertEquals(0, job.getP50LatencyMs(QueryType.READ));
+  }
+
+  @Test
+  public void testPrometheus() throws Exception
+  {
+    List<JobMetrics> jobs = new ArrayList<JobMetrics>();
+    jobs.add(makeJob("job \"1\"", new LiveMetrics(100), new LiveMetrics(100)));
+    jobs.get(0).update();
+
+    MetricsServer server = new MetricsServer(0, jobs);
+    String text = server.toPrometheus();
+
+    assertTrue(text.contains("# TYPE mtbt_operations_total counter\n"));
+    assertTrue(text.contains("# TYPE mtbt_latency_ms gauge\n"));
+    assertTrue(text.contains("mtbt_operations_total{job=\"job \\\"1\\\"\",opt=\"read\",result=\"ok\"} 100\n"));
+    assertTrue(text.contains("mtbt_latency_ms{job=\"job \\\"1\\\"\",opt=\"read\",quantile=\"0.95\"} 94\n"));
+    assertTrue(text.contains("mtbt_latency_avg_ms{job=\"job \\\"1\\\"\",opt=\"read\"} 50\n"));
+    assertTrue(text.contains("mtbt_throttle_sleep_ms_total{job=\"job \\\"1\\\"\"} 0\n"));
+    assertTrue(!text.contains("opt=\"na\""));
+
+    //every sample is a name, labels and a number
+    String lines[] = text.split("\n");
+    for(int a = 0; a<lines.length; a++)
+    {
+      if(!lines[a].startsWith("#"))
+        assertTrue(lines[a], lines[a].matches("mtbt_[a-z_0-9]+\\{job=\"(\\\\.|[^\"\\\\])*\"(,[a-z]+=\"[^\"]*\")*\\} -?[0-9]+(\\.[0-9]+(E-?[0-9]+)?)?"));
+    }
+
+    //the same text is served over http
+    server.start();
+    try
+    {
+      HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+      assertEquals(200, conn.getResponseCode());
+      assertTrue(conn.getContentType().startsWith("text/plain; version=0.0.4"));
+
+      StringBuilder body = new StringBuilder();
+      BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"));
+      String line;
+      while((line = in.readLine()) != null)
+        body.append(line).append('\n');
+      in.close();
+      assertEquals(text, body.toString());
+    }
+    finally
+    {
+      server.stop();
+    }
+  }
+}
@@ -7,11 +7,13 @@
  */
 package com.linkedin.multitenant.profiler;
 
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Random;
 
 import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.common.ValueVerifier;
 import com.linkedin.multitenant.db.Database.DatabaseResult;
 import com.linkedin.multitenant.profiler.Profiler;
 
@@ -49,6 +51,10 @@ public class TestProfiler
       pr.add(timeFromStart, latencyInNs, optType, DatabaseResult.OK);
     }
 
+    pr.addVerification(ValueVerifier.Result.OK);
+    pr.addVerification(ValueVerifier.Result.STALE);
+    pr.addVerification(ValueVerifier.Result.MISSING);
+
     byte tempData[] = pr.toByteArray();
     Profiler pr2 = new Profiler(tempData);
 
@@ -57,5 +63,24 @@ public class TestProfiler
 
     if(!pr1Str.equals(pr2Str))
       fail("Byte conversion is wrong");
+    if(pr2.getVerifications(ValueVerifier.Result.STALE) != 1)
+      fail("Verification counts are not converted");
+  }
+
+  @Test
+  public void testVersion() throws Exception
+  {
+    byte data[] = new Profiler(10, 2, 10).toByteArray();
+    data[3]++;
+
+    try
+    {
+      new Profiler(data);
+      fail("Other encoding versions must be refused");
+    }
+    catch(Exception e)
+    {
+      assertTrue(e.getMessage().contains("version " + (Profiler.FORMAT_VERSION + 1)));
+    }
   }
 }
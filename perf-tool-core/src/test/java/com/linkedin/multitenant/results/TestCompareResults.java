@@ -0,0 +1,165 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+import org.junit.Test;
+
+public class TestCompareResults
+{
+  private static final int RUN_TIME = 20;
+  private static final int GRAN = 1;
+
+  /**
+   * @return Profiler with the given number of reads per second, with latencies around the given value
+   */
+  private static Profiler makeProfiler(long seed, int optPerSec, int latMs)
+  {
+    Profiler prof = new Profiler(RUN_TIME, GRAN, 50);
+    Random ran = new Random(seed);
+    for(int time = 0; time<RUN_TIME; time++)
+    {
+      int count = optPerSec + ran.nextInt(optPerSec / 10 + 1);
+      for(int a = 0; a<count; a++)
+        prof.add(time, 1000000L * (latMs + ran.nextInt(3)), QueryType.READ, DatabaseResult.OK);
+    }
+    return prof;
+  }
+
+  private static RunResults makeRun(long seed, int optPerSec, int latMs)
+  {
+    Map<String, Profiler> profMap = new HashMap<String, Profiler>();
+    profMap.put("job1", makeProfiler(seed, optPerSec, latMs));
+    return RunResults.fromProfilers(profMap);
+  }
+
+  private static int compare(RunResults base, RunResults cand, boolean byTrial)
+  {
+    List<RunResults> baseList = new ArrayList<RunResults>();
+    baseList.add(base);
+    List<RunResults> candList = new ArrayList<RunResults>();
+    candList.add(cand);
+    return new CompareResults(baseList, candList, 5, 0.05, byTrial, 0, Integer.MAX_VALUE).compare(new PrintStream(new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void testTextRoundTrip() throws Exception
+  {
+    Profiler prof = makeProfiler(1, 100, 5);
+    String text = "Job=job1\n" + prof.toString() + "\n";
+    RunResults run = RunResults.loadText(new BufferedReader(new StringReader(text)));
+
+    EpochResult expected[] = prof.getReadResults().getArr();
+    List<EpochResult> actual = run.getEpochs("job1", QueryType.READ);
+    assertEquals(expected.length, actual.size());
+    for(int a = 0; a<expected.length; a++)
+      assertEquals(expected[a].toString(), actual.get(a).toString());
+  }
+
+  @Test
+  public void testStreamCsv() throws Exception
+  {
+    String csv = "machine,job,op,start,end,succOpt,failedOpt,avgLatMs,lat95Ms,lat99Ms,itemsPerSec,histogram\n" +
+        "0,\"job,1\",READ,0,1,4,0,2.5,3,3,4.0,0:0 1:0 2:2 3:2\n" +
+        "1,\"job,1\",READ,0,1,2,1,1.0,1,1,2.0,0:0 1:2\n";
+    RunResults run = RunResults.loadStreamCsv(new BufferedReader(new StringReader(csv)));
+
+    List<EpochResult> epochs = run.getEpochs("job,1", QueryType.READ);
+    assertEquals(1, epochs.size());
+    assertEquals(6, epochs.get(0).getSuccOpt());
+    assertEquals(1, epochs.get(0).getFailedOpt());
+    assertEquals(12000000L, epochs.get(0).getTotalLat());
+    assertEquals(6, epochs.get(0).getItems());
+    assertEquals(2, epochs.get(0).getMap().get(1).intValue());
+  }
+
+  @Test
+  public void testCompare() throws Exception
+  {
+    RunResults base = makeRun(1, 1000, 5);
+
+    //same distribution
+    assertEquals(0, compare(base, makeRun(2, 1000, 5), false));
+
+    //throughput drops by half
+    assertEquals(1, compare(base, makeRun(2, 500, 5), false));
+
+    //latency doubles, i.e. avg, p95 and p99
+    assertEquals(3, compare(base, makeRun(2, 1000, 10), false));
+
+    //improvements are not regressions
+    assertEquals(0, compare(makeRun(2, 500, 10), base, false));
+
+    //a single trial per side has no variance, so any difference above the threshold counts
+    assertEquals(1, compare(base, makeRun(2, 500, 5), true));
+  }
+
+  @Test
+  public void testMissingData() throws Exception
+  {
+    RunResults base = makeRun(1, 1000, 5);
+
+    //a job that is not in the candidate
+    Map<String, Profiler> profMap = new HashMap<String, Profiler>();
+    profMap.put("job2", makeProfiler(2, 1000, 5));
+    assertEquals(1, compare(base, RunResults.fromProfilers(profMap), false));
+
+    //an operation type without data, e.g. every read failed, fails each metric
+    Profiler prof = new Profiler(RUN_TIME, GRAN, 50);
+    for(int time = 0; time<RUN_TIME; time++)
+      prof.add(time, 1000000L, QueryType.READ, DatabaseResult.FAIL);
+    profMap = new HashMap<String, Profiler>();
+    profMap.put("job1", prof);
+    assertEquals(4, compare(base, RunResults.fromProfilers(profMap), false));
+  }
+
+  @Test
+  public void testExitCode() throws Exception
+  {
+    File baseFile = File.createTempFile("base", ".txt");
+    File candFile = File.createTempFile("cand", ".txt");
+    baseFile.deleteOnExit();
+    candFile.deleteOnExit();
+
+    PrintStream ps = new PrintStream(new FileOutputStream(baseFile), true, "UTF-8");
+    ps.println("Job=job1");
+    ps.println(makeProfiler(1, 1000, 5).toString());
+    ps.close();
+    ps = new PrintStream(new FileOutputStream(candFile), true, "UTF-8");
+    ps.println("Job=job1");
+    ps.println(makeProfiler(2, 500, 5).toString());
+    ps.close();
+
+    PrintStream out = new PrintStream(new ByteArrayOutputStream());
+    String base = "-base=" + baseFile.getPath();
+    String cand = "-cand=" + candFile.getPath();
+    assertEquals(CompareResults.EXIT_OK, CompareResults.run(new String[] {base, "-cand=" + baseFile.getPath()}, out));
+    assertEquals(CompareResults.EXIT_REGRESSION, CompareResults.run(new String[] {base, cand}, out));
+    assertEquals(CompareResults.EXIT_OK, CompareResults.run(new String[] {base, cand, "-threshold=60"}, out));
+    assertEquals(CompareResults.EXIT_INVALID, CompareResults.run(new String[] {base}, out));
+    assertEquals(CompareResults.EXIT_INVALID, CompareResults.run(new String[] {base, cand, "-unit=minute"}, out));
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+import com.linkedin.multitenant.exporter.FileExporter;
+import com.linkedin.multitenant.profiler.EpochResult;
+import com.linkedin.multitenant.profiler.Profiler;
+
+import org.junit.Test;
+
+public class TestResultsFile
+{
+  private static final String WORK_PLAN =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+      "<workPlan>" +
+        "<property name=\"work.runTime\" value=\"10\"/>" +
+        "<property name=\"work.exporterClass\" value=\"com.linkedin.multitenant.exporter.ConsoleExporter\"/>" +
+        "<job>" +
+          "<property name=\"job.name\" value=\"job1\"/>" +
+        "</job>" +
+      "</workPlan>";
+
+  private static Profiler makeProfiler(int optPerSec)
+  {
+    Profiler prof = new Profiler(10, 2, 10);
+    for(int time = 0; time<10; time++)
+    {
+      for(int a = 0; a<optPerSec; a++)
+        prof.add(time, 1000000L * (a % 5), QueryType.READ, DatabaseResult.OK);
+    }
+    prof.add(0, 1000000L, QueryType.INSERT, DatabaseResult.FAIL);
+    return prof;
+  }
+
+  private static ResultsFile makeResults(String jobName, int optPerSec) throws Exception
+  {
+    Map<String, String> metadata = new HashMap<String, String>();
+    metadata.put(ResultsFile.META_MODE, "RUN");
+    Map<String, Profiler> profMap = new HashMap<String, Profiler>();
+    profMap.put(jobName, makeProfiler(optPerSec));
+    return new ResultsFile(WORK_PLAN.getBytes("UTF-8"), metadata, profMap);
+  }
+
+  private static File tempFile() throws Exception
+  {
+    File f = File.createTempFile("results", ".mtbt");
+    f.deleteOnExit();
+    return f;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception
+  {
+    ResultsFile results = makeResults("job1", 10);
+    File f = tempFile();
+    results.write(f.getPath());
+
+    ResultsFile read = ResultsFile.read(f.getPath());
+    assertEquals(WORK_PLAN, new String(read.getWorkPlan(), "UTF-8"));
+    assertEquals("RUN", read.getMetadata().get(ResultsFile.META_MODE));
+    assertEquals(1, read.getProfilers().size());
+    assertEquals(results.getProfilers().get("job1").toString(), read.getProfilers().get("job1").toString());
+    assertEquals("job1", read.parseWorkPlan().getJobList().get(0).getProperties().get("job.name"));
+
+    //tools that read epochs accept the binary file too
+    RunResults run = RunResults.load(f.getPath());
+    assertEquals(5, run.getEpochs("job1", QueryType.READ).size());
+    assertEquals(20, run.getEpochs("job1", QueryType.READ).get(0).getSuccOpt());
+  }
+
+  @Test
+  public void testVersion() throws Exception
+  {
+    File f = tempFile();
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(f));
+    out.writeInt(ResultsFile.MAGIC);
+    out.writeInt(ResultsFile.VERSION + 1);
+    out.close();
+
+    try
+    {
+      ResultsFile.read(f.getPath());
+      fail("Newer versions must be refused");
+    }
+    catch(Exception e)
+    {
+      assertTrue(e.getMessage().contains("version"));
+    }
+  }
+
+  @Test
+  public void testMergeAndSlice() throws Exception
+  {
+    ResultsFile results = makeResults("job1", 10);
+    results.add(makeResults("job1", 5));
+    results.add(makeResults("job2", 1));
+
+    assertEquals(2, results.getProfilers().size());
+    assertEquals(30, results.getProfilers().get("job1").getReadResults().getArr()[0].getSuccOpt());
+    assertEquals("1+1+1", results.getMetadata().get(ResultsFile.META_SOURCES));
+
+    results.slice(4, 8);
+    EpochResult arr[] = results.getProfilers().get("job1").getReadResults().getArr();
+    assertEquals(2, arr.length);
+    assertEquals(4, arr[0].getStartTime());
+    assertEquals(8, arr[1].getEndTime());
+    assertEquals(0, results.getProfilers().get("job1").getInsertResults().getArr()[0].getFailedOpt());
+
+    Profiler shorter = new Profiler(4, 2, 10);
+    Map<String, Profiler> profMap = new HashMap<String, Profiler>();
+    profMap.put("job1", shorter);
+    try
+    {
+      makeResults("job1", 1).add(new ResultsFile(new byte[0], new HashMap<String, String>(), profMap));
+      fail("Profilers with different epochs must not be merged");
+    }
+    catch(IllegalArgumentException e)
+    {
+    }
+  }
+
+  @Test
+  public void testTool() throws Exception
+  {
+    File in1 = tempFile();
+    File in2 = tempFile();
+    File merged = tempFile();
+    File text = tempFile();
+    makeResults("job1", 10).write(in1.getPath());
+    makeResults("job1", 5).write(in2.getPath());
+
+    PrintStream out = new PrintStream(new ByteArrayOutputStream());
+    assertEquals(ResultsTool.EXIT_OK, ResultsTool.run(new String[] {"-in=" + in1.getPath(), "-in=" + in2.getPath(),
+        "-from=2", "-to=6", "-out=" + merged.getPath()}, out));
+
+    ResultsFile read = ResultsFile.read(merged.getPath());
+    EpochResult arr[] = read.getProfilers().get("job1").getReadResults().getArr();
+    assertEquals(2, arr.length);
+    assertEquals(30, arr[0].getSuccOpt());
+
+    assertEquals(ResultsTool.EXIT_OK, ResultsTool.run(new String[] {"-in=" + merged.getPath(),
+        "-exporterClass=" + FileExporter.class.getName(), "-set=" + FileExporter.FLAG_FILEEXPORTER_ISCOMBINED + "=true",
+        "-set=" + FileExporter.FLAG_FILEEXPORTER_SINGLE_FILE_PATH + "=" + text.getPath()}, out));
+
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(text), "UTF-8"));
+    RunResults run = RunResults.loadText(reader);
+    reader.close();
+    assertEquals(2, run.getEpochs("job1", QueryType.READ).size());
+    assertEquals(30, run.getEpochs("job1", QueryType.READ).get(0).getSuccOpt());
+
+    assertEquals(ResultsTool.EXIT_INVALID, ResultsTool.run(new String[] {}, out));
+    assertEquals(ResultsTool.EXIT_INVALID, ResultsTool.run(new String[] {"-in=" + text.getPath()}, out));
+  }
+}
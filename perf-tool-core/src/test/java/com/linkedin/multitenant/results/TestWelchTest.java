@@ -0,0 +1,39 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.results;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestWelchTest
+{
+  @Test
+  public void testPValue()
+  {
+    double x[] = {1, 2, 3, 4, 5};
+    double y[] = {2, 4, 6, 8, 10};
+    assertEquals(0.107531, WelchTest.pValue(x, y), 1e-5);
+    assertEquals(0.107531, WelchTest.pValue(y, x), 1e-5);
+
+    double a[] = {10.1, 9.8, 10.3, 10.0, 9.9, 10.2};
+    double b[] = {9.1, 9.3, 8.9, 9.0, 9.2, 9.4};
+    assertEquals(8.229e-6, WelchTest.pValue(a, b), 1e-8);
+
+    assertEquals(1, WelchTest.pValue(x, x), 1e-9);
+  }
+
+  @Test
+  public void testSmallSamples()
+  {
+    assertTrue(Double.isNaN(WelchTest.pValue(new double[] {1}, new double[] {1, 2})));
+    assertEquals(0, WelchTest.pValue(new double[] {1, 1}, new double[] {2, 2}), 0);
+    assertEquals(1, WelchTest.pValue(new double[] {1, 1}, new double[] {1, 1}), 0);
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.trace;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+public class TestBinaryTraceReader
+{
+  private static File trace;
+
+  private static void writeRecord(DataOutputStream out, long ts, int op, String db, String key, int valueLength) throws Exception
+  {
+    out.writeLong(ts);
+    out.writeByte(op);
+    out.writeShort(db.length());
+    out.writeBytes(db);
+    out.writeShort(key.length());
+    out.writeBytes(key);
+    out.writeInt(valueLength);
+  }
+
+  @BeforeClass
+  public static void prepare() throws Exception
+  {
+    trace = File.createTempFile("trace", ".bin");
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(trace));
+    out.writeInt(TraceFormat.MAGIC);
+    out.writeShort(TraceFormat.VERSION);
+    for(int a = 0; a<100; a++)
+      writeRecord(out, 1000000L + a, 1 + (a % 3), a % 2 == 0 ? "db1" : "db22", "key" + a, a);
+    out.close();
+  }
+
+  @AfterClass
+  public static void closeDown()
+  {
+    trace.delete();
+  }
+
+  @Test
+  public void testRead() throws Exception
+  {
+    Assert.assertTrue(BinaryTraceReader.isBinaryTrace(trace));
+
+    TraceReader reader = TraceFiles.open(trace.getPath(), null);
+    TraceRecord rec = new TraceRecord();
+    int count = 0;
+    while(reader.next(rec))
+    {
+      Assert.assertEquals(1000000L + count, rec.getTimestamp());
+      Assert.assertEquals("key" + count, new String(rec.getKeyBuffer(), 0, rec.getKeyLength(), "UTF-8"));
+      Assert.assertEquals(count, rec.getValueSize());
+      QueryType expected = count % 3 == 0 ? QueryType.UPDATE : (count % 3 == 1 ? QueryType.READ : QueryType.DELETE);
+      Assert.assertEquals(expected, rec.getType());
+      count++;
+    }
+    reader.close();
+
+    Assert.assertEquals(100, count);
+  }
+
+  @Test
+  public void testDbFilterAndChain() throws Exception
+  {
+    TraceReader reader = TraceFiles.open(trace.getPath() + "," + trace.getPath(), "db22");
+    TraceRecord rec = new TraceRecord();
+    int count = 0;
+    while(reader.next(rec))
+    {
+      Assert.assertEquals(1, (rec.getTimestamp() - 1000000L) % 2);
+      count++;
+    }
+    reader.close();
+
+    Assert.assertEquals(100, count);
+  }
+}
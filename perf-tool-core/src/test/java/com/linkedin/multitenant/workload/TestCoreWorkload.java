@@ -11,10 +11,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.AfterClass;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.linkedin.multitenant.common.MergeOperator;
 import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
 import com.linkedin.multitenant.main.RunExperiment;
 
 public class TestCoreWorkload
@@ -89,4 +92,92 @@ public class TestCoreWorkload
       e.printStackTrace();
     }
   }
+
+  @Test
+  public void testScan()
+  {
+    Map<String, String> jobProp = new HashMap<String, String>();
+    jobProp.put(RunExperiment.FLAG_JOB_NAME, "job2");
+    jobProp.put(RunExperiment.FLAG_JOB_ROW, "100");
+    jobProp.put(CoreWorkload.FLAG_JOB_SCAN_RATE, "1");
+    jobProp.put(CoreWorkload.FLAG_JOB_SCAN_LENGTH, "20");
+    jobProp.put(CoreWorkload.FLAG_JOB_SCAN_LENGTH_DISTRIBUTION, "zipfian");
+    jobProp.put(CoreWorkload.FLAG_JOB_VALUE_SIZE, "15");
+
+    Workload scanWorkload = new CoreWorkload();
+    Assert.assertEquals(Workload.WorkloadResult.OK, scanWorkload.init(0, 1, null, jobProp));
+
+    for(int a = 0; a<1000; a++)
+    {
+      Query q = scanWorkload.generateTransaction();
+      Assert.assertEquals(QueryType.SCAN, q.getType());
+      Assert.assertTrue(q.getScanLength() >= 1 && q.getScanLength() <= 20);
+      Assert.assertNotNull(q.getKeyBytes());
+    }
+    scanWorkload.close();
+  }
+
+  @Test
+  public void testMultiGet()
+  {
+    Map<String, String> jobProp = new HashMap<String, String>();
+    jobProp.put(RunExperiment.FLAG_JOB_NAME, "job3");
+    jobProp.put(RunExperiment.FLAG_JOB_ROW, "100");
+    jobProp.put(CoreWorkload.FLAG_JOB_MULTIGET_RATE, "1");
+    jobProp.put(CoreWorkload.FLAG_JOB_MULTIGET_KEYS, "8");
+    jobProp.put(CoreWorkload.FLAG_JOB_VALUE_SIZE, "15");
+
+    Workload multiGetWorkload = new CoreWorkload();
+    Assert.assertEquals(Workload.WorkloadResult.OK, multiGetWorkload.init(0, 1, null, jobProp));
+
+    for(int a = 0; a<1000; a++)
+    {
+      Query q = multiGetWorkload.generateTransaction();
+      Assert.assertEquals(QueryType.MULTI_GET, q.getType());
+
+      int count = q.getMultiKeyCount();
+      Assert.assertTrue(count >= 1 && count <= 8);
+
+      //keys of one query must not share buffers
+      byte keys[][] = q.getMultiKeys();
+      for(int b = 0; b<count; b++)
+      {
+        Assert.assertNotNull(keys[b]);
+        for(int c = 0; c<b; c++)
+          Assert.assertNotSame(keys[b], keys[c]);
+      }
+    }
+    multiGetWorkload.close();
+  }
+
+  @Test
+  public void testReadModifyWrite()
+  {
+    Map<String, String> jobProp = new HashMap<String, String>();
+    jobProp.put(RunExperiment.FLAG_JOB_NAME, "job4");
+    jobProp.put(RunExperiment.FLAG_JOB_ROW, "100");
+    jobProp.put(CoreWorkload.FLAG_JOB_RMW_RATE, "1");
+    jobProp.put(CoreWorkload.FLAG_JOB_VALUE_SIZE, "15");
+
+    Workload rmwWorkload = new CoreWorkload();
+    Assert.assertEquals(Workload.WorkloadResult.OK, rmwWorkload.init(0, 1, null, jobProp));
+
+    //counter operands are 1
+    Query q = rmwWorkload.generateTransaction();
+    Assert.assertEquals(QueryType.READ_MODIFY_WRITE, q.getType());
+    Assert.assertEquals(1, MergeOperator.readLong(q.getValueArray(), q.getValueOffset(), q.getValueLength()));
+    rmwWorkload.close();
+
+    //append operands are values
+    jobProp.put(CoreWorkload.FLAG_JOB_RMW_OPERATOR, "append");
+    rmwWorkload = new CoreWorkload();
+    Assert.assertEquals(Workload.WorkloadResult.OK, rmwWorkload.init(0, 1, null, jobProp));
+    q = rmwWorkload.generateTransaction();
+    Assert.assertEquals(QueryType.READ_MODIFY_WRITE, q.getType());
+    Assert.assertEquals(15, q.getValueLength());
+    rmwWorkload.close();
+
+    jobProp.put(CoreWorkload.FLAG_JOB_RMW_OPERATOR, "unknown");
+    Assert.assertEquals(Workload.WorkloadResult.FAIL, new CoreWorkload().init(0, 1, null, jobProp));
+  }
 }
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.workload;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query.QueryType;
+
+public class TestOperationChooser
+{
+  @Test
+  public void testDistribution()
+  {
+    OperationChooser chooser = new OperationChooser();
+    chooser.addOperation(QueryType.READ, 0.6);
+    chooser.addOperation(QueryType.INSERT, 0.3);
+    chooser.addOperation(QueryType.DELETE, 0);
+    chooser.addOperation(QueryType.UPDATE, 0.1);
+    chooser.build();
+
+    Random ranGen = new Random(1);
+    int counts[] = new int[QueryType.values().length];
+    int total = 1000000;
+    for(int a = 0; a<total; a++)
+      counts[chooser.next(ranGen).ordinal()]++;
+
+    Assert.assertEquals(0.6, ((double) counts[QueryType.READ.ordinal()]) / total, 0.01);
+    Assert.assertEquals(0.3, ((double) counts[QueryType.INSERT.ordinal()]) / total, 0.01);
+    Assert.assertEquals(0.1, ((double) counts[QueryType.UPDATE.ordinal()]) / total, 0.01);
+    Assert.assertEquals(0, counts[QueryType.DELETE.ordinal()]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmpty()
+  {
+    new OperationChooser().build();
+  }
+}
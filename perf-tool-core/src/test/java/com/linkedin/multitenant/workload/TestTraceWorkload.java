@@ -0,0 +1,128 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.workload;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.workload.Workload.WorkloadResult;
+
+public class TestTraceWorkload
+{
+  private static File trace;
+
+  @BeforeClass
+  public static void prepare() throws Exception
+  {
+    trace = File.createTempFile("trace", ".txt");
+    FileWriter writer = new FileWriter(trace);
+    writer.write("# timestamp op key valueSize\n");
+    for(int a = 0; a<100; a++)
+    {
+      writer.write((1000 + a) + ".5 INSERT key" + a + " " + (a + 1) + "\n");
+      writer.write("\n");
+      writer.write((1000 + a) + ".75\tread\tkey" + a + "\n");
+    }
+    writer.write("1200 delete key7");
+    writer.close();
+  }
+
+  @AfterClass
+  public static void closeDown()
+  {
+    trace.delete();
+  }
+
+  private Workload create(int myId, int numberOfWorkers, String speed)
+  {
+    Map<String, String> jobProp = new HashMap<String, String>();
+    jobProp.put(RunExperiment.FLAG_JOB_NAME, "job1");
+    jobProp.put(CoreWorkload.FLAG_JOB_VALUE_SIZE, "50");
+    jobProp.put(TraceWorkload.FLAG_JOB_TRACE_FILE, trace.getPath());
+    jobProp.put(TraceWorkload.FLAG_JOB_TRACE_SPEED, speed);
+
+    Workload w = new TraceWorkload();
+    Assert.assertEquals(WorkloadResult.OK, w.init(myId, numberOfWorkers, null, jobProp));
+    return w;
+  }
+
+  @Test
+  public void testPartition()
+  {
+    int numberOfWorkers = 3;
+    Set<String> keys = new HashSet<String>();
+    int total = 0;
+    for(int id = 0; id<numberOfWorkers; id++)
+    {
+      Workload w = create(id, numberOfWorkers, "max");
+      Query q;
+      while((q = w.generateTransaction()) != null)
+      {
+        total++;
+        if(q.getType() == QueryType.INSERT)
+        {
+          Assert.assertTrue(keys.add(q.getKey()));
+          Assert.assertEquals(Math.min(Integer.parseInt(q.getKey().substring(3)) + 1, 50), q.getValueLength());
+        }
+        else
+        {
+          Assert.assertTrue(keys.contains(q.getKey()));
+        }
+      }
+      w.close();
+    }
+
+    Assert.assertEquals(100, keys.size());
+    Assert.assertEquals(201, total);
+  }
+
+  @Test
+  public void testLoad()
+  {
+    Workload w = create(0, 1, "max");
+    Set<String> keys = new HashSet<String>();
+    int count = 0;
+    Query q;
+    while((q = w.generateInsertLoad()) != null)
+    {
+      Assert.assertEquals(QueryType.INSERT, q.getType());
+      Assert.assertTrue(keys.add(q.getKey()));
+      count++;
+    }
+    w.close();
+
+    //each key is inserted once, although it is in the trace twice
+    Assert.assertEquals(100, count);
+  }
+
+  @Test
+  public void testTiming()
+  {
+    //first 10 operations span 4.25ms of the trace, replayed at half speed
+    Workload w = create(0, 1, "0.5");
+    long st = System.nanoTime();
+    for(int a = 0; a<10; a++)
+      Assert.assertNotNull(w.generateTransaction());
+    long elapsed = System.nanoTime() - st;
+    w.close();
+
+    Assert.assertTrue(elapsed >= 8500000L);
+  }
+}
@@ -7,6 +7,9 @@
  */
 package com.linkedin.multitenant.xml;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -71,4 +74,86 @@ public class TestParser
       e.printStackTrace();
     }
   }
+
+  @Test
+  public void testSweep() throws Exception
+  {
+    String inputData =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<workPlan>" +
+              "<property name=\"work.runTime\" value=\"100\"/>" +
+              "<job>" +
+                "<property name=\"job.name\" value=\"a\"/>" +
+                "<property name=\"job.threads\" value=\"1\"/>" +
+              "</job>" +
+              "<job>" +
+                "<property name=\"job.name\" value=\"b\"/>" +
+                "<property name=\"job.threads\" value=\"1\"/>" +
+                "<timeline>" +
+                  "<change at=\"10\" to=\"40\"/>" +
+                "</timeline>" +
+              "</job>" +
+              "<sweep>" +
+                "<dimension property=\"job.threads\" job=\"*\"><value>8</value><value>16</value></dimension>" +
+                "<dimension property=\"job.valueSize\" job=\"b\"><value>100</value><value>1000</value><value>10000</value></dimension>" +
+                "<dimension property=\"work.runTime\"><value>60</value></dimension>" +
+              "</sweep>" +
+            "</workPlan>";
+
+    XmlWorkPlan plan = XmlParser.parseWorkPlan(inputData.getBytes());
+    assertEquals(3, plan.getSweep().size());
+    assertEquals(6, plan.getSweepPointCount());
+
+    //the first dimension changes slowest
+    assertEquals("job.threads=8,b:job.valueSize=100,work.runTime=60", plan.getSweepLabel(0));
+    assertEquals("job.threads=8,b:job.valueSize=1000,work.runTime=60", plan.getSweepLabel(1));
+    assertEquals("job.threads=16,b:job.valueSize=10000,work.runTime=60", plan.getSweepLabel(5));
+
+    XmlWorkPlan point = plan.getSweepPoint(4);
+    assertEquals("60", point.getProperties().get("work.runTime"));
+    assertEquals("16", point.getJobList().get(0).getProperties().get("job.threads"));
+    assertNull(point.getJobList().get(0).getProperties().get("job.valueSize"));
+    assertEquals("16", point.getJobList().get(1).getProperties().get("job.threads"));
+    assertEquals("1000", point.getJobList().get(1).getProperties().get("job.valueSize"));
+    assertEquals(1, point.getJobList().get(1).getTimeline().size());
+    assertEquals(1, point.getSweepPointCount());
+
+    //points are copies
+    assertEquals("100", plan.getProperties().get("work.runTime"));
+    assertEquals("1", plan.getJobList().get(0).getProperties().get("job.threads"));
+  }
+
+  @Test
+  public void testNoSweep() throws Exception
+  {
+    String inputData =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<workPlan>" +
+              "<job>" +
+                "<property name=\"job.name\" value=\"a\"/>" +
+              "</job>" +
+            "</workPlan>";
+
+    XmlWorkPlan plan = XmlParser.parseWorkPlan(inputData.getBytes());
+    assertEquals(1, plan.getSweepPointCount());
+    assertEquals("", plan.getSweepLabel(0));
+    assertEquals("a", plan.getSweepPoint(0).getJobList().get(0).getProperties().get("job.name"));
+  }
+
+  @Test(expected = Exception.class)
+  public void testSweepUnknownJob() throws Exception
+  {
+    String inputData =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<workPlan>" +
+              "<job>" +
+                "<property name=\"job.name\" value=\"a\"/>" +
+              "</job>" +
+              "<sweep>" +
+                "<dimension property=\"job.threads\" job=\"c\"><value>8</value></dimension>" +
+              "</sweep>" +
+            "</workPlan>";
+
+    XmlParser.parseWorkPlan(inputData.getBytes());
+  }
 }
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFastRandom
+{
+  @Test
+  public void testReproducible()
+  {
+    FastRandom r1 = new FastRandom(FastRandom.deriveSeed(0, "job-1", 3));
+    FastRandom r2 = new FastRandom(FastRandom.deriveSeed(0, "job-1", 3));
+    FastRandom r3 = new FastRandom(FastRandom.deriveSeed(0, "job-1", 4));
+
+    boolean differs = false;
+    for(int a = 0; a<1000; a++)
+    {
+      long v = r1.nextLong();
+      Assert.assertEquals(v, r2.nextLong());
+      if(v != r3.nextLong())
+        differs = true;
+    }
+    Assert.assertTrue(differs);
+  }
+
+  @Test
+  public void testRanges()
+  {
+    FastRandom r = new FastRandom(42);
+    double sum = 0;
+    for(int a = 0; a<100000; a++)
+    {
+      double d = r.nextDouble();
+      Assert.assertTrue(d >= 0 && d < 1);
+      sum += d;
+
+      int i = r.nextInt(7);
+      Assert.assertTrue(i >= 0 && i < 7);
+    }
+    Assert.assertEquals(0.5, sum / 100000, 0.01);
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestShiftingHotspotIntegerGenerator
+{
+  //generator with a clock set by the test
+  private static class ManualClockGenerator extends ShiftingHotspotIntegerGenerator
+  {
+    private long _now;
+
+    public ManualClockGenerator(double periodSec, double stepFraction)
+    {
+      super(0, 999, 0.1, 1.0, periodSec, stepFraction);
+    }
+
+    @Override
+    protected long now()
+    {
+      return _now;
+    }
+  }
+
+  private static void assertHotSet(ManualClockGenerator gen, int start)
+  {
+    for(int a = 0; a<1000; a++)
+    {
+      int offset = (gen.nextInt() - start + 1000) % 1000;
+      Assert.assertTrue(offset < 100);
+    }
+  }
+
+  @Test
+  public void testSameAsHotspot()
+  {
+    HotspotIntegerGenerator fixed = new HotspotIntegerGenerator(10, 1009, 0.2, 0.7);
+    ShiftingHotspotIntegerGenerator shifting = new ShiftingHotspotIntegerGenerator(10, 1009, 0.2, 0.7, 0, 0.2);
+    fixed.setRandom(new Random(3));
+    shifting.setRandom(new Random(3));
+    for(int a = 0; a<10000; a++)
+      Assert.assertEquals(fixed.nextInt(), shifting.nextInt());
+  }
+
+  @Test
+  public void testPeriodicShift()
+  {
+    ManualClockGenerator gen = new ManualClockGenerator(10, 0.25);
+    gen.setRandom(new Random(1));
+    gen.start(0);
+    assertHotSet(gen, 0);
+
+    gen._now = 9999999999L;
+    assertHotSet(gen, 0);
+
+    gen._now = 10000000000L;
+    assertHotSet(gen, 250);
+    Assert.assertEquals(250, gen.getHotStart());
+
+    //wraps around the upper bound
+    gen._now = 39000000000L;
+    assertHotSet(gen, 750);
+    gen._now = 40000000000L;
+    assertHotSet(gen, 0);
+  }
+
+  @Test
+  public void testStartTime()
+  {
+    //a worker that sends its first query late moves with the others
+    ManualClockGenerator early = new ManualClockGenerator(10, 0.25);
+    ManualClockGenerator late = new ManualClockGenerator(10, 0.25);
+    early.setRandom(new Random(1));
+    late.setRandom(new Random(2));
+    early.start(1000000000L);
+    late.start(1000000000L);
+
+    early._now = 1000000000L;
+    assertHotSet(early, 0);
+    late._now = 12000000000L;
+    assertHotSet(late, 250);
+    early._now = 12000000000L;
+    Assert.assertEquals(late.getHotStart(), early.getHotStart());
+
+    //not started, the hot set stays in place
+    ManualClockGenerator idle = new ManualClockGenerator(10, 0.25);
+    idle.setRandom(new Random(3));
+    idle._now = 50000000000L;
+    assertHotSet(idle, 0);
+  }
+
+  @Test
+  public void testMove()
+  {
+    ManualClockGenerator gen = new ManualClockGenerator(10, 0.01);
+    gen.setRandom(new Random(1));
+    gen._now = 5000000000L;
+    gen.moveHotSpot(0.95);
+    assertHotSet(gen, 950);
+
+    //periodic moves restart from the move
+    gen._now = 15000000000L;
+    assertHotSet(gen, 960);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFraction()
+  {
+    new ShiftingHotspotIntegerGenerator(0, 10, 1.5, 0.5, 0, 0);
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.yahoo.ycsb.generator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestZetaCache
+{
+  @Test
+  public void testExact()
+  {
+    double thetas[] = {0.5, 0.9, 0.99};
+    long counts[] = {1, 2, 10, 1024, 1025, 5000, 100000};
+    for(int a = 0; a<thetas.length; a++)
+    {
+      for(int b = 0; b<counts.length; b++)
+      {
+        double exact = ZipfianGenerator.zetastatic(counts[b], thetas[a]);
+        Assert.assertEquals(exact, ZetaCache.zeta(counts[b], thetas[a]), exact * 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testPrecomputed()
+  {
+    double zeta = ZetaCache.zeta(ScrambledZipfianGenerator.ITEM_COUNT + 1, ScrambledZipfianGenerator.USED_ZIPFIAN_CONSTANT);
+    Assert.assertEquals(ScrambledZipfianGenerator.ZETAN, zeta, 1e-6);
+  }
+
+  @Test
+  public void testGenerators()
+  {
+    FastZipfianGenerator zipf = new FastZipfianGenerator(10, 109, 0.8);
+    for(int a = 0; a<10000; a++)
+    {
+      long val = zipf.nextLong();
+      Assert.assertTrue(val >= 10 && val <= 109);
+    }
+
+    CounterGenerator counter = new CounterGenerator(100);
+    FastLatestGenerator latest = new FastLatestGenerator(counter, 0.99);
+    for(int a = 0; a<10000; a++)
+    {
+      if(a % 10 == 0)
+        counter.nextInt();
+
+      int val = latest.nextInt();
+      Assert.assertTrue(val >= 0 && val <= counter.lastInt());
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
+
+/**
+ * Reads response bodies into a buffer that is reused by every response of a worker, without decoding them to Strings.<br>
+ * handleResponse returns the length of the body, or -1 if there is none. The body is in getBuffer until the next response.
+ * Responses without a 2xx status throw a ClientProtocolException.
+ */
+public class BufferResponseHandler implements ResponseHandler<Integer>
+{
+  private byte m_buffer[];
+
+  public BufferResponseHandler()
+  {
+    m_buffer = new byte[4096];
+  }
+
+  public byte[] getBuffer()
+  {
+    return m_buffer;
+  }
+
+  /**
+   * Count the rows of a scan or multi-get response of mt-proxy in the buffer. Each row is key length int, key bytes,
+   * value length int, value bytes.
+   * @param length Length returned by handleResponse
+   * @return Number of complete rows, 0 if there is no body
+   */
+  public int countRows(int length)
+  {
+    int rows = 0;
+    int pos = 0;
+    while(pos + 4 <= length)
+    {
+      int keyEnd = pos + 4 + readInt(pos);
+      if(keyEnd < pos + 4 || keyEnd + 4 > length)
+        break;
+      int valueEnd = keyEnd + 4 + readInt(keyEnd);
+      if(valueEnd < keyEnd + 4 || valueEnd > length)
+        break;
+      rows++;
+      pos = valueEnd;
+    }
+    return rows;
+  }
+
+  private int readInt(int pos)
+  {
+    return ((m_buffer[pos] & 0xff) << 24) | ((m_buffer[pos + 1] & 0xff) << 16) | ((m_buffer[pos + 2] & 0xff) << 8) | (m_buffer[pos + 3] & 0xff);
+  }
+
+  public Integer handleResponse(HttpResponse response) throws ClientProtocolException, IOException
+  {
+    int status = response.getStatusLine().getStatusCode();
+    HttpEntity ent = response.getEntity();
+    if(status < 200 || status >= 300)
+    {
+      //consume the body so that the connection can be reused
+      if(ent != null)
+        read(ent);
+      throw new ClientProtocolException("Unexpected response status: " + status);
+    }
+
+    if(ent == null)
+      return -1;
+    else
+      return read(ent);
+  }
+
+  private int read(HttpEntity ent) throws IOException
+  {
+    InputStream in = ent.getContent();
+    if(in == null)
+      return -1;
+
+    try
+    {
+      long contentLength = ent.getContentLength();
+      if(contentLength > m_buffer.length)
+        m_buffer = new byte[(int) contentLength];
+
+      int len = 0;
+      int read;
+      while((read = in.read(m_buffer, len, m_buffer.length - len)) != -1)
+      {
+        len += read;
+        if(len == m_buffer.length)
+        {
+          byte temp[] = new byte[m_buffer.length * 2];
+          System.arraycopy(m_buffer, 0, temp, 0, len);
+          m_buffer = temp;
+        }
+      }
+      return len;
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+}
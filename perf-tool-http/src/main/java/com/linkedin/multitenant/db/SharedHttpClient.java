@@ -0,0 +1,147 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+
+/**
+ * HTTP client shared by all workers of the process that send requests to the same host.<br>
+ * Connections are pooled and kept alive between requests, so workers don't pay for a new connection or a stale
+ * connection check per request. Get it with getInstance in Database.init and give it back with release in close.
+ * Responses should be consumed with a BufferResponseHandler owned by the worker.
+ */
+public class SharedHttpClient
+{
+  private static final Logger m_log = Logger.getLogger(SharedHttpClient.class);
+
+  public static final String FLAG_HTTP_MAX_CONNECTIONS = "http.maxConnections";
+  public static final String FLAG_HTTP_KEEP_ALIVE      = "http.keepAlive";
+
+  private static final Map<String, SharedHttpClient> m_instances = new HashMap<String, SharedHttpClient>();
+
+  private String m_id;
+  private CloseableHttpClient m_client;
+  private int m_refCount;
+
+  /**
+   * Get the client of the given host, creating it on the first call. Each call must be matched by a call to release.
+   * @param hostName Host name
+   * @param hostPort Host port
+   * @param workPlanProperties Work plan properties with the optional http.* flags. Only used by the first call.
+   * @return Shared client
+   */
+  public static synchronized SharedHttpClient getInstance(String hostName, int hostPort, Map<String, String> workPlanProperties)
+  {
+    String id = hostName + ":" + hostPort;
+    SharedHttpClient result = m_instances.get(id);
+    if(result == null)
+    {
+      int maxConnections = 200;
+      long keepAliveMs = 30000;
+      if(workPlanProperties != null)
+      {
+        String temp = workPlanProperties.get(FLAG_HTTP_MAX_CONNECTIONS);
+        if(temp != null)
+          maxConnections = Integer.parseInt(temp);
+
+        temp = workPlanProperties.get(FLAG_HTTP_KEEP_ALIVE);
+        if(temp != null)
+          keepAliveMs = Long.parseLong(temp);
+      }
+
+      result = new SharedHttpClient(id, maxConnections, keepAliveMs);
+      m_instances.put(id, result);
+      m_log.debug("Created http client for " + id + " with " + maxConnections + " connections. keepAlive=" + keepAliveMs + "ms");
+    }
+    result.m_refCount++;
+    return result;
+  }
+
+  /**
+   * Drop a reference taken by getInstance. The last one closes the client and its connections.
+   */
+  public static synchronized void release(SharedHttpClient client) throws IOException
+  {
+    client.m_refCount--;
+    if(client.m_refCount > 0)
+      return;
+
+    m_instances.remove(client.m_id);
+    client.m_client.close();
+    m_log.debug("Closed http client for " + client.m_id);
+  }
+
+  private SharedHttpClient(String id, int maxConnections, final long keepAliveMs)
+  {
+    m_id = id;
+    m_refCount = 0;
+
+    PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+    connManager.setMaxTotal(maxConnections);
+    connManager.setDefaultMaxPerRoute(maxConnections);
+    connManager.setDefaultSocketConfig(SocketConfig.custom().setTcpNoDelay(true).setSoKeepAlive(true).build());
+
+    //keep connections for the time given by the server, or keepAliveMs if it doesn't give one
+    ConnectionKeepAliveStrategy keepAlive = new ConnectionKeepAliveStrategy()
+    {
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context)
+      {
+        HeaderElementIterator itr = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+        while(itr.hasNext())
+        {
+          HeaderElement he = itr.nextElement();
+          if(he.getValue() != null && he.getName().equalsIgnoreCase("timeout"))
+          {
+            try
+            {
+              return Long.parseLong(he.getValue()) * 1000;
+            }
+            catch(NumberFormatException e)
+            {
+              break;
+            }
+          }
+        }
+        return keepAliveMs;
+      }
+    };
+
+    RequestConfig rq = RequestConfig.custom().setStaleConnectionCheckEnabled(false).build();
+
+    m_client = HttpClients.custom()
+                          .setConnectionManager(connManager)
+                          .setKeepAliveStrategy(keepAlive)
+                          .setDefaultRequestConfig(rq)
+                          .disableCookieManagement()
+                          .disableContentCompression()
+                          .build();
+  }
+
+  public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> handler) throws IOException
+  {
+    return m_client.execute(request, handler);
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBufferResponseHandler
+{
+  private static byte[] body(int len)
+  {
+    byte result[] = new byte[len];
+    for(int a = 0; a<len; a++)
+      result[a] = (byte) (a % 251);
+    return result;
+  }
+
+  private static HttpResponse response(int status, byte body[], boolean knownLength)
+  {
+    HttpResponse result = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+    if(body != null)
+    {
+      if(knownLength)
+        result.setEntity(new ByteArrayEntity(body));
+      else
+        result.setEntity(new InputStreamEntity(new ByteArrayInputStream(body), -1));
+    }
+    return result;
+  }
+
+  @Test
+  public void testKnownLength() throws IOException
+  {
+    BufferResponseHandler handler = new BufferResponseHandler();
+    byte expected[] = body(10000);
+
+    int len = handler.handleResponse(response(200, expected, true));
+    Assert.assertEquals(expected.length, len);
+    Assert.assertArrayEquals(expected, Arrays.copyOf(handler.getBuffer(), len));
+  }
+
+  @Test
+  public void testUnknownLength() throws IOException
+  {
+    BufferResponseHandler handler = new BufferResponseHandler();
+    byte expected[] = body(10000);
+
+    int len = handler.handleResponse(response(200, expected, false));
+    Assert.assertEquals(expected.length, len);
+    Assert.assertArrayEquals(expected, Arrays.copyOf(handler.getBuffer(), len));
+  }
+
+  @Test
+  public void testReuse() throws IOException
+  {
+    BufferResponseHandler handler = new BufferResponseHandler();
+    handler.handleResponse(response(200, body(100), true));
+    byte buffer[] = handler.getBuffer();
+
+    byte expected[] = new byte[50];
+    Arrays.fill(expected, (byte) 7);
+    int len = handler.handleResponse(response(204, expected, false));
+    Assert.assertSame(buffer, handler.getBuffer());
+    Assert.assertEquals(50, len);
+    Assert.assertArrayEquals(expected, Arrays.copyOf(handler.getBuffer(), len));
+
+    Assert.assertEquals(0, handler.handleResponse(response(200, new byte[0], true)).intValue());
+  }
+
+  @Test
+  public void testNoBody() throws IOException
+  {
+    BufferResponseHandler handler = new BufferResponseHandler();
+    Assert.assertEquals(-1, handler.handleResponse(response(200, null, true)).intValue());
+  }
+
+  @Test
+  public void testCountRows() throws IOException
+  {
+    //rows of 2 byte keys and 3 byte values, the last one cut
+    byte row[] = {0, 0, 0, 2, 'k', 'k', 0, 0, 0, 3, 'v', 'v', 'v'};
+    byte body[] = new byte[row.length * 3 - 2];
+    for(int a = 0; a<body.length; a++)
+      body[a] = row[a % row.length];
+
+    BufferResponseHandler handler = new BufferResponseHandler();
+    int len = handler.handleResponse(response(200, body, true));
+    Assert.assertEquals(2, handler.countRows(len));
+    Assert.assertEquals(3, handler.countRows(row.length * 3));
+    Assert.assertEquals(0, handler.countRows(-1));
+
+    //a negative length doesn't count as a row
+    byte bad[] = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0};
+    len = handler.handleResponse(response(200, bad, true));
+    Assert.assertEquals(0, handler.countRows(len));
+  }
+
+  @Test
+  public void testErrorStatus() throws IOException
+  {
+    BufferResponseHandler handler = new BufferResponseHandler();
+    ByteArrayInputStream in = new ByteArrayInputStream(body(100));
+    HttpResponse res = new BasicHttpResponse(HttpVersion.HTTP_1_1, 404, "Not Found");
+    res.setEntity(new InputStreamEntity(in, 100));
+
+    try
+    {
+      handler.handleResponse(res);
+      Assert.fail("404 should throw");
+    }
+    catch(ClientProtocolException e)
+    {
+      Assert.assertTrue(e.getMessage().contains("404"));
+    }
+    //the body is consumed, so the connection could be reused
+    Assert.assertEquals(0, in.available());
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestSharedHttpClient
+{
+  private HttpServer m_server;
+  private int m_port;
+  private AtomicInteger m_requests;
+
+  @Before
+  public void startServer() throws IOException
+  {
+    m_requests = new AtomicInteger();
+    m_server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    m_server.createContext("/", new HttpHandler()
+    {
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        m_requests.incrementAndGet();
+        byte body[] = exchange.getRequestURI().getPath().getBytes("UTF-8");
+        int status = exchange.getRequestURI().getPath().startsWith("/missing") ? 404 : 200;
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    m_server.start();
+    m_port = m_server.getAddress().getPort();
+  }
+
+  @After
+  public void stopServer()
+  {
+    m_server.stop(0);
+  }
+
+  private String url(String path)
+  {
+    return "http://localhost:" + m_port + path;
+  }
+
+  @Test
+  public void testSharedPerHost() throws IOException
+  {
+    SharedHttpClient c1 = SharedHttpClient.getInstance("localhost", m_port, null);
+    SharedHttpClient c2 = SharedHttpClient.getInstance("localhost", m_port, null);
+    SharedHttpClient other = SharedHttpClient.getInstance("localhost", m_port + 1, null);
+    Assert.assertSame(c1, c2);
+    Assert.assertNotSame(c1, other);
+
+    //the first release keeps the client open for the other reference
+    SharedHttpClient.release(c1);
+    Assert.assertSame(c2, SharedHttpClient.getInstance("localhost", m_port, null));
+    SharedHttpClient.release(c2);
+    SharedHttpClient.release(c2);
+    SharedHttpClient.release(other);
+
+    //the last release closes it, the next call makes a new one
+    SharedHttpClient c3 = SharedHttpClient.getInstance("localhost", m_port, null);
+    Assert.assertNotSame(c1, c3);
+    SharedHttpClient.release(c3);
+  }
+
+  @Test
+  public void testExecute() throws IOException
+  {
+    Map<String, String> props = new HashMap<String, String>();
+    props.put(SharedHttpClient.FLAG_HTTP_MAX_CONNECTIONS, "2");
+    props.put(SharedHttpClient.FLAG_HTTP_KEEP_ALIVE, "1000");
+    SharedHttpClient client = SharedHttpClient.getInstance("localhost", m_port, props);
+    BufferResponseHandler handler = new BufferResponseHandler();
+
+    try
+    {
+      for(int a = 0; a<10; a++)
+      {
+        String path = "/key" + a;
+        int len = client.execute(new HttpGet(url(path)), handler);
+        Assert.assertEquals(path, new String(Arrays.copyOf(handler.getBuffer(), len), "UTF-8"));
+      }
+      Assert.assertEquals(10, m_requests.get());
+
+      try
+      {
+        client.execute(new HttpGet(url("/missing")), handler);
+        Assert.fail("404 should throw");
+      }
+      catch(ClientProtocolException e)
+      {
+      }
+
+      //the failed response doesn't break the client
+      int len = client.execute(new HttpGet(url("/after")), handler);
+      Assert.assertEquals("/after", new String(Arrays.copyOf(handler.getBuffer(), len), "UTF-8"));
+    }
+    finally
+    {
+      SharedHttpClient.release(client);
+    }
+  }
+
+  @Test
+  public void testReleaseCloses() throws IOException
+  {
+    SharedHttpClient client = SharedHttpClient.getInstance("localhost", m_port, null);
+    BufferResponseHandler handler = new BufferResponseHandler();
+    client.execute(new HttpGet(url("/k")), handler);
+    SharedHttpClient.release(client);
+
+    try
+    {
+      client.execute(new HttpGet(url("/k")), handler);
+      Assert.fail("closed client should not send requests");
+    }
+    catch(IllegalStateException e)
+    {
+    }
+    Assert.assertEquals(1, m_requests.get());
+  }
+}
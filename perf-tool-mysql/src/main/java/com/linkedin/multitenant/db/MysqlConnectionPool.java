@@ -0,0 +1,141 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Connection pool shared by all workers of a job in this process.<br>
+ * At most size connections are handed out at a time. Connections are opened on demand and kept open when released,
+ * so a pool that is large enough for its workers ends up with one connection per concurrent worker.
+ * A connection released as broken is closed, and a new one is opened when it is needed again.
+ */
+public class MysqlConnectionPool
+{
+  private static final Logger _LOG = Logger.getLogger(MysqlConnectionPool.class);
+
+  private static final Map<String, MysqlConnectionPool> _instances = new HashMap<String, MysqlConnectionPool>();
+
+  private String _name;
+  private String _connStr;
+  private boolean _autoCommit;
+  private Semaphore _permits;
+  private ConcurrentLinkedQueue<Connection> _idle;
+  private int _refCount;
+
+  /**
+   * Get the pool with the given name, creating it on the first call. Each call must be matched by a call to release.
+   * @param name Name of the pool, e.g. job name
+   * @param connStr JDBC connection string
+   * @param size Maximum number of connections handed out at a time. Only used by the first call.
+   * @param autoCommit Auto commit mode of the connections
+   * @return Shared pool instance
+   */
+  public static synchronized MysqlConnectionPool getInstance(String name, String connStr, int size, boolean autoCommit)
+  {
+    MysqlConnectionPool result = _instances.get(name);
+    if(result == null)
+    {
+      result = new MysqlConnectionPool(name, connStr, size, autoCommit);
+      _instances.put(name, result);
+      _LOG.debug("Created connection pool " + name + " of " + size + " connections. autoCommit=" + autoCommit);
+    }
+    result._refCount++;
+    return result;
+  }
+
+  /**
+   * Drop a reference taken by getInstance. The last one closes the idle connections of the pool.
+   */
+  public static synchronized void release(MysqlConnectionPool pool)
+  {
+    pool._refCount--;
+    if(pool._refCount > 0)
+      return;
+
+    _instances.remove(pool._name);
+    Connection conn;
+    while((conn = pool._idle.poll()) != null)
+      closeQuietly(conn);
+    _LOG.debug("Closed connection pool " + pool._name);
+  }
+
+  private MysqlConnectionPool(String name, String connStr, int size, boolean autoCommit)
+  {
+    _name = name;
+    _connStr = connStr;
+    _autoCommit = autoCommit;
+    _permits = new Semaphore(size, true);
+    _idle = new ConcurrentLinkedQueue<Connection>();
+    _refCount = 0;
+  }
+
+  /**
+   * Take a connection, waiting until one is released if all of them are in use.
+   * @param timeoutMs Maximum wait in milliseconds
+   * @return Connection, or null if none is released in time
+   * @throws SQLException if a new connection can't be opened
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Connection acquire(long timeoutMs) throws SQLException, InterruptedException
+  {
+    if(!_permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS))
+      return null;
+
+    Connection conn = _idle.poll();
+    if(conn != null)
+      return conn;
+
+    try
+    {
+      conn = DriverManager.getConnection(_connStr);
+      conn.setAutoCommit(_autoCommit);
+      return conn;
+    }
+    catch(SQLException e)
+    {
+      _permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Give back a connection taken by acquire.
+   * @param conn Connection
+   * @param broken True to close the connection instead of keeping it for the next acquire
+   */
+  public void release(Connection conn, boolean broken)
+  {
+    if(broken)
+      closeQuietly(conn);
+    else
+      _idle.offer(conn);
+    _permits.release();
+  }
+
+  private static void closeQuietly(Connection conn)
+  {
+    try
+    {
+      conn.close();
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Failed to close connection." + e);
+    }
+  }
+}
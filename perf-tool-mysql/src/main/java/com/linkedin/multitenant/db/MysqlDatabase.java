@@ -7,6 +7,7 @@
  */
 package com.linkedin.multitenant.db;
 
+import java.io.ByteArrayInputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -16,6 +17,7 @@ import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import com.linkedin.multitenant.common.MergeOperator;
 import com.linkedin.multitenant.common.Query;
 import com.linkedin.multitenant.main.RunExperiment;
 import com.linkedin.multitenant.workload.CoreWorkload;
@@ -43,6 +45,11 @@ public class MysqlDatabase implements Database
   protected PreparedStatement _writeStmt = null;
   protected PreparedStatement _readStmt = null;
   protected PreparedStatement _deleteStmt = null;
+  protected PreparedStatement _scanStmt = null;
+  //multi-get statements indexed by key count, prepared on first use
+  protected PreparedStatement _multiGetStmts[] = null;
+
+  protected MergeOperator _mergeOperator = MergeOperator.COUNTER;
 
   @Override
   public DatabaseResult init(Map<String, String> workPlanProperties, Map<String, String> jobProperties) throws Exception
@@ -171,6 +178,21 @@ public class MysqlDatabase implements Database
       return DatabaseResult.FAIL;
     }
 
+    //get read-modify-write operator
+    temp = getParamStr(jobProperties, CoreWorkload.FLAG_JOB_RMW_OPERATOR);
+    if(temp != null)
+    {
+      try
+      {
+        _mergeOperator = MergeOperator.parse(temp);
+      }
+      catch(IllegalArgumentException e)
+      {
+        _LOG.fatal("Unknown read-modify-write operator for job " + jobName + ": " + temp);
+        return DatabaseResult.FAIL;
+      }
+    }
+
     //set timeout
     timeout = getParamInt(workPlanProperties, FLAG_MYSQL_TIMEOUT);
     if(timeout == -1)
@@ -187,12 +209,10 @@ public class MysqlDatabase implements Database
     _valColName = valColName;
     _timeout = timeout;
 
-    _connStr = "jdbc:mysql://" + dbHost + ":" + dbPort + "/" + dbName + "?useUnicode=true&characterEncoding=utf-8" + "&user=" + userName + "&password=" + userPass;
+    _connStr = buildConnStr(dbHost, dbPort, userName, userPass, dbName);
     prepareConn();
 
-    String createTableQuery = "create table if not exists " + _tableName + " (" + _keyColName + " varchar(40) not null, " + _valColName + " blob(" + valueColSize + "),"
-        + " primary key(" + _keyColName + ")) engine= InnoDB";
-    PreparedStatement stmt = _conn.prepareStatement(createTableQuery);
+    PreparedStatement stmt = _conn.prepareStatement(buildCreateTableSql(valueColSize));
     try
     {
       stmt.executeUpdate();
@@ -209,16 +229,28 @@ public class MysqlDatabase implements Database
     prepareWriteStmt();
     prepareReadStmt();
     prepareDeleteStmt();
+    prepareScanStmt();
 
     return DatabaseResult.OK;
   }
 
+  protected String buildConnStr(String dbHost, int dbPort, String userName, String userPass, String dbName)
+  {
+    return "jdbc:mysql://" + dbHost + ":" + dbPort + "/" + dbName + "?useUnicode=true&characterEncoding=utf-8" + "&user=" + userName + "&password=" + userPass;
+  }
+
+  protected String buildCreateTableSql(int valueColSize)
+  {
+    return "create table if not exists " + _tableName + " (" + _keyColName + " varchar(40) not null, " + _valColName + " blob(" + valueColSize + "),"
+        + " primary key(" + _keyColName + ")) engine= InnoDB";
+  }
+
   private void prepareConn() throws Exception
   {
     _conn = DriverManager.getConnection(_connStr);
   }
 
-  private void prepareWriteStmt() throws Exception
+  protected String buildWriteSql()
   {
     StringBuilder sb = new StringBuilder();
 
@@ -230,15 +262,21 @@ public class MysqlDatabase implements Database
     sb.append(_valColName);
     sb.append(") values (?, ?) on duplicate key update ");
     sb.append(_valColName);
-    sb.append("= ?");
+    sb.append("= values(");
+    sb.append(_valColName);
+    sb.append(")");
+
+    return sb.toString();
+  }
 
-    String writeStr = sb.toString();
-    _writeStmt = _conn.prepareStatement(writeStr);
+  private void prepareWriteStmt() throws Exception
+  {
+    _writeStmt = _conn.prepareStatement(buildWriteSql());
     if(_timeout > 0)
       _writeStmt.setQueryTimeout(_timeout);
   }
 
-  private void prepareReadStmt() throws Exception
+  protected String buildReadSql()
   {
     StringBuilder sb = new StringBuilder();
 
@@ -250,13 +288,17 @@ public class MysqlDatabase implements Database
     sb.append(_keyColName);
     sb.append("= ?");
 
-    String readStr = sb.toString();
-    _readStmt = _conn.prepareStatement(readStr);
+    return sb.toString();
+  }
+
+  private void prepareReadStmt() throws Exception
+  {
+    _readStmt = _conn.prepareStatement(buildReadSql());
     if(_timeout > 0)
       _readStmt.setQueryTimeout(_timeout);
   }
 
-  private void prepareDeleteStmt() throws Exception
+  protected String buildDeleteSql()
   {
     StringBuilder sb = new StringBuilder();
 
@@ -266,13 +308,89 @@ public class MysqlDatabase implements Database
     sb.append(_keyColName);
     sb.append("=?");
 
-    String deleteStr = sb.toString();
-    _deleteStmt = _conn.prepareStatement(deleteStr);
+    return sb.toString();
+  }
+
+  private void prepareDeleteStmt() throws Exception
+  {
+    _deleteStmt = _conn.prepareStatement(buildDeleteSql());
     if(_timeout > 0)
       _deleteStmt.setQueryTimeout(_timeout);
   }
 
-  private void tryClose(Statement s)
+  protected String buildScanSql()
+  {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("select ");
+    sb.append(_keyColName);
+    sb.append(", ");
+    sb.append(_valColName);
+    sb.append(" from ");
+    sb.append(_tableName);
+    sb.append(" where ");
+    sb.append(_keyColName);
+    sb.append(">= ? order by ");
+    sb.append(_keyColName);
+    sb.append(" limit ?");
+
+    return sb.toString();
+  }
+
+  private void prepareScanStmt() throws Exception
+  {
+    _scanStmt = _conn.prepareStatement(buildScanSql());
+    if(_timeout > 0)
+      _scanStmt.setQueryTimeout(_timeout);
+  }
+
+  private PreparedStatement getMultiGetStmt(int keyCount) throws Exception
+  {
+    if(_multiGetStmts == null || _multiGetStmts.length <= keyCount)
+    {
+      PreparedStatement temp[] = new PreparedStatement[keyCount + 1];
+      if(_multiGetStmts != null)
+        System.arraycopy(_multiGetStmts, 0, temp, 0, _multiGetStmts.length);
+      _multiGetStmts = temp;
+    }
+
+    PreparedStatement stmt = _multiGetStmts[keyCount];
+    if(stmt != null && !stmt.isClosed())
+      return stmt;
+
+    stmt = _conn.prepareStatement(buildMultiGetSql(keyCount));
+    if(_timeout > 0)
+      stmt.setQueryTimeout(_timeout);
+    _multiGetStmts[keyCount] = stmt;
+
+    return stmt;
+  }
+
+  protected String buildMultiGetSql(int keyCount)
+  {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("select ");
+    sb.append(_keyColName);
+    sb.append(", ");
+    sb.append(_valColName);
+    sb.append(" from ");
+    sb.append(_tableName);
+    sb.append(" where ");
+    sb.append(_keyColName);
+    sb.append(" in (");
+    for(int a = 0; a<keyCount; a++)
+    {
+      if(a > 0)
+        sb.append(", ");
+      sb.append("?");
+    }
+    sb.append(")");
+
+    return sb.toString();
+  }
+
+  protected void tryClose(Statement s)
   {
     try
     {
@@ -287,7 +405,7 @@ public class MysqlDatabase implements Database
     }
   }
 
-  private void tryClose(Connection c)
+  protected void tryClose(Connection c)
   {
     try
     {
@@ -300,7 +418,7 @@ public class MysqlDatabase implements Database
     }
   }
 
-  private void tryClose(ResultSet rs)
+  protected void tryClose(ResultSet rs)
   {
     try
     {
@@ -316,8 +434,7 @@ public class MysqlDatabase implements Database
   @Override
   public DatabaseResult doInsert(Query q)
   {
-    String keyStr = q.getKey();
-    byte valByte[] = q.getValue();
+    byte keyByte[] = q.getKeyBytes();
 
     try
     {
@@ -328,11 +445,11 @@ public class MysqlDatabase implements Database
         prepareWriteStmt();
         prepareReadStmt();
         prepareDeleteStmt();
+        prepareScanStmt();
       }
 
-      _writeStmt.setString(1, keyStr);
-      _writeStmt.setBytes(2, valByte);
-      _writeStmt.setBytes(3, valByte);
+      _writeStmt.setBytes(1, keyByte);
+      _writeStmt.setBinaryStream(2, new ByteArrayInputStream(q.getValueArray(), q.getValueOffset(), q.getValueLength()), q.getValueLength());
       _writeStmt.executeUpdate();
       return DatabaseResult.OK;
     }
@@ -346,8 +463,7 @@ public class MysqlDatabase implements Database
   @Override
   public DatabaseResult doUpdate(Query q)
   {
-    String keyStr = q.getKey();
-    byte valByte[] = q.getValue();
+    byte keyByte[] = q.getKeyBytes();
 
     try
     {
@@ -358,11 +474,11 @@ public class MysqlDatabase implements Database
         prepareWriteStmt();
         prepareReadStmt();
         prepareDeleteStmt();
+        prepareScanStmt();
       }
 
-      _writeStmt.setString(1, keyStr);
-      _writeStmt.setBytes(2, valByte);
-      _writeStmt.setBytes(3, valByte);
+      _writeStmt.setBytes(1, keyByte);
+      _writeStmt.setBinaryStream(2, new ByteArrayInputStream(q.getValueArray(), q.getValueOffset(), q.getValueLength()), q.getValueLength());
       _writeStmt.executeUpdate();
       return DatabaseResult.OK;
     }
@@ -387,15 +503,20 @@ public class MysqlDatabase implements Database
         prepareWriteStmt();
         prepareReadStmt();
         prepareDeleteStmt();
+        prepareScanStmt();
       }
 
-      _readStmt.setString(1, q.getKey());
+      _readStmt.setBytes(1, q.getKeyBytes());
       rs = _readStmt.executeQuery();
 
       if(rs.next())
       {
-        @SuppressWarnings("unused")
         byte valueB[] = rs.getBytes(_valColName);
+        q.setResult(valueB, 0, valueB.length);
+      }
+      else
+      {
+        q.setResultMissing();
       }
 
       return DatabaseResult.OK;
@@ -423,9 +544,10 @@ public class MysqlDatabase implements Database
         prepareWriteStmt();
         prepareReadStmt();
         prepareDeleteStmt();
+        prepareScanStmt();
       }
 
-      _deleteStmt.setString(1, q.getKey());
+      _deleteStmt.setBytes(1, q.getKeyBytes());
       _deleteStmt.executeUpdate();
 
       return DatabaseResult.OK;
@@ -437,6 +559,138 @@ public class MysqlDatabase implements Database
     }
   }
 
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    ResultSet rs = null;
+
+    try
+    {
+      if(_scanStmt.isClosed() || _conn.isClosed())
+      {
+        close();
+        prepareConn();
+        prepareWriteStmt();
+        prepareReadStmt();
+        prepareDeleteStmt();
+        prepareScanStmt();
+      }
+
+      _scanStmt.setBytes(1, q.getKeyBytes());
+      _scanStmt.setInt(2, q.getScanLength());
+      rs = _scanStmt.executeQuery();
+
+      int rows = 0;
+      while(rs.next())
+      {
+        @SuppressWarnings("unused")
+        byte valueB[] = rs.getBytes(2);
+        rows++;
+      }
+      q.setScanCount(rows);
+
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      return DatabaseResult.FAIL;
+    }
+    finally
+    {
+      tryClose(rs);
+    }
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    ResultSet rs = null;
+
+    try
+    {
+      if(_conn.isClosed())
+      {
+        close();
+        prepareConn();
+        prepareWriteStmt();
+        prepareReadStmt();
+        prepareDeleteStmt();
+        prepareScanStmt();
+      }
+
+      byte keys[][] = q.getMultiKeys();
+      int count = q.getMultiKeyCount();
+      PreparedStatement stmt = getMultiGetStmt(count);
+      for(int a = 0; a<count; a++)
+        stmt.setBytes(a + 1, keys[a]);
+      rs = stmt.executeQuery();
+
+      while(rs.next())
+      {
+        @SuppressWarnings("unused")
+        byte valueB[] = rs.getBytes(2);
+      }
+
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      return DatabaseResult.FAIL;
+    }
+    finally
+    {
+      tryClose(rs);
+    }
+  }
+
+  /**
+   * Each worker writes only its own keys, so the read and the write are not put into a transaction.
+   */
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    ResultSet rs = null;
+    byte keyByte[] = q.getKeyBytes();
+
+    try
+    {
+      if(_readStmt.isClosed() || _writeStmt.isClosed() || _conn.isClosed())
+      {
+        close();
+        prepareConn();
+        prepareWriteStmt();
+        prepareReadStmt();
+        prepareDeleteStmt();
+        prepareScanStmt();
+      }
+
+      _readStmt.setBytes(1, keyByte);
+      rs = _readStmt.executeQuery();
+
+      byte current[] = null;
+      if(rs.next())
+        current = rs.getBytes(_valColName);
+
+      byte next[] = _mergeOperator.apply(current, q.getValueArray(), q.getValueOffset(), q.getValueLength());
+      _writeStmt.setBytes(1, keyByte);
+      _writeStmt.setBytes(2, next);
+      _writeStmt.executeUpdate();
+
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      return DatabaseResult.FAIL;
+    }
+    finally
+    {
+      tryClose(rs);
+    }
+  }
+
   @Override
   public DatabaseResult close()
   {
@@ -444,11 +698,18 @@ public class MysqlDatabase implements Database
     tryClose(_writeStmt);
     tryClose(_readStmt);
     tryClose(_deleteStmt);
+    tryClose(_scanStmt);
+    if(_multiGetStmts != null)
+    {
+      for(int a = 0; a<_multiGetStmts.length; a++)
+        tryClose(_multiGetStmts[a]);
+      _multiGetStmts = null;
+    }
 
     return DatabaseResult.OK;
   }
 
-  private String getParamStr(Map<String, String> properties, String propertyName)
+  protected String getParamStr(Map<String, String> properties, String propertyName)
   {
     String val = properties.get(propertyName);
     if(val == null)
@@ -457,7 +718,7 @@ public class MysqlDatabase implements Database
       return val;
   }
 
-  private int getParamInt(Map<String, String> properties, String propertyName)
+  protected int getParamInt(Map<String, String> properties, String propertyName)
   {
     String val = properties.get(propertyName);
     if(val == null)
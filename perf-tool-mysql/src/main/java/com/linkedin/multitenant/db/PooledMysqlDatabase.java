@@ -0,0 +1,536 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.main.RunExperiment;
+
+/**
+ * MySQL adapter where the workers of a job share a pool of connections, like application threads of a service.<br>
+ * The pool is sized independently of the number of threads. Statements are prepared on the server and cached by
+ * the driver per connection, so preparing one for every query costs a cache lookup.
+ * A worker keeps its connection while a transaction or a batch of writes is open, and returns it to the pool otherwise.
+ * Writes are collected into JDBC batches of mysql.batchSize, which the driver rewrites into multi-row inserts.
+ * Other queries of the worker send its pending batch first, so they see its own writes.
+ * Values are bound as streams over the value buffer of the query. The driver reads them when the statement is sent,
+ * so values of a batch are first copied into a buffer that is reused by the next batch.
+ */
+public class PooledMysqlDatabase extends MysqlDatabase
+{
+  private static final Logger _LOG = Logger.getLogger(PooledMysqlDatabase.class);
+
+  public static final String FLAG_MYSQL_POOL_SIZE        = "mysql.pool.size";
+  public static final String FLAG_MYSQL_POOL_TIMEOUT     = "mysql.pool.timeout";
+  public static final String FLAG_MYSQL_AUTO_COMMIT      = "mysql.autoCommit";
+  public static final String FLAG_MYSQL_TXN_SIZE         = "mysql.txnSize";
+  public static final String FLAG_MYSQL_BATCH_SIZE       = "mysql.batchSize";
+  public static final String FLAG_MYSQL_STMT_CACHE_SIZE  = "mysql.stmtCacheSize";
+
+  protected String _jobName;
+  protected int _poolSize;
+  protected long _poolTimeoutMs;
+  protected boolean _autoCommit;
+  protected int _txnSize;
+  protected int _batchSize;
+  protected int _stmtCacheSize;
+
+  protected MysqlConnectionPool _pool = null;
+
+  protected String _writeSql;
+  protected String _readSql;
+  protected String _deleteSql;
+  protected String _scanSql;
+  //multi-get statements indexed by key count, built on first use
+  protected String _multiGetSqls[] = new String[0];
+
+  //connection kept between queries while a transaction or a batch is open
+  protected Connection _held = null;
+  protected int _txnOps = 0;
+  protected PreparedStatement _batchStmt = null;
+  protected int _batchCount = 0;
+  //values of the open batch, because the value buffer of a query may be reused before the batch is sent
+  protected byte _batchValues[] = new byte[0];
+  protected int _batchValuesLength = 0;
+
+  @Override
+  public DatabaseResult init(Map<String, String> workPlanProperties, Map<String, String> jobProperties) throws Exception
+  {
+    _jobName = getParamStr(jobProperties, RunExperiment.FLAG_JOB_NAME);
+    if(_jobName == null)
+    {
+      _LOG.fatal("Job name is not specified");
+      return DatabaseResult.FAIL;
+    }
+
+    _poolSize = getParamInt(jobProperties, FLAG_MYSQL_POOL_SIZE);
+    if(_poolSize == -1)
+      _poolSize = 8;
+
+    _poolTimeoutMs = getParamInt(jobProperties, FLAG_MYSQL_POOL_TIMEOUT);
+    if(_poolTimeoutMs == -1)
+      _poolTimeoutMs = 10000;
+
+    String temp = getParamStr(jobProperties, FLAG_MYSQL_AUTO_COMMIT);
+    _autoCommit = temp == null || Boolean.parseBoolean(temp);
+
+    _txnSize = getParamInt(jobProperties, FLAG_MYSQL_TXN_SIZE);
+    if(_txnSize < 1)
+      _txnSize = 1;
+
+    _batchSize = getParamInt(jobProperties, FLAG_MYSQL_BATCH_SIZE);
+    if(_batchSize < 1)
+      _batchSize = 1;
+
+    _stmtCacheSize = getParamInt(jobProperties, FLAG_MYSQL_STMT_CACHE_SIZE);
+    if(_stmtCacheSize == -1)
+      _stmtCacheSize = 256;
+
+    _LOG.debug("Pool of job " + _jobName + " has " + _poolSize + " connections. autoCommit=" + _autoCommit + " txnSize=" + _txnSize
+        + " batchSize=" + _batchSize);
+
+    return super.init(workPlanProperties, jobProperties);
+  }
+
+  @Override
+  public DatabaseResult init(String dbHost, int dbPort, String userName, String userPass, String dbName, String tableName,
+        String keyColName, String valColName, int valueColSize, int timeout) throws Exception
+  {
+    _tableName = tableName;
+    _keyColName = keyColName;
+    _valColName = valColName;
+    _timeout = timeout;
+
+    _connStr = buildConnStr(dbHost, dbPort, userName, userPass, dbName) + "&useServerPrepStmts=true&cachePrepStmts=true"
+        + "&prepStmtCacheSize=" + _stmtCacheSize + "&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true";
+    _pool = MysqlConnectionPool.getInstance(_jobName, _connStr, _poolSize, _autoCommit);
+
+    _writeSql = buildWriteSql();
+    _readSql = buildReadSql();
+    _deleteSql = buildDeleteSql();
+    _scanSql = buildScanSql();
+
+    Connection conn = begin();
+    PreparedStatement stmt = conn.prepareStatement(buildCreateTableSql(valueColSize));
+    try
+    {
+      stmt.executeUpdate();
+      if(!_autoCommit)
+        conn.commit();
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Error creating table", e);
+    }
+    finally
+    {
+      tryClose(stmt);
+      release(false);
+    }
+
+    return DatabaseResult.OK;
+  }
+
+  private Connection begin() throws Exception
+  {
+    if(_held == null)
+    {
+      _held = _pool.acquire(_poolTimeoutMs);
+      if(_held == null)
+        throw new SQLException("No connection is released by the pool of job " + _jobName + " in " + _poolTimeoutMs + "ms");
+    }
+    return _held;
+  }
+
+  private PreparedStatement prepare(String sql) throws Exception
+  {
+    PreparedStatement stmt = _held.prepareStatement(sql);
+    if(_timeout > 0)
+      stmt.setQueryTimeout(_timeout);
+    return stmt;
+  }
+
+  private void flushBatch() throws Exception
+  {
+    if(_batchCount == 0)
+      return;
+
+    try
+    {
+      _batchStmt.executeBatch();
+    }
+    finally
+    {
+      tryClose(_batchStmt);
+      _batchStmt = null;
+      _batchCount = 0;
+      _batchValuesLength = 0;
+    }
+  }
+
+  /**
+   * Called after each successful query. Commits and returns the connection when the transaction is complete.
+   */
+  private void finish() throws Exception
+  {
+    if(_autoCommit)
+    {
+      if(_batchCount > 0)
+        return;
+    }
+    else
+    {
+      _txnOps++;
+      if(_txnOps < _txnSize)
+        return;
+
+      flushBatch();
+      _held.commit();
+      _txnOps = 0;
+    }
+
+    release(false);
+  }
+
+  /**
+   * Called after a failed query. Pending writes of the transaction and the batch are dropped.
+   */
+  private void abort()
+  {
+    if(_held == null)
+      return;
+
+    tryClose(_batchStmt);
+    _batchStmt = null;
+    _batchCount = 0;
+    _batchValuesLength = 0;
+    _txnOps = 0;
+
+    boolean broken = true;
+    try
+    {
+      if(!_autoCommit)
+        _held.rollback();
+      broken = _held.isClosed();
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Failed to roll back", e);
+    }
+    release(broken);
+  }
+
+  private void release(boolean broken)
+  {
+    if(_held != null)
+    {
+      _pool.release(_held, broken);
+      _held = null;
+    }
+  }
+
+  private DatabaseResult doWrite(Query q)
+  {
+    PreparedStatement stmt = null;
+
+    try
+    {
+      begin();
+      int len = q.getValueLength();
+      if(_batchSize > 1)
+      {
+        if(_batchStmt == null)
+          _batchStmt = prepare(_writeSql);
+
+        //a larger buffer leaves the values bound so far in the old one
+        if(_batchValues.length - _batchValuesLength < len)
+          _batchValues = new byte[Math.max(_batchValues.length * 2, len * _batchSize)];
+        System.arraycopy(q.getValueArray(), q.getValueOffset(), _batchValues, _batchValuesLength, len);
+
+        _batchStmt.setBytes(1, q.getKeyBytes());
+        _batchStmt.setBinaryStream(2, new ByteArrayInputStream(_batchValues, _batchValuesLength, len), len);
+        _batchValuesLength += len;
+        _batchStmt.addBatch();
+        _batchCount++;
+        if(_batchCount >= _batchSize)
+          flushBatch();
+      }
+      else
+      {
+        stmt = prepare(_writeSql);
+        stmt.setBytes(1, q.getKeyBytes());
+        stmt.setBinaryStream(2, new ByteArrayInputStream(q.getValueArray(), q.getValueOffset(), len), len);
+        stmt.executeUpdate();
+      }
+
+      tryClose(stmt);
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doInsert(Query q)
+  {
+    return doWrite(q);
+  }
+
+  @Override
+  public DatabaseResult doUpdate(Query q)
+  {
+    return doWrite(q);
+  }
+
+  @Override
+  public DatabaseResult doRead(Query q)
+  {
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+
+    try
+    {
+      begin();
+      flushBatch();
+
+      stmt = prepare(_readSql);
+      stmt.setBytes(1, q.getKeyBytes());
+      rs = stmt.executeQuery();
+      if(rs.next())
+      {
+        byte valueB[] = rs.getBytes(1);
+        q.setResult(valueB, 0, valueB.length);
+      }
+      else
+      {
+        q.setResultMissing();
+      }
+
+      tryClose(rs);
+      tryClose(stmt);
+      rs = null;
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(rs);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doDelete(Query q)
+  {
+    PreparedStatement stmt = null;
+
+    try
+    {
+      begin();
+      flushBatch();
+
+      stmt = prepare(_deleteSql);
+      stmt.setBytes(1, q.getKeyBytes());
+      stmt.executeUpdate();
+
+      tryClose(stmt);
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+
+    try
+    {
+      begin();
+      flushBatch();
+
+      stmt = prepare(_scanSql);
+      stmt.setBytes(1, q.getKeyBytes());
+      stmt.setInt(2, q.getScanLength());
+      rs = stmt.executeQuery();
+      int rows = 0;
+      while(rs.next())
+      {
+        @SuppressWarnings("unused")
+        byte valueB[] = rs.getBytes(2);
+        rows++;
+      }
+      q.setScanCount(rows);
+
+      tryClose(rs);
+      tryClose(stmt);
+      rs = null;
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(rs);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+
+    try
+    {
+      begin();
+      flushBatch();
+
+      byte keys[][] = q.getMultiKeys();
+      int count = q.getMultiKeyCount();
+      if(_multiGetSqls.length <= count)
+        _multiGetSqls = Arrays.copyOf(_multiGetSqls, count + 1);
+      if(_multiGetSqls[count] == null)
+        _multiGetSqls[count] = buildMultiGetSql(count);
+
+      stmt = prepare(_multiGetSqls[count]);
+      for(int a = 0; a<count; a++)
+        stmt.setBytes(a + 1, keys[a]);
+      rs = stmt.executeQuery();
+      while(rs.next())
+      {
+        @SuppressWarnings("unused")
+        byte valueB[] = rs.getBytes(2);
+      }
+
+      tryClose(rs);
+      tryClose(stmt);
+      rs = null;
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(rs);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    byte keyByte[] = q.getKeyBytes();
+
+    try
+    {
+      begin();
+      flushBatch();
+
+      stmt = prepare(_readSql);
+      stmt.setBytes(1, keyByte);
+      rs = stmt.executeQuery();
+      byte current[] = null;
+      if(rs.next())
+        current = rs.getBytes(1);
+      tryClose(rs);
+      tryClose(stmt);
+      rs = null;
+
+      byte next[] = _mergeOperator.apply(current, q.getValueArray(), q.getValueOffset(), q.getValueLength());
+      stmt = prepare(_writeSql);
+      stmt.setBytes(1, keyByte);
+      stmt.setBytes(2, next);
+      stmt.executeUpdate();
+
+      tryClose(stmt);
+      stmt = null;
+      finish();
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      _LOG.error("Query execution exception", e);
+      tryClose(rs);
+      tryClose(stmt);
+      abort();
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  /**
+   * Sends the pending batch and commits the open transaction before giving the connection back.
+   */
+  @Override
+  public DatabaseResult close()
+  {
+    DatabaseResult result = DatabaseResult.OK;
+    if(_held != null)
+    {
+      try
+      {
+        flushBatch();
+        if(!_autoCommit)
+          _held.commit();
+        release(false);
+      }
+      catch(Exception e)
+      {
+        _LOG.error("Failed to finish the open transaction", e);
+        abort();
+        result = DatabaseResult.FAIL;
+      }
+    }
+
+    if(_pool != null)
+    {
+      MysqlConnectionPool.release(_pool);
+      _pool = null;
+    }
+
+    return result;
+  }
+}
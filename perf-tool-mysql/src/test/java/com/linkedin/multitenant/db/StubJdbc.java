@@ -0,0 +1,266 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JDBC driver for jdbc:stub: urls that records the statements sent to its connections instead of running them.<br>
+ * Each sent statement is logged as the first word of its SQL followed by its bound parameters, e.g. "insert k1=v1".
+ * A batch is logged as "batch" followed by its rows. Like the MySQL driver, streams are read when the statement is
+ * sent, not when they are bound. Reads find no rows.
+ */
+public class StubJdbc implements Driver
+{
+  public static final String URL_PREFIX = "jdbc:stub:";
+
+  private static final StubJdbc _instance = new StubJdbc();
+  private static boolean _registered = false;
+
+  private final List<String> _log = Collections.synchronizedList(new ArrayList<String>());
+  private final AtomicInteger _opened = new AtomicInteger();
+  private final AtomicInteger _closed = new AtomicInteger();
+  private volatile boolean _failNext = false;
+
+  public static synchronized StubJdbc getInstance() throws SQLException
+  {
+    if(!_registered)
+    {
+      DriverManager.registerDriver(_instance);
+      _registered = true;
+    }
+    return _instance;
+  }
+
+  /**
+   * Forget the log and counters of earlier tests.
+   */
+  public void reset()
+  {
+    _log.clear();
+    _opened.set(0);
+    _closed.set(0);
+    _failNext = false;
+  }
+
+  public List<String> getLog()
+  {
+    return _log;
+  }
+
+  public int getOpened()
+  {
+    return _opened.get();
+  }
+
+  public int getClosed()
+  {
+    return _closed.get();
+  }
+
+  /**
+   * Let the next sent statement fail with an SQLException.
+   */
+  public void failNext()
+  {
+    _failNext = true;
+  }
+
+  private static String toString(Object value) throws Exception
+  {
+    if(value instanceof byte[])
+      return new String((byte[]) value, "UTF-8");
+    if(value instanceof InputStream)
+    {
+      InputStream in = (InputStream) value;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      int b;
+      while((b = in.read()) != -1)
+        out.write(b);
+      return new String(out.toByteArray(), "UTF-8");
+    }
+    return String.valueOf(value);
+  }
+
+  private static String toString(TreeMap<Integer, Object> params) throws Exception
+  {
+    StringBuilder sb = new StringBuilder();
+    for(Object value : params.values())
+    {
+      if(sb.length() > 0)
+        sb.append('=');
+      sb.append(toString(value));
+    }
+    return sb.toString();
+  }
+
+  private void send() throws SQLException
+  {
+    if(_failNext)
+    {
+      _failNext = false;
+      throw new SQLException("Stub failure");
+    }
+  }
+
+  private class StatementHandler implements InvocationHandler
+  {
+    private final String _verb;
+    private TreeMap<Integer, Object> _params = new TreeMap<Integer, Object>();
+    private List<TreeMap<Integer, Object>> _batch = new ArrayList<TreeMap<Integer, Object>>();
+
+    private StatementHandler(String sql)
+    {
+      _verb = sql.trim().split(" ")[0];
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+      String name = method.getName();
+      if(name.equals("setBytes") || name.equals("setBinaryStream") || name.equals("setInt") || name.equals("setString"))
+      {
+        _params.put((Integer) args[0], args[1]);
+      }
+      else if(name.equals("addBatch"))
+      {
+        _batch.add(_params);
+        _params = new TreeMap<Integer, Object>();
+      }
+      else if(name.equals("executeBatch"))
+      {
+        send();
+        StringBuilder sb = new StringBuilder("batch " + _verb);
+        for(TreeMap<Integer, Object> row : _batch)
+          sb.append(' ').append(StubJdbc.toString(row));
+        _log.add(sb.toString());
+        int result[] = new int[_batch.size()];
+        _batch.clear();
+        return result;
+      }
+      else if(name.equals("executeUpdate") || name.equals("executeQuery"))
+      {
+        send();
+        _log.add(_params.isEmpty() ? _verb : _verb + " " + StubJdbc.toString(_params));
+        if(name.equals("executeUpdate"))
+          return 1;
+        return Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[] {ResultSet.class}, new InvocationHandler()
+        {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args)
+          {
+            return method.getName().equals("next") ? Boolean.FALSE : null;
+          }
+        });
+      }
+      return null;
+    }
+  }
+
+  private class ConnectionHandler implements InvocationHandler
+  {
+    private boolean _isClosed = false;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+      String name = method.getName();
+      if(name.equals("prepareStatement"))
+      {
+        return Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+            new StatementHandler((String) args[0]));
+      }
+      else if(name.equals("commit") || name.equals("rollback"))
+      {
+        _log.add(name);
+      }
+      else if(name.equals("close"))
+      {
+        if(!_isClosed)
+          _closed.incrementAndGet();
+        _isClosed = true;
+      }
+      else if(name.equals("isClosed"))
+      {
+        return _isClosed;
+      }
+      else if(name.equals("hashCode"))
+      {
+        return System.identityHashCode(proxy);
+      }
+      else if(name.equals("equals"))
+      {
+        return proxy == args[0];
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException
+  {
+    if(!acceptsURL(url))
+      return null;
+    _opened.incrementAndGet();
+    return (Connection) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[] {Connection.class},
+        new ConnectionHandler());
+  }
+
+  @Override
+  public boolean acceptsURL(String url)
+  {
+    return url.startsWith(URL_PREFIX);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+  {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion()
+  {
+    return 1;
+  }
+
+  @Override
+  public int getMinorVersion()
+  {
+    return 0;
+  }
+
+  @Override
+  public boolean jdbcCompliant()
+  {
+    return false;
+  }
+
+  public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException
+  {
+    throw new SQLFeatureNotSupportedException();
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMysqlConnectionPool
+{
+  private StubJdbc _jdbc;
+
+  @Before
+  public void prepare() throws Exception
+  {
+    _jdbc = StubJdbc.getInstance();
+    _jdbc.reset();
+  }
+
+  @Test
+  public void testAcquireAndRelease() throws Exception
+  {
+    MysqlConnectionPool pool = MysqlConnectionPool.getInstance("pool1", StubJdbc.URL_PREFIX + "db", 2, true);
+
+    Connection c1 = pool.acquire(0);
+    Connection c2 = pool.acquire(0);
+    assertNotNull(c1);
+    assertNotNull(c2);
+    assertNotSame(c1, c2);
+    assertEquals(2, _jdbc.getOpened());
+
+    //all connections are handed out
+    long start = System.currentTimeMillis();
+    assertNull(pool.acquire(50));
+    assertTrue(System.currentTimeMillis() - start >= 40);
+
+    //released connections are kept open and handed out again
+    pool.release(c1, false);
+    assertSame(c1, pool.acquire(0));
+    assertEquals(2, _jdbc.getOpened());
+    assertEquals(0, _jdbc.getClosed());
+
+    //broken connections are closed and replaced by a new one
+    pool.release(c2, true);
+    assertTrue(c2.isClosed());
+    assertEquals(1, _jdbc.getClosed());
+    Connection c3 = pool.acquire(0);
+    assertNotSame(c2, c3);
+    assertEquals(3, _jdbc.getOpened());
+
+    pool.release(c1, false);
+    pool.release(c3, false);
+    MysqlConnectionPool.release(pool);
+    assertEquals(3, _jdbc.getClosed());
+  }
+
+  @Test
+  public void testSharedInstance() throws Exception
+  {
+    MysqlConnectionPool pool = MysqlConnectionPool.getInstance("pool2", StubJdbc.URL_PREFIX + "db", 1, true);
+    MysqlConnectionPool same = MysqlConnectionPool.getInstance("pool2", StubJdbc.URL_PREFIX + "db", 5, true);
+    assertSame(pool, same);
+
+    //the size of the first call is kept
+    Connection c = pool.acquire(0);
+    assertNull(same.acquire(0));
+    pool.release(c, false);
+
+    //idle connections are closed when the last reference is dropped
+    MysqlConnectionPool.release(same);
+    assertEquals(0, _jdbc.getClosed());
+    MysqlConnectionPool.release(pool);
+    assertEquals(1, _jdbc.getClosed());
+
+    MysqlConnectionPool other = MysqlConnectionPool.getInstance("pool2", StubJdbc.URL_PREFIX + "db", 1, true);
+    assertNotSame(pool, other);
+    MysqlConnectionPool.release(other);
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.common.Query.QueryType;
+import com.linkedin.multitenant.db.Database.DatabaseResult;
+
+public class TestPooledMysqlDatabase
+{
+  private StubJdbc _jdbc;
+
+  @Before
+  public void prepare() throws Exception
+  {
+    _jdbc = StubJdbc.getInstance();
+    _jdbc.reset();
+  }
+
+  private PooledMysqlDatabase createDb(String jobName, boolean autoCommit, int txnSize, int batchSize) throws Exception
+  {
+    PooledMysqlDatabase db = new PooledMysqlDatabase()
+    {
+      @Override
+      protected String buildConnStr(String dbHost, int dbPort, String userName, String userPass, String dbName)
+      {
+        return StubJdbc.URL_PREFIX + dbName + "?";
+      }
+    };
+    db._jobName = jobName;
+    db._poolSize = 1;
+    db._poolTimeoutMs = 0;
+    db._autoCommit = autoCommit;
+    db._txnSize = txnSize;
+    db._batchSize = batchSize;
+    db._stmtCacheSize = 16;
+    assertEquals(DatabaseResult.OK, db.init("host", 0, "user", "pass", "db", "tab", "k", "v", 100, 0));
+
+    if(autoCommit)
+      assertEquals(Arrays.asList("create"), _jdbc.getLog());
+    else
+      assertEquals(Arrays.asList("create", "commit"), _jdbc.getLog());
+    _jdbc.getLog().clear();
+    return db;
+  }
+
+  private static Query write(String key, byte buffer[], String value) throws Exception
+  {
+    //value in the middle of a reused buffer
+    byte bytes[] = value.getBytes("UTF-8");
+    Arrays.fill(buffer, (byte) '#');
+    System.arraycopy(bytes, 0, buffer, 1, bytes.length);
+
+    Query q = new Query(key, null, QueryType.UPDATE);
+    q.setValue(buffer, 1, bytes.length);
+    return q;
+  }
+
+  private void assertLog(String... expected)
+  {
+    assertEquals(Arrays.asList(expected), _jdbc.getLog());
+    _jdbc.getLog().clear();
+  }
+
+  @Test
+  public void testWrite() throws Exception
+  {
+    PooledMysqlDatabase db = createDb("job1", true, 1, 1);
+    byte buffer[] = new byte[10];
+
+    assertEquals(DatabaseResult.OK, db.doInsert(write("k1", buffer, "v1")));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k2", buffer, "value2")));
+    assertLog("insert k1=v1", "insert k2=value2");
+
+    //the connection goes back to the pool after each query
+    Connection conn = db._pool.acquire(0);
+    assertNotNull(conn);
+    db._pool.release(conn, false);
+
+    assertEquals(DatabaseResult.OK, db.close());
+    assertEquals(1, _jdbc.getClosed());
+  }
+
+  @Test
+  public void testBatch() throws Exception
+  {
+    PooledMysqlDatabase db = createDb("job2", true, 1, 3);
+    byte buffer[] = new byte[10];
+
+    //the batch is sent when it is full, with the values at the time they were added
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k1", buffer, "aa")));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k2", buffer, "bbbb")));
+    assertLog();
+    assertNull(db._pool.acquire(0));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k3", buffer, "cccccc")));
+    assertLog("batch insert k1=aa k2=bbbb k3=cccccc");
+
+    Connection conn = db._pool.acquire(0);
+    assertNotNull(conn);
+    db._pool.release(conn, false);
+
+    //other queries send the pending batch first
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k4", buffer, "dd")));
+    assertEquals(DatabaseResult.OK, db.doRead(new Query("k4", null, QueryType.READ)));
+    assertLog("batch insert k4=dd", "select k4");
+
+    //a failed batch drops its writes and returns the connection
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k5", buffer, "ee")));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k6", buffer, "ff")));
+    _jdbc.failNext();
+    assertEquals(DatabaseResult.FAIL, db.doUpdate(write("k7", buffer, "gg")));
+    assertLog();
+    conn = db._pool.acquire(0);
+    assertNotNull(conn);
+    db._pool.release(conn, false);
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k8", buffer, "hh")));
+
+    //close sends the rest
+    assertEquals(DatabaseResult.OK, db.close());
+    assertLog("batch insert k8=hh");
+  }
+
+  @Test
+  public void testTransaction() throws Exception
+  {
+    PooledMysqlDatabase db = createDb("job3", false, 3, 1);
+    byte buffer[] = new byte[10];
+
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k1", buffer, "v1")));
+    assertEquals(DatabaseResult.OK, db.doRead(new Query("k1", null, QueryType.READ)));
+    assertNull(db._pool.acquire(0));
+    assertEquals(DatabaseResult.OK, db.doDelete(new Query("k1", null, QueryType.DELETE)));
+    assertLog("insert k1=v1", "select k1", "delete k1", "commit");
+
+    //a failure rolls back the open transaction and starts a new one
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k2", buffer, "v2")));
+    _jdbc.failNext();
+    assertEquals(DatabaseResult.FAIL, db.doUpdate(write("k3", buffer, "v3")));
+    assertLog("insert k2=v2", "rollback");
+    Connection conn = db._pool.acquire(0);
+    assertNotNull(conn);
+    db._pool.release(conn, false);
+
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k4", buffer, "v4")));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k5", buffer, "v5")));
+    assertLog("insert k4=v4", "insert k5=v5");
+    assertEquals(DatabaseResult.OK, db.close());
+    assertLog("commit");
+  }
+
+  @Test
+  public void testBatchedTransaction() throws Exception
+  {
+    PooledMysqlDatabase db = createDb("job4", false, 2, 10);
+    byte buffer[] = new byte[10];
+
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k1", buffer, "v1")));
+    assertEquals(DatabaseResult.OK, db.doUpdate(write("k2", buffer, "v2")));
+    assertLog("batch insert k1=v1 k2=v2", "commit");
+    assertEquals(DatabaseResult.OK, db.close());
+    assertLog();
+  }
+}
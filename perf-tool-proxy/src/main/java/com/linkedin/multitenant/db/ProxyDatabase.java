@@ -7,50 +7,23 @@
  */
 package com.linkedin.multitenant.db;
 
-import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.ResponseHandler;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
+import com.linkedin.multitenant.common.MergeOperator;
 import com.linkedin.multitenant.common.Query;
 import com.linkedin.multitenant.main.RunExperiment;
 import com.linkedin.multitenant.workload.CoreWorkload;
 
 public class ProxyDatabase implements Database
 {
-  private class MyResponseHandler implements ResponseHandler<String>
-  {
-    public String handleResponse(HttpResponse response) throws ClientProtocolException, IOException
-    {
-      int status = response.getStatusLine().getStatusCode();
-      if(status >= 200 && status < 300)
-      {
-        HttpEntity ent = response.getEntity();
-        if(ent == null)
-          return null;
-        else
-          return EntityUtils.toString(ent);
-      }
-      else
-      {
-        throw new ClientProtocolException("Something wrong");
-      }
-    }
-  }
-
   private static final Logger m_log = Logger.getLogger(ProxyDatabase.class);
 
   public static final String FLAG_ESPRESSO_DB_NAME    = "proxy.dbName";
@@ -59,7 +32,7 @@ public class ProxyDatabase implements Database
   public static final String FLAG_ESPRESSO_VAL_COL    = "proxy.valCol";
   public static final String FLAG_ESPRESSO_TIMEOUT    = "proxy.timeout";
 
-  protected CloseableHttpClient m_client;
+  protected SharedHttpClient m_client;
   protected String m_hostName;
   protected int m_hostPort;
   protected String m_dbName;
@@ -67,18 +40,20 @@ public class ProxyDatabase implements Database
   protected String m_keyColName;
   protected String m_valueColName;
   protected int m_valueColSize;
-  protected MyResponseHandler m_handler;
+  //response bodies are read into its buffer, which is reused by every request of this worker
+  protected BufferResponseHandler m_handler;
+  protected MergeOperator m_mergeOperator;
   protected String m_connStr;
+  //reused to build request urls from key bytes
+  protected StringBuilder m_urlBuilder;
+  //reused to build the key list of multi-gets
+  protected byte m_keyListBuffer[];
 
   public ProxyDatabase()
   {
-    RequestConfig rq = RequestConfig.custom().setStaleConnectionCheckEnabled(false).build();
-
-    m_client = HttpClients.custom()
-                          .setDefaultRequestConfig(rq)
-                          .setMaxConnTotal(200)
-                          .build();
-    m_handler = new MyResponseHandler();
+    m_client = null;
+    m_handler = new BufferResponseHandler();
+    m_mergeOperator = MergeOperator.COUNTER;
   }
 
   @Override
@@ -181,6 +156,24 @@ public class ProxyDatabase implements Database
       return DatabaseResult.FAIL;
     }
 
+    //get read-modify-write operator
+    temp = getParamStr(jobProperties, CoreWorkload.FLAG_JOB_RMW_OPERATOR);
+    if(temp != null)
+    {
+      try
+      {
+        m_mergeOperator = MergeOperator.parse(temp);
+      }
+      catch(IllegalArgumentException e)
+      {
+        m_log.fatal("Unknown read-modify-write operator for job " + jobName + ": " + temp);
+        return DatabaseResult.FAIL;
+      }
+    }
+
+    //connections are shared with the other workers sending to the same host
+    m_client = SharedHttpClient.getInstance(hostName, hostPort, workPlanProperties);
+
     return init(hostName, hostPort, dbName, tableName, keyColName, valueColName, valueColSize);
   }
 
@@ -190,6 +183,8 @@ public class ProxyDatabase implements Database
     m_hostName = hostName;
     m_hostPort = hostPort;
     m_dbName = dbName;
+    if(m_client == null)
+      m_client = SharedHttpClient.getInstance(hostName, hostPort, null);
     m_tableName = tableName;
     m_keyColName = keyColName;
     m_valueColName = valueColName;
@@ -197,13 +192,13 @@ public class ProxyDatabase implements Database
 
     m_connStr = "http://" + m_hostName + ":" + m_hostPort +
         "/" + m_dbName + "/" + m_tableName + "/" + m_keyColName + "/" + m_valueColName + "/";
+    m_urlBuilder = new StringBuilder(m_connStr);
 
     HttpPost post = new HttpPost(m_connStr + m_valueColSize);
 
     try
     {
-      @SuppressWarnings("unused")
-      String resp = m_client.execute(post, m_handler);
+      m_client.execute(post, m_handler);
       return DatabaseResult.OK;
     }
     catch(Exception e)
@@ -216,16 +211,15 @@ public class ProxyDatabase implements Database
   @Override
   public DatabaseResult doInsert(Query q)
   {
-    HttpPut put = new HttpPut(m_connStr + q.getKey());
+    HttpPut put = new HttpPut(buildUrl(q));
 
-    ByteArrayEntity bae = new ByteArrayEntity(q.getValue());
+    ByteArrayEntity bae = new ByteArrayEntity(q.getValueArray(), q.getValueOffset(), q.getValueLength());
     bae.setContentType("octet-stream");
     put.setEntity(bae);
 
     try
     {
-      @SuppressWarnings("unused")
-      String responseBody = m_client.execute(put, m_handler);
+      m_client.execute(put, m_handler);
       return DatabaseResult.OK;
     }
     catch (Exception e)
@@ -238,16 +232,15 @@ public class ProxyDatabase implements Database
   @Override
   public DatabaseResult doUpdate(Query q)
   {
-    HttpPut put = new HttpPut(m_connStr + q.getKey());
+    HttpPut put = new HttpPut(buildUrl(q));
 
-    ByteArrayEntity bae = new ByteArrayEntity(q.getValue());
+    ByteArrayEntity bae = new ByteArrayEntity(q.getValueArray(), q.getValueOffset(), q.getValueLength());
     bae.setContentType("octet-stream");
     put.setEntity(bae);
 
     try
     {
-      @SuppressWarnings("unused")
-      String responseBody = m_client.execute(put, m_handler);
+      m_client.execute(put, m_handler);
       return DatabaseResult.OK;
     }
     catch (Exception e)
@@ -260,12 +253,16 @@ public class ProxyDatabase implements Database
   @Override
   public DatabaseResult doRead(Query q)
   {
-    HttpGet get = new HttpGet(m_connStr + q.getKey());
+    HttpGet get = new HttpGet(buildUrl(q));
 
     try
     {
-      @SuppressWarnings("unused")
-      String responseBody = m_client.execute(get, m_handler);
+      //missing keys get a response without a body
+      int length = m_client.execute(get, m_handler);
+      if(length < 0)
+        q.setResultMissing();
+      else
+        q.setResult(m_handler.getBuffer(), 0, length);
       return DatabaseResult.OK;
     }
     catch (Exception e)
@@ -278,12 +275,11 @@ public class ProxyDatabase implements Database
   @Override
   public DatabaseResult doDelete(Query q)
   {
-    HttpDelete delete = new HttpDelete(m_connStr + q.getKey());
+    HttpDelete delete = new HttpDelete(buildUrl(q));
 
     try
     {
-      @SuppressWarnings("unused")
-      String responseBody = m_client.execute(delete, m_handler);
+      m_client.execute(delete, m_handler);
       return DatabaseResult.OK;
     }
     catch (Exception e)
@@ -293,12 +289,150 @@ public class ProxyDatabase implements Database
     }
   }
 
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    HttpGet get = new HttpGet(buildScanUrl(q));
+
+    try
+    {
+      int length = m_client.execute(get, m_handler);
+      q.setScanCount(m_handler.countRows(length));
+      return DatabaseResult.OK;
+    }
+    catch (Exception e)
+    {
+      m_log.error("Error in executing doScan", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    HttpPost post = new HttpPost(buildMultiGetUrl(q));
+
+    ByteArrayEntity bae = new ByteArrayEntity(m_keyListBuffer, 0, buildKeyList(q));
+    bae.setContentType("octet-stream");
+    post.setEntity(bae);
+
+    try
+    {
+      m_client.execute(post, m_handler);
+      return DatabaseResult.OK;
+    }
+    catch (Exception e)
+    {
+      m_log.error("Error in executing doMultiGet", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    try
+    {
+      int length = m_client.execute(new HttpGet(buildUrl(q)), m_handler);
+      byte current[] = length < 0 ? null : Arrays.copyOf(m_handler.getBuffer(), length);
+      byte next[] = m_mergeOperator.apply(current, q.getValueArray(), q.getValueOffset(), q.getValueLength());
+
+      HttpPut put = new HttpPut(buildUrl(q));
+      ByteArrayEntity bae = new ByteArrayEntity(next);
+      bae.setContentType("octet-stream");
+      put.setEntity(bae);
+
+      m_client.execute(put, m_handler);
+      return DatabaseResult.OK;
+    }
+    catch (Exception e)
+    {
+      m_log.error("Error in executing doReadModifyWrite", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  /**
+   * Append key bytes to the connection string without creating a key String.
+   * Keys are expected to be url safe ASCII as the ones generated by KeyBuilder.
+   */
+  private void appendKey(Query q)
+  {
+    byte key[] = q.getKeyBytes();
+
+    m_urlBuilder.setLength(m_connStr.length());
+    for(int a = 0; a<key.length; a++)
+      m_urlBuilder.append((char) key[a]);
+  }
+
+  private String buildUrl(Query q)
+  {
+    appendKey(q);
+    return m_urlBuilder.toString();
+  }
+
+  /**
+   * Scans are a GET on the start key with op=scan and the number of keys in limit.
+   */
+  private String buildScanUrl(Query q)
+  {
+    appendKey(q);
+    m_urlBuilder.append("?op=scan&limit=");
+    m_urlBuilder.append(q.getScanLength());
+    return m_urlBuilder.toString();
+  }
+
+  /**
+   * Multi-gets are a POST on the first key with op=mget. All keys are in the content.
+   */
+  private String buildMultiGetUrl(Query q)
+  {
+    m_urlBuilder.setLength(m_connStr.length());
+    byte key[] = q.getMultiKeys()[0];
+    for(int a = 0; a<key.length; a++)
+      m_urlBuilder.append((char) key[a]);
+    m_urlBuilder.append("?op=mget");
+    return m_urlBuilder.toString();
+  }
+
+  /**
+   * Write the keys of a multi-get into m_keyListBuffer as key length int followed by key bytes.
+   * @return Number of bytes written
+   */
+  private int buildKeyList(Query q)
+  {
+    byte keys[][] = q.getMultiKeys();
+    int count = q.getMultiKeyCount();
+
+    int len = 0;
+    for(int a = 0; a<count; a++)
+      len += 4 + keys[a].length;
+    if(m_keyListBuffer == null || m_keyListBuffer.length < len)
+      m_keyListBuffer = new byte[Math.max(len, 1024)];
+
+    int pos = 0;
+    for(int a = 0; a<count; a++)
+    {
+      int keyLen = keys[a].length;
+      m_keyListBuffer[pos++] = (byte) (keyLen >>> 24);
+      m_keyListBuffer[pos++] = (byte) (keyLen >>> 16);
+      m_keyListBuffer[pos++] = (byte) (keyLen >>> 8);
+      m_keyListBuffer[pos++] = (byte) keyLen;
+      System.arraycopy(keys[a], 0, m_keyListBuffer, pos, keyLen);
+      pos += keyLen;
+    }
+
+    return pos;
+  }
+
   @Override
   public DatabaseResult close()
   {
     try
     {
-      m_client.close();
+      if(m_client != null)
+        SharedHttpClient.release(m_client);
+      m_client = null;
       return DatabaseResult.OK;
     }
     catch(Exception e)
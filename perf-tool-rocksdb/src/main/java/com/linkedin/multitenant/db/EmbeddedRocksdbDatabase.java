@@ -0,0 +1,388 @@
+/**
+ * Copyright 2014 LinkedIn Corp. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+package com.linkedin.multitenant.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.Filter;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksEnv;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.util.SizeUnit;
+
+import com.linkedin.multitenant.common.MergeOperator;
+import com.linkedin.multitenant.common.Query;
+import com.linkedin.multitenant.main.RunExperiment;
+import com.linkedin.multitenant.workload.CoreWorkload;
+
+/**
+ * Opens RocksDB in the benchmark process through JNI, without HTTP, Netty and the connection pool of mt-proxy.<br>
+ * The options are read from the work plan with the same names and defaults as mt-proxy's RocksDB mode, so the same
+ * work plan gives an engine only baseline next to the proxied numbers. All workers of a process that use the same
+ * database share one handle.
+ */
+public class EmbeddedRocksdbDatabase implements Database
+{
+  private static class SharedDb
+  {
+    private RocksDB m_db;
+    private Options m_opt;
+    private int m_refCount;
+  }
+
+  private static final Logger m_log = Logger.getLogger(EmbeddedRocksdbDatabase.class);
+
+  public static final String FLAG_ROCKSDB_DATA_FOLDER  = "rocksdb.dataFolder";
+  public static final String FLAG_ROCKSDB_FLUSH_POOL   = "rocksdb.flushPool";
+  public static final String FLAG_ROCKSDB_COMPACT_POOL = "rocksdb.compactPool";
+  public static final String FLAG_ROCKSDB_WRITE_BUFFER = "rocksdb.writeBuffer";
+  public static final String FLAG_ROCKSDB_TARGET_FILE  = "rocksdb.targetFile";
+  public static final String FLAG_ROCKSDB_CACHE_SIZE   = "rocksdb.cacheSize";
+  public static final String FLAG_ROCKSDB_BLOCK_SIZE   = "rocksdb.blockSize";
+  public static final String FLAG_ROCKSDB_UNIVERSAL_COMPACTION  = "rocksdb.compaction.universal";
+
+  private static final Map<String, SharedDb> m_instances = new HashMap<String, SharedDb>();
+  private static Filter m_filter = null;
+
+  protected String m_dbPath;
+  protected SharedDb m_shared;
+  protected RocksDB m_db;
+  protected MergeOperator m_mergeOperator;
+  //reused for values that are a slice of a larger array, since put takes whole arrays
+  protected byte m_valueBuffer[];
+  protected List<byte[]> m_keyList;
+
+  public EmbeddedRocksdbDatabase()
+  {
+    m_mergeOperator = MergeOperator.COUNTER;
+    m_valueBuffer = new byte[0];
+    m_keyList = new ArrayList<byte[]>();
+  }
+
+  @Override
+  public DatabaseResult init(Map<String, String> workPlanProperties, Map<String, String> jobProperties) throws Exception
+  {
+    String jobName;
+
+    //get job name
+    String temp = jobProperties.get(RunExperiment.FLAG_JOB_NAME);
+    if(temp == null)
+    {
+      m_log.fatal("Job name is not specified");
+      return DatabaseResult.FAIL;
+    }
+    else
+    {
+      jobName = temp;
+    }
+
+    //get data folder
+    String folderPath;
+    temp = workPlanProperties.get(FLAG_ROCKSDB_DATA_FOLDER);
+    if(temp == null)
+    {
+      m_log.fatal("Rocksdb data folder is not specified");
+      return DatabaseResult.FAIL;
+    }
+    else if(temp.endsWith("/"))
+    {
+      folderPath = temp.substring(0, temp.length()-1);
+    }
+    else
+    {
+      folderPath = temp;
+    }
+
+    //get db name
+    temp = jobProperties.get(RocksdbDatabase.FLAG_ROCKSDB_DB_NAME);
+    if(temp == null)
+    {
+      m_log.fatal("Rocksdb database name is not specified for job " + jobName);
+      return DatabaseResult.FAIL;
+    }
+    m_dbPath = folderPath + "/" + temp;
+
+    //get read-modify-write operator
+    temp = jobProperties.get(CoreWorkload.FLAG_JOB_RMW_OPERATOR);
+    if(temp != null)
+    {
+      try
+      {
+        m_mergeOperator = MergeOperator.parse(temp);
+      }
+      catch(IllegalArgumentException e)
+      {
+        m_log.fatal("Unknown read-modify-write operator for job " + jobName + ": " + temp);
+        return DatabaseResult.FAIL;
+      }
+    }
+
+    m_shared = open(m_dbPath, workPlanProperties);
+    m_db = m_shared.m_db;
+
+    return DatabaseResult.OK;
+  }
+
+  private static synchronized SharedDb open(String dbPath, Map<String, String> prop) throws Exception
+  {
+    SharedDb result = m_instances.get(dbPath);
+    if(result != null)
+    {
+      result.m_refCount++;
+      return result;
+    }
+
+    int flushPoolSize = getParamInt(prop, FLAG_ROCKSDB_FLUSH_POOL, 10);
+    int compactPoolSize = getParamInt(prop, FLAG_ROCKSDB_COMPACT_POOL, 10);
+    long writeBufferSize = getParamLong(prop, FLAG_ROCKSDB_WRITE_BUFFER, 64 * SizeUnit.MB);
+    int targetFileSize = getParamInt(prop, FLAG_ROCKSDB_TARGET_FILE, (int) (64 * SizeUnit.MB));
+    long cacheSize = getParamLong(prop, FLAG_ROCKSDB_CACHE_SIZE, 64 * SizeUnit.MB);
+    long blockSize = getParamLong(prop, FLAG_ROCKSDB_BLOCK_SIZE, 8 * SizeUnit.KB);
+
+    boolean isUniversalCompaction = false;
+    String temp = prop.get(FLAG_ROCKSDB_UNIVERSAL_COMPACTION);
+    if(temp != null)
+    {
+      temp = temp.toLowerCase();
+      isUniversalCompaction = temp.equals("1") || temp.equals("true") || temp.equals("yes");
+    }
+
+    //background pools and the bloom filter are shared by all databases of the process, as in mt-proxy
+    if(m_filter == null)
+    {
+      RocksEnv re = RocksEnv.getDefault();
+      re.setBackgroundThreads(compactPoolSize, RocksEnv.COMPACTION_POOL);
+      re.setBackgroundThreads(flushPoolSize, RocksEnv.FLUSH_POOL);
+      m_filter = new BloomFilter(10);
+    }
+
+    Options opt = new Options();
+    if(isUniversalCompaction)
+      opt.setCompactionStyle(CompactionStyle.UNIVERSAL);
+    opt.setCreateIfMissing(true);
+    opt.setWriteBufferSize(writeBufferSize);
+    opt.setTargetFileSizeBase(targetFileSize);
+    opt.setMaxBackgroundCompactions(compactPoolSize);
+    opt.setMaxBackgroundFlushes(flushPoolSize);
+    opt.setCacheSize(cacheSize);
+    opt.setBlockSize(blockSize);
+    opt.setFilter(m_filter);
+
+    result = new SharedDb();
+    result.m_opt = opt;
+    result.m_db = RocksDB.open(opt, dbPath);
+    result.m_refCount = 1;
+    m_instances.put(dbPath, result);
+    m_log.debug("Opened RocksDB at " + dbPath);
+
+    return result;
+  }
+
+  private static synchronized void release(String dbPath, SharedDb shared)
+  {
+    shared.m_refCount--;
+    if(shared.m_refCount > 0)
+      return;
+
+    m_instances.remove(dbPath);
+    shared.m_db.close();
+    shared.m_opt.dispose();
+    m_log.debug("Closed RocksDB at " + dbPath);
+  }
+
+  /**
+   * @return Value of the query as a whole array. The array is reused by the next call if it is not the query's own.
+   */
+  private byte[] getValue(Query q)
+  {
+    byte arr[] = q.getValueArray();
+    int len = q.getValueLength();
+    if(q.getValueOffset() == 0 && arr.length == len)
+      return arr;
+
+    if(m_valueBuffer.length != len)
+      m_valueBuffer = new byte[len];
+    System.arraycopy(arr, q.getValueOffset(), m_valueBuffer, 0, len);
+    return m_valueBuffer;
+  }
+
+  @Override
+  public DatabaseResult doInsert(Query q)
+  {
+    try
+    {
+      m_db.put(q.getKeyBytes(), getValue(q));
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doInsert", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doUpdate(Query q)
+  {
+    try
+    {
+      m_db.put(q.getKeyBytes(), getValue(q));
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doUpdate", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doRead(Query q)
+  {
+    try
+    {
+      byte val[] = m_db.get(q.getKeyBytes());
+      if(val == null)
+        q.setResultMissing();
+      else
+        q.setResult(val, 0, val.length);
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doRead", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doDelete(Query q)
+  {
+    try
+    {
+      m_db.remove(q.getKeyBytes());
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doDelete", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult doScan(Query q)
+  {
+    RocksIterator itr = null;
+
+    try
+    {
+      itr = m_db.newIterator();
+      itr.seek(q.getKeyBytes());
+      int rows = 0;
+      for(; rows<q.getScanLength() && itr.isValid(); rows++)
+      {
+        @SuppressWarnings("unused")
+        byte val[] = itr.value();
+        itr.next();
+      }
+      q.setScanCount(rows);
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doScan", e);
+      return DatabaseResult.FAIL;
+    }
+    finally
+    {
+      if(itr != null)
+        itr.dispose();
+    }
+  }
+
+  @Override
+  public DatabaseResult doMultiGet(Query q)
+  {
+    byte keys[][] = q.getMultiKeys();
+    int count = q.getMultiKeyCount();
+    m_keyList.clear();
+    for(int a = 0; a<count; a++)
+      m_keyList.add(keys[a]);
+
+    try
+    {
+      @SuppressWarnings("unused")
+      Map<byte[], byte[]> values = m_db.multiGet(m_keyList);
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doMultiGet", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  /**
+   * Each worker writes only its own keys, so the read and the write are not synchronized.
+   */
+  @Override
+  public DatabaseResult doReadModifyWrite(Query q)
+  {
+    try
+    {
+      byte key[] = q.getKeyBytes();
+      byte current[] = m_db.get(key);
+      byte next[] = m_mergeOperator.apply(current, q.getValueArray(), q.getValueOffset(), q.getValueLength());
+      m_db.put(key, next);
+      return DatabaseResult.OK;
+    }
+    catch(Exception e)
+    {
+      m_log.error("Error in executing doReadModifyWrite", e);
+      return DatabaseResult.FAIL;
+    }
+  }
+
+  @Override
+  public DatabaseResult close()
+  {
+    if(m_shared != null)
+    {
+      release(m_dbPath, m_shared);
+      m_shared = null;
+      m_db = null;
+    }
+    return DatabaseResult.OK;
+  }
+
+  private static int getParamInt(Map<String, String> properties, String propertyName, int defaultValue)
+  {
+    String val = properties.get(propertyName);
+    if(val == null)
+      return defaultValue;
+    else
+      return Integer.parseInt(val);
+  }
+
+  private static long getParamLong(Map<String, String> properties, String propertyName, long defaultValue)
+  {
+    String val = properties.get(propertyName);
+    if(val == null)
+      return defaultValue;
+    else
+      return Long.parseLong(val);
+  }
+}